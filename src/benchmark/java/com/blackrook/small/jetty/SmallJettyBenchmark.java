@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.GZipConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.SSLConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.StaticResourceConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.ThreadPoolConfigurationBuilder;
+import com.blackrook.small.jetty.benchmark.BenchmarkController;
+
+/**
+ * JMH benchmarks for servers made by {@link SmallJettyBootstrap}, one per configuration profile.
+ * <p>Each profile starts a server that serves a static file, and a {@link BenchmarkController} that returns the same content
+ * through {@link com.blackrook.small.SmallServlet}. The benchmark threads request one or the other over loopback.
+ * Throughput and sample time (for p99 latency) are both measured. Run with <code>-prof gc</code> for allocation rates
+ * (the <code>benchmark</code> Ant target does this by default).
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Dhttp.maxConnections=64"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+public class SmallJettyBenchmark
+{
+	private static final int HTTP_PORT = 18080;
+	private static final int HTTPS_PORT = 18443;
+	private static final String KEYSTORE_PASSWORD = "benchmark";
+	
+	/** The configuration profile. */
+	@Param({
+		"default", 
+		"threads-16", 
+		"threads-400", 
+		"buffer-8k", 
+		"buffer-64k", 
+		"gzip-1", 
+		"gzip-6", 
+		"gzip-9", 
+		"https", 
+		"https-gzip-6"
+	})
+	public String profile;
+
+	private File tempDir;
+	private Server server;
+	private URL staticUrl;
+	private URL controllerUrl;
+	private boolean secure;
+	private boolean gzip;
+	private SSLSocketFactory sslSocketFactory;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception
+	{
+		tempDir = Files.createTempDirectory("small-jetty-benchmark").toFile();
+		File content = new File(tempDir, "content.txt");
+		try (Writer writer = Files.newBufferedWriter(content.toPath(), StandardCharsets.UTF_8))
+		{
+			for (int i = 0; i < BenchmarkController.CONTENT_LINES; i++)
+				writer.append("Line ").append(String.valueOf(i)).append(" of the benchmark content.\n");
+		}
+		
+		secure = profile.startsWith("https");
+		gzip = profile.contains("gzip");
+		
+		DefaultSmallJettyConfiguration config = configure(profile, tempDir);
+		server = SmallJettyBootstrap.create(config);
+		String base = secure ? "https://localhost:" + HTTPS_PORT : "http://localhost:" + HTTP_PORT;
+		staticUrl = new URL(base + "/static/content.txt");
+		controllerUrl = new URL(base + "/controller/content");
+		if (secure)
+			sslSocketFactory = trustAllSocketFactory();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception
+	{
+		server.stop();
+		for (File file : tempDir.listFiles())
+			file.delete();
+		tempDir.delete();
+	}
+
+	/**
+	 * Requests the static file and reads the full response.
+	 * @param client the per-thread client state.
+	 * @return the amount of bytes read.
+	 * @throws IOException if the request fails.
+	 */
+	@Benchmark
+	public int get(ClientState client) throws IOException
+	{
+		return read(staticUrl, client);
+	}
+
+	/**
+	 * Requests the content from the Small controller and reads the full response.
+	 * @param client the per-thread client state.
+	 * @return the amount of bytes read.
+	 * @throws IOException if the request fails.
+	 */
+	@Benchmark
+	public int controller(ClientState client) throws IOException
+	{
+		return read(controllerUrl, client);
+	}
+
+	// Requests a URL and reads the full response.
+	private int read(URL url, ClientState client) throws IOException
+	{
+		HttpURLConnection conn = (HttpURLConnection)url.openConnection();
+		if (secure)
+		{
+			((HttpsURLConnection)conn).setSSLSocketFactory(sslSocketFactory);
+			((HttpsURLConnection)conn).setHostnameVerifier((host, session) -> true);
+		}
+		if (gzip)
+			conn.setRequestProperty("Accept-Encoding", "gzip");
+		
+		if (conn.getResponseCode() != 200)
+			throw new IOException("Unexpected response code: " + conn.getResponseCode());
+		
+		int total = 0;
+		try (InputStream in = conn.getInputStream())
+		{
+			int n;
+			while ((n = in.read(client.buffer)) > 0)
+				total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Per-thread client state.
+	 */
+	@State(Scope.Thread)
+	public static class ClientState
+	{
+		private final byte[] buffer = new byte[16384];
+	}
+
+	// Creates the configuration for a profile.
+	private static DefaultSmallJettyConfiguration configure(String profile, File tempDir) throws Exception
+	{
+		DefaultSmallJettyConfiguration config = DefaultSmallJettyConfiguration.configure()
+			.setServerPort(HTTP_PORT)
+			.setAllowWebSockets(false)
+			.setApplicationPackageRoots(BenchmarkController.class.getPackage().getName())
+			.addStaticResources(StaticResourceConfigurationBuilder.staticResources("/static/*", tempDir.getPath()));
+		
+		switch (profile)
+		{
+			case "default":
+				break;
+			case "threads-16":
+				config.setThreadPool(ThreadPoolConfigurationBuilder.queued().setMinThreads(16).setMaxThreads(16));
+				break;
+			case "threads-400":
+				config.setThreadPool(ThreadPoolConfigurationBuilder.queued().setMinThreads(8).setMaxThreads(400));
+				break;
+			case "buffer-8k":
+				config.setOutputBufferSize(8192);
+				break;
+			case "buffer-64k":
+				config.setOutputBufferSize(65536);
+				break;
+			case "gzip-1":
+				config.setGZip(GZipConfigurationBuilder.gzip().setCompressionLevel(1));
+				break;
+			case "gzip-6":
+				config.setGZip(GZipConfigurationBuilder.gzip().setCompressionLevel(6));
+				break;
+			case "gzip-9":
+				config.setGZip(GZipConfigurationBuilder.gzip().setCompressionLevel(9));
+				break;
+			case "https":
+				config.useSSL(HTTPS_PORT, SSLConfigurationBuilder.ssl()
+					.setKeyStorePath(createKeyStore(tempDir).getPath())
+					.setKeyStorePassword(KEYSTORE_PASSWORD)
+				);
+				break;
+			case "https-gzip-6":
+				config.useSSL(HTTPS_PORT, SSLConfigurationBuilder.ssl()
+					.setKeyStorePath(createKeyStore(tempDir).getPath())
+					.setKeyStorePassword(KEYSTORE_PASSWORD)
+				);
+				config.setGZip(GZipConfigurationBuilder.gzip().setCompressionLevel(6));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown profile: " + profile);
+		}
+		return config;
+	}
+
+	// Creates a self-signed key store with the JDK's keytool.
+	private static File createKeyStore(File tempDir) throws Exception
+	{
+		File keyStore = new File(tempDir, "benchmark.jks");
+		File keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool");
+		Process process = new ProcessBuilder(
+			keytool.getPath(), "-genkeypair", 
+			"-alias", "benchmark", 
+			"-keyalg", "RSA", 
+			"-keysize", "2048", 
+			"-dname", "CN=localhost", 
+			"-validity", "1", 
+			"-storetype", "JKS", 
+			"-keystore", keyStore.getPath(), 
+			"-storepass", KEYSTORE_PASSWORD, 
+			"-keypass", KEYSTORE_PASSWORD
+		).redirectErrorStream(true).start();
+		if (process.waitFor() != 0)
+			throw new IOException("Could not create benchmark key store with keytool.");
+		return keyStore;
+	}
+
+	// Creates a socket factory that trusts the self-signed certificate.
+	private static SSLSocketFactory trustAllSocketFactory() throws Exception
+	{
+		SSLContext context = SSLContext.getInstance("TLS");
+		context.init(null, new TrustManager[]{new X509TrustManager()
+		{
+			@Override
+			public void checkClientTrusted(X509Certificate[] chain, String authType)
+			{
+				// Trust all.
+			}
+
+			@Override
+			public void checkServerTrusted(X509Certificate[] chain, String authType)
+			{
+				// Trust all.
+			}
+
+			@Override
+			public X509Certificate[] getAcceptedIssuers()
+			{
+				return new X509Certificate[0];
+			}
+		}}, new SecureRandom());
+		return context.getSocketFactory();
+	}
+
+}
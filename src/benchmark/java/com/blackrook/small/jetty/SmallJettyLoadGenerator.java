@@ -0,0 +1,555 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.BufferedInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * An open-loop HTTP/1.1 load generator, for soak-testing a server at a constant request rate.
+ * <p>Requests are scheduled at fixed intervals from the start of the run, and each one's latency is measured 
+ * from when it was scheduled to be sent, not from when a connection was free to send it. 
+ * This corrects for coordinated omission: when the server stalls, the requests that should have been sent 
+ * during the stall are counted with the time they spent waiting, instead of not being sent at all.
+ * The time from actually sending to the response (service time) is recorded separately.
+ * <p>Each connection is a keep-alive socket on its own thread. Requests are GETs, and responses are read 
+ * fully (with Content-Length or chunked bodies). Connections that fail or are closed by the server are reopened.
+ * <p>Connecting and each read time out after the length of the measured run (between 1 and 60 seconds), and timed out
+ * requests are counted as failures. Connections still busy that long after the end of the run are abandoned.
+ * <p>Results are written in HdrHistogram's percentile distribution format, in milliseconds.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+public final class SmallJettyLoadGenerator
+{
+	private static final String USAGE = 
+		"Usage: SmallJettyLoadGenerator --url URL --rate REQUESTS_PER_SECOND [options]\n" +
+		"Options:\n" +
+		"    --connections N     Amount of connections (default 64).\n" +
+		"    --duration SECONDS  Length of the measured run (default 60).\n" +
+		"    --warmup SECONDS    Length of the unmeasured warmup before the run (default 10).\n" +
+		"    --output FILE       File for the corrected latency percentile distribution (default: standard out).\n" +
+		"    --insecure          Trust any server certificate for https URLs.";
+	
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int PERCENTILE_TICKS_PER_HALF_DISTANCE = 5;
+	private static final long MIN_TIMEOUT_MILLIS = 1000L;
+	private static final long MAX_TIMEOUT_MILLIS = 60000L;
+	
+	private final URI uri;
+	private final double rate;
+	private final int connections;
+	private final SocketFactory socketFactory;
+	
+	/**
+	 * Creates a new load generator.
+	 * @param uri the URI to request. Must be http or https.
+	 * @param rate the amount of requests to send per second.
+	 * @param connections the amount of connections to use.
+	 * @param insecure if true, any server certificate is trusted for https.
+	 * @throws Exception if the https socket factory could not be created.
+	 */
+	public SmallJettyLoadGenerator(URI uri, double rate, int connections, boolean insecure) throws Exception
+	{
+		if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme()))
+			throw new IllegalArgumentException("URI scheme must be http or https.");
+		if (rate <= 0.0)
+			throw new IllegalArgumentException("Rate must be greater than 0.");
+		if (connections < 1)
+			throw new IllegalArgumentException("Connections must be greater than 0.");
+		this.uri = uri;
+		this.rate = rate;
+		this.connections = connections;
+		if ("https".equals(uri.getScheme()))
+			this.socketFactory = insecure ? trustAllContext().getSocketFactory() : SSLContext.getDefault().getSocketFactory();
+		else
+			this.socketFactory = SocketFactory.getDefault();
+	}
+
+	/**
+	 * Runs the load.
+	 * @param warmupMillis the length of the warmup in milliseconds. Requests scheduled during it are not recorded.
+	 * @param durationMillis the length of the measured run in milliseconds.
+	 * @return the results.
+	 * @throws InterruptedException if interrupted while waiting for the connection threads.
+	 */
+	public Result run(long warmupMillis, long durationMillis) throws InterruptedException
+	{
+		final Result result = new Result();
+		final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		final AtomicLong sequence = new AtomicLong(0L);
+		final long startNanos = System.nanoTime();
+		final long recordNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+		final long endNanos = recordNanos + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		final byte[] request = createRequest();
+		final int timeoutMillis = (int)Math.min(Math.max(durationMillis, MIN_TIMEOUT_MILLIS), MAX_TIMEOUT_MILLIS);
+
+		List<Thread> threads = new ArrayList<>(connections);
+		for (int i = 0; i < connections; i++)
+		{
+			Thread thread = new Thread(() -> 
+			{
+				Connection connection = new Connection(timeoutMillis);
+				try {
+					while (true)
+					{
+						long intended = startNanos + (long)(sequence.getAndIncrement() * intervalNanos);
+						if (intended >= endNanos)
+							break;
+						
+						long wait;
+						while ((wait = intended - System.nanoTime()) > 0)
+							LockSupport.parkNanos(wait);
+						
+						long sent = System.nanoTime();
+						boolean recorded = intended >= recordNanos;
+						try {
+							int status = connection.exchange(request);
+							long done = System.nanoTime();
+							if (recorded)
+							{
+								result.corrected.record(done - intended);
+								result.uncorrected.record(done - sent);
+								result.completed.increment();
+								if (status >= 400)
+									result.errorResponses.increment();
+							}
+						} catch (IOException e) {
+							connection.close();
+							if (recorded)
+								result.failures.increment();
+						}
+					}
+				} finally {
+					connection.close();
+				}
+			}, "SmallJettyLoadGenerator-" + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+		
+		// A request still in progress at the end has had time to connect and time out on a read by then.
+		long joinDeadlineNanos = endNanos + TimeUnit.MILLISECONDS.toNanos(2L * timeoutMillis);
+		for (Thread thread : threads)
+		{
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(joinDeadlineNanos - System.nanoTime());
+			if (remainingMillis <= 0L)
+				break;
+			thread.join(remainingMillis);
+		}
+		
+		result.durationNanos = System.nanoTime() - recordNanos;
+		return result;
+	}
+
+	// Creates the request bytes.
+	private byte[] createRequest()
+	{
+		String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+		if (uri.getRawQuery() != null)
+			path += "?" + uri.getRawQuery();
+		String host = uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+		return (
+			"GET " + path + " HTTP/1.1\r\n" +
+			"Host: " + host + "\r\n" +
+			"User-Agent: SmallJettyLoadGenerator\r\n" +
+			"Accept: */*\r\n" +
+			"\r\n"
+		).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Writes a histogram in HdrHistogram's percentile distribution format, in milliseconds.
+	 * @param histogram the histogram to write.
+	 * @param out the output stream.
+	 */
+	public static void writePercentileDistribution(LatencyHistogram histogram, PrintStream out)
+	{
+		long count = histogram.getCount();
+		List<Double> quantiles = new ArrayList<>();
+		double quantile = 0.0;
+		// More percentiles each time the distance to 100% halves, like HdrHistogram's percentile iterator.
+		while (count > 0 && 1.0 / (1.0 - quantile) <= count)
+		{
+			quantiles.add(quantile);
+			double halfDistance = Math.pow(2, Math.floor(Math.log(1.0 / (1.0 - quantile)) / Math.log(2)) + 1);
+			quantile += 1.0 / (halfDistance * PERCENTILE_TICKS_PER_HALF_DISTANCE);
+		}
+		quantiles.add(1.0);
+		
+		double[] q = new double[quantiles.size()];
+		for (int i = 0; i < q.length; i++)
+			q[i] = quantiles.get(i);
+		long[] values = histogram.getValuesAtQuantiles(q);
+		
+		out.println(String.format(Locale.ROOT, "%12s %14s %10s %14s", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+		out.println();
+		for (int i = 0; i < q.length; i++)
+		{
+			if (q[i] < 1.0)
+				out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d %14.2f", values[i] / NANOS_PER_MILLI, q[i], (long)Math.ceil(q[i] * count), 1.0 / (1.0 - q[i])));
+			else
+				out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d", values[i] / NANOS_PER_MILLI, q[i], count));
+		}
+		double mean = count > 0 ? histogram.getTotal() / (double)count : 0.0;
+		out.println(String.format(Locale.ROOT, "#[Mean    = %12.3f, Max            = %12.3f]", mean / NANOS_PER_MILLI, histogram.getMax() / NANOS_PER_MILLI));
+		out.println(String.format(Locale.ROOT, "#[Total count    = %12d]", count));
+	}
+
+	/**
+	 * Runs the load generator from the command line.
+	 * @param args the command line arguments.
+	 * @throws Exception if the run fails.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		URI uri = null;
+		double rate = 0.0;
+		int connections = 64;
+		long duration = 60;
+		long warmup = 10;
+		String output = null;
+		boolean insecure = false;
+		
+		try {
+			for (int i = 0; i < args.length; i++)
+			{
+				switch (args[i])
+				{
+					case "--url":
+						uri = new URI(args[++i]);
+						break;
+					case "--rate":
+						rate = Double.parseDouble(args[++i]);
+						break;
+					case "--connections":
+						connections = Integer.parseInt(args[++i]);
+						break;
+					case "--duration":
+						duration = Long.parseLong(args[++i]);
+						break;
+					case "--warmup":
+						warmup = Long.parseLong(args[++i]);
+						break;
+					case "--output":
+						output = args[++i];
+						break;
+					case "--insecure":
+						insecure = true;
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if (uri == null || rate <= 0.0)
+				throw new IllegalArgumentException("URL and rate are required.");
+		} catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | java.net.URISyntaxException e) {
+			System.err.println(e.getMessage() != null ? e.getMessage() : "Missing option value.");
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+		
+		System.out.println(String.format(Locale.ROOT, "Running %s at %.1f requests/s over %d connections for %d s (after %d s warmup)...", uri, rate, connections, duration, warmup));
+		SmallJettyLoadGenerator generator = new SmallJettyLoadGenerator(uri, rate, connections, insecure);
+		Result result = generator.run(TimeUnit.SECONDS.toMillis(warmup), TimeUnit.SECONDS.toMillis(duration));
+		System.out.println(result);
+		
+		if (output != null)
+		{
+			try (PrintStream out = new PrintStream(new FileOutputStream(output), false, "UTF-8"))
+			{
+				writePercentileDistribution(result.getCorrected(), out);
+			}
+			System.out.println("Wrote corrected latency percentiles to " + output);
+		}
+		else
+		{
+			System.out.println("Corrected latency (ms):");
+			writePercentileDistribution(result.getCorrected(), System.out);
+		}
+	}
+
+	// Creates an SSL context that trusts all certificates.
+	private static SSLContext trustAllContext() throws Exception
+	{
+		SSLContext context = SSLContext.getInstance("TLS");
+		context.init(null, new TrustManager[]{new X509TrustManager()
+		{
+			@Override
+			public void checkClientTrusted(X509Certificate[] chain, String authType)
+			{
+				// Trust all.
+			}
+
+			@Override
+			public void checkServerTrusted(X509Certificate[] chain, String authType)
+			{
+				// Trust all.
+			}
+
+			@Override
+			public X509Certificate[] getAcceptedIssuers()
+			{
+				return new X509Certificate[0];
+			}
+		}}, new SecureRandom());
+		return context;
+	}
+
+	/**
+	 * The results of a run.
+	 */
+	public static final class Result
+	{
+		private final LatencyHistogram corrected;
+		private final LatencyHistogram uncorrected;
+		private final LongAdder completed;
+		private final LongAdder errorResponses;
+		private final LongAdder failures;
+		private long durationNanos;
+		
+		private Result()
+		{
+			this.corrected = new LatencyHistogram();
+			this.uncorrected = new LatencyHistogram();
+			this.completed = new LongAdder();
+			this.errorResponses = new LongAdder();
+			this.failures = new LongAdder();
+		}
+
+		/**
+		 * @return the latencies from when each request was scheduled to be sent (corrected for coordinated omission).
+		 */
+		public LatencyHistogram getCorrected()
+		{
+			return corrected;
+		}
+
+		/**
+		 * @return the latencies from when each request was actually sent (service time).
+		 */
+		public LatencyHistogram getUncorrected()
+		{
+			return uncorrected;
+		}
+
+		/**
+		 * @return the amount of completed requests.
+		 */
+		public long getCompleted()
+		{
+			return completed.sum();
+		}
+
+		/**
+		 * @return the amount of completed requests with a 4xx or 5xx status.
+		 */
+		public long getErrorResponses()
+		{
+			return errorResponses.sum();
+		}
+
+		/**
+		 * @return the amount of requests that failed with an I/O error or timed out.
+		 */
+		public long getFailures()
+		{
+			return failures.sum();
+		}
+
+		/**
+		 * @return the achieved rate in completed requests per second.
+		 */
+		public double getThroughput()
+		{
+			return getCompleted() / (durationNanos / (double)TimeUnit.SECONDS.toNanos(1));
+		}
+
+		@Override
+		public String toString()
+		{
+			long[] c = corrected.getValuesAtQuantiles(0.5, 0.9, 0.99, 0.999);
+			long[] u = uncorrected.getValuesAtQuantiles(0.5, 0.9, 0.99, 0.999);
+			return String.format(Locale.ROOT, 
+				"Completed %d requests (%.1f/s), %d error responses, %d failures.\n" + 
+				"Corrected latency (ms):   p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f\n" +
+				"Uncorrected latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f",
+				getCompleted(), getThroughput(), getErrorResponses(), getFailures(),
+				c[0] / NANOS_PER_MILLI, c[1] / NANOS_PER_MILLI, c[2] / NANOS_PER_MILLI, c[3] / NANOS_PER_MILLI, corrected.getMax() / NANOS_PER_MILLI,
+				u[0] / NANOS_PER_MILLI, u[1] / NANOS_PER_MILLI, u[2] / NANOS_PER_MILLI, u[3] / NANOS_PER_MILLI, uncorrected.getMax() / NANOS_PER_MILLI
+			);
+		}
+	}
+
+	/**
+	 * A keep-alive connection that sends a request and reads the full response.
+	 */
+	private class Connection
+	{
+		private final int timeoutMillis;
+		private Socket socket;
+		private OutputStream out;
+		private InputStream in;
+		private final byte[] skipBuffer;
+		private final StringBuilder line;
+		
+		private Connection(int timeoutMillis)
+		{
+			this.timeoutMillis = timeoutMillis;
+			this.socket = null;
+			this.skipBuffer = new byte[16384];
+			this.line = new StringBuilder(128);
+		}
+
+		// Sends the request and reads the response, returning the status code.
+		private int exchange(byte[] request) throws IOException
+		{
+			if (socket == null)
+				open();
+			out.write(request);
+			out.flush();
+			
+			String statusLine = readLine();
+			if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12)
+				throw new IOException("Bad status line: " + statusLine);
+			int status = Integer.parseInt(statusLine.substring(9, 12));
+			
+			long contentLength = -1L;
+			boolean chunked = false;
+			boolean close = statusLine.startsWith("HTTP/1.0");
+			String header;
+			while (!(header = readLine()).isEmpty())
+			{
+				int colon = header.indexOf(':');
+				if (colon < 0)
+					continue;
+				String name = header.substring(0, colon).trim();
+				String value = header.substring(colon + 1).trim();
+				if (name.equalsIgnoreCase("Content-Length"))
+					contentLength = Long.parseLong(value);
+				else if (name.equalsIgnoreCase("Transfer-Encoding"))
+					chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+				else if (name.equalsIgnoreCase("Connection"))
+					close = value.equalsIgnoreCase("close");
+			}
+			
+			if (status == 204 || status == 304 || status / 100 == 1)
+			{
+				// No body.
+			}
+			else if (chunked)
+			{
+				long chunkSize;
+				do {
+					String sizeLine = readLine();
+					int semicolon = sizeLine.indexOf(';');
+					chunkSize = Long.parseLong((semicolon < 0 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+					skip(chunkSize);
+					if (chunkSize > 0)
+						readLine();
+				} while (chunkSize > 0);
+				// Trailers.
+				while (!readLine().isEmpty());
+			}
+			else if (contentLength >= 0)
+			{
+				skip(contentLength);
+			}
+			else
+			{
+				// Body ends at close.
+				while (in.read(skipBuffer) >= 0);
+				close = true;
+			}
+			
+			if (close)
+				close();
+			return status;
+		}
+
+		private void open() throws IOException
+		{
+			int port = uri.getPort() >= 0 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+			socket = socketFactory.createSocket();
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(timeoutMillis);
+			socket.connect(new InetSocketAddress(uri.getHost(), port), timeoutMillis);
+			out = socket.getOutputStream();
+			in = new BufferedInputStream(socket.getInputStream(), 16384);
+		}
+
+		private void close()
+		{
+			if (socket != null)
+			{
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// Ignore.
+				}
+			}
+			socket = null;
+			out = null;
+			in = null;
+		}
+
+		private void skip(long amount) throws IOException
+		{
+			while (amount > 0)
+			{
+				int n = in.read(skipBuffer, 0, (int)Math.min(amount, skipBuffer.length));
+				if (n < 0)
+					throw new IOException("Connection closed during response body.");
+				amount -= n;
+			}
+		}
+
+		private String readLine() throws IOException
+		{
+			line.setLength(0);
+			int b;
+			while ((b = in.read()) >= 0)
+			{
+				if (b == '\n')
+				{
+					int len = line.length();
+					if (len > 0 && line.charAt(len - 1) == '\r')
+						line.setLength(len - 1);
+					return line.toString();
+				}
+				line.append((char)b);
+			}
+			throw new IOException("Connection closed during response headers.");
+		}
+	}
+
+}
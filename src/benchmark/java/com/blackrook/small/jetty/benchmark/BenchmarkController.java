@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the
+ * terms of the GNU Lesser Public License v2.1 which accompanies this
+ * distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty.benchmark;
+
+import com.blackrook.small.annotation.Controller;
+import com.blackrook.small.annotation.controller.Content;
+import com.blackrook.small.annotation.controller.EntryPath;
+import com.blackrook.small.annotation.controller.HTTPMethod;
+import com.blackrook.small.enums.RequestMethod;
+
+/**
+ * A minimal Small controller for the benchmarks, so that requests go through {@link com.blackrook.small.SmallServlet}.
+ * It returns the same content as the benchmarks' static file.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@Controller
+@EntryPath("/controller")
+public class BenchmarkController
+{
+	/** The amount of lines in the content. */
+	public static final int CONTENT_LINES = 512;
+
+	private static final String CONTENT;
+	static
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < CONTENT_LINES; i++)
+			sb.append("Line ").append(i).append(" of the benchmark content.\n");
+		CONTENT = sb.toString();
+	}
+
+	/**
+	 * @return the content.
+	 */
+	@HTTPMethod(RequestMethod.GET)
+	@EntryPath("/content")
+	@Content
+	public String getContent()
+	{
+		return CONTENT;
+	}
+
+}
@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.DateCache;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+import com.blackrook.small.jetty.SmallJettyConfiguration.RequestLogConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.RequestLogConfiguration.OverflowPolicy;
+
+/**
+ * A request log that writes NCSA common or combined format entries on a background thread.
+ * <p>Request threads format each entry into a reused per-thread buffer, and copy it into a slot of a bounded, 
+ * lock-free multi-producer ring buffer (slots and their byte arrays are reused). The writer thread drains the ring 
+ * buffer into a batch buffer and writes each batch to the log file with a single {@link FileChannel} write.
+ * The writer sleeps for up to the flush interval between batches, and is woken early if the ring buffer gets half full.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Asynchronous request log")
+public class AsyncRequestLog extends AbstractLifeCycle implements RequestLog, Runnable
+{
+	private static final Logger LOG = Log.getLogger(AsyncRequestLog.class);
+
+	/** NCSA timestamp format. */
+	private static final String DATE_FORMAT = "dd/MMM/yyyy:HH:mm:ss Z";
+	/** Suffix format for rotated files. Sorts by time. */
+	private static final String ROTATED_SUFFIX_FORMAT = "yyyyMMdd'T'HHmmss.SSS";
+	/** Matches the suffixes of rotated files, including the counter added when two rotations share a timestamp. */
+	private static final Pattern ROTATED_SUFFIX_PATTERN = Pattern.compile("\\d{8}T\\d{6}\\.\\d{3}(-\\d+)?");
+	/** Time that stopping waits for the writer thread to finish writing, before it interrupts it. */
+	private static final long STOP_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+	/** Initial size of formatting buffers and ring buffer slots. */
+	private static final int INITIAL_ENTRY_SIZE = 256;
+	/** Time that a request thread waits before retrying if the ring buffer is full, with the BLOCK policy. */
+	private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	/** Per-thread formatting buffers. */
+	private static final ThreadLocal<StringBuilder> LINE_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_ENTRY_SIZE));
+	
+	private final Path path;
+	private final boolean extended;
+	private final boolean logLatency;
+	private final TimeZone timeZone;
+	private final DateCache dateCache;
+	private final int batchSize;
+	private final long flushIntervalNanos;
+	private final OverflowPolicy overflowPolicy;
+	private final long rotateSize;
+	private final long rotateInterval;
+	private final int retainFiles;
+
+	// Ring buffer. A slot is writable by the producer that claims position p when its sequence is p,
+	// and readable by the writer when its sequence is p + 1.
+	private final int capacity;
+	private final int mask;
+	private final byte[][] slots;
+	private final int[] lengths;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail;
+	private final AtomicLong head;
+	
+	private final LongAdder writtenEntries;
+	private final LongAdder droppedEntries;
+	private final LongAdder rotations;
+
+	private volatile boolean stopping;
+	private volatile boolean writerParked;
+	private Thread writer;
+	
+	// Only used by the writer thread after start.
+	private FileChannel channel;
+	private ByteBuffer batch;
+	private long fileSize;
+	private long nextRotationMillis;
+
+	/**
+	 * Creates a new request log.
+	 * @param config the request log configuration.
+	 */
+	AsyncRequestLog(RequestLogConfiguration config)
+	{
+		this.path = Paths.get(config.getPath()).toAbsolutePath();
+		this.extended = config.getExtended();
+		this.logLatency = config.getLogLatency();
+		this.timeZone = TimeZone.getTimeZone(config.getTimeZone());
+		this.dateCache = new DateCache(DATE_FORMAT, Locale.US, timeZone);
+		this.batchSize = config.getBatchSize();
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushInterval());
+		this.overflowPolicy = config.getOverflowPolicy();
+		this.rotateSize = config.getRotateSize();
+		this.rotateInterval = config.getRotateInterval();
+		this.retainFiles = config.getRetainFiles();
+
+		int capacity = 1;
+		while (capacity < config.getBufferCapacity())
+			capacity <<= 1;
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.slots = new byte[capacity][];
+		this.lengths = new int[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++)
+			sequences.set(i, i);
+		this.tail = new AtomicLong(0L);
+		this.head = new AtomicLong(0L);
+		
+		this.writtenEntries = new LongAdder();
+		this.droppedEntries = new LongAdder();
+		this.rotations = new LongAdder();
+	}
+	
+	/**
+	 * @return the path to the log file.
+	 */
+	@ManagedAttribute("The path to the log file")
+	public String getPath()
+	{
+		return path.toString();
+	}
+	
+	/**
+	 * @return the amount of entries written to the log file.
+	 */
+	@ManagedAttribute("The amount of entries written")
+	public long getWrittenEntries()
+	{
+		return writtenEntries.sum();
+	}
+
+	/**
+	 * @return the amount of entries dropped because the ring buffer was full.
+	 */
+	@ManagedAttribute("The amount of entries dropped because the ring buffer was full")
+	public long getDroppedEntries()
+	{
+		return droppedEntries.sum();
+	}
+
+	/**
+	 * @return the amount of entries waiting to be written.
+	 */
+	@ManagedAttribute("The amount of entries waiting to be written")
+	public int getPendingEntries()
+	{
+		return (int)Math.max(tail.get() - head.get(), 0L);
+	}
+
+	/**
+	 * @return the amount of times that the log file was rotated.
+	 */
+	@ManagedAttribute("The amount of log file rotations")
+	public long getRotations()
+	{
+		return rotations.sum();
+	}
+
+	@Override
+	protected void doStart() throws Exception
+	{
+		openFile();
+		batch = ByteBuffer.allocateDirect(batchSize);
+		nextRotationMillis = nextRotation(System.currentTimeMillis());
+		stopping = false;
+		writer = new Thread(this, "AsyncRequestLog");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	protected void doStop() throws Exception
+	{
+		stopping = true;
+		LockSupport.unpark(writer);
+		writer.join(STOP_WAIT_MILLIS);
+		if (writer.isAlive())
+		{
+			// Interrupting a blocked FileChannel write closes the file, so the writer gives up and exits.
+			LOG.warn("Request log writer did not finish in time, interrupting it. " + getPendingEntries() + " entries were not written.");
+			writer.interrupt();
+			writer.join(STOP_WAIT_MILLIS);
+			if (writer.isAlive())
+				LOG.warn("Request log writer did not stop. It will close " + path + " when it does.");
+		}
+		writer = null;
+	}
+
+	@Override
+	public void log(Request request, Response response)
+	{
+		if (stopping)
+			return;
+		
+		StringBuilder sb = LINE_BUILDER.get();
+		sb.setLength(0);
+		format(sb, request, response);
+		if (!offer(sb))
+			droppedEntries.increment();
+	}
+
+	@Override
+	public void run()
+	{
+		while (true)
+		{
+			boolean stop = stopping;
+			try {
+				drain();
+				flush();
+			} catch (IOException e) {
+				LOG.warn("Could not write request log " + path + ". Entries were lost.", e);
+				batch.clear();
+				closeFile();
+			}
+			if (Thread.currentThread().isInterrupted())
+				break;
+			if (stop)
+			{
+				// An entry is claimed before it is published, so entries that are claimed but not drained are moments away.
+				if (head.get() >= tail.get())
+					break;
+				Thread.yield();
+				continue;
+			}
+
+			writerParked = true;
+			if (tail.get() - head.get() < capacity / 2)
+				LockSupport.parkNanos(this, flushIntervalNanos);
+			writerParked = false;
+		}
+		// The file is only closed here, so that it is never closed while the writer is still using it.
+		closeFile();
+	}
+
+	// Formats an entry in NCSA common or combined format.
+	private void format(StringBuilder sb, Request request, Response response)
+	{
+		String remoteUser = request.getRemoteUser();
+		long bytes = response.getHttpChannel().getBytesWritten();
+		
+		sb.append(request.getRemoteAddr());
+		sb.append(" - ");
+		sb.append(remoteUser != null ? remoteUser : "-");
+		sb.append(" [").append(dateCache.format(request.getTimeStamp())).append("] \"");
+		sb.append(request.getMethod()).append(' ');
+		sb.append(request.getOriginalURI()).append(' ');
+		sb.append(request.getProtocol()).append("\" ");
+		sb.append(response.getCommittedMetaData().getStatus()).append(' ');
+		if (bytes > 0)
+			sb.append(bytes);
+		else
+			sb.append('-');
+		
+		if (extended)
+		{
+			String referer = request.getHeader(HttpHeader.REFERER.asString());
+			String userAgent = request.getHeader(HttpHeader.USER_AGENT.asString());
+			sb.append(" \"").append(referer != null ? referer : "-").append("\" \"");
+			sb.append(userAgent != null ? userAgent : "-").append('"');
+		}
+		
+		if (logLatency)
+			sb.append(' ').append(System.currentTimeMillis() - request.getTimeStamp());
+		
+		sb.append('\n');
+	}
+
+	// Claims a slot, copies the entry into it, and publishes it. Returns false if the entry was dropped.
+	private boolean offer(CharSequence entry)
+	{
+		long position = tail.get();
+		while (true)
+		{
+			int index = (int)(position & mask);
+			long difference = sequences.get(index) - position;
+			if (difference == 0L)
+			{
+				if (tail.compareAndSet(position, position + 1))
+				{
+					lengths[index] = encode(entry, index);
+					sequences.lazySet(index, position + 1);
+					if (writerParked && position + 1 - head.get() >= capacity / 2)
+						LockSupport.unpark(writer);
+					return true;
+				}
+				position = tail.get();
+			}
+			else if (difference < 0L)
+			{
+				// Full.
+				LockSupport.unpark(writer);
+				if (overflowPolicy == OverflowPolicy.DROP || stopping)
+					return false;
+				LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+				position = tail.get();
+			}
+			else
+			{
+				position = tail.get();
+			}
+		}
+	}
+
+	// Encodes an entry as UTF-8 into a slot's byte array, which is only grown if the entry does not fit.
+	private int encode(CharSequence entry, int index)
+	{
+		int length = entry.length();
+		byte[] out = slots[index];
+		if (out == null || out.length < length * 3)
+			out = slots[index] = new byte[Math.max(length * 3, INITIAL_ENTRY_SIZE)];
+		
+		int n = 0;
+		for (int i = 0; i < length; i++)
+		{
+			char c = entry.charAt(i);
+			if (c < 0x80)
+			{
+				out[n++] = (byte)c;
+			}
+			else if (c < 0x800)
+			{
+				out[n++] = (byte)(0xc0 | (c >> 6));
+				out[n++] = (byte)(0x80 | (c & 0x3f));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(entry.charAt(i + 1)))
+			{
+				int codePoint = Character.toCodePoint(c, entry.charAt(++i));
+				out[n++] = (byte)(0xf0 | (codePoint >> 18));
+				out[n++] = (byte)(0x80 | ((codePoint >> 12) & 0x3f));
+				out[n++] = (byte)(0x80 | ((codePoint >> 6) & 0x3f));
+				out[n++] = (byte)(0x80 | (codePoint & 0x3f));
+			}
+			else if (Character.isSurrogate(c))
+			{
+				out[n++] = '?';
+			}
+			else
+			{
+				out[n++] = (byte)(0xe0 | (c >> 12));
+				out[n++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+				out[n++] = (byte)(0x80 | (c & 0x3f));
+			}
+		}
+		return n;
+	}
+
+	// Moves all published entries into the batch buffer, writing it out whenever it fills.
+	private void drain() throws IOException
+	{
+		long position = head.get();
+		while (true)
+		{
+			int index = (int)(position & mask);
+			if (sequences.get(index) != position + 1)
+				break;
+			
+			int length = lengths[index];
+			if (length > batch.remaining())
+				flush();
+			if (length > batch.capacity())
+				write(ByteBuffer.wrap(slots[index], 0, length));
+			else
+				batch.put(slots[index], 0, length);
+			
+			sequences.lazySet(index, position + capacity);
+			head.lazySet(++position);
+			writtenEntries.increment();
+		}
+	}
+
+	// Writes the batch buffer to the file.
+	private void flush() throws IOException
+	{
+		if (batch.position() == 0)
+		{
+			// Rotate on time even if nothing is being written.
+			if (rotateInterval > 0 && System.currentTimeMillis() >= nextRotationMillis)
+				rotate();
+			return;
+		}
+		batch.flip();
+		try {
+			write(batch);
+		} finally {
+			batch.clear();
+		}
+	}
+
+	private void write(ByteBuffer buffer) throws IOException
+	{
+		if (rotateInterval > 0 && System.currentTimeMillis() >= nextRotationMillis)
+			rotate();
+		else if (rotateSize > 0 && fileSize > 0 && fileSize + buffer.remaining() > rotateSize)
+			rotate();
+		
+		if (channel == null)
+			openFile();
+		while (buffer.hasRemaining())
+			fileSize += channel.write(buffer);
+	}
+
+	private long nextRotation(long now)
+	{
+		return rotateInterval > 0 ? (now / rotateInterval + 1) * rotateInterval : Long.MAX_VALUE;
+	}
+
+	private void openFile() throws IOException
+	{
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		fileSize = channel.size();
+	}
+
+	private void closeFile()
+	{
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOG.ignore(e);
+		}
+		channel = null;
+	}
+
+	// Renames the current file with a timestamp suffix, and deletes old rotated files. Empty files are not rotated.
+	private void rotate() throws IOException
+	{
+		nextRotationMillis = nextRotation(System.currentTimeMillis());
+		if (channel != null && fileSize == 0)
+			return;
+		
+		closeFile();
+		if (Files.exists(path))
+		{
+			SimpleDateFormat suffixFormat = new SimpleDateFormat(ROTATED_SUFFIX_FORMAT, Locale.US);
+			suffixFormat.setTimeZone(timeZone);
+			String rotatedName = path.getFileName() + "." + suffixFormat.format(new Date());
+			Path rotatedPath = path.resolveSibling(rotatedName);
+			for (int i = 1; Files.exists(rotatedPath); i++)
+				rotatedPath = path.resolveSibling(rotatedName + "-" + i);
+			Files.move(path, rotatedPath);
+			rotations.increment();
+		}
+		openFile();
+		
+		if (retainFiles > 0)
+			deleteOldFiles();
+	}
+
+	private void deleteOldFiles()
+	{
+		String prefix = path.getFileName() + ".";
+		List<Path> rotatedFiles = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(path.getParent(), (file) -> isRotatedFile(file.getFileName().toString(), prefix))) {
+			for (Path file : stream)
+				rotatedFiles.add(file);
+		} catch (IOException e) {
+			LOG.warn("Could not list rotated request logs.", e);
+			return;
+		}
+		
+		Collections.sort(rotatedFiles);
+		for (int i = 0; i < rotatedFiles.size() - retainFiles; i++)
+		{
+			try {
+				Files.deleteIfExists(rotatedFiles.get(i));
+			} catch (IOException e) {
+				LOG.warn("Could not delete rotated request log " + rotatedFiles.get(i) + ".", e);
+			}
+		}
+	}
+
+	// Checks if a file name is one that rotate() produces, so that other files next to the log are never deleted.
+	private static boolean isRotatedFile(String fileName, String prefix)
+	{
+		return fileName.startsWith(prefix) && ROTATED_SUFFIX_PATTERN.matcher(fileName.substring(prefix.length())).matches();
+	}
+
+}
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.QuotedCSV;
+import org.eclipse.jetty.http.QuotedQualityCSV;
+import org.eclipse.jetty.http.pathmap.PathSpecSet;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.IncludeExclude;
+import org.eclipse.jetty.util.RegexSet;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.URIUtil;
+
+import com.blackrook.small.jetty.SmallJettyConfiguration.CompressionConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.GZipConfiguration;
+
+/**
+ * A handler that negotiates a response content encoding from the request's <code>Accept-Encoding</code> header,
+ * and compresses the response with Brotli or Zstandard if one of them is chosen.
+ * <p>If GZip is chosen, the request is left to the GzipHandler that wraps this handler.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class CompressionHandler extends HandlerWrapper
+{
+	private static final String IDENTITY = "identity";
+	private static final String ANY = "*";
+	
+	private final String[] preferredEncodings;
+	private final boolean gzipEnabled;
+	private final Map<String, Encoder> encoders;
+
+	/**
+	 * Creates a new compression handler.
+	 * @param config the compression configuration.
+	 */
+	CompressionHandler(CompressionConfiguration config)
+	{
+		this.preferredEncodings = config.getPreferredEncodings();
+		this.gzipEnabled = config.getGZipConfiguration() != null;
+		this.encoders = new HashMap<>(4);
+		if (config.getBrotliConfiguration() != null)
+			encoders.put(CompressionConfiguration.ENCODING_BROTLI, new Encoder(CompressionConfiguration.ENCODING_BROTLI, config.getBrotliConfiguration()));
+		if (config.getZstdConfiguration() != null)
+			encoders.put(CompressionConfiguration.ENCODING_ZSTD, new Encoder(CompressionConfiguration.ENCODING_ZSTD, config.getZstdConfiguration()));
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+	{
+		if (baseRequest.getDispatcherType() != DispatcherType.REQUEST)
+		{
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+
+		stripEtags(baseRequest);
+
+		Encoder encoder;
+		if ((encoder = negotiate(baseRequest)) == null)
+		{
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+		
+		HttpOutput out = baseRequest.getResponse().getHttpOutput();
+		HttpOutput.Interceptor origInterceptor = out.getInterceptor();
+		try
+		{
+			out.setInterceptor(new CompressionHttpOutputInterceptor(encoder, baseRequest.getHttpChannel(), origInterceptor));
+			super.handle(target, baseRequest, request, response);
+		}
+		finally
+		{
+			// reset interceptor if request not handled
+			if (!baseRequest.isHandled() && !baseRequest.isAsyncStarted())
+				out.setInterceptor(origInterceptor);
+		}
+	}
+
+	// Removes the encoding suffixes added to compressed response ETags from conditional request headers.
+	private void stripEtags(Request baseRequest)
+	{
+		for (ListIterator<HttpField> fields = baseRequest.getHttpFields().listIterator(); fields.hasNext(); )
+		{
+			HttpField field = fields.next();
+			if (field.getHeader() != HttpHeader.IF_NONE_MATCH && field.getHeader() != HttpHeader.IF_MATCH)
+				continue;
+			String etag = field.getValue();
+			String stripped = etag;
+			for (String encoding : encoders.keySet())
+				stripped = stripped.replace("--" + encoding + '"', "\"");
+			if (!stripped.equals(etag))
+				fields.set(new HttpField(field.getHeader(), stripped));
+		}
+	}
+
+	/**
+	 * Picks the encoder for a request.
+	 * @param baseRequest the request.
+	 * @return the encoder to use, or null if this handler should not compress the response.
+	 */
+	private Encoder negotiate(Request baseRequest)
+	{
+		List<String> accept = baseRequest.getHttpFields().getValuesList(HttpHeader.ACCEPT_ENCODING);
+		if (accept.isEmpty())
+			return null;
+
+		String path = getPath(baseRequest);
+		QuotedQualityCSV values = new QuotedQualityCSV(preferredEncodings);
+		for (String value : accept)
+			values.addValue(value);
+
+		for (String value : values)
+		{
+			String encoding = StringUtil.asciiToLowerCase(value);
+			Encoder encoder;
+			if ((encoder = encoders.get(encoding)) != null)
+			{
+				if (encoder.isCompressible(baseRequest, path))
+					return encoder;
+			}
+			else if (ANY.equals(encoding))
+			{
+				return negotiateAny(baseRequest, path, accept);
+			}
+			else if (IDENTITY.equals(encoding) || (gzipEnabled && CompressionConfiguration.ENCODING_GZIP.equals(encoding)))
+			{
+				return null;
+			}
+		}
+		return null;
+	}
+
+	// Picks the most preferred encoder that the Accept-Encoding header does not mention.
+	private Encoder negotiateAny(Request baseRequest, String path, List<String> accept)
+	{
+		Set<String> mentioned = new HashSet<>();
+		for (String value : new QuotedCSV(false, accept.toArray(new String[accept.size()])))
+		{
+			int paramIndex = value.indexOf(';');
+			mentioned.add(StringUtil.asciiToLowerCase((paramIndex >= 0 ? value.substring(0, paramIndex) : value).trim()));
+		}
+
+		for (String encoding : preferredEncodings)
+		{
+			if (mentioned.contains(encoding))
+				continue;
+			Encoder encoder;
+			if ((encoder = encoders.get(encoding)) != null)
+			{
+				if (encoder.isCompressible(baseRequest, path))
+					return encoder;
+			}
+			else if (gzipEnabled && CompressionConfiguration.ENCODING_GZIP.equals(encoding))
+			{
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static String getPath(Request baseRequest)
+	{
+		ServletContext context = baseRequest.getServletContext();
+		return context == null ? baseRequest.getRequestURI() : URIUtil.addPaths(baseRequest.getServletPath(), baseRequest.getPathInfo());
+	}
+
+	/**
+	 * A single content encoding and its filters.
+	 * The default filters are the same as Jetty's GzipHandler.
+	 */
+	static final class Encoder
+	{
+		private final String encoding;
+		private final int level;
+		private final int bufferSize;
+		private final int minSize;
+		private final boolean syncFlush;
+		private final IncludeExclude<String> agentPatterns;
+		private final IncludeExclude<String> methods;
+		private final IncludeExclude<String> paths;
+		private final IncludeExclude<String> mimeTypes;
+
+		private Encoder(String encoding, GZipConfiguration config)
+		{
+			this.encoding = encoding;
+			this.level = config.getCompressionLevel();
+			this.bufferSize = config.getBufferSize();
+			this.minSize = config.getMinGzipSize();
+			this.syncFlush = config.getSyncFlush();
+			this.agentPatterns = new IncludeExclude<>(RegexSet.class);
+			this.methods = new IncludeExclude<>();
+			this.paths = new IncludeExclude<>(PathSpecSet.class);
+			this.mimeTypes = new IncludeExclude<>();
+
+			methods.include(HttpMethod.GET.asString());
+			for (String type : MimeTypes.getKnownMimeTypes())
+			{
+				if ("image/svg+xml".equals(type))
+					paths.exclude("*.svgz");
+				else if (type.startsWith("image/") || type.startsWith("audio/") || type.startsWith("video/"))
+					mimeTypes.exclude(type);
+			}
+			mimeTypes.exclude("application/compress");
+			mimeTypes.exclude("application/zip");
+			mimeTypes.exclude("application/gzip");
+			mimeTypes.exclude("application/bzip2");
+			mimeTypes.exclude("application/brotli");
+			mimeTypes.exclude("application/x-xz");
+			mimeTypes.exclude("application/x-rar-compressed");
+			mimeTypes.exclude("application/zstd");
+			agentPatterns.exclude(".*MSIE 6.0.*");
+
+			set(agentPatterns.getExcluded(), config.getExcludedAgentPatterns());
+			set(agentPatterns.getIncluded(), config.getIncludedAgentPatterns());
+			set(methods.getExcluded(), config.getExcludedHTTPMethods());
+			set(methods.getIncluded(), config.getIncludedHTTPMethods());
+			set(paths.getExcluded(), config.getExcludedPaths());
+			set(paths.getIncluded(), config.getIncludedPaths());
+			set(mimeTypes.getExcluded(), config.getExcludedMimeTypes());
+			set(mimeTypes.getIncluded(), config.getIncludedMimeTypes());
+		}
+
+		// Replaces a filter set, like the GzipHandler setters.
+		private static void set(Set<String> set, String[] values)
+		{
+			if (values == null)
+				return;
+			set.clear();
+			for (String value : values)
+				set.add(value);
+		}
+
+		/**
+		 * @return the content encoding name.
+		 */
+		String getEncoding()
+		{
+			return encoding;
+		}
+
+		/**
+		 * @return the minimum content length to compress, if known.
+		 */
+		int getMinSize()
+		{
+			return minSize;
+		}
+
+		/**
+		 * @return true if each write should be flushed through the encoder.
+		 */
+		boolean isSyncFlush()
+		{
+			return syncFlush;
+		}
+
+		/**
+		 * Tests a request against the method, path, and agent filters.
+		 * @param baseRequest the request.
+		 * @param path the request path.
+		 * @return true if the response to this request may be compressed.
+		 */
+		boolean isCompressible(Request baseRequest, String path)
+		{
+			if (!methods.test(baseRequest.getMethod()))
+				return false;
+			if (path != null && !paths.test(path))
+				return false;
+			String agent = baseRequest.getHttpFields().get(HttpHeader.USER_AGENT);
+			if (agent != null && !agentPatterns.test(agent))
+				return false;
+			String mimeType = path != null ? MimeTypes.getDefaultMimeByExtension(path) : null;
+			return mimeType == null || isMimeTypeCompressible(MimeTypes.getContentTypeWithoutCharset(mimeType));
+		}
+
+		/**
+		 * @param mimeType the response MIME type, without parameters.
+		 * @return true if the response may be compressed.
+		 */
+		boolean isMimeTypeCompressible(String mimeType)
+		{
+			return mimeTypes.test(mimeType);
+		}
+
+		/**
+		 * Creates a new compressing stream.
+		 * @param out the stream to write compressed data to.
+		 * @return the new stream.
+		 * @throws IOException if the stream could not be created.
+		 */
+		OutputStream createOutputStream(OutputStream out) throws IOException
+		{
+			return SmallJettyCompression.createOutputStream(encoding, out, level, bufferSize);
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.StringUtil;
+
+/**
+ * An output interceptor that compresses response content with a {@link CompressionHandler.Encoder}.
+ * The decision to compress is made when the response is committed, from its status, content type, and length.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class CompressionHttpOutputInterceptor implements HttpOutput.Interceptor
+{
+	private static final HttpField VARY_ACCEPT_ENCODING = new PreEncodedHttpField(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+
+	private enum State
+	{
+		MIGHT_COMPRESS,
+		COMPRESSING,
+		NOT_COMPRESSING;
+	}
+	
+	private final CompressionHandler.Encoder encoder;
+	private final HttpChannel channel;
+	private final HttpOutput.Interceptor next;
+	private State state;
+	private ByteArrayOutputStream2 compressed;
+	private OutputStream out;
+
+	/**
+	 * Creates a new interceptor.
+	 * @param encoder the encoder to use.
+	 * @param channel the channel for the response.
+	 * @param next the next interceptor.
+	 */
+	CompressionHttpOutputInterceptor(CompressionHandler.Encoder encoder, HttpChannel channel, HttpOutput.Interceptor next)
+	{
+		this.encoder = encoder;
+		this.channel = channel;
+		this.next = next;
+		this.state = State.MIGHT_COMPRESS;
+		this.compressed = null;
+		this.out = null;
+	}
+
+	@Override
+	public HttpOutput.Interceptor getNextInterceptor()
+	{
+		return next;
+	}
+
+	@Override
+	public boolean isOptimizedForDirectBuffers()
+	{
+		return false;
+	}
+
+	@Override
+	public void write(ByteBuffer content, boolean complete, Callback callback)
+	{
+		switch (state)
+		{
+			case MIGHT_COMPRESS:
+				commit(content, complete, callback);
+				break;
+			case COMPRESSING:
+				compress(content, complete, callback);
+				break;
+			default:
+				next.write(content, complete, callback);
+				break;
+		}
+	}
+
+	private void commit(ByteBuffer content, boolean complete, Callback callback)
+	{
+		Response response = channel.getResponse();
+		
+		int sc = response.getStatus();
+		if (sc > 0 && (sc < 200 || sc == 204 || sc == 205 || sc >= 300))
+		{
+			noCompression(content, complete, callback);
+			return;
+		}
+
+		String contentType = response.getContentType();
+		if (contentType != null && !encoder.isMimeTypeCompressible(StringUtil.asciiToLowerCase(MimeTypes.getContentTypeWithoutCharset(contentType))))
+		{
+			noCompression(content, complete, callback);
+			return;
+		}
+
+		HttpFields fields = response.getHttpFields();
+		if (fields.get(HttpHeader.CONTENT_ENCODING) != null)
+		{
+			noCompression(content, complete, callback);
+			return;
+		}
+
+		// We are varying the response due to accept encoding header.
+		if (fields.contains(HttpHeader.VARY))
+			fields.addCSV(HttpHeader.VARY, VARY_ACCEPT_ENCODING.getValues());
+		else
+			fields.add(VARY_ACCEPT_ENCODING);
+
+		long contentLength = response.getContentLength();
+		if (contentLength < 0 && complete)
+			contentLength = content.remaining();
+		if (contentLength >= 0 && contentLength < encoder.getMinSize())
+		{
+			noCompression(content, complete, callback);
+			return;
+		}
+
+		compressed = new ByteArrayOutputStream2(Math.max(BufferUtil.length(content) / 2, 1024));
+		// Native encoders can also throw errors, which must still fail the write, or a blocking write waits forever.
+		try {
+			out = encoder.createOutputStream(compressed);
+		} catch (IOException | RuntimeException | LinkageError e) {
+			callback.failed(e);
+			return;
+		}
+
+		fields.put(HttpHeader.CONTENT_ENCODING, encoder.getEncoding());
+		response.setContentLength(-1);
+		String etag = fields.get(HttpHeader.ETAG);
+		if (etag != null)
+			fields.put(HttpHeader.ETAG, etagEncoded(etag));
+
+		state = State.COMPRESSING;
+		compress(content, complete, callback);
+	}
+
+	private void noCompression(ByteBuffer content, boolean complete, Callback callback)
+	{
+		state = State.NOT_COMPRESSING;
+		next.write(content, complete, callback);
+	}
+
+	private void compress(ByteBuffer content, boolean complete, Callback callback)
+	{
+		try {
+			if (BufferUtil.hasContent(content))
+				BufferUtil.writeTo(content, out);
+			if (complete)
+				out.close();
+			else if (encoder.isSyncFlush())
+				out.flush();
+		} catch (IOException | RuntimeException | LinkageError e) {
+			IO.close(out);
+			callback.failed(e);
+			return;
+		}
+
+		if (compressed.getCount() == 0 && !complete && channel.getResponse().isCommitted())
+		{
+			callback.succeeded();
+			return;
+		}
+
+		// The compressed buffer is reused once the write completes.
+		next.write(ByteBuffer.wrap(compressed.getBuf(), 0, compressed.getCount()), complete, new Callback.Nested(callback)
+		{
+			@Override
+			public void succeeded()
+			{
+				compressed.reset();
+				super.succeeded();
+			}
+			
+			@Override
+			public void failed(Throwable x)
+			{
+				IO.close(out);
+				super.failed(x);
+			}
+		});
+	}
+
+	private String etagEncoded(String etag)
+	{
+		String suffix = "--" + encoder.getEncoding();
+		int end = etag.length() - 1;
+		return (etag.charAt(end) == '"') ? etag.substring(0, end) + suffix + '"' : etag + suffix;
+	}
+
+}
@@ -7,8 +7,11 @@
  ******************************************************************************/
 package com.blackrook.small.jetty;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Configuration builder for the Jetty bootstrap.
@@ -25,7 +28,7 @@ import java.util.Map;
  * 		<li><b>allowWebSockets</b>: true</li>
  * 		<li><b>autoParseMultipart</b>: true</li>
  * 		<li><b>attributes</b>: NONE</li>
- * 		<li><b>maxThreads</b>: 20</li>
+ * 		<li><b>maxThreads</b>: 200</li>
  * 		<li><b>idleConnectionTimeout</b>: 30000</li>
  * 		<li><b>headerCacheSize</b>: 8192</li>
  * 		<li><b>outputBufferSize</b>: 32768</li>
@@ -34,9 +37,28 @@ import java.util.Map;
  * 		<li><b>sendServerVersion</b>: false</li>
  * 		<li><b>sendDateHeader</b>: false</li>
  * 		<li><b>sendXPoweredBy</b>: false</li>
+ * 		<li><b>registerMBeans</b>: false</li>
  * 		<li><b>servletContextOptions</b>: 0</li>
  * 		<li><b>sslConfiguration</b>: null</li>
  * 		<li><b>gzipConfiguration</b>: null</li>
+ * 		<li><b>compressionConfiguration</b>: null</li>
+ * 		<li><b>threadPoolConfiguration</b>: null</li>
+ * 		<li><b>loadSheddingConfiguration</b>: null</li>
+ * 		<li><b>connectorConfiguration</b>: null</li>
+ * 		<li><b>http2Configuration</b>: null</li>
+ * 		<li><b>listenerConfigurations</b>: [ ]</li>
+ * 		<li><b>unixSocketConfiguration</b>: null</li>
+ * 		<li><b>proxyProtocolConfiguration</b>: null</li>
+ * 		<li><b>staticResourceConfigurations</b>: [ ]</li>
+ * 		<li><b>responseCacheConfiguration</b>: null</li>
+ * 		<li><b>metricsConfiguration</b>: null</li>
+ * 		<li><b>requestLogConfiguration</b>: null</li>
+ * 		<li><b>connectionLimitConfiguration</b>: null</li>
+ * 		<li><b>lowResourceConfiguration</b>: null</li>
+ * 		<li><b>rateLimitConfigurations</b>: [ ]</li>
+ * 		<li><b>shutdownConfiguration</b>: null</li>
+ * 		<li><b>startupConfiguration</b>: null</li>
+ * 		<li><b>bufferPoolConfiguration</b>: null</li>
  * </ul>
  * @author Matthew Tropiano
  */
@@ -66,9 +88,28 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 	private boolean sendServerVersion;
 	private boolean sendDateHeader;
 	private boolean sendXPoweredBy;
+	private boolean registerMBeans;
 	
-	private SSLConfigurationBuilder sslConfiguration;
+	private SSLConfiguration sslConfiguration;
 	private GZipConfiguration gzipConfiguration;
+	private CompressionConfiguration compressionConfiguration;
+	private ThreadPoolConfiguration threadPoolConfiguration;
+	private LoadSheddingConfiguration loadSheddingConfiguration;
+	private ConnectorConfiguration connectorConfiguration;
+	private HTTP2Configuration http2Configuration;
+	private List<ListenerConfiguration> listenerConfigurations;
+	private UnixSocketConfiguration unixSocketConfiguration;
+	private ProxyProtocolConfiguration proxyProtocolConfiguration;
+	private List<StaticResourceConfiguration> staticResourceConfigurations;
+	private ResponseCacheConfiguration responseCacheConfiguration;
+	private MetricsConfiguration metricsConfiguration;
+	private RequestLogConfiguration requestLogConfiguration;
+	private ConnectionLimitConfiguration connectionLimitConfiguration;
+	private LowResourceConfiguration lowResourceConfiguration;
+	private List<RateLimitConfiguration> rateLimitConfigurations;
+	private ShutdownConfiguration shutdownConfiguration;
+	private StartupConfiguration startupConfiguration;
+	private BufferPoolConfiguration bufferPoolConfiguration;
 
 	private DefaultSmallJettyConfiguration()
 	{
@@ -84,7 +125,7 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		this.autoParseMultipart = true;
 		this.attributes = new HashMap<>();
 		
-		this.maxThreads = 20;
+		this.maxThreads = 200;
 		this.idleConnectionTimeout = 30000;
 		this.headerCacheSize = 8192;
 		this.outputBufferSize = 32768;
@@ -93,9 +134,28 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		this.sendServerVersion = false;
 		this.sendDateHeader = false;
 		this.sendXPoweredBy = false;
+		this.registerMBeans = false;
 		
 		this.sslConfiguration = null;
 		this.gzipConfiguration = null;
+		this.compressionConfiguration = null;
+		this.threadPoolConfiguration = null;
+		this.loadSheddingConfiguration = null;
+		this.connectorConfiguration = null;
+		this.http2Configuration = null;
+		this.listenerConfigurations = new ArrayList<>();
+		this.unixSocketConfiguration = null;
+		this.proxyProtocolConfiguration = null;
+		this.staticResourceConfigurations = new ArrayList<>();
+		this.responseCacheConfiguration = null;
+		this.metricsConfiguration = null;
+		this.requestLogConfiguration = null;
+		this.connectionLimitConfiguration = null;
+		this.lowResourceConfiguration = null;
+		this.rateLimitConfigurations = new ArrayList<>();
+		this.shutdownConfiguration = null;
+		this.startupConfiguration = null;
+		this.bufferPoolConfiguration = null;
 	}
 	
 	/**
@@ -220,6 +280,12 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		return sendXPoweredBy;
 	}
 
+	@Override
+	public boolean getRegisterMBeans()
+	{
+		return registerMBeans;
+	}
+
 	@Override
 	public int getServletContextOptions()
 	{
@@ -238,6 +304,114 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		return gzipConfiguration;
 	}
 	
+	@Override
+	public CompressionConfiguration getCompressionConfiguration()
+	{
+		return compressionConfiguration;
+	}
+	
+	@Override
+	public ThreadPoolConfiguration getThreadPoolConfiguration()
+	{
+		return threadPoolConfiguration;
+	}
+	
+	@Override
+	public LoadSheddingConfiguration getLoadSheddingConfiguration()
+	{
+		return loadSheddingConfiguration;
+	}
+	
+	@Override
+	public ConnectorConfiguration getConnectorConfiguration()
+	{
+		return connectorConfiguration;
+	}
+	
+	@Override
+	public HTTP2Configuration getHTTP2Configuration()
+	{
+		return http2Configuration;
+	}
+	
+	@Override
+	public ListenerConfiguration[] getListenerConfigurations()
+	{
+		return listenerConfigurations.toArray(new ListenerConfiguration[listenerConfigurations.size()]);
+	}
+	
+	@Override
+	public UnixSocketConfiguration getUnixSocketConfiguration()
+	{
+		return unixSocketConfiguration;
+	}
+	
+	@Override
+	public ProxyProtocolConfiguration getProxyProtocolConfiguration()
+	{
+		return proxyProtocolConfiguration;
+	}
+	
+	@Override
+	public StaticResourceConfiguration[] getStaticResourceConfigurations()
+	{
+		return staticResourceConfigurations.toArray(new StaticResourceConfiguration[staticResourceConfigurations.size()]);
+	}
+	
+	@Override
+	public ResponseCacheConfiguration getResponseCacheConfiguration()
+	{
+		return responseCacheConfiguration;
+	}
+	
+	@Override
+	public MetricsConfiguration getMetricsConfiguration()
+	{
+		return metricsConfiguration;
+	}
+	
+	@Override
+	public RequestLogConfiguration getRequestLogConfiguration()
+	{
+		return requestLogConfiguration;
+	}
+	
+	@Override
+	public ConnectionLimitConfiguration getConnectionLimitConfiguration()
+	{
+		return connectionLimitConfiguration;
+	}
+	
+	@Override
+	public LowResourceConfiguration getLowResourceConfiguration()
+	{
+		return lowResourceConfiguration;
+	}
+	
+	@Override
+	public RateLimitConfiguration[] getRateLimitConfigurations()
+	{
+		return rateLimitConfigurations.toArray(new RateLimitConfiguration[rateLimitConfigurations.size()]);
+	}
+	
+	@Override
+	public ShutdownConfiguration getShutdownConfiguration()
+	{
+		return shutdownConfiguration;
+	}
+	
+	@Override
+	public StartupConfiguration getStartupConfiguration()
+	{
+		return startupConfiguration;
+	}
+	
+	@Override
+	public BufferPoolConfiguration getBufferPoolConfiguration()
+	{
+		return bufferPoolConfiguration;
+	}
+	
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T> T getAttribute(String attributeName, T def)
@@ -454,6 +628,18 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		return this;
 	}
 	
+	/**
+	 * @see #getRegisterMBeans() 
+	 * @param value the value to set.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setRegisterMBeans(boolean value)
+	{
+		this.registerMBeans = value;
+		return this;
+	}
+	
 	/**
 	 * @see #getAttribute(String) 
 	 * @see #getAttribute(String, Object) 
@@ -492,7 +678,7 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 	 */
 	public DefaultSmallJettyConfiguration useSSL(int port, String keyStoreType, String keyStorePath, String keyStorePassword)
 	{
-		return useSSL(port, "JKS", keyStorePath, keyStorePassword, "JKS", keyStorePath, keyStorePassword);
+		return useSSL(port, keyStoreType, keyStorePath, keyStorePassword, keyStoreType, keyStorePath, keyStorePassword);
 	}
 	
 	/**
@@ -526,15 +712,28 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		String keyStoreType, String keyStorePath, String keyStorePassword, 
 		String trustStoreType, String trustStorePath, String trustStorePassword
 	){
-		setSecureServerPort(port);
-		this.sslConfiguration = new SSLConfigurationBuilder()
+		return useSSL(port, SSLConfigurationBuilder.ssl()
 			.setKeyStoreType(keyStoreType)
 			.setKeyStorePath(keyStorePath)
 			.setKeyStorePassword(keyStorePassword)
 			.setTrustStoreType(trustStoreType)
 			.setTrustStorePath(trustStorePath)
 			.setTrustStorePassword(trustStorePassword)
-		;
+		);
+	}
+	
+	/**
+	 * Sets the HTTPS port and the SSL configuration.
+	 * @param port the secure HTTP server port.
+	 * @param ssl the SSL configuration.
+	 * @return this builder, for chaining.
+	 * @see #setSecureServerPort(Integer)
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration useSSL(int port, SSLConfiguration ssl)
+	{
+		setSecureServerPort(port);
+		this.sslConfiguration = ssl;
 		return this;
 	}
 	
@@ -549,6 +748,225 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		return this;
 	}
 	
+	/**
+	 * Sets the multi-encoding compression configuration for this application.
+	 * This cannot be used together with {@link #setGZip(GZipConfiguration)} - use 
+	 * {@link CompressionConfigurationBuilder#setGZip(GZipConfiguration)} instead.
+	 * @param compression the compression configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setCompression(CompressionConfiguration compression)
+	{
+		this.compressionConfiguration = compression;
+		return this;
+	}
+	
+	/**
+	 * Sets the thread pool configuration for this application.
+	 * If set, this takes precedence over {@link #setMaxThreads(int)}.
+	 * @param threadPool the thread pool configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setThreadPool(ThreadPoolConfiguration threadPool)
+	{
+		this.threadPoolConfiguration = threadPool;
+		return this;
+	}
+	
+	/**
+	 * Sets the load shedding configuration for this application.
+	 * @param loadShedding the load shedding configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setLoadShedding(LoadSheddingConfiguration loadShedding)
+	{
+		this.loadSheddingConfiguration = loadShedding;
+		return this;
+	}
+	
+	/**
+	 * Sets the connector configuration for this application.
+	 * @param connector the connector configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setConnector(ConnectorConfiguration connector)
+	{
+		this.connectorConfiguration = connector;
+		return this;
+	}
+	
+	/**
+	 * Sets the HTTP/2 configuration for this application.
+	 * @param http2 the HTTP/2 configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setHTTP2(HTTP2Configuration http2)
+	{
+		this.http2Configuration = http2;
+		return this;
+	}
+	
+	/**
+	 * Adds an additional listener for this application.
+	 * @param listener the listener configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration addListener(ListenerConfiguration listener)
+	{
+		this.listenerConfigurations.add(listener);
+		return this;
+	}
+	
+	/**
+	 * Sets the Unix domain socket configuration for this application.
+	 * @param unixSocket the Unix socket configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setUnixSocket(UnixSocketConfiguration unixSocket)
+	{
+		this.unixSocketConfiguration = unixSocket;
+		return this;
+	}
+	
+	/**
+	 * Sets the proxy configuration for this application.
+	 * @param proxyProtocol the proxy configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setProxyProtocol(ProxyProtocolConfiguration proxyProtocol)
+	{
+		this.proxyProtocolConfiguration = proxyProtocol;
+		return this;
+	}
+	
+	/**
+	 * Adds a static resource mount for this application.
+	 * @param staticResources the static resource configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration addStaticResources(StaticResourceConfiguration staticResources)
+	{
+		this.staticResourceConfigurations.add(staticResources);
+		return this;
+	}
+	
+	/**
+	 * Sets the response cache configuration for this application.
+	 * @param responseCache the response cache configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setResponseCache(ResponseCacheConfiguration responseCache)
+	{
+		this.responseCacheConfiguration = responseCache;
+		return this;
+	}
+	
+	/**
+	 * Sets the metrics configuration for this application.
+	 * @param metrics the metrics configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setMetrics(MetricsConfiguration metrics)
+	{
+		this.metricsConfiguration = metrics;
+		return this;
+	}
+	
+	/**
+	 * Sets the request log configuration for this application.
+	 * @param requestLog the request log configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setRequestLog(RequestLogConfiguration requestLog)
+	{
+		this.requestLogConfiguration = requestLog;
+		return this;
+	}
+	
+	/**
+	 * Sets the connection limit configuration for this application.
+	 * @param connectionLimit the connection limit configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setConnectionLimit(ConnectionLimitConfiguration connectionLimit)
+	{
+		this.connectionLimitConfiguration = connectionLimit;
+		return this;
+	}
+	
+	/**
+	 * Sets the low resource monitor configuration for this application.
+	 * @param lowResources the low resource monitor configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setLowResources(LowResourceConfiguration lowResources)
+	{
+		this.lowResourceConfiguration = lowResources;
+		return this;
+	}
+	
+	/**
+	 * Adds a rate limit configuration for this application.
+	 * @param rateLimit the rate limit configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration addRateLimit(RateLimitConfiguration rateLimit)
+	{
+		this.rateLimitConfigurations.add(rateLimit);
+		return this;
+	}
+	
+	/**
+	 * Sets the shutdown configuration for this application.
+	 * @param shutdown the shutdown configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setShutdown(ShutdownConfiguration shutdown)
+	{
+		this.shutdownConfiguration = shutdown;
+		return this;
+	}
+	
+	/**
+	 * Sets the startup configuration for this application.
+	 * @param startup the startup configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setStartup(StartupConfiguration startup)
+	{
+		this.startupConfiguration = startup;
+		return this;
+	}
+	
+	/**
+	 * Sets the buffer pool configuration for this application.
+	 * @param bufferPool the buffer pool configuration.
+	 * @return this builder, for chaining.
+	 * @since 1.6.0
+	 */
+	public DefaultSmallJettyConfiguration setBufferPool(BufferPoolConfiguration bufferPool)
+	{
+		this.bufferPoolConfiguration = bufferPool;
+		return this;
+	}
+	
 	public static class SSLConfigurationBuilder implements SSLConfiguration
 	{
 		private String keyStoreType;
@@ -557,7 +975,28 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		private String trustStoreType;
 		private String trustStorePath;
 		private String trustStorePassword;
+		private String provider;
+		private int sessionCacheSize;
+		private int sessionTimeout;
+		private Boolean sessionTicketsEnabled;
+		private Boolean ocspStaplingEnabled;
+		private String[] includedProtocols;
+		private String[] excludedProtocols;
+		private String[] includedCipherSuites;
+		private String[] excludedCipherSuites;
+		private boolean useCipherSuitesOrder;
+		private boolean watchKeyStore;
+		private int watchDelay;
 
+		/**
+		 * @return a new SSL configuration builder.
+		 * @since 1.6.0
+		 */
+		public static SSLConfigurationBuilder ssl()
+		{
+			return new SSLConfigurationBuilder();
+		}
+		
 		private SSLConfigurationBuilder()
 		{
 			keyStoreType = "JKS";
@@ -566,6 +1005,18 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 			trustStoreType = "JKS";
 			trustStorePath = "";
 			trustStorePassword = "";
+			provider = null;
+			sessionCacheSize = -1;
+			sessionTimeout = -1;
+			sessionTicketsEnabled = null;
+			ocspStaplingEnabled = null;
+			includedProtocols = null;
+			excludedProtocols = null;
+			includedCipherSuites = null;
+			excludedCipherSuites = null;
+			useCipherSuitesOrder = true;
+			watchKeyStore = false;
+			watchDelay = 1000;
 		}
 		
 		@Override
@@ -603,38 +1054,110 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		{
 			return trustStorePassword;
 		}
-		
-		/**
-		 * @see #getKeyStoreType() 
-		 * @param value the value to set.
-		 * @return this builder, for chaining.
-		 */
-		public SSLConfigurationBuilder setKeyStoreType(String value)
+
+		@Override
+		public String getProvider()
 		{
-			this.keyStoreType = value;
-			return this;
+			return provider;
 		}
 
-		/**
-		 * @see #getKeyStorePath() 
-		 * @param value the value to set.
-		 * @return this builder, for chaining.
-		 */
-		public SSLConfigurationBuilder setKeyStorePath(String value)
+		@Override
+		public int getSessionCacheSize()
 		{
-			this.keyStorePath = value;
-			return this;
+			return sessionCacheSize;
 		}
-		
-		/**
-		 * @see #getKeyStorePassword() 
-		 * @param value the value to set.
-		 * @return this builder, for chaining.
-		 */
-		public SSLConfigurationBuilder setKeyStorePassword(String value)
+
+		@Override
+		public int getSessionTimeout()
 		{
-			this.keyStorePassword = value;
-			return this;
+			return sessionTimeout;
+		}
+
+		@Override
+		public Boolean getSessionTicketsEnabled()
+		{
+			return sessionTicketsEnabled;
+		}
+
+		@Override
+		public Boolean getOCSPStaplingEnabled()
+		{
+			return ocspStaplingEnabled;
+		}
+
+		@Override
+		public String[] getIncludedProtocols()
+		{
+			return includedProtocols;
+		}
+
+		@Override
+		public String[] getExcludedProtocols()
+		{
+			return excludedProtocols;
+		}
+
+		@Override
+		public String[] getIncludedCipherSuites()
+		{
+			return includedCipherSuites;
+		}
+
+		@Override
+		public String[] getExcludedCipherSuites()
+		{
+			return excludedCipherSuites;
+		}
+
+		@Override
+		public boolean getUseCipherSuitesOrder()
+		{
+			return useCipherSuitesOrder;
+		}
+
+		@Override
+		public boolean getWatchKeyStore()
+		{
+			return watchKeyStore;
+		}
+
+		@Override
+		public int getWatchDelay()
+		{
+			return watchDelay;
+		}
+		
+		/**
+		 * @see #getKeyStoreType() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public SSLConfigurationBuilder setKeyStoreType(String value)
+		{
+			this.keyStoreType = value;
+			return this;
+		}
+
+		/**
+		 * @see #getKeyStorePath() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public SSLConfigurationBuilder setKeyStorePath(String value)
+		{
+			this.keyStorePath = value;
+			return this;
+		}
+		
+		/**
+		 * @see #getKeyStorePassword() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public SSLConfigurationBuilder setKeyStorePassword(String value)
+		{
+			this.keyStorePassword = value;
+			return this;
 		}
 		
 		/**
@@ -669,12 +1192,171 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 			this.trustStorePassword = value;
 			return this;
 		}
+
+		/**
+		 * @see #getProvider() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setProvider(String value)
+		{
+			this.provider = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSessionCacheSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setSessionCacheSize(int value)
+		{
+			this.sessionCacheSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSessionTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setSessionTimeout(int value)
+		{
+			this.sessionTimeout = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSessionTicketsEnabled() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setSessionTicketsEnabled(Boolean value)
+		{
+			this.sessionTicketsEnabled = value;
+			return this;
+		}
+
+		/**
+		 * @see #getOCSPStaplingEnabled() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setOCSPStaplingEnabled(Boolean value)
+		{
+			this.ocspStaplingEnabled = value;
+			return this;
+		}
+
+		/**
+		 * @see #getIncludedProtocols() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setIncludedProtocols(String... value)
+		{
+			this.includedProtocols = value;
+			return this;
+		}
+
+		/**
+		 * @see #getExcludedProtocols() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setExcludedProtocols(String... value)
+		{
+			this.excludedProtocols = value;
+			return this;
+		}
+
+		/**
+		 * @see #getIncludedCipherSuites() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setIncludedCipherSuites(String... value)
+		{
+			this.includedCipherSuites = value;
+			return this;
+		}
+
+		/**
+		 * @see #getExcludedCipherSuites() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setExcludedCipherSuites(String... value)
+		{
+			this.excludedCipherSuites = value;
+			return this;
+		}
+
+		/**
+		 * @see #getUseCipherSuitesOrder() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setUseCipherSuitesOrder(boolean value)
+		{
+			this.useCipherSuitesOrder = value;
+			return this;
+		}
+
+		/**
+		 * @see #getWatchKeyStore() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setWatchKeyStore(boolean value)
+		{
+			this.watchKeyStore = value;
+			return this;
+		}
+
+		/**
+		 * @see #getWatchDelay() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public SSLConfigurationBuilder setWatchDelay(int value)
+		{
+			this.watchDelay = value;
+			return this;
+		}
 	}
 
+	/**
+	 * GZip configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>bufferSize</b>: 16384</li>
+	 * 		<li><b>inflateBufferSize</b>: 16384</li>
+	 * 		<li><b>compressionLevel</b>: 6 ({@link Profile#BALANCED})</li>
+	 * 		<li><b>deflaterPoolCapacity</b>: -1</li>
+	 * 		<li><b>syncFlush</b>: false</li>
+	 * 		<li><b>minGzipSize</b>: 2048</li>
+	 * </ul>
+	 */
 	public static class GZipConfigurationBuilder implements GZipConfiguration
 	{
 		private int bufferSize;
+		private int inflateBufferSize;
 		private int compressionLevel;
+		private int deflaterPoolCapacity;
+		private boolean syncFlush;
 		private int minGzipSize;
 		private String[] excludedAgentPatterns;
 		private String[] excludedHTTPMethods;
@@ -693,7 +1375,10 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 		private GZipConfigurationBuilder()
 		{
 			this.bufferSize = 16384;
-			this.compressionLevel = 9;
+			this.inflateBufferSize = 16384;
+			this.compressionLevel = Profile.BALANCED.getLevel();
+			this.deflaterPoolCapacity = -1;
+			this.syncFlush = false;
 			this.minGzipSize = 2048;
 			this.excludedAgentPatterns = null;
 			this.excludedHTTPMethods = null;
@@ -711,12 +1396,30 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 			return bufferSize;
 		}
 
+		@Override
+		public int getInflateBufferSize()
+		{
+			return inflateBufferSize;
+		}
+
 		@Override
 		public int getCompressionLevel()
 		{
 			return compressionLevel;
 		}
 
+		@Override
+		public int getDeflaterPoolCapacity()
+		{
+			return deflaterPoolCapacity;
+		}
+
+		@Override
+		public boolean getSyncFlush()
+		{
+			return syncFlush;
+		}
+
 		@Override
 		public int getMinGzipSize()
 		{
@@ -793,6 +1496,55 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 			return this;
 		}
 
+		/**
+		 * Sets the compression level from a profile.
+		 * @param value the profile to use.
+		 * @return this builder, for chaining.
+		 * @see #getCompressionLevel()
+		 * @since 1.6.0
+		 */
+		public GZipConfigurationBuilder setCompressionProfile(Profile value)
+		{
+			compressionLevel = value.getLevel();
+			return this;
+		}
+
+		/**
+		 * @see #getInflateBufferSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public GZipConfigurationBuilder setInflateBufferSize(int value)
+		{
+			inflateBufferSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getDeflaterPoolCapacity() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public GZipConfigurationBuilder setDeflaterPoolCapacity(int value)
+		{
+			deflaterPoolCapacity = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSyncFlush() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 * @since 1.6.0
+		 */
+		public GZipConfigurationBuilder setSyncFlush(boolean value)
+		{
+			syncFlush = value;
+			return this;
+		}
+
 		/**
 		 * @see #getMinGzipSize() 
 		 * @param value the value to set.
@@ -892,4 +1644,2637 @@ public class DefaultSmallJettyConfiguration implements SmallJettyConfiguration
 			return this;
 		}
 	}
+
+	/**
+	 * Thread pool configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>name</b>: null</li>
+	 * 		<li><b>minThreads</b>: 8</li>
+	 * 		<li><b>maxThreads</b>: 200</li>
+	 * 		<li><b>idleTimeout</b>: 60000</li>
+	 * 		<li><b>reservedThreads</b>: -1</li>
+	 * 		<li><b>maxQueueSize</b>: null</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ThreadPoolConfigurationBuilder implements ThreadPoolConfiguration
+	{
+		private Engine engine;
+		private String name;
+		private int minThreads;
+		private int maxThreads;
+		private int idleTimeout;
+		private int reservedThreads;
+		private Integer maxQueueSize;
+		private ThreadPoolExecutor executor;
+
+		/**
+		 * @return a new builder for a tuned Jetty QueuedThreadPool.
+		 */
+		public static ThreadPoolConfigurationBuilder queued()
+		{
+			return new ThreadPoolConfigurationBuilder(Engine.QUEUED, null);
+		}
+		
+		/**
+		 * @param executor the executor to wrap.
+		 * @return a new builder for a Jetty ExecutorThreadPool that wraps the provided executor.
+		 */
+		public static ThreadPoolConfigurationBuilder executor(ThreadPoolExecutor executor)
+		{
+			return new ThreadPoolConfigurationBuilder(Engine.EXECUTOR, executor);
+		}
+		
+		/**
+		 * @return a new builder for a thread pool that starts a new virtual thread per task (Java 21 or higher).
+		 */
+		public static ThreadPoolConfigurationBuilder virtual()
+		{
+			return new ThreadPoolConfigurationBuilder(Engine.VIRTUAL, null);
+		}
+		
+		private ThreadPoolConfigurationBuilder(Engine engine, ThreadPoolExecutor executor)
+		{
+			this.engine = engine;
+			this.name = null;
+			this.minThreads = 8;
+			this.maxThreads = 200;
+			this.idleTimeout = 60000;
+			this.reservedThreads = -1;
+			this.maxQueueSize = null;
+			this.executor = executor;
+		}
+		
+		@Override
+		public Engine getEngine()
+		{
+			return engine;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public int getMinThreads()
+		{
+			return minThreads;
+		}
+
+		@Override
+		public int getMaxThreads()
+		{
+			return maxThreads;
+		}
+
+		@Override
+		public int getIdleTimeout()
+		{
+			return idleTimeout;
+		}
+
+		@Override
+		public int getReservedThreads()
+		{
+			return reservedThreads;
+		}
+
+		@Override
+		public Integer getMaxQueueSize()
+		{
+			return maxQueueSize;
+		}
+
+		@Override
+		public ThreadPoolExecutor getExecutor()
+		{
+			return executor;
+		}
+
+		/**
+		 * @see #getName() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ThreadPoolConfigurationBuilder setName(String value)
+		{
+			name = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMinThreads() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ThreadPoolConfigurationBuilder setMinThreads(int value)
+		{
+			minThreads = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxThreads() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ThreadPoolConfigurationBuilder setMaxThreads(int value)
+		{
+			maxThreads = value;
+			return this;
+		}
+
+		/**
+		 * @see #getIdleTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ThreadPoolConfigurationBuilder setIdleTimeout(int value)
+		{
+			idleTimeout = value;
+			return this;
+		}
+
+		/**
+		 * @see #getReservedThreads() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ThreadPoolConfigurationBuilder setReservedThreads(int value)
+		{
+			reservedThreads = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxQueueSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ThreadPoolConfigurationBuilder setMaxQueueSize(Integer value)
+		{
+			maxQueueSize = value;
+			return this;
+		}
+	}
+
+	/**
+	 * Load shedding configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>maxQueueSize</b>: 1024</li>
+	 * 		<li><b>maxQueueWait</b>: 1000</li>
+	 * 		<li><b>retryAfter</b>: 1</li>
+	 * </ul>
+	 * <p>The max queue wait must be set to null for executor or virtual thread pools,
+	 * and the max queue size must be set to null for virtual thread pools.
+	 * @since 1.6.0
+	 */
+	public static class LoadSheddingConfigurationBuilder implements LoadSheddingConfiguration
+	{
+		private Integer maxQueueSize;
+		private Integer maxQueueWait;
+		private int retryAfter;
+
+		/**
+		 * @return a new load shedding configuration builder.
+		 */
+		public static LoadSheddingConfigurationBuilder loadShedding()
+		{
+			return new LoadSheddingConfigurationBuilder();
+		}
+		
+		private LoadSheddingConfigurationBuilder()
+		{
+			this.maxQueueSize = 1024;
+			this.maxQueueWait = 1000;
+			this.retryAfter = 1;
+		}
+		
+		@Override
+		public Integer getMaxQueueSize()
+		{
+			return maxQueueSize;
+		}
+
+		@Override
+		public Integer getMaxQueueWait()
+		{
+			return maxQueueWait;
+		}
+
+		@Override
+		public int getRetryAfter()
+		{
+			return retryAfter;
+		}
+
+		/**
+		 * @see #getMaxQueueSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LoadSheddingConfigurationBuilder setMaxQueueSize(Integer value)
+		{
+			maxQueueSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxQueueWait() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LoadSheddingConfigurationBuilder setMaxQueueWait(Integer value)
+		{
+			maxQueueWait = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRetryAfter() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LoadSheddingConfigurationBuilder setRetryAfter(int value)
+		{
+			retryAfter = value;
+			return this;
+		}
+	}
+
+	/**
+	 * Connector configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>acceptors</b>: -1</li>
+	 * 		<li><b>selectors</b>: -1</li>
+	 * 		<li><b>acceptQueueSize</b>: 0</li>
+	 * 		<li><b>reuseAddress</b>: true</li>
+	 * 		<li><b>reusePort</b>: false</li>
+	 * 		<li><b>soLingerTime</b>: -1</li>
+	 * 		<li><b>tcpNoDelay</b>: true</li>
+	 * 		<li><b>receiveBufferSize</b>: -1</li>
+	 * 		<li><b>sendBufferSize</b>: -1</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ConnectorConfigurationBuilder implements ConnectorConfiguration
+	{
+		private int acceptors;
+		private int selectors;
+		private int acceptQueueSize;
+		private boolean reuseAddress;
+		private boolean reusePort;
+		private int soLingerTime;
+		private boolean tcpNoDelay;
+		private int receiveBufferSize;
+		private int sendBufferSize;
+
+		/**
+		 * @return a new connector configuration builder.
+		 */
+		public static ConnectorConfigurationBuilder connector()
+		{
+			return new ConnectorConfigurationBuilder();
+		}
+		
+		private ConnectorConfigurationBuilder()
+		{
+			this.acceptors = -1;
+			this.selectors = -1;
+			this.acceptQueueSize = 0;
+			this.reuseAddress = true;
+			this.reusePort = false;
+			this.soLingerTime = -1;
+			this.tcpNoDelay = true;
+			this.receiveBufferSize = -1;
+			this.sendBufferSize = -1;
+		}
+		
+		@Override
+		public int getAcceptors()
+		{
+			return acceptors;
+		}
+		
+		@Override
+		public int getSelectors()
+		{
+			return selectors;
+		}
+		
+		@Override
+		public int getAcceptQueueSize()
+		{
+			return acceptQueueSize;
+		}
+		
+		@Override
+		public boolean getReuseAddress()
+		{
+			return reuseAddress;
+		}
+		
+		@Override
+		public boolean getReusePort()
+		{
+			return reusePort;
+		}
+		
+		@Override
+		public int getSoLingerTime()
+		{
+			return soLingerTime;
+		}
+		
+		@Override
+		public boolean getTcpNoDelay()
+		{
+			return tcpNoDelay;
+		}
+		
+		@Override
+		public int getReceiveBufferSize()
+		{
+			return receiveBufferSize;
+		}
+		
+		@Override
+		public int getSendBufferSize()
+		{
+			return sendBufferSize;
+		}
+
+		/**
+		 * @see #getAcceptors() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setAcceptors(int value)
+		{
+			acceptors = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSelectors() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setSelectors(int value)
+		{
+			selectors = value;
+			return this;
+		}
+
+		/**
+		 * @see #getAcceptQueueSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setAcceptQueueSize(int value)
+		{
+			acceptQueueSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getReuseAddress() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setReuseAddress(boolean value)
+		{
+			reuseAddress = value;
+			return this;
+		}
+
+		/**
+		 * @see #getReusePort() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setReusePort(boolean value)
+		{
+			reusePort = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSoLingerTime() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setSoLingerTime(int value)
+		{
+			soLingerTime = value;
+			return this;
+		}
+
+		/**
+		 * @see #getTcpNoDelay() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setTcpNoDelay(boolean value)
+		{
+			tcpNoDelay = value;
+			return this;
+		}
+
+		/**
+		 * @see #getReceiveBufferSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setReceiveBufferSize(int value)
+		{
+			receiveBufferSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSendBufferSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectorConfigurationBuilder setSendBufferSize(int value)
+		{
+			sendBufferSize = value;
+			return this;
+		}
+	}
+
+	/**
+	 * HTTP/2 configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>secureEnabled</b>: true</li>
+	 * 		<li><b>cleartextEnabled</b>: false</li>
+	 * 		<li><b>maxConcurrentStreams</b>: 128</li>
+	 * 		<li><b>initialStreamRecvWindow</b>: 524288</li>
+	 * 		<li><b>initialSessionRecvWindow</b>: 1048576</li>
+	 * 		<li><b>maxHeaderListSize</b>: -1</li>
+	 * 		<li><b>maxDynamicTableSize</b>: 4096</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class HTTP2ConfigurationBuilder implements HTTP2Configuration
+	{
+		private boolean secureEnabled;
+		private boolean cleartextEnabled;
+		private int maxConcurrentStreams;
+		private int initialStreamRecvWindow;
+		private int initialSessionRecvWindow;
+		private int maxHeaderListSize;
+		private int maxDynamicTableSize;
+
+		/**
+		 * @return a new HTTP/2 configuration builder.
+		 */
+		public static HTTP2ConfigurationBuilder http2()
+		{
+			return new HTTP2ConfigurationBuilder();
+		}
+		
+		private HTTP2ConfigurationBuilder()
+		{
+			this.secureEnabled = true;
+			this.cleartextEnabled = false;
+			this.maxConcurrentStreams = 128;
+			this.initialStreamRecvWindow = 524288;
+			this.initialSessionRecvWindow = 1048576;
+			this.maxHeaderListSize = -1;
+			this.maxDynamicTableSize = 4096;
+		}
+		
+		@Override
+		public boolean getSecureEnabled()
+		{
+			return secureEnabled;
+		}
+		
+		@Override
+		public boolean getCleartextEnabled()
+		{
+			return cleartextEnabled;
+		}
+		
+		@Override
+		public int getMaxConcurrentStreams()
+		{
+			return maxConcurrentStreams;
+		}
+		
+		@Override
+		public int getInitialStreamRecvWindow()
+		{
+			return initialStreamRecvWindow;
+		}
+		
+		@Override
+		public int getInitialSessionRecvWindow()
+		{
+			return initialSessionRecvWindow;
+		}
+		
+		@Override
+		public int getMaxHeaderListSize()
+		{
+			return maxHeaderListSize;
+		}
+		
+		@Override
+		public int getMaxDynamicTableSize()
+		{
+			return maxDynamicTableSize;
+		}
+
+		/**
+		 * @see #getSecureEnabled() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setSecureEnabled(boolean value)
+		{
+			secureEnabled = value;
+			return this;
+		}
+
+		/**
+		 * @see #getCleartextEnabled() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setCleartextEnabled(boolean value)
+		{
+			cleartextEnabled = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxConcurrentStreams() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setMaxConcurrentStreams(int value)
+		{
+			maxConcurrentStreams = value;
+			return this;
+		}
+
+		/**
+		 * @see #getInitialStreamRecvWindow() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setInitialStreamRecvWindow(int value)
+		{
+			initialStreamRecvWindow = value;
+			return this;
+		}
+
+		/**
+		 * @see #getInitialSessionRecvWindow() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setInitialSessionRecvWindow(int value)
+		{
+			initialSessionRecvWindow = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxHeaderListSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setMaxHeaderListSize(int value)
+		{
+			maxHeaderListSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxDynamicTableSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public HTTP2ConfigurationBuilder setMaxDynamicTableSize(int value)
+		{
+			maxDynamicTableSize = value;
+			return this;
+		}
+	}
+
+	/**
+	 * Listener configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>name</b>: (required)</li>
+	 * 		<li><b>port</b>: (required)</li>
+	 * 		<li><b>host</b>: null</li>
+	 * 		<li><b>secure</b>: false</li>
+	 * 		<li><b>idleTimeout</b>: null</li>
+	 * 		<li><b>maxThreads</b>: null</li>
+	 * 		<li><b>headerCacheSize</b>: null</li>
+	 * 		<li><b>outputBufferSize</b>: null</li>
+	 * 		<li><b>requestHeaderSize</b>: null</li>
+	 * 		<li><b>responseHeaderSize</b>: null</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ListenerConfigurationBuilder implements ListenerConfiguration
+	{
+		private String name;
+		private int port;
+		private String host;
+		private boolean secure;
+		private Integer idleTimeout;
+		private Integer maxThreads;
+		private Integer headerCacheSize;
+		private Integer outputBufferSize;
+		private Integer requestHeaderSize;
+		private Integer responseHeaderSize;
+
+		/**
+		 * @param name the listener name.
+		 * @param port the listener port.
+		 * @return a new listener configuration builder.
+		 */
+		public static ListenerConfigurationBuilder listener(String name, int port)
+		{
+			return new ListenerConfigurationBuilder(name, port);
+		}
+		
+		private ListenerConfigurationBuilder(String name, int port)
+		{
+			this.name = name;
+			this.port = port;
+			this.host = null;
+			this.secure = false;
+			this.idleTimeout = null;
+			this.maxThreads = null;
+			this.headerCacheSize = null;
+			this.outputBufferSize = null;
+			this.requestHeaderSize = null;
+			this.responseHeaderSize = null;
+		}
+		
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public int getPort()
+		{
+			return port;
+		}
+
+		@Override
+		public String getHost()
+		{
+			return host;
+		}
+		
+		@Override
+		public boolean getSecure()
+		{
+			return secure;
+		}
+		
+		@Override
+		public Integer getIdleTimeout()
+		{
+			return idleTimeout;
+		}
+		
+		@Override
+		public Integer getMaxThreads()
+		{
+			return maxThreads;
+		}
+		
+		@Override
+		public Integer getHeaderCacheSize()
+		{
+			return headerCacheSize;
+		}
+		
+		@Override
+		public Integer getOutputBufferSize()
+		{
+			return outputBufferSize;
+		}
+		
+		@Override
+		public Integer getRequestHeaderSize()
+		{
+			return requestHeaderSize;
+		}
+		
+		@Override
+		public Integer getResponseHeaderSize()
+		{
+			return responseHeaderSize;
+		}
+
+		/**
+		 * @see #getHost() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setHost(String value)
+		{
+			host = value;
+			return this;
+		}
+
+		/**
+		 * @see #getSecure() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setSecure(boolean value)
+		{
+			secure = value;
+			return this;
+		}
+
+		/**
+		 * @see #getIdleTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setIdleTimeout(Integer value)
+		{
+			idleTimeout = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxThreads() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setMaxThreads(Integer value)
+		{
+			maxThreads = value;
+			return this;
+		}
+
+		/**
+		 * @see #getHeaderCacheSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setHeaderCacheSize(Integer value)
+		{
+			headerCacheSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getOutputBufferSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setOutputBufferSize(Integer value)
+		{
+			outputBufferSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRequestHeaderSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setRequestHeaderSize(Integer value)
+		{
+			requestHeaderSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getResponseHeaderSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ListenerConfigurationBuilder setResponseHeaderSize(Integer value)
+		{
+			responseHeaderSize = value;
+			return this;
+		}
+	}
+
+	/**
+	 * Unix socket configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>path</b>: (required)</li>
+	 * 		<li><b>permissions</b>: null</li>
+	 * 		<li><b>replaceServerPort</b>: false</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class UnixSocketConfigurationBuilder implements UnixSocketConfiguration
+	{
+		private String path;
+		private String permissions;
+		private boolean replaceServerPort;
+
+		/**
+		 * @param path the path to the socket file.
+		 * @return a new Unix socket configuration builder.
+		 */
+		public static UnixSocketConfigurationBuilder unixSocket(String path)
+		{
+			return new UnixSocketConfigurationBuilder(path);
+		}
+		
+		private UnixSocketConfigurationBuilder(String path)
+		{
+			this.path = path;
+			this.permissions = null;
+			this.replaceServerPort = false;
+		}
+		
+		@Override
+		public String getPath()
+		{
+			return path;
+		}
+
+		@Override
+		public String getPermissions()
+		{
+			return permissions;
+		}
+		
+		@Override
+		public boolean getReplaceServerPort()
+		{
+			return replaceServerPort;
+		}
+
+		/**
+		 * @see #getPermissions() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public UnixSocketConfigurationBuilder setPermissions(String value)
+		{
+			permissions = value;
+			return this;
+		}
+
+		/**
+		 * @see #getReplaceServerPort() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public UnixSocketConfigurationBuilder setReplaceServerPort(boolean value)
+		{
+			replaceServerPort = value;
+			return this;
+		}
+	}
+
+	/**
+	 * Proxy configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>proxyProtocolEnabled</b>: true</li>
+	 * 		<li><b>maxProxyHeader</b>: 1024</li>
+	 * 		<li><b>forwardedHeadersEnabled</b>: false</li>
+	 * 		<li><b>forwardedOnly</b>: false</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ProxyProtocolConfigurationBuilder implements ProxyProtocolConfiguration
+	{
+		private boolean proxyProtocolEnabled;
+		private int maxProxyHeader;
+		private boolean forwardedHeadersEnabled;
+		private boolean forwardedOnly;
+
+		/**
+		 * @return a new proxy configuration builder.
+		 */
+		public static ProxyProtocolConfigurationBuilder proxyProtocol()
+		{
+			return new ProxyProtocolConfigurationBuilder();
+		}
+		
+		private ProxyProtocolConfigurationBuilder()
+		{
+			this.proxyProtocolEnabled = true;
+			this.maxProxyHeader = 1024;
+			this.forwardedHeadersEnabled = false;
+			this.forwardedOnly = false;
+		}
+		
+		@Override
+		public boolean getProxyProtocolEnabled()
+		{
+			return proxyProtocolEnabled;
+		}
+		
+		@Override
+		public int getMaxProxyHeader()
+		{
+			return maxProxyHeader;
+		}
+		
+		@Override
+		public boolean getForwardedHeadersEnabled()
+		{
+			return forwardedHeadersEnabled;
+		}
+		
+		@Override
+		public boolean getForwardedOnly()
+		{
+			return forwardedOnly;
+		}
+
+		/**
+		 * @see #getProxyProtocolEnabled() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ProxyProtocolConfigurationBuilder setProxyProtocolEnabled(boolean value)
+		{
+			proxyProtocolEnabled = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxProxyHeader() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ProxyProtocolConfigurationBuilder setMaxProxyHeader(int value)
+		{
+			maxProxyHeader = value;
+			return this;
+		}
+
+		/**
+		 * @see #getForwardedHeadersEnabled() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ProxyProtocolConfigurationBuilder setForwardedHeadersEnabled(boolean value)
+		{
+			forwardedHeadersEnabled = value;
+			return this;
+		}
+
+		/**
+		 * @see #getForwardedOnly() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ProxyProtocolConfigurationBuilder setForwardedOnly(boolean value)
+		{
+			forwardedOnly = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Compression configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>preferredEncodings</b>: [ "br", "zstd", "gzip" ]</li>
+	 * 		<li><b>brotliConfiguration</b>: null</li>
+	 * 		<li><b>zstdConfiguration</b>: null</li>
+	 * 		<li><b>gzipConfiguration</b>: null</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class CompressionConfigurationBuilder implements CompressionConfiguration
+	{
+		private String[] preferredEncodings;
+		private GZipConfiguration brotliConfiguration;
+		private GZipConfiguration zstdConfiguration;
+		private GZipConfiguration gzipConfiguration;
+
+		/**
+		 * @return a new compression configuration builder with no encodings.
+		 */
+		public static CompressionConfigurationBuilder compression()
+		{
+			return new CompressionConfigurationBuilder();
+		}
+		
+		private CompressionConfigurationBuilder()
+		{
+			this.preferredEncodings = new String[]{ENCODING_BROTLI, ENCODING_ZSTD, ENCODING_GZIP};
+			this.brotliConfiguration = null;
+			this.zstdConfiguration = null;
+			this.gzipConfiguration = null;
+		}
+		
+		@Override
+		public String[] getPreferredEncodings()
+		{
+			return preferredEncodings;
+		}
+		
+		@Override
+		public GZipConfiguration getBrotliConfiguration()
+		{
+			return brotliConfiguration;
+		}
+		
+		@Override
+		public GZipConfiguration getZstdConfiguration()
+		{
+			return zstdConfiguration;
+		}
+		
+		@Override
+		public GZipConfiguration getGZipConfiguration()
+		{
+			return gzipConfiguration;
+		}
+
+		/**
+		 * @see #getPreferredEncodings() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public CompressionConfigurationBuilder setPreferredEncodings(String... value)
+		{
+			preferredEncodings = value;
+			return this;
+		}
+
+		/**
+		 * @see #getBrotliConfiguration() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public CompressionConfigurationBuilder setBrotli(GZipConfiguration value)
+		{
+			brotliConfiguration = value;
+			return this;
+		}
+
+		/**
+		 * @see #getZstdConfiguration() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public CompressionConfigurationBuilder setZstd(GZipConfiguration value)
+		{
+			zstdConfiguration = value;
+			return this;
+		}
+
+		/**
+		 * @see #getGZipConfiguration() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public CompressionConfigurationBuilder setGZip(GZipConfiguration value)
+		{
+			gzipConfiguration = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Static resource configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>path</b>: (required)</li>
+	 * 		<li><b>resourceBase</b>: (required)</li>
+	 * 		<li><b>precompressedEncodings</b>: [ "br", "gzip" ]</li>
+	 * 		<li><b>maxCacheSize</b>: 67108864 (64 MiB)</li>
+	 * 		<li><b>maxCachedFileSize</b>: 4194304 (4 MiB)</li>
+	 * 		<li><b>maxCachedFiles</b>: 2048</li>
+	 * 		<li><b>memoryMapped</b>: true</li>
+	 * 		<li><b>etags</b>: true</li>
+	 * 		<li><b>cacheControl</b>: null</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class StaticResourceConfigurationBuilder implements StaticResourceConfiguration
+	{
+		private String path;
+		private String resourceBase;
+		private String[] precompressedEncodings;
+		private int maxCacheSize;
+		private int maxCachedFileSize;
+		private int maxCachedFiles;
+		private boolean memoryMapped;
+		private boolean etags;
+		private String cacheControl;
+
+		/**
+		 * @param path the servlet path to mount the resources on, like <code>"/static/*"</code>.
+		 * @param resourceBase the directory to serve files from, or a classpath path prefixed with {@link #CLASSPATH_PREFIX}.
+		 * @return a new static resource configuration builder.
+		 */
+		public static StaticResourceConfigurationBuilder staticResources(String path, String resourceBase)
+		{
+			return new StaticResourceConfigurationBuilder(path, resourceBase);
+		}
+		
+		private StaticResourceConfigurationBuilder(String path, String resourceBase)
+		{
+			this.path = path;
+			this.resourceBase = resourceBase;
+			this.precompressedEncodings = new String[]{CompressionConfiguration.ENCODING_BROTLI, CompressionConfiguration.ENCODING_GZIP};
+			this.maxCacheSize = 64 * 1024 * 1024;
+			this.maxCachedFileSize = 4 * 1024 * 1024;
+			this.maxCachedFiles = 2048;
+			this.memoryMapped = true;
+			this.etags = true;
+			this.cacheControl = null;
+		}
+		
+		@Override
+		public String getPath()
+		{
+			return path;
+		}
+		
+		@Override
+		public String getResourceBase()
+		{
+			return resourceBase;
+		}
+		
+		@Override
+		public String[] getPrecompressedEncodings()
+		{
+			return precompressedEncodings;
+		}
+		
+		@Override
+		public int getMaxCacheSize()
+		{
+			return maxCacheSize;
+		}
+		
+		@Override
+		public int getMaxCachedFileSize()
+		{
+			return maxCachedFileSize;
+		}
+		
+		@Override
+		public int getMaxCachedFiles()
+		{
+			return maxCachedFiles;
+		}
+		
+		@Override
+		public boolean getMemoryMapped()
+		{
+			return memoryMapped;
+		}
+		
+		@Override
+		public boolean getETags()
+		{
+			return etags;
+		}
+		
+		@Override
+		public String getCacheControl()
+		{
+			return cacheControl;
+		}
+
+		/**
+		 * @see #getPrecompressedEncodings() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setPrecompressedEncodings(String... value)
+		{
+			precompressedEncodings = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxCacheSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setMaxCacheSize(int value)
+		{
+			maxCacheSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxCachedFileSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setMaxCachedFileSize(int value)
+		{
+			maxCachedFileSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxCachedFiles() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setMaxCachedFiles(int value)
+		{
+			maxCachedFiles = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMemoryMapped() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setMemoryMapped(boolean value)
+		{
+			memoryMapped = value;
+			return this;
+		}
+
+		/**
+		 * @see #getETags() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setETags(boolean value)
+		{
+			etags = value;
+			return this;
+		}
+
+		/**
+		 * @see #getCacheControl() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StaticResourceConfigurationBuilder setCacheControl(String value)
+		{
+			cacheControl = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Response cache configuration builder.
+	 * <p>Requests with cookies are only served from, and stored in, the cache if the response has <code>Cache-Control: public</code>
+	 * or <code>s-maxage</code>, so that a response personalized for one session is never served to another. 
+	 * The default time-to-live does not make such responses shareable.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>eviction</b>: LRU</li>
+	 * 		<li><b>maxSize</b>: 67108864 (64 MiB)</li>
+	 * 		<li><b>maxEntrySize</b>: 1048576 (1 MiB)</li>
+	 * 		<li><b>defaultTimeToLive</b>: 0</li>
+	 * 		<li><b>coalesceRequests</b>: true</li>
+	 * 		<li><b>coalesceTimeout</b>: 5000</li>
+	 * 		<li><b>includedPaths</b>: null</li>
+	 * 		<li><b>excludedPaths</b>: null</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ResponseCacheConfigurationBuilder implements ResponseCacheConfiguration
+	{
+		private Eviction eviction;
+		private long maxSize;
+		private int maxEntrySize;
+		private int defaultTimeToLive;
+		private boolean coalesceRequests;
+		private int coalesceTimeout;
+		private String[] includedPaths;
+		private String[] excludedPaths;
+
+		/**
+		 * @return a new response cache configuration builder.
+		 */
+		public static ResponseCacheConfigurationBuilder responseCache()
+		{
+			return new ResponseCacheConfigurationBuilder();
+		}
+		
+		private ResponseCacheConfigurationBuilder()
+		{
+			this.eviction = Eviction.LRU;
+			this.maxSize = 64L * 1024 * 1024;
+			this.maxEntrySize = 1024 * 1024;
+			this.defaultTimeToLive = 0;
+			this.coalesceRequests = true;
+			this.coalesceTimeout = 5000;
+			this.includedPaths = null;
+			this.excludedPaths = null;
+		}
+		
+		@Override
+		public Eviction getEviction()
+		{
+			return eviction;
+		}
+		
+		@Override
+		public long getMaxSize()
+		{
+			return maxSize;
+		}
+		
+		@Override
+		public int getMaxEntrySize()
+		{
+			return maxEntrySize;
+		}
+		
+		@Override
+		public int getDefaultTimeToLive()
+		{
+			return defaultTimeToLive;
+		}
+		
+		@Override
+		public boolean getCoalesceRequests()
+		{
+			return coalesceRequests;
+		}
+		
+		@Override
+		public int getCoalesceTimeout()
+		{
+			return coalesceTimeout;
+		}
+		
+		@Override
+		public String[] getIncludedPaths()
+		{
+			return includedPaths;
+		}
+		
+		@Override
+		public String[] getExcludedPaths()
+		{
+			return excludedPaths;
+		}
+
+		/**
+		 * @see #getEviction() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setEviction(Eviction value)
+		{
+			eviction = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setMaxSize(long value)
+		{
+			maxSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxEntrySize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setMaxEntrySize(int value)
+		{
+			maxEntrySize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getDefaultTimeToLive() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setDefaultTimeToLive(int value)
+		{
+			defaultTimeToLive = value;
+			return this;
+		}
+
+		/**
+		 * @see #getCoalesceRequests() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setCoalesceRequests(boolean value)
+		{
+			coalesceRequests = value;
+			return this;
+		}
+
+		/**
+		 * @see #getCoalesceTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setCoalesceTimeout(int value)
+		{
+			coalesceTimeout = value;
+			return this;
+		}
+
+		/**
+		 * @see #getIncludedPaths() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setIncludedPaths(String... value)
+		{
+			includedPaths = value;
+			return this;
+		}
+
+		/**
+		 * @see #getExcludedPaths() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ResponseCacheConfigurationBuilder setExcludedPaths(String... value)
+		{
+			excludedPaths = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Metrics configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>path</b>: null</li>
+	 * 		<li><b>listenerName</b>: null</li>
+	 * 		<li><b>prefix</b>: "small_jetty"</li>
+	 * 		<li><b>quantiles</b>: [0.5, 0.9, 0.99, 0.999]</li>
+	 * 		<li><b>recordPaths</b>: true</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class MetricsConfigurationBuilder implements MetricsConfiguration
+	{
+		private String path;
+		private String listenerName;
+		private String prefix;
+		private double[] quantiles;
+		private boolean recordPaths;
+
+		/**
+		 * @return a new metrics configuration builder.
+		 */
+		public static MetricsConfigurationBuilder metrics()
+		{
+			return new MetricsConfigurationBuilder();
+		}
+		
+		private MetricsConfigurationBuilder()
+		{
+			this.path = null;
+			this.listenerName = null;
+			this.prefix = "small_jetty";
+			this.quantiles = new double[]{0.5, 0.9, 0.99, 0.999};
+			this.recordPaths = true;
+		}
+		
+		@Override
+		public String getPath()
+		{
+			return path;
+		}
+		
+		@Override
+		public String getListenerName()
+		{
+			return listenerName;
+		}
+		
+		@Override
+		public String getPrefix()
+		{
+			return prefix;
+		}
+		
+		@Override
+		public double[] getQuantiles()
+		{
+			return quantiles;
+		}
+		
+		@Override
+		public boolean getRecordPaths()
+		{
+			return recordPaths;
+		}
+
+		/**
+		 * @see #getPath() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public MetricsConfigurationBuilder setPath(String value)
+		{
+			path = value;
+			return this;
+		}
+
+		/**
+		 * @see #getListenerName() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public MetricsConfigurationBuilder setListenerName(String value)
+		{
+			listenerName = value;
+			return this;
+		}
+
+		/**
+		 * @see #getPrefix() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public MetricsConfigurationBuilder setPrefix(String value)
+		{
+			prefix = value;
+			return this;
+		}
+
+		/**
+		 * @see #getQuantiles() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public MetricsConfigurationBuilder setQuantiles(double... value)
+		{
+			quantiles = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRecordPaths() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public MetricsConfigurationBuilder setRecordPaths(boolean value)
+		{
+			recordPaths = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Request log configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>path</b>: (required)</li>
+	 * 		<li><b>extended</b>: true</li>
+	 * 		<li><b>logLatency</b>: false</li>
+	 * 		<li><b>timeZone</b>: "GMT"</li>
+	 * 		<li><b>bufferCapacity</b>: 8192</li>
+	 * 		<li><b>batchSize</b>: 65536 (64 KiB)</li>
+	 * 		<li><b>flushInterval</b>: 500</li>
+	 * 		<li><b>overflowPolicy</b>: DROP</li>
+	 * 		<li><b>rotateSize</b>: 0</li>
+	 * 		<li><b>rotateInterval</b>: 0</li>
+	 * 		<li><b>retainFiles</b>: 0</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class RequestLogConfigurationBuilder implements RequestLogConfiguration
+	{
+		private String path;
+		private boolean extended;
+		private boolean logLatency;
+		private String timeZone;
+		private int bufferCapacity;
+		private int batchSize;
+		private int flushInterval;
+		private OverflowPolicy overflowPolicy;
+		private long rotateSize;
+		private long rotateInterval;
+		private int retainFiles;
+
+		/**
+		 * @param path the path to the log file.
+		 * @return a new request log configuration builder.
+		 */
+		public static RequestLogConfigurationBuilder requestLog(String path)
+		{
+			return new RequestLogConfigurationBuilder(path);
+		}
+		
+		private RequestLogConfigurationBuilder(String path)
+		{
+			this.path = path;
+			this.extended = true;
+			this.logLatency = false;
+			this.timeZone = "GMT";
+			this.bufferCapacity = 8192;
+			this.batchSize = 65536;
+			this.flushInterval = 500;
+			this.overflowPolicy = OverflowPolicy.DROP;
+			this.rotateSize = 0L;
+			this.rotateInterval = 0L;
+			this.retainFiles = 0;
+		}
+		
+		@Override
+		public String getPath()
+		{
+			return path;
+		}
+		
+		@Override
+		public boolean getExtended()
+		{
+			return extended;
+		}
+		
+		@Override
+		public boolean getLogLatency()
+		{
+			return logLatency;
+		}
+		
+		@Override
+		public String getTimeZone()
+		{
+			return timeZone;
+		}
+		
+		@Override
+		public int getBufferCapacity()
+		{
+			return bufferCapacity;
+		}
+		
+		@Override
+		public int getBatchSize()
+		{
+			return batchSize;
+		}
+		
+		@Override
+		public int getFlushInterval()
+		{
+			return flushInterval;
+		}
+		
+		@Override
+		public OverflowPolicy getOverflowPolicy()
+		{
+			return overflowPolicy;
+		}
+		
+		@Override
+		public long getRotateSize()
+		{
+			return rotateSize;
+		}
+		
+		@Override
+		public long getRotateInterval()
+		{
+			return rotateInterval;
+		}
+		
+		@Override
+		public int getRetainFiles()
+		{
+			return retainFiles;
+		}
+
+		/**
+		 * @see #getExtended() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setExtended(boolean value)
+		{
+			extended = value;
+			return this;
+		}
+
+		/**
+		 * @see #getLogLatency() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setLogLatency(boolean value)
+		{
+			logLatency = value;
+			return this;
+		}
+
+		/**
+		 * @see #getTimeZone() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setTimeZone(String value)
+		{
+			timeZone = value;
+			return this;
+		}
+
+		/**
+		 * @see #getBufferCapacity() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setBufferCapacity(int value)
+		{
+			bufferCapacity = value;
+			return this;
+		}
+
+		/**
+		 * @see #getBatchSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setBatchSize(int value)
+		{
+			batchSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getFlushInterval() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setFlushInterval(int value)
+		{
+			flushInterval = value;
+			return this;
+		}
+
+		/**
+		 * @see #getOverflowPolicy() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setOverflowPolicy(OverflowPolicy value)
+		{
+			overflowPolicy = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRotateSize() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setRotateSize(long value)
+		{
+			rotateSize = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRotateInterval() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setRotateInterval(long value)
+		{
+			rotateInterval = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRetainFiles() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RequestLogConfigurationBuilder setRetainFiles(int value)
+		{
+			retainFiles = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Connection limit configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>maxConnections</b>: (required)</li>
+	 * 		<li><b>idleTimeout</b>: 0</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ConnectionLimitConfigurationBuilder implements ConnectionLimitConfiguration
+	{
+		private int maxConnections;
+		private int idleTimeout;
+
+		/**
+		 * @param maxConnections the maximum amount of open connections across all connectors.
+		 * @return a new connection limit configuration builder.
+		 */
+		public static ConnectionLimitConfigurationBuilder connectionLimit(int maxConnections)
+		{
+			return new ConnectionLimitConfigurationBuilder(maxConnections);
+		}
+		
+		private ConnectionLimitConfigurationBuilder(int maxConnections)
+		{
+			this.maxConnections = maxConnections;
+			this.idleTimeout = 0;
+		}
+		
+		@Override
+		public int getMaxConnections()
+		{
+			return maxConnections;
+		}
+		
+		@Override
+		public int getIdleTimeout()
+		{
+			return idleTimeout;
+		}
+
+		/**
+		 * @see #getIdleTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ConnectionLimitConfigurationBuilder setIdleTimeout(int value)
+		{
+			idleTimeout = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Low resource monitor configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>period</b>: 1000</li>
+	 * 		<li><b>monitorThreads</b>: true</li>
+	 * 		<li><b>lowThreadsThreshold</b>: 1</li>
+	 * 		<li><b>maxMemory</b>: 0</li>
+	 * 		<li><b>lowResourcesIdleTimeout</b>: 1000</li>
+	 * 		<li><b>maxLowResourcesTime</b>: 0</li>
+	 * 		<li><b>acceptingInLowResources</b>: true</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class LowResourceConfigurationBuilder implements LowResourceConfiguration
+	{
+		private int period;
+		private boolean monitorThreads;
+		private int lowThreadsThreshold;
+		private long maxMemory;
+		private int lowResourcesIdleTimeout;
+		private int maxLowResourcesTime;
+		private boolean acceptingInLowResources;
+
+		/**
+		 * @return a new low resource monitor configuration builder.
+		 */
+		public static LowResourceConfigurationBuilder lowResources()
+		{
+			return new LowResourceConfigurationBuilder();
+		}
+		
+		private LowResourceConfigurationBuilder()
+		{
+			this.period = 1000;
+			this.monitorThreads = true;
+			this.lowThreadsThreshold = 1;
+			this.maxMemory = 0L;
+			this.lowResourcesIdleTimeout = 1000;
+			this.maxLowResourcesTime = 0;
+			this.acceptingInLowResources = true;
+		}
+		
+		@Override
+		public int getPeriod()
+		{
+			return period;
+		}
+		
+		@Override
+		public boolean getMonitorThreads()
+		{
+			return monitorThreads;
+		}
+		
+		@Override
+		public int getLowThreadsThreshold()
+		{
+			return lowThreadsThreshold;
+		}
+		
+		@Override
+		public long getMaxMemory()
+		{
+			return maxMemory;
+		}
+		
+		@Override
+		public int getLowResourcesIdleTimeout()
+		{
+			return lowResourcesIdleTimeout;
+		}
+		
+		@Override
+		public int getMaxLowResourcesTime()
+		{
+			return maxLowResourcesTime;
+		}
+		
+		@Override
+		public boolean getAcceptingInLowResources()
+		{
+			return acceptingInLowResources;
+		}
+
+		/**
+		 * @see #getPeriod() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setPeriod(int value)
+		{
+			period = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMonitorThreads() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setMonitorThreads(boolean value)
+		{
+			monitorThreads = value;
+			return this;
+		}
+
+		/**
+		 * @see #getLowThreadsThreshold() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setLowThreadsThreshold(int value)
+		{
+			lowThreadsThreshold = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxMemory() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setMaxMemory(long value)
+		{
+			maxMemory = value;
+			return this;
+		}
+
+		/**
+		 * @see #getLowResourcesIdleTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setLowResourcesIdleTimeout(int value)
+		{
+			lowResourcesIdleTimeout = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxLowResourcesTime() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setMaxLowResourcesTime(int value)
+		{
+			maxLowResourcesTime = value;
+			return this;
+		}
+
+		/**
+		 * @see #getAcceptingInLowResources() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public LowResourceConfigurationBuilder setAcceptingInLowResources(boolean value)
+		{
+			acceptingInLowResources = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Rate limit configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>path</b>: (required)</li>
+	 * 		<li><b>keyHeader</b>: null</li>
+	 * 		<li><b>rate</b>: 0.0</li>
+	 * 		<li><b>burst</b>: 10</li>
+	 * 		<li><b>maxRequests</b>: 0</li>
+	 * 		<li><b>priorities</b>: 1</li>
+	 * 		<li><b>priorityHeader</b>: null</li>
+	 * 		<li><b>defaultPriority</b>: 0</li>
+	 * 		<li><b>maxWait</b>: 30000</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class RateLimitConfigurationBuilder implements RateLimitConfiguration
+	{
+		private String path;
+		private String keyHeader;
+		private double rate;
+		private int burst;
+		private int maxRequests;
+		private int priorities;
+		private String priorityHeader;
+		private int defaultPriority;
+		private int maxWait;
+
+		/**
+		 * @param path the servlet path pattern to apply the limits to, like <code>"/*"</code> or <code>"/api/*"</code>.
+		 * @return a new rate limit configuration builder.
+		 */
+		public static RateLimitConfigurationBuilder rateLimit(String path)
+		{
+			return new RateLimitConfigurationBuilder(path);
+		}
+		
+		private RateLimitConfigurationBuilder(String path)
+		{
+			this.path = path;
+			this.keyHeader = null;
+			this.rate = 0.0;
+			this.burst = 10;
+			this.maxRequests = 0;
+			this.priorities = 1;
+			this.priorityHeader = null;
+			this.defaultPriority = 0;
+			this.maxWait = 30000;
+		}
+		
+		@Override
+		public String getPath()
+		{
+			return path;
+		}
+		
+		@Override
+		public String getKeyHeader()
+		{
+			return keyHeader;
+		}
+		
+		@Override
+		public double getRate()
+		{
+			return rate;
+		}
+		
+		@Override
+		public int getBurst()
+		{
+			return burst;
+		}
+		
+		@Override
+		public int getMaxRequests()
+		{
+			return maxRequests;
+		}
+		
+		@Override
+		public int getPriorities()
+		{
+			return priorities;
+		}
+		
+		@Override
+		public String getPriorityHeader()
+		{
+			return priorityHeader;
+		}
+		
+		@Override
+		public int getDefaultPriority()
+		{
+			return defaultPriority;
+		}
+		
+		@Override
+		public int getMaxWait()
+		{
+			return maxWait;
+		}
+
+		/**
+		 * @see #getKeyHeader() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setKeyHeader(String value)
+		{
+			keyHeader = value;
+			return this;
+		}
+
+		/**
+		 * @see #getRate() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setRate(double value)
+		{
+			rate = value;
+			return this;
+		}
+
+		/**
+		 * @see #getBurst() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setBurst(int value)
+		{
+			burst = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxRequests() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setMaxRequests(int value)
+		{
+			maxRequests = value;
+			return this;
+		}
+
+		/**
+		 * @see #getPriorities() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setPriorities(int value)
+		{
+			priorities = value;
+			return this;
+		}
+
+		/**
+		 * @see #getPriorityHeader() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setPriorityHeader(String value)
+		{
+			priorityHeader = value;
+			return this;
+		}
+
+		/**
+		 * @see #getDefaultPriority() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setDefaultPriority(int value)
+		{
+			defaultPriority = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxWait() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public RateLimitConfigurationBuilder setMaxWait(int value)
+		{
+			maxWait = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Shutdown configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>stopTimeout</b>: 30000</li>
+	 * 		<li><b>graceful</b>: true</li>
+	 * 		<li><b>drainDelay</b>: 0</li>
+	 * 		<li><b>shutdownHook</b>: false</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class ShutdownConfigurationBuilder implements ShutdownConfiguration
+	{
+		private int stopTimeout;
+		private boolean graceful;
+		private int drainDelay;
+		private boolean shutdownHook;
+
+		/**
+		 * @return a new shutdown configuration builder.
+		 */
+		public static ShutdownConfigurationBuilder shutdown()
+		{
+			return new ShutdownConfigurationBuilder();
+		}
+		
+		private ShutdownConfigurationBuilder()
+		{
+			this.stopTimeout = 30000;
+			this.graceful = true;
+			this.drainDelay = 0;
+			this.shutdownHook = false;
+		}
+		
+		@Override
+		public int getStopTimeout()
+		{
+			return stopTimeout;
+		}
+		
+		@Override
+		public boolean getGraceful()
+		{
+			return graceful;
+		}
+		
+		@Override
+		public int getDrainDelay()
+		{
+			return drainDelay;
+		}
+		
+		@Override
+		public boolean getShutdownHook()
+		{
+			return shutdownHook;
+		}
+
+		/**
+		 * @see #getStopTimeout() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ShutdownConfigurationBuilder setStopTimeout(int value)
+		{
+			stopTimeout = value;
+			return this;
+		}
+
+		/**
+		 * @see #getGraceful() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ShutdownConfigurationBuilder setGraceful(boolean value)
+		{
+			graceful = value;
+			return this;
+		}
+
+		/**
+		 * @see #getDrainDelay() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ShutdownConfigurationBuilder setDrainDelay(int value)
+		{
+			drainDelay = value;
+			return this;
+		}
+
+		/**
+		 * @see #getShutdownHook() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public ShutdownConfigurationBuilder setShutdownHook(boolean value)
+		{
+			shutdownHook = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Startup configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>lazyServletInit</b>: false</li>
+	 * 		<li><b>lazyWebSockets</b>: false</li>
+	 * 		<li><b>logTimings</b>: false</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class StartupConfigurationBuilder implements StartupConfiguration
+	{
+		private boolean lazyServletInit;
+		private boolean lazyWebSockets;
+		private boolean logTimings;
+
+		/**
+		 * @return a new startup configuration builder.
+		 */
+		public static StartupConfigurationBuilder startup()
+		{
+			return new StartupConfigurationBuilder();
+		}
+		
+		/**
+		 * @return a new startup configuration builder for a fast startup, with lazy servlet initialization and WebSocket setup.
+		 */
+		public static StartupConfigurationBuilder fast()
+		{
+			return (new StartupConfigurationBuilder())
+				.setLazyServletInit(true)
+				.setLazyWebSockets(true);
+		}
+		
+		private StartupConfigurationBuilder()
+		{
+			this.lazyServletInit = false;
+			this.lazyWebSockets = false;
+			this.logTimings = false;
+		}
+		
+		@Override
+		public boolean getLazyServletInit()
+		{
+			return lazyServletInit;
+		}
+		
+		@Override
+		public boolean getLazyWebSockets()
+		{
+			return lazyWebSockets;
+		}
+		
+		@Override
+		public boolean getLogTimings()
+		{
+			return logTimings;
+		}
+
+		/**
+		 * @see #getLazyServletInit() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StartupConfigurationBuilder setLazyServletInit(boolean value)
+		{
+			lazyServletInit = value;
+			return this;
+		}
+
+		/**
+		 * @see #getLazyWebSockets() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StartupConfigurationBuilder setLazyWebSockets(boolean value)
+		{
+			lazyWebSockets = value;
+			return this;
+		}
+
+		/**
+		 * @see #getLogTimings() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public StartupConfigurationBuilder setLogTimings(boolean value)
+		{
+			logTimings = value;
+			return this;
+		}
+	}
+
+
+	/**
+	 * Buffer pool configuration builder.
+	 * <p>Defaults:
+	 * <ul>
+	 * 		<li><b>type</b>: ARRAY</li>
+	 * 		<li><b>minCapacity</b>: 0</li>
+	 * 		<li><b>maxCapacity</b>: 65536</li>
+	 * 		<li><b>factor</b>: 1024</li>
+	 * 		<li><b>maxQueueLength</b>: -1</li>
+	 * 		<li><b>maxHeapMemory</b>: -1</li>
+	 * 		<li><b>maxDirectMemory</b>: -1</li>
+	 * 		<li><b>directBuffers</b>: true</li>
+	 * </ul>
+	 * @since 1.6.0
+	 */
+	public static class BufferPoolConfigurationBuilder implements BufferPoolConfiguration
+	{
+		private Type type;
+		private int minCapacity;
+		private int maxCapacity;
+		private int factor;
+		private int maxQueueLength;
+		private long maxHeapMemory;
+		private long maxDirectMemory;
+		private boolean directBuffers;
+
+		/**
+		 * @return a new buffer pool configuration builder.
+		 */
+		public static BufferPoolConfigurationBuilder bufferPool()
+		{
+			return new BufferPoolConfigurationBuilder();
+		}
+		
+		private BufferPoolConfigurationBuilder()
+		{
+			this.type = Type.ARRAY;
+			this.minCapacity = 0;
+			this.maxCapacity = 65536;
+			this.factor = 1024;
+			this.maxQueueLength = -1;
+			this.maxHeapMemory = -1L;
+			this.maxDirectMemory = -1L;
+			this.directBuffers = true;
+		}
+		
+		@Override
+		public Type getType()
+		{
+			return type;
+		}
+		
+		@Override
+		public int getMinCapacity()
+		{
+			return minCapacity;
+		}
+		
+		@Override
+		public int getMaxCapacity()
+		{
+			return maxCapacity;
+		}
+		
+		@Override
+		public int getFactor()
+		{
+			return factor;
+		}
+		
+		@Override
+		public int getMaxQueueLength()
+		{
+			return maxQueueLength;
+		}
+		
+		@Override
+		public long getMaxHeapMemory()
+		{
+			return maxHeapMemory;
+		}
+		
+		@Override
+		public long getMaxDirectMemory()
+		{
+			return maxDirectMemory;
+		}
+		
+		@Override
+		public boolean getDirectBuffers()
+		{
+			return directBuffers;
+		}
+
+		/**
+		 * @see #getType() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setType(Type value)
+		{
+			type = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMinCapacity() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setMinCapacity(int value)
+		{
+			minCapacity = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxCapacity() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setMaxCapacity(int value)
+		{
+			maxCapacity = value;
+			return this;
+		}
+
+		/**
+		 * @see #getFactor() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setFactor(int value)
+		{
+			factor = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxQueueLength() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setMaxQueueLength(int value)
+		{
+			maxQueueLength = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxHeapMemory() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setMaxHeapMemory(long value)
+		{
+			maxHeapMemory = value;
+			return this;
+		}
+
+		/**
+		 * @see #getMaxDirectMemory() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setMaxDirectMemory(long value)
+		{
+			maxDirectMemory = value;
+			return this;
+		}
+
+		/**
+		 * @see #getDirectBuffers() 
+		 * @param value the value to set.
+		 * @return this builder, for chaining.
+		 */
+		public BufferPoolConfigurationBuilder setDirectBuffers(boolean value)
+		{
+			directBuffers = value;
+			return this;
+		}
+	}
 }
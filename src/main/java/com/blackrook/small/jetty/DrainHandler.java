@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+/**
+ * A handler that delays the server's shutdown for a drain period, and closes HTTP/1.x keep-alive connections during it.
+ * <p>When the server starts stopping, this handler keeps the server accepting and serving requests for the drain delay,
+ * but adds <code>Connection: close</code> to every HTTP/1.x response, so that clients and load balancers move
+ * to other servers before the listeners are closed. After the delay, the server's graceful shutdown continues as normal.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Connection draining handler")
+public class DrainHandler extends HandlerWrapper implements LifeCycle.Listener
+{
+	private final long drainDelay;
+	private volatile boolean draining;
+
+	/**
+	 * Creates a new drain handler.
+	 * @param drainDelay the amount of time in milliseconds to drain connections for before the server stops.
+	 */
+	DrainHandler(long drainDelay)
+	{
+		this.drainDelay = drainDelay;
+		this.draining = false;
+	}
+
+	/**
+	 * @return true if connections are being drained, false if not.
+	 */
+	@ManagedAttribute("True if connections are being drained")
+	public boolean isDraining()
+	{
+		return draining;
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+	{
+		if (draining && baseRequest.getHttpVersion() != HttpVersion.HTTP_2)
+			response.setHeader(HttpHeader.CONNECTION.asString(), HttpHeaderValue.CLOSE.asString());
+		super.handle(target, baseRequest, request, response);
+	}
+
+	@Override
+	public void lifeCycleStopping(LifeCycle event)
+	{
+		if (event != getServer() || draining)
+			return;
+		draining = true;
+		try {
+			Thread.sleep(drainDelay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void lifeCycleStarting(LifeCycle event)
+	{
+		if (event == getServer())
+			draining = false;
+	}
+
+	@Override
+	public void lifeCycleStarted(LifeCycle event)
+	{
+		// Do nothing.
+	}
+
+	@Override
+	public void lifeCycleFailure(LifeCycle event, Throwable cause)
+	{
+		// Do nothing.
+	}
+
+	@Override
+	public void lifeCycleStopped(LifeCycle event)
+	{
+		// Do nothing.
+	}
+
+}
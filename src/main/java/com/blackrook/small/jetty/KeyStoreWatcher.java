@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Watches key store and trust store files for changes and reloads an SSL context factory when they change.
+ * Existing connections are unaffected - new handshakes use the reloaded certificates.
+ * <p>The directories containing the files are watched (so that replaced or symlink-swapped files are also seen),
+ * and a reload happens after no more changes have been seen for a configured delay, so that partially-written files are not loaded.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class KeyStoreWatcher extends AbstractLifeCycle implements Runnable
+{
+	private static final Logger LOG = Log.getLogger(KeyStoreWatcher.class);
+
+	private final SslContextFactory sslContextFactory;
+	private final Set<Path> files;
+	private final long delayMillis;
+	private final Map<Path, String> fileStamps;
+	
+	private WatchService watchService;
+	private Thread thread;
+
+	/**
+	 * Creates a new watcher.
+	 * @param sslContextFactory the SSL context factory to reload.
+	 * @param delayMillis the amount of time in milliseconds to wait after the last change before reloading.
+	 * @param paths the file paths to watch. Null or empty paths are skipped.
+	 * @throws IllegalArgumentException if a path is not an existing file.
+	 */
+	KeyStoreWatcher(SslContextFactory sslContextFactory, long delayMillis, String ... paths)
+	{
+		this.sslContextFactory = sslContextFactory;
+		this.files = new HashSet<>();
+		this.delayMillis = delayMillis;
+		this.fileStamps = new HashMap<>();
+		for (String path : paths)
+		{
+			if (path == null || path.isEmpty())
+				continue;
+			Path file = Paths.get(path).toAbsolutePath();
+			if (!Files.isRegularFile(file))
+				throw new IllegalArgumentException("Not a file: " + path);
+			files.add(file);
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception
+	{
+		watchService = FileSystems.getDefault().newWatchService();
+		Set<Path> directories = new HashSet<>();
+		for (Path file : files)
+		{
+			if (directories.add(file.getParent()))
+			{
+				file.getParent().register(watchService, 
+					StandardWatchEventKinds.ENTRY_CREATE, 
+					StandardWatchEventKinds.ENTRY_MODIFY, 
+					StandardWatchEventKinds.ENTRY_DELETE
+				);
+			}
+			fileStamps.put(file, stamp(file));
+		}
+		
+		thread = new Thread(this, "KeyStoreWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	protected void doStop() throws Exception
+	{
+		watchService.close();
+		thread.interrupt();
+		thread.join(TimeUnit.SECONDS.toMillis(5));
+		thread = null;
+		watchService = null;
+	}
+
+	@Override
+	public void run()
+	{
+		try {
+			while (isRunning())
+			{
+				drain(watchService.take());
+				// Wait for the changes to settle.
+				WatchKey key;
+				while ((key = watchService.poll(delayMillis, TimeUnit.MILLISECONDS)) != null)
+					drain(key);
+				if (filesChanged())
+					reload();
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// Stopped.
+		}
+	}
+
+	private static void drain(WatchKey key)
+	{
+		key.pollEvents();
+		key.reset();
+	}
+
+	// Checks for changes and updates the file stamps. Missing files are assumed to be mid-replacement.
+	private boolean filesChanged()
+	{
+		boolean changed = false;
+		for (Path file : files)
+		{
+			if (!Files.isRegularFile(file))
+				return false;
+			String stamp = stamp(file);
+			if (!stamp.equals(fileStamps.get(file)))
+				changed = true;
+		}
+		if (changed)
+		{
+			for (Path file : files)
+				fileStamps.put(file, stamp(file));
+		}
+		return changed;
+	}
+
+	private void reload()
+	{
+		try {
+			sslContextFactory.reload((factory) -> {});
+			LOG.info("Reloaded SSL context from {}", Arrays.toString(files.toArray()));
+		} catch (Exception e) {
+			LOG.warn("Could not reload SSL context. Keeping previous certificates.", e);
+		}
+	}
+
+	// Last-modified time and size, following links.
+	private static String stamp(Path file)
+	{
+		try {
+			return Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file);
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+}
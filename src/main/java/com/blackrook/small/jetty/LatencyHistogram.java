@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * <p>Each power of two (in microseconds) is split into 64 linear sub-buckets,
+ * so recorded values keep about two significant digits (within 1/64 of the actual value)
+ * from 1 microsecond up to about 19 hours. All buckets are allocated up front, and recording a value
+ * is a few bit operations and an atomic increment, with no allocation or locking.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+public final class LatencyHistogram
+{
+	/** Bits used for the linear sub-buckets in each power of two. */
+	private static final int SUB_BUCKET_BITS = 6;
+	/** The amount of linear sub-buckets in each power of two. */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	/** The highest power of two (in microseconds) that is tracked. Larger values are recorded in the last bucket. */
+	private static final int MAX_EXPONENT = 36;
+	/** The total amount of buckets. */
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+	
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder total;
+	private final LongAccumulator max;
+	
+	/**
+	 * Creates a new, empty histogram.
+	 */
+	public LatencyHistogram()
+	{
+		this.counts = new AtomicLongArray(BUCKET_COUNT);
+		this.count = new LongAdder();
+		this.total = new LongAdder();
+		this.max = new LongAccumulator(Math::max, 0L);
+	}
+	
+	/**
+	 * Records a latency.
+	 * @param nanos the latency in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long nanos)
+	{
+		if (nanos < 0)
+			nanos = 0;
+		counts.incrementAndGet(bucketIndex(nanos / 1000L));
+		count.increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+	
+	/**
+	 * @return the amount of recorded latencies.
+	 */
+	public long getCount()
+	{
+		return count.sum();
+	}
+	
+	/**
+	 * @return the sum of all recorded latencies, in nanoseconds.
+	 */
+	public long getTotal()
+	{
+		return total.sum();
+	}
+	
+	/**
+	 * @return the highest recorded latency, in nanoseconds.
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+	
+	/**
+	 * Gets the latencies at a set of quantiles.
+	 * All of the quantiles are read from the same copy of the buckets, so that they are consistent with each other.
+	 * A returned value is the highest value that is equivalent to the bucket that the quantile falls in, but never more than {@link #getMax()}.
+	 * @param quantiles the quantiles, each from 0.0 to 1.0.
+	 * @return the latencies at each quantile, in nanoseconds, or 0 for each if nothing was recorded.
+	 */
+	public long[] getValuesAtQuantiles(double ... quantiles)
+	{
+		long[] snapshot = new long[BUCKET_COUNT];
+		long snapshotCount = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			snapshotCount += (snapshot[i] = counts.get(i));
+		
+		long maxNanos = max.get();
+		long[] out = new long[quantiles.length];
+		if (snapshotCount == 0)
+			return out;
+		
+		for (int q = 0; q < quantiles.length; q++)
+		{
+			double quantile = Math.min(Math.max(quantiles[q], 0.0), 1.0);
+			long rank = Math.max(1L, (long)Math.ceil(quantile * snapshotCount));
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++)
+			{
+				if ((seen += snapshot[i]) >= rank)
+				{
+					out[q] = Math.min(highestEquivalentValue(i) * 1000L + 999L, maxNanos);
+					break;
+				}
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Clears all recorded latencies.
+	 * Latencies recorded during the reset may or may not be kept.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			counts.set(i, 0L);
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+	
+	// Values below SUB_BUCKET_COUNT get their own bucket. Above that, the top SUB_BUCKET_BITS + 1
+	// significant bits pick the bucket, and the position of the highest bit picks the bucket range.
+	private static int bucketIndex(long micros)
+	{
+		if (micros < SUB_BUCKET_COUNT)
+			return (int)micros;
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT)
+			return BUCKET_COUNT - 1;
+		int shift = exponent - SUB_BUCKET_BITS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int)((micros >>> shift) - SUB_BUCKET_COUNT);
+	}
+	
+	private static long highestEquivalentValue(int index)
+	{
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long lowest = (long)(SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+	
+}
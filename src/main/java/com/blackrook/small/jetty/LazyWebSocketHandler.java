@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.websocket.jsr356.server.deploy.WebSocketServerContainerInitializer;
+
+/**
+ * A handler that sets up the WebSocket container on a running context the first time that it is needed.
+ * <p>The container is needed on the first WebSocket upgrade request, or before the Small servlet initializes 
+ * (Small registers its endpoints with the container when it initializes), whichever comes first.
+ * The servlet holders made by {@link #createServletHolder(Class)} take care of the latter.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class LazyWebSocketHandler extends HandlerWrapper
+{
+	private static final String UPGRADE_WEBSOCKET = "websocket";
+	
+	private final ServletContextHandler context;
+	private volatile boolean initialized;
+
+	/**
+	 * Creates a new lazy WebSocket handler.
+	 * @param context the servlet context to set up the container on.
+	 */
+	LazyWebSocketHandler(ServletContextHandler context)
+	{
+		this.context = context;
+		this.initialized = false;
+	}
+
+	/**
+	 * @return true if the WebSocket container was set up, false if not.
+	 */
+	public boolean isInitialized()
+	{
+		return initialized;
+	}
+
+	/**
+	 * Creates a servlet holder that sets up the WebSocket container before its servlet is initialized.
+	 * The servlet is initialized on first use.
+	 * @param servletClass the servlet class.
+	 * @return a new servlet holder.
+	 */
+	ServletHolder createServletHolder(Class<? extends Servlet> servletClass)
+	{
+		return new ServletHolder(servletClass)
+		{
+			@Override
+			public Servlet getServlet() throws ServletException
+			{
+				initializeContainer();
+				return super.getServlet();
+			}
+		};
+	}
+
+	/**
+	 * Sets up the WebSocket container, if it wasn't already.
+	 * @throws ServletException if the container could not be set up.
+	 */
+	void initializeContainer() throws ServletException
+	{
+		if (initialized)
+			return;
+		synchronized (this)
+		{
+			if (initialized)
+				return;
+			WebSocketServerContainerInitializer.initialize(context);
+			// Fetched as a LifeCycle, so that the WebSocket client classes it extends are not needed to compile.
+			LifeCycle container = (LifeCycle)context.getAttribute(WebSocketServerContainerInitializer.ATTR_JAVAX_SERVER_CONTAINER);
+			// Beans added to a running context are not started automatically.
+			if (!container.isStarted())
+			{
+				context.manage(container);
+				try {
+					container.start();
+				} catch (Exception e) {
+					throw new ServletException("Could not start WebSocket container.", e);
+				}
+			}
+			initialized = true;
+		}
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+	{
+		if (!initialized && UPGRADE_WEBSOCKET.equalsIgnoreCase(request.getHeader(HttpHeader.UPGRADE.asString())))
+			initializeContainer();
+		super.handle(target, baseRequest, request, response);
+	}
+
+}
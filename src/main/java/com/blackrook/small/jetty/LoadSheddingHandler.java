@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+import com.blackrook.small.jetty.SmallJettyConfiguration.LoadSheddingConfiguration;
+
+/**
+ * A handler that rejects requests with a 503 (Service Unavailable) before they reach
+ * the rest of the handler chain if the server's thread pool is overloaded.
+ * <p>A request is shed if the thread pool's job queue is at or above the configured capacity, or
+ * if the job that is dispatching the request waited in the queue for longer than the configured maximum.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Load shedding handler")
+public class LoadSheddingHandler extends HandlerWrapper
+{
+	private final Integer maxQueueSize;
+	private final Long maxQueueWaitNanos;
+	private final String retryAfter;
+	private final IntSupplier queueSizeSupplier;
+	
+	private final LongAdder queueFullRejections;
+	private final LongAdder queueWaitRejections;
+
+	/**
+	 * Creates a new load shedding handler.
+	 * @param config the load shedding configuration.
+	 * @param queueSizeSupplier the supplier for the current thread pool job queue size, or null if not available.
+	 */
+	LoadSheddingHandler(LoadSheddingConfiguration config, IntSupplier queueSizeSupplier)
+	{
+		this.maxQueueSize = config.getMaxQueueSize();
+		this.maxQueueWaitNanos = config.getMaxQueueWait() != null ? TimeUnit.MILLISECONDS.toNanos(config.getMaxQueueWait()) : null;
+		this.retryAfter = String.valueOf(config.getRetryAfter());
+		this.queueSizeSupplier = queueSizeSupplier;
+		this.queueFullRejections = new LongAdder();
+		this.queueWaitRejections = new LongAdder();
+	}
+	
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+	{
+		if (baseRequest.getDispatcherType() == DispatcherType.REQUEST)
+		{
+			if (maxQueueWaitNanos != null && SmallJettyThreadPool.getCurrentJobQueueTime() > maxQueueWaitNanos)
+			{
+				queueWaitRejections.increment();
+				shed(baseRequest, response);
+				return;
+			}
+			if (maxQueueSize != null && queueSizeSupplier != null && queueSizeSupplier.getAsInt() >= maxQueueSize)
+			{
+				queueFullRejections.increment();
+				shed(baseRequest, response);
+				return;
+			}
+		}
+		super.handle(target, baseRequest, request, response);
+	}
+
+	private void shed(Request baseRequest, HttpServletResponse response)
+	{
+		baseRequest.setHandled(true);
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503);
+		response.setHeader(HttpHeader.RETRY_AFTER.asString(), retryAfter);
+		response.setContentLength(0);
+	}
+	
+	/**
+	 * @return the total amount of requests shed since start or the last reset.
+	 */
+	@ManagedAttribute("Total amount of shed requests")
+	public long getShedRequests()
+	{
+		return queueFullRejections.sum() + queueWaitRejections.sum();
+	}
+	
+	/**
+	 * @return the amount of requests shed because the job queue was full, since start or the last reset.
+	 */
+	@ManagedAttribute("Amount of requests shed because the job queue was full")
+	public long getQueueFullRejections()
+	{
+		return queueFullRejections.sum();
+	}
+	
+	/**
+	 * @return the amount of requests shed because they waited too long in the job queue, since start or the last reset.
+	 */
+	@ManagedAttribute("Amount of requests shed because they waited too long in the job queue")
+	public long getQueueWaitRejections()
+	{
+		return queueWaitRejections.sum();
+	}
+	
+	/**
+	 * Resets the shed request counters.
+	 */
+	@ManagedOperation(value = "Resets the shed request counters", impact = "ACTION")
+	public void resetCounters()
+	{
+		queueFullRejections.reset();
+		queueWaitRejections.reset();
+	}
+	
+	@Override
+	protected void doStart() throws Exception
+	{
+		resetCounters();
+		super.doStart();
+	}
+	
+}
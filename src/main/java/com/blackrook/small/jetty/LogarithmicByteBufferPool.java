@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * A ByteBufferPool with a bucket for each power of two between its minimum and maximum capacity.
+ * <p>Unlike Jetty's ArrayByteBufferPool, which has a bucket for each multiple of a factor, this pool needs 
+ * few buckets to cover a wide range of sizes, at the cost of up to twice the requested capacity per buffer.
+ * Released buffers are dropped instead of pooled if keeping them would go over the maximum retained memory,
+ * so the retained memory never exceeds it.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Logarithmic ByteBuffer pool")
+public class LogarithmicByteBufferPool implements ByteBufferPool
+{
+	private final int minBits;
+	private final int maxCapacity;
+	private final int maxQueueLength;
+	private final long maxHeapMemory;
+	private final long maxDirectMemory;
+	private final boolean directBuffers;
+	
+	private final Bucket[] heapBuckets;
+	private final Bucket[] directBuckets;
+	private final AtomicLong heapMemory;
+	private final AtomicLong directMemory;
+
+	/**
+	 * Creates a new pool.
+	 * @param minCapacity the capacity of the smallest bucket, rounded up to a power of two.
+	 * @param maxCapacity the capacity of the largest bucket, rounded up to a power of two. Larger buffers are not pooled.
+	 * @param maxQueueLength the maximum amount of buffers kept per bucket, or 0 or less for no limit.
+	 * @param maxHeapMemory the maximum amount of heap buffer memory kept, in bytes, or 0 or less for no limit.
+	 * @param maxDirectMemory the maximum amount of direct buffer memory kept, in bytes, or 0 or less for no limit.
+	 * @param directBuffers if false, heap buffers are always made, even if direct ones are asked for.
+	 */
+	LogarithmicByteBufferPool(int minCapacity, int maxCapacity, int maxQueueLength, long maxHeapMemory, long maxDirectMemory, boolean directBuffers)
+	{
+		this.minBits = bits(Math.max(minCapacity, 1));
+		this.maxCapacity = 1 << bits(maxCapacity);
+		this.maxQueueLength = maxQueueLength;
+		this.maxHeapMemory = maxHeapMemory;
+		this.maxDirectMemory = maxDirectMemory;
+		this.directBuffers = directBuffers;
+		
+		int bucketCount = bits(maxCapacity) - minBits + 1;
+		this.heapBuckets = new Bucket[bucketCount];
+		this.directBuckets = new Bucket[bucketCount];
+		for (int i = 0; i < bucketCount; i++)
+		{
+			heapBuckets[i] = new Bucket();
+			directBuckets[i] = new Bucket();
+		}
+		this.heapMemory = new AtomicLong(0L);
+		this.directMemory = new AtomicLong(0L);
+	}
+
+	// Smallest power of two exponent whose power is at least the value.
+	private static int bits(int value)
+	{
+		return value <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(value - 1);
+	}
+
+	// Returns the bucket index for a capacity, or -1 if not pooled.
+	private int bucketFor(int capacity)
+	{
+		if (capacity > maxCapacity)
+			return -1;
+		return Math.max(bits(capacity) - minBits, 0);
+	}
+
+	@Override
+	public ByteBuffer acquire(int size, boolean direct)
+	{
+		direct = direct && directBuffers;
+		int index = bucketFor(size);
+		if (index < 0)
+			return newByteBuffer(size, direct);
+		
+		Bucket bucket = (direct ? directBuckets : heapBuckets)[index];
+		ByteBuffer buffer = bucket.queue.pollFirst();
+		if (buffer == null)
+			return newByteBuffer(1 << (index + minBits), direct);
+		bucket.size.decrementAndGet();
+		(direct ? directMemory : heapMemory).addAndGet(-buffer.capacity());
+		return buffer;
+	}
+
+	@Override
+	public void release(ByteBuffer buffer)
+	{
+		if (buffer == null)
+			return;
+		
+		int capacity = buffer.capacity();
+		int index = bucketFor(capacity);
+		// Only buffers with a bucket's exact capacity are pooled.
+		if (index < 0 || capacity != 1 << (index + minBits))
+			return;
+
+		boolean direct = buffer.isDirect();
+		Bucket bucket = (direct ? directBuckets : heapBuckets)[index];
+		if (bucket.size.incrementAndGet() > maxQueueLength && maxQueueLength > 0)
+		{
+			bucket.size.decrementAndGet();
+			return;
+		}
+		
+		AtomicLong memory = direct ? directMemory : heapMemory;
+		long maxMemory = direct ? maxDirectMemory : maxHeapMemory;
+		if (memory.addAndGet(capacity) > maxMemory && maxMemory > 0)
+		{
+			memory.addAndGet(-capacity);
+			bucket.size.decrementAndGet();
+			return;
+		}
+		
+		BufferUtil.clear(buffer);
+		bucket.queue.offerFirst(buffer);
+	}
+
+	/**
+	 * Drops all pooled buffers.
+	 */
+	@ManagedOperation(value = "Drops all pooled buffers", impact = "ACTION")
+	public void clear()
+	{
+		clear(heapBuckets, heapMemory);
+		clear(directBuckets, directMemory);
+	}
+
+	private static void clear(Bucket[] buckets, AtomicLong memory)
+	{
+		for (Bucket bucket : buckets)
+		{
+			ByteBuffer buffer;
+			while ((buffer = bucket.queue.pollFirst()) != null)
+			{
+				bucket.size.decrementAndGet();
+				memory.addAndGet(-buffer.capacity());
+			}
+		}
+	}
+
+	/**
+	 * @return the amount of pooled heap buffer memory in bytes.
+	 */
+	@ManagedAttribute("The bytes retained by heap ByteBuffers")
+	public long getHeapMemory()
+	{
+		return heapMemory.get();
+	}
+
+	/**
+	 * @return the amount of pooled direct buffer memory in bytes.
+	 */
+	@ManagedAttribute("The bytes retained by direct ByteBuffers")
+	public long getDirectMemory()
+	{
+		return directMemory.get();
+	}
+
+	/**
+	 * @return the amount of pooled heap buffers.
+	 */
+	@ManagedAttribute("The number of pooled heap ByteBuffers")
+	public long getHeapByteBufferCount()
+	{
+		return count(heapBuckets);
+	}
+
+	/**
+	 * @return the amount of pooled direct buffers.
+	 */
+	@ManagedAttribute("The number of pooled direct ByteBuffers")
+	public long getDirectByteBufferCount()
+	{
+		return count(directBuckets);
+	}
+
+	private static long count(Bucket[] buckets)
+	{
+		long out = 0;
+		for (Bucket bucket : buckets)
+			out += bucket.size.get();
+		return out;
+	}
+
+	/**
+	 * A bucket of same-capacity buffers.
+	 */
+	private static class Bucket
+	{
+		private final Deque<ByteBuffer> queue;
+		private final AtomicInteger size;
+		
+		private Bucket()
+		{
+			this.queue = new ConcurrentLinkedDeque<>();
+			this.size = new AtomicInteger(0);
+		}
+	}
+
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.pathmap.MappedResource;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import com.blackrook.small.jetty.SmallJettyConfiguration.MetricsConfiguration;
+
+/**
+ * A StatisticsHandler that also records request latency histograms per servlet path and response status class,
+ * and can serve all of its metrics in Prometheus text format.
+ * <p>Latencies are measured from when the request enters this handler until the response is complete
+ * (including asynchronous requests), and are grouped by the servlet mapping that matched the request
+ * (like <code>"/*"</code> or <code>"/static/*"</code>), so the amount of histograms stays small.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Request metrics handler")
+public class MetricsHandler extends StatisticsHandler
+{
+	/** Request attribute for the request start time, in nanoseconds. */
+	private static final String START_NANOS_ATTRIBUTE = MetricsHandler.class.getName() + ".startNanos";
+	/** Content type for the Prometheus text exposition format. */
+	private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	/** Label for requests that did not match a servlet, or all requests if paths are not recorded. */
+	private static final String NO_PATH = "";
+	/** Status class labels. */
+	private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+	private final ServletContextHandler context;
+	private final String path;
+	private final String listenerName;
+	private final String prefix;
+	private final double[] quantiles;
+	private final boolean recordPaths;
+	
+	private final ConcurrentMap<String, LatencyHistogram[]> histograms;
+
+	/**
+	 * Creates a new metrics handler.
+	 * @param config the metrics configuration.
+	 * @param context the servlet context, for finding servlet paths.
+	 */
+	MetricsHandler(MetricsConfiguration config, ServletContextHandler context)
+	{
+		this.context = context;
+		this.path = config.getPath();
+		this.listenerName = config.getListenerName();
+		this.prefix = config.getPrefix();
+		this.quantiles = config.getQuantiles().clone();
+		this.recordPaths = config.getRecordPaths();
+		this.histograms = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets the latency histogram for a servlet path and status class.
+	 * @param servletPath the servlet path specification (like <code>"/*"</code>), or an empty string for requests that did not match a servlet or if paths are not recorded.
+	 * @param statusClass the status class, from 1 to 5 (1xx to 5xx).
+	 * @return the histogram, or null if no requests were recorded for the path.
+	 * @throws IllegalArgumentException if the status class is not from 1 to 5.
+	 */
+	public LatencyHistogram getLatencyHistogram(String servletPath, int statusClass)
+	{
+		if (statusClass < 1 || statusClass > 5)
+			throw new IllegalArgumentException("Status class must be from 1 to 5.");
+		LatencyHistogram[] pathHistograms = histograms.get(servletPath);
+		return pathHistograms != null ? pathHistograms[statusClass - 1] : null;
+	}
+	
+	@Override
+	@ManagedOperation(value = "Resets statistics and latency histograms", impact = "ACTION")
+	public void statsReset()
+	{
+		super.statsReset();
+		if (histograms != null)
+			histograms.clear();
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+	{
+		if (path != null && path.equals(target) && isMetricsListener(baseRequest))
+		{
+			handleMetrics(baseRequest, response);
+			return;
+		}
+		
+		if (baseRequest.getAttribute(START_NANOS_ATTRIBUTE) == null)
+			baseRequest.setAttribute(START_NANOS_ATTRIBUTE, System.nanoTime());
+		super.handle(target, baseRequest, request, response);
+	}
+	
+	@Override
+	protected void updateResponse(Request request)
+	{
+		super.updateResponse(request);
+
+		Object startNanos = request.getAttribute(START_NANOS_ATTRIBUTE);
+		if (!(startNanos instanceof Long))
+			return;
+		long nanos = System.nanoTime() - (Long)startNanos;
+		
+		int status = request.isHandled() ? request.getResponse().getStatus() : HttpStatus.NOT_FOUND_404;
+		int statusClass = Math.min(Math.max(status / 100, 1), 5);
+		
+		String servletPath = recordPaths ? getServletPath(request) : NO_PATH;
+		LatencyHistogram[] pathHistograms = histograms.get(servletPath);
+		if (pathHistograms == null)
+			pathHistograms = histograms.computeIfAbsent(servletPath, (key) -> createHistograms());
+		pathHistograms[statusClass - 1].record(nanos);
+	}
+
+	/**
+	 * Writes all metrics in Prometheus text format.
+	 * @param out the output stream to write to.
+	 * @throws IOException if the metrics could not be written.
+	 */
+	public void writeMetrics(OutputStream out) throws IOException
+	{
+		out.write(writeMetrics(new StringBuilder(4096)).toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private StringBuilder writeMetrics(StringBuilder sb)
+	{
+		String latencyName = prefix + "_request_duration_seconds";
+		writeHeader(sb, latencyName, "summary", "Request latency by servlet path and status class.");
+		for (Map.Entry<String, LatencyHistogram[]> entry : new TreeMap<>(histograms).entrySet())
+		{
+			LatencyHistogram[] pathHistograms = entry.getValue();
+			for (int i = 0; i < pathHistograms.length; i++)
+			{
+				LatencyHistogram histogram = pathHistograms[i];
+				long count = histogram.getCount();
+				if (count == 0)
+					continue;
+				
+				String labels = "path=\"" + escapeLabel(entry.getKey()) + "\",status=\"" + STATUS_CLASSES[i] + "\"";
+				long[] values = histogram.getValuesAtQuantiles(quantiles);
+				for (int q = 0; q < quantiles.length; q++)
+					writeSample(sb, latencyName, labels + ",quantile=\"" + quantiles[q] + "\"", values[q] / 1e9);
+				writeSample(sb, latencyName + "_sum", labels, histogram.getTotal() / 1e9);
+				writeSample(sb, latencyName + "_count", labels, count);
+			}
+		}
+
+		writeHeader(sb, prefix + "_requests_total", "counter", "Requests since statistics were reset.");
+		writeSample(sb, prefix + "_requests_total", null, getRequests());
+		writeHeader(sb, prefix + "_requests_active", "gauge", "Requests currently being handled.");
+		writeSample(sb, prefix + "_requests_active", null, getRequestsActive());
+		writeHeader(sb, prefix + "_requests_active_max", "gauge", "Maximum simultaneous requests since statistics were reset.");
+		writeSample(sb, prefix + "_requests_active_max", null, getRequestsActiveMax());
+		writeHeader(sb, prefix + "_dispatched_active", "gauge", "Requests currently being dispatched to a thread.");
+		writeSample(sb, prefix + "_dispatched_active", null, getDispatchedActive());
+		writeHeader(sb, prefix + "_async_requests_waiting", "gauge", "Suspended asynchronous requests.");
+		writeSample(sb, prefix + "_async_requests_waiting", null, getAsyncRequestsWaiting());
+		writeHeader(sb, prefix + "_responses_total", "counter", "Responses by status class since statistics were reset.");
+		writeSample(sb, prefix + "_responses_total", "status=\"1xx\"", getResponses1xx());
+		writeSample(sb, prefix + "_responses_total", "status=\"2xx\"", getResponses2xx());
+		writeSample(sb, prefix + "_responses_total", "status=\"3xx\"", getResponses3xx());
+		writeSample(sb, prefix + "_responses_total", "status=\"4xx\"", getResponses4xx());
+		writeSample(sb, prefix + "_responses_total", "status=\"5xx\"", getResponses5xx());
+		writeHeader(sb, prefix + "_response_bytes_total", "counter", "Response content bytes since statistics were reset.");
+		writeSample(sb, prefix + "_response_bytes_total", null, getResponsesBytesTotal());
+
+		ThreadPool threadPool = getServer() != null ? getServer().getThreadPool() : null;
+		if (threadPool != null)
+		{
+			writeHeader(sb, prefix + "_threads", "gauge", "Threads in the server thread pool.");
+			writeSample(sb, prefix + "_threads", null, threadPool.getThreads());
+			writeHeader(sb, prefix + "_threads_idle", "gauge", "Idle threads in the server thread pool.");
+			writeSample(sb, prefix + "_threads_idle", null, threadPool.getIdleThreads());
+			if (threadPool instanceof ThreadPool.SizedThreadPool)
+			{
+				writeHeader(sb, prefix + "_threads_max", "gauge", "Maximum threads in the server thread pool.");
+				writeSample(sb, prefix + "_threads_max", null, ((ThreadPool.SizedThreadPool)threadPool).getMaxThreads());
+			}
+			if (threadPool instanceof QueuedThreadPool)
+			{
+				QueuedThreadPool queuedThreadPool = (QueuedThreadPool)threadPool;
+				writeHeader(sb, prefix + "_threads_busy", "gauge", "Threads in the server thread pool that are running jobs.");
+				writeSample(sb, prefix + "_threads_busy", null, queuedThreadPool.getBusyThreads());
+				writeHeader(sb, prefix + "_thread_queue_size", "gauge", "Jobs waiting in the server thread pool queue.");
+				writeSample(sb, prefix + "_thread_queue_size", null, queuedThreadPool.getQueueSize());
+			}
+		}
+		return sb;
+	}
+	
+	private void handleMetrics(Request baseRequest, HttpServletResponse response) throws IOException
+	{
+		baseRequest.setHandled(true);
+		String method = baseRequest.getMethod();
+		if (!HttpMethod.GET.is(method) && !HttpMethod.HEAD.is(method))
+		{
+			response.setHeader(HttpHeader.ALLOW.asString(), "GET, HEAD");
+			response.sendError(HttpStatus.METHOD_NOT_ALLOWED_405);
+			return;
+		}
+		
+		byte[] content = writeMetrics(new StringBuilder(4096)).toString().getBytes(StandardCharsets.UTF_8);
+		response.setStatus(HttpStatus.OK_200);
+		response.setContentType(PROMETHEUS_CONTENT_TYPE);
+		response.setHeader(HttpHeader.CACHE_CONTROL.asString(), "no-store");
+		response.setContentLength(content.length);
+		if (HttpMethod.GET.is(method))
+			response.getOutputStream().write(content);
+	}
+
+	private boolean isMetricsListener(Request baseRequest)
+	{
+		return listenerName == null || listenerName.equals(baseRequest.getHttpChannel().getConnector().getName());
+	}
+	
+	private String getServletPath(Request request)
+	{
+		String requestPath = request.getHttpURI().getDecodedPath();
+		if (requestPath == null)
+			return NO_PATH;
+		
+		String contextPath = context.getContextPath();
+		String pathInContext;
+		if (contextPath == null || "/".equals(contextPath))
+			pathInContext = requestPath;
+		else if (requestPath.startsWith(contextPath))
+			pathInContext = requestPath.length() == contextPath.length() ? "/" : requestPath.substring(contextPath.length());
+		else
+			return NO_PATH;
+		
+		MappedResource<ServletHolder> mapped = context.getServletHandler().getMappedServlet(pathInContext);
+		return mapped != null ? mapped.getPathSpec().getDeclaration() : NO_PATH;
+	}
+
+	private static LatencyHistogram[] createHistograms()
+	{
+		LatencyHistogram[] out = new LatencyHistogram[STATUS_CLASSES.length];
+		for (int i = 0; i < out.length; i++)
+			out[i] = new LatencyHistogram();
+		return out;
+	}
+	
+	private static void writeHeader(StringBuilder sb, String name, String type, String help)
+	{
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void writeSample(StringBuilder sb, String name, String labels, double value)
+	{
+		sb.append(name);
+		if (labels != null)
+			sb.append('{').append(labels).append('}');
+		sb.append(' ');
+		if (value == Math.rint(value) && !Double.isInfinite(value))
+			sb.append((long)value);
+		else
+			sb.append(value);
+		sb.append('\n');
+	}
+
+	private static String escapeLabel(String value)
+	{
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+}
@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import com.blackrook.small.jetty.SmallJettyConfiguration.RateLimitConfiguration;
+
+/**
+ * A filter that rate limits requests per client, and limits the amount of concurrent requests with priority lanes.
+ * <p>Rate limiting is a token bucket per client key (the client address, or a request header), kept as a single 
+ * "theoretical arrival time" per key (GCRA), so that each check is one compare-and-set with no locking. 
+ * Requests without a token get a 429 (Too Many Requests) with a Retry-After header. Keys whose bucket has refilled 
+ * are removed from the map periodically.
+ * <p>If a maximum amount of concurrent requests is set, requests over the limit are suspended (without holding a thread) 
+ * in a queue per priority lane, and resumed highest priority first as running requests finish. Requests that wait 
+ * longer than the maximum wait get a 503 (Service Unavailable).
+ * <p>Each request is admitted once: if the application dispatches it again (for example, with {@link AsyncContext#dispatch()}),
+ * it passes through without taking another token or permit.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Rate limiting and QoS filter")
+public class RateLimitFilter implements Filter
+{
+	/** Time between removals of refilled buckets. */
+	private static final long SWEEP_INTERVAL_MILLIS = 10000L;
+	
+	private final String path;
+	private final String keyHeader;
+	private final long emissionIntervalNanos;
+	private final long burstNanos;
+	private final int maxRequests;
+	private final String priorityHeader;
+	private final int defaultPriority;
+	private final long maxWait;
+	
+	private final String resumedAttribute;
+	private final String admittedAttribute;
+	private final Map<String, AtomicLong> buckets;
+	private final AtomicInteger activeRequests;
+	private final Queue<AsyncContext>[] lanes;
+	
+	private final LongAdder rateLimited;
+	private final LongAdder suspended;
+	private final LongAdder timedOut;
+	
+	private Scheduler scheduler;
+
+	/**
+	 * Creates a new rate limiting filter.
+	 * @param config the rate limit configuration.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	RateLimitFilter(RateLimitConfiguration config)
+	{
+		this.path = config.getPath();
+		this.keyHeader = config.getKeyHeader();
+		this.emissionIntervalNanos = config.getRate() > 0.0 ? Math.max((long)(TimeUnit.SECONDS.toNanos(1) / config.getRate()), 1L) : 0L;
+		this.burstNanos = emissionIntervalNanos * config.getBurst();
+		this.maxRequests = config.getMaxRequests();
+		this.priorityHeader = config.getPriorityHeader();
+		this.defaultPriority = config.getDefaultPriority();
+		this.maxWait = config.getMaxWait();
+		
+		this.resumedAttribute = RateLimitFilter.class.getName() + "@" + Integer.toHexString(System.identityHashCode(this)) + ".resumed";
+		this.admittedAttribute = RateLimitFilter.class.getName() + "@" + Integer.toHexString(System.identityHashCode(this)) + ".admitted";
+		this.buckets = new ConcurrentHashMap<>();
+		this.activeRequests = new AtomicInteger(0);
+		this.lanes = new Queue[config.getPriorities()];
+		for (int i = 0; i < lanes.length; i++)
+			lanes[i] = new ConcurrentLinkedQueue<>();
+		
+		this.rateLimited = new LongAdder();
+		this.suspended = new LongAdder();
+		this.timedOut = new LongAdder();
+	}
+
+	/**
+	 * @return the servlet path that this filter is mapped to.
+	 */
+	@ManagedAttribute("The servlet path that this filter is mapped to")
+	public String getPath()
+	{
+		return path;
+	}
+	
+	/**
+	 * @return the amount of requests rejected for going over their rate limit.
+	 */
+	@ManagedAttribute("The amount of requests rejected for going over their rate limit")
+	public long getRateLimitedRequests()
+	{
+		return rateLimited.sum();
+	}
+
+	/**
+	 * @return the amount of requests suspended because the maximum amount of concurrent requests was reached.
+	 */
+	@ManagedAttribute("The amount of requests suspended because the concurrent request limit was reached")
+	public long getSuspendedRequests()
+	{
+		return suspended.sum();
+	}
+
+	/**
+	 * @return the amount of suspended requests that timed out.
+	 */
+	@ManagedAttribute("The amount of suspended requests that timed out")
+	public long getTimedOutRequests()
+	{
+		return timedOut.sum();
+	}
+
+	/**
+	 * @return the amount of requests currently running.
+	 */
+	@ManagedAttribute("The amount of requests currently running")
+	public int getActiveRequests()
+	{
+		return activeRequests.get();
+	}
+
+	/**
+	 * @return the amount of clients with a rate limit bucket.
+	 */
+	@ManagedAttribute("The amount of clients with a rate limit bucket")
+	public int getTrackedClients()
+	{
+		return buckets.size();
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException
+	{
+		if (emissionIntervalNanos == 0L)
+			return;
+		scheduler = new ScheduledExecutorScheduler("RateLimitFilter-" + path, true);
+		try {
+			scheduler.start();
+		} catch (Exception e) {
+			throw new ServletException("Could not start rate limit scheduler.", e);
+		}
+		scheduler.schedule(this::sweep, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (scheduler != null) try {
+			scheduler.stop();
+		} catch (Exception e) {
+			// Ignore.
+		}
+		scheduler = null;
+		buckets.clear();
+	}
+
+	@Override
+	public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException
+	{
+		HttpServletRequest request = (HttpServletRequest)servletRequest;
+		HttpServletResponse response = (HttpServletResponse)servletResponse;
+		
+		boolean resumed = request.getAttribute(resumedAttribute) != null;
+		if (!resumed && request.getAttribute(admittedAttribute) != null)
+		{
+			// Dispatched again by the application. Its token was taken and its permit was used on its first pass.
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		if (!resumed && emissionIntervalNanos > 0L)
+		{
+			long retryAfterNanos = acquireToken(getKey(request), System.nanoTime());
+			if (retryAfterNanos > 0L)
+			{
+				rateLimited.increment();
+				response.setHeader(HttpHeader.RETRY_AFTER.asString(), String.valueOf(Math.max(1L, (retryAfterNanos + 999999999L) / 1000000000L)));
+				response.sendError(HttpStatus.TOO_MANY_REQUESTS_429);
+				return;
+			}
+		}
+		request.setAttribute(admittedAttribute, Boolean.TRUE);
+		
+		if (maxRequests <= 0)
+		{
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		if (resumed)
+		{
+			// The permit was handed over by the request that resumed this one.
+			request.removeAttribute(resumedAttribute);
+		}
+		else if (!tryAcquire())
+		{
+			if (!request.isAsyncSupported())
+			{
+				response.sendError(HttpStatus.SERVICE_UNAVAILABLE_503);
+				return;
+			}
+			suspend(request);
+			return;
+		}
+		
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			release();
+		}
+	}
+
+	// Returns 0 if a token was taken, or the amount of nanoseconds until one is available.
+	long acquireToken(String key, long now)
+	{
+		AtomicLong bucket = buckets.get(key);
+		if (bucket == null)
+			bucket = buckets.computeIfAbsent(key, (k) -> new AtomicLong(now));
+		
+		while (true)
+		{
+			// An arrival time in the past is a full bucket.
+			long arrival = bucket.get();
+			long newArrival = (arrival - now < 0L ? now : arrival) + emissionIntervalNanos;
+			long excess = newArrival - now - burstNanos;
+			if (excess > 0L)
+				return excess;
+			if (bucket.compareAndSet(arrival, newArrival))
+				return 0L;
+		}
+	}
+
+	private String getKey(HttpServletRequest request)
+	{
+		if (keyHeader != null)
+		{
+			String value = request.getHeader(keyHeader);
+			if (value != null)
+				return value;
+		}
+		return request.getRemoteAddr();
+	}
+
+	private int getPriority(HttpServletRequest request)
+	{
+		String value;
+		if (priorityHeader == null || (value = request.getHeader(priorityHeader)) == null)
+			return defaultPriority;
+		try {
+			return Math.min(Math.max(Integer.parseInt(value.trim()), 0), lanes.length - 1);
+		} catch (NumberFormatException e) {
+			return defaultPriority;
+		}
+	}
+
+	private boolean tryAcquire()
+	{
+		int active;
+		while ((active = activeRequests.get()) < maxRequests)
+			if (activeRequests.compareAndSet(active, active + 1))
+				return true;
+		return false;
+	}
+
+	// Hands this request's permit to the highest priority waiting request, or gives it back.
+	private void release()
+	{
+		while (true)
+		{
+			for (int i = lanes.length - 1; i >= 0; i--)
+			{
+				AsyncContext next;
+				while ((next = lanes[i].poll()) != null)
+					if (resume(next))
+						return;
+			}
+			activeRequests.decrementAndGet();
+			
+			// A request may have been queued after the lanes were checked.
+			if (!hasWaiting() || !tryAcquire())
+				return;
+		}
+	}
+
+	// Resumes a waiting request with this request's permit, or returns false if it has already timed out or failed.
+	private boolean resume(AsyncContext asyncContext)
+	{
+		try {
+			asyncContext.getRequest().setAttribute(resumedAttribute, Boolean.TRUE);
+			asyncContext.dispatch();
+			return true;
+		} catch (IllegalStateException e) {
+			return false;
+		}
+	}
+
+	private boolean hasWaiting()
+	{
+		for (Queue<AsyncContext> lane : lanes)
+			if (!lane.isEmpty())
+				return true;
+		return false;
+	}
+
+	private void suspend(HttpServletRequest request)
+	{
+		Queue<AsyncContext> lane = lanes[getPriority(request)];
+		AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(maxWait);
+		asyncContext.addListener(new AsyncListener()
+		{
+			@Override
+			public void onTimeout(AsyncEvent event) throws IOException
+			{
+				// If it is not in the lane anymore, it is already being resumed.
+				if (lane.remove(asyncContext))
+				{
+					timedOut.increment();
+					((HttpServletResponse)event.getSuppliedResponse()).sendError(HttpStatus.SERVICE_UNAVAILABLE_503);
+					asyncContext.complete();
+				}
+			}
+			
+			@Override
+			public void onError(AsyncEvent event) throws IOException
+			{
+				lane.remove(asyncContext);
+			}
+			
+			@Override
+			public void onStartAsync(AsyncEvent event) throws IOException
+			{
+				// Do nothing.
+			}
+			
+			@Override
+			public void onComplete(AsyncEvent event) throws IOException
+			{
+				// Do nothing.
+			}
+		});
+		suspended.increment();
+		lane.add(asyncContext);
+		
+		// A permit may have been released before this request was queued.
+		if (tryAcquire())
+			release();
+	}
+
+	// Removes buckets that have refilled completely, and are the same as a new bucket.
+	private void sweep()
+	{
+		Scheduler scheduler = this.scheduler;
+		if (scheduler == null)
+			return;
+		long now = System.nanoTime();
+		buckets.values().removeIf((bucket) -> bucket.get() - now <= 0L);
+		scheduler.schedule(this::sweep, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+}
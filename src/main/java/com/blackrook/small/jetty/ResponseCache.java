@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.http.HttpFields;
+
+/**
+ * A size-bounded, in-memory store of cached responses with LRU eviction and optional TinyLFU admission.
+ * <p>The cache is split by key hash into segments that each hold an equal share of the maximum size,
+ * so that concurrent lookups of different keys rarely contend. Each segment is synchronized on itself, and
+ * evicts and admits entries on its own. There are as many segments as fit two of the largest entries each, up to {@value #MAX_SEGMENTS}.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class ResponseCache
+{
+	/** Approximate fixed overhead of an entry, in bytes. */
+	private static final int ENTRY_OVERHEAD = 128;
+	/** Approximate overhead of a header field, in bytes. */
+	private static final int FIELD_OVERHEAD = 48;
+	/** Maximum amount of segments. Must be a power of two. */
+	private static final int MAX_SEGMENTS = 16;
+	
+	private final Segment[] segments;
+	private final int mask;
+
+	/**
+	 * Creates a new response cache.
+	 * @param maxSize the maximum total size of the cached entries, in bytes.
+	 * @param maxEntrySize the maximum size of a single entry's body, in bytes.
+	 * @param admission if true, use TinyLFU admission.
+	 */
+	ResponseCache(long maxSize, long maxEntrySize, boolean admission)
+	{
+		// Each segment must still fit two of the largest entries, headers included.
+		long fit = maxSize / (2L * (Math.max(maxEntrySize, 1L) + ENTRY_OVERHEAD));
+		int count = (int)Math.min(MAX_SEGMENTS, Math.max(Long.highestOneBit(fit), 1L));
+		this.segments = new Segment[count];
+		this.mask = count - 1;
+		for (int i = 0; i < count; i++)
+			segments[i] = new Segment(maxSize / count, admission);
+	}
+
+	// Spreads the key hash so that similar keys do not land in the same segment.
+	private Segment segmentFor(int hash)
+	{
+		return segments[(hash ^ (hash >>> 16)) & mask];
+	}
+
+	/**
+	 * Gets a fresh entry and marks it as recently used.
+	 * @param key the entry key.
+	 * @param nowNanos the current time from {@link System#nanoTime()}.
+	 * @return the entry, or null if no fresh entry exists.
+	 */
+	Entry get(String key, long nowNanos)
+	{
+		int hash = key.hashCode();
+		return segmentFor(hash).get(key, hash, nowNanos);
+	}
+
+	/**
+	 * Adds an entry, evicting the least recently used entries of its segment to make room.
+	 * @param key the entry key.
+	 * @param entry the entry.
+	 * @return true if the entry was added, false if it was too big or not admitted.
+	 */
+	boolean put(String key, Entry entry)
+	{
+		int hash = key.hashCode();
+		return segmentFor(hash).put(key, hash, entry);
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	void clear()
+	{
+		for (Segment segment : segments)
+			segment.clear();
+	}
+
+	/**
+	 * @return the amount of cached entries.
+	 */
+	int getEntryCount()
+	{
+		int out = 0;
+		for (Segment segment : segments)
+			out += segment.getEntryCount();
+		return out;
+	}
+
+	/**
+	 * @return the total size of the cached entries, in bytes.
+	 */
+	long getSize()
+	{
+		long out = 0L;
+		for (Segment segment : segments)
+			out += segment.getSize();
+		return out;
+	}
+
+	/**
+	 * @return the amount of entries evicted to make room for others.
+	 */
+	long getEvictions()
+	{
+		long out = 0L;
+		for (Segment segment : segments)
+			out += segment.getEvictions();
+		return out;
+	}
+
+	/**
+	 * A part of the cache with its own entries, size limit, and admission sketch.
+	 */
+	private static final class Segment
+	{
+		private final long maxSize;
+		private final FrequencySketch sketch;
+		private final LinkedHashMap<String, Entry> entries;
+		private long size;
+		private long evictions;
+
+		private Segment(long maxSize, boolean admission)
+		{
+			this.maxSize = maxSize;
+			this.sketch = admission ? new FrequencySketch(maxSize) : null;
+			this.entries = new LinkedHashMap<>(64, 0.75f, true);
+			this.size = 0L;
+			this.evictions = 0L;
+		}
+
+		private synchronized Entry get(String key, int hash, long nowNanos)
+		{
+			if (sketch != null)
+				sketch.increment(hash);
+			Entry entry = entries.get(key);
+			if (entry == null)
+				return null;
+			if (entry.isExpired(nowNanos))
+			{
+				entries.remove(key);
+				size -= entry.size;
+				return null;
+			}
+			return entry;
+		}
+
+		private synchronized boolean put(String key, int hash, Entry entry)
+		{
+			if (entry.size > maxSize)
+				return false;
+
+			Entry previous = entries.remove(key);
+			if (previous != null)
+				size -= previous.size;
+			
+			// TinyLFU: only replace the eldest entry with one that is used more often.
+			if (sketch != null && previous == null && size + entry.size > maxSize && !entries.isEmpty())
+			{
+				String victim = entries.keySet().iterator().next();
+				if (sketch.frequency(hash) <= sketch.frequency(victim.hashCode()))
+					return false;
+			}
+			
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while (size + entry.size > maxSize && it.hasNext())
+			{
+				size -= it.next().getValue().size;
+				it.remove();
+				evictions++;
+			}
+			entries.put(key, entry);
+			size += entry.size;
+			return true;
+		}
+
+		private synchronized void clear()
+		{
+			entries.clear();
+			size = 0L;
+		}
+
+		private synchronized int getEntryCount()
+		{
+			return entries.size();
+		}
+
+		private synchronized long getSize()
+		{
+			return size;
+		}
+
+		private synchronized long getEvictions()
+		{
+			return evictions;
+		}
+	}
+
+	/**
+	 * A cached response, or a marker for a response that varies on request headers.
+	 */
+	static final class Entry
+	{
+		/** The response status. */
+		final int status;
+		/** The response headers. */
+		final HttpFields fields;
+		/** The response body. */
+		final byte[] body;
+		/** The lowercase names of the request headers that the response varies on, or null. */
+		final String[] vary;
+		/** The time that this was cached, from {@link System#nanoTime()}. */
+		final long createdNanos;
+		/** The time that this expires, from {@link System#nanoTime()}. */
+		final long expiresNanos;
+		/** Approximate size, in bytes. */
+		final long size;
+
+		/**
+		 * Creates a response entry.
+		 * @param status the response status.
+		 * @param fields the response headers.
+		 * @param body the response body.
+		 * @param createdNanos the time that this was cached.
+		 * @param expiresNanos the time that this expires.
+		 */
+		Entry(int status, HttpFields fields, byte[] body, long createdNanos, long expiresNanos)
+		{
+			this.status = status;
+			this.fields = fields;
+			this.body = body;
+			this.vary = null;
+			this.createdNanos = createdNanos;
+			this.expiresNanos = expiresNanos;
+			this.size = ENTRY_OVERHEAD + (long)FIELD_OVERHEAD * fields.size() + body.length;
+		}
+
+		/**
+		 * Creates a vary marker.
+		 * @param vary the lowercase names of the request headers that the response varies on.
+		 * @param createdNanos the time that this was cached.
+		 * @param expiresNanos the time that this expires.
+		 */
+		Entry(String[] vary, long createdNanos, long expiresNanos)
+		{
+			this.status = 0;
+			this.fields = null;
+			this.body = null;
+			this.vary = vary;
+			this.createdNanos = createdNanos;
+			this.expiresNanos = expiresNanos;
+			this.size = ENTRY_OVERHEAD + (long)FIELD_OVERHEAD * vary.length;
+		}
+
+		/**
+		 * @param nowNanos the current time from {@link System#nanoTime()}.
+		 * @return true if this entry is expired.
+		 */
+		boolean isExpired(long nowNanos)
+		{
+			return nowNanos - expiresNanos >= 0;
+		}
+	}
+
+	/**
+	 * A count-min sketch of 4-bit access counters, halved periodically so that old popularity fades.
+	 */
+	private static final class FrequencySketch
+	{
+		private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+		/** Assumed average entry size, for sizing the sketch. */
+		private static final int AVERAGE_ENTRY_SIZE = 8192;
+		
+		private final byte[][] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		private FrequencySketch(long maxSize)
+		{
+			int width = Integer.highestOneBit((int)Math.max(1024, Math.min(1 << 20, maxSize / AVERAGE_ENTRY_SIZE)) - 1) << 1;
+			this.table = new byte[SEEDS.length][width];
+			this.mask = width - 1;
+			this.sampleSize = width * 10;
+			this.additions = 0;
+		}
+
+		private int indexOf(int hash, int row)
+		{
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			return (int)(h ^ (h >>> 32)) & mask;
+		}
+
+		private void increment(int hash)
+		{
+			for (int i = 0; i < table.length; i++)
+			{
+				int index = indexOf(hash, i);
+				if (table[i][index] < 15)
+					table[i][index]++;
+			}
+			if (++additions >= sampleSize)
+				reset();
+		}
+
+		private int frequency(int hash)
+		{
+			int out = 15;
+			for (int i = 0; i < table.length; i++)
+				out = Math.min(out, table[i][indexOf(hash, i)]);
+			return out;
+		}
+
+		private void reset()
+		{
+			for (byte[] row : table)
+				for (int i = 0; i < row.length; i++)
+					row[i] >>>= 1;
+			additions /= 2;
+		}
+	}
+
+}
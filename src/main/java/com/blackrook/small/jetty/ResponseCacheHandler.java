@@ -0,0 +1,640 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.pathmap.PathSpecSet;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.IncludeExclude;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+import com.blackrook.small.jetty.SmallJettyConfiguration.ResponseCacheConfiguration;
+
+/**
+ * A handler that caches whole GET responses in memory and serves them without calling the rest of the handler chain.
+ * <p>Responses are cached if their status is cacheable by default (200, 203, 300, 301, 404, 410), they set no cookies,
+ * and they have a time-to-live from <code>Cache-Control: s-maxage</code>, <code>max-age</code>, <code>Expires</code>, 
+ * or the configured default. <code>private</code>, <code>no-cache</code>, and <code>no-store</code> responses are not cached.
+ * Requests with <code>Authorization</code> headers are never cached, and requests with <code>Cache-Control: no-cache</code>
+ * skip the cache lookup.
+ * <p>Requests with a <code>Cookie</code> header may get a response personalized for their session, so they are only 
+ * served from, and stored in, the cache if the response is explicitly shareable (<code>Cache-Control: public</code> or 
+ * <code>s-maxage</code>). They are not coalesced.
+ * <p>If request coalescing is enabled, concurrent requests for the same uncached response are suspended (without holding a thread) 
+ * until the first one finishes, and are then served from the cache if it was cached. Requests that do not support 
+ * async processing are not coalesced.
+ * <p>Conditional requests with a matching <code>If-None-Match</code> get a 304 (Not Modified) for cached 2xx responses only.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+@ManagedObject("Response cache handler")
+public class ResponseCacheHandler extends HandlerWrapper
+{
+	private final ResponseCache cache;
+	private final int maxEntrySize;
+	private final long defaultTimeToLiveNanos;
+	private final boolean coalesceRequests;
+	private final long coalesceTimeoutMillis;
+	private final IncludeExclude<String> paths;
+	private final String coalescedAttribute;
+	private final ConcurrentHashMap<String, Flight> inflight;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder coalescedRequests;
+
+	/**
+	 * Creates a new response cache handler.
+	 * @param config the response cache configuration.
+	 */
+	ResponseCacheHandler(ResponseCacheConfiguration config)
+	{
+		this.cache = new ResponseCache(config.getMaxSize(), config.getMaxEntrySize(), config.getEviction() == ResponseCacheConfiguration.Eviction.TINY_LFU);
+		this.maxEntrySize = config.getMaxEntrySize();
+		this.defaultTimeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(config.getDefaultTimeToLive());
+		this.coalesceRequests = config.getCoalesceRequests();
+		this.coalesceTimeoutMillis = config.getCoalesceTimeout();
+		this.paths = new IncludeExclude<>(PathSpecSet.class);
+		this.coalescedAttribute = ResponseCacheHandler.class.getName() + "@" + Integer.toHexString(System.identityHashCode(this)) + ".coalesced";
+		this.inflight = new ConcurrentHashMap<>();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.coalescedRequests = new LongAdder();
+		if (config.getIncludedPaths() != null)
+			paths.include(config.getIncludedPaths());
+		if (config.getExcludedPaths() != null)
+			paths.exclude(config.getExcludedPaths());
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+	{
+		HttpFields requestFields = baseRequest.getHttpFields();
+		boolean coalesced = baseRequest.getDispatcherType() == DispatcherType.ASYNC && baseRequest.getAttribute(coalescedAttribute) != null;
+		if ((baseRequest.getDispatcherType() != DispatcherType.REQUEST && !coalesced) 
+			|| !HttpMethod.GET.is(baseRequest.getMethod()) 
+			|| requestFields.contains(HttpHeader.AUTHORIZATION)
+			|| requestFields.contains(HttpHeader.CACHE_CONTROL, "no-store")
+			|| !paths.test(baseRequest.getRequestURI())
+		){
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+		
+		// Resumed after the request it waited for finished. It does not wait again.
+		if (coalesced)
+			baseRequest.removeAttribute(coalescedAttribute);
+		
+		// A response for a request with cookies may be personalized, unless it says that it is not.
+		boolean cookie = requestFields.contains(HttpHeader.COOKIE);
+		String primaryKey = getPrimaryKey(baseRequest);
+		String key = primaryKey;
+		Flight flight = null;
+		if (!requestFields.contains(HttpHeader.CACHE_CONTROL, "no-cache") && !requestFields.contains(HttpHeader.PRAGMA, "no-cache"))
+		{
+			long now = System.nanoTime();
+			ResponseCache.Entry entry = cache.get(primaryKey, now);
+			if (entry != null && entry.vary != null)
+				entry = cache.get(key = getVariantKey(primaryKey, entry.vary, requestFields), now);
+			if (entry != null && cookie && !isShared(entry.fields))
+				entry = null;
+			
+			if (entry == null && coalesceRequests && !coalesced && !cookie && coalesceTimeoutMillis > 0 && baseRequest.isAsyncSupported())
+			{
+				Flight existing = inflight.putIfAbsent(key, flight = new Flight(key));
+				if (existing != null)
+				{
+					flight = null;
+					if (existing.suspend(baseRequest))
+					{
+						coalescedRequests.increment();
+						return;
+					}
+					
+					// The first request finished in the meantime.
+					now = System.nanoTime();
+					entry = cache.get(primaryKey, now);
+					if (entry != null && entry.vary != null)
+						entry = cache.get(getVariantKey(primaryKey, entry.vary, requestFields), now);
+				}
+			}
+			
+			if (entry != null)
+			{
+				hits.increment();
+				serve(entry, baseRequest, now);
+				return;
+			}
+		}
+		misses.increment();
+
+		HttpOutput out = baseRequest.getResponse().getHttpOutput();
+		HttpOutput.Interceptor origInterceptor = out.getInterceptor();
+		CaptureInterceptor capture = new CaptureInterceptor(baseRequest, primaryKey, cookie, flight, origInterceptor);
+		if (flight != null)
+			addChannelListener(baseRequest, capture);
+		try
+		{
+			out.setInterceptor(capture);
+			super.handle(target, baseRequest, request, response);
+		}
+		finally
+		{
+			// reset interceptor if request not handled
+			if (!baseRequest.isHandled() && !baseRequest.isAsyncStarted())
+			{
+				out.setInterceptor(origInterceptor);
+				capture.release();
+			}
+		}
+	}
+
+	/**
+	 * @return the amount of requests served from the cache.
+	 */
+	@ManagedAttribute("Requests served from the cache")
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * @return the amount of cacheable requests that were not served from the cache.
+	 */
+	@ManagedAttribute("Cacheable requests not served from the cache")
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * @return the amount of requests that waited for an identical request in progress.
+	 */
+	@ManagedAttribute("Requests that waited for an identical request in progress")
+	public long getCoalescedRequests()
+	{
+		return coalescedRequests.sum();
+	}
+
+	/**
+	 * @return the amount of cached responses.
+	 */
+	@ManagedAttribute("Cached entries")
+	public int getEntryCount()
+	{
+		return cache.getEntryCount();
+	}
+
+	/**
+	 * @return the approximate total size of the cached responses, in bytes.
+	 */
+	@ManagedAttribute("Approximate size of the cached entries in bytes")
+	public long getSize()
+	{
+		return cache.getSize();
+	}
+
+	/**
+	 * @return the amount of entries evicted to make room for others.
+	 */
+	@ManagedAttribute("Entries evicted to make room for others")
+	public long getEvictions()
+	{
+		return cache.getEvictions();
+	}
+
+	/**
+	 * Removes all cached responses.
+	 */
+	@ManagedOperation(value = "Removes all cached responses", impact = "ACTION")
+	public void clear()
+	{
+		cache.clear();
+	}
+
+	/**
+	 * Resets the hit/miss counters.
+	 */
+	@ManagedOperation(value = "Resets the counters", impact = "ACTION")
+	public void resetCounters()
+	{
+		hits.reset();
+		misses.reset();
+		coalescedRequests.reset();
+	}
+
+	// The listener is removed when the channel is recycled.
+	@SuppressWarnings("deprecation")
+	private static void addChannelListener(Request baseRequest, HttpChannel.Listener listener)
+	{
+		baseRequest.getHttpChannel().addListener(listener);
+	}
+
+	private static String getPrimaryKey(Request baseRequest)
+	{
+		StringBuilder sb = new StringBuilder(128);
+		sb.append(baseRequest.getScheme()).append("://").append(baseRequest.getServerName()).append(':').append(baseRequest.getServerPort());
+		sb.append(baseRequest.getRequestURI());
+		if (baseRequest.getQueryString() != null)
+			sb.append('?').append(baseRequest.getQueryString());
+		return sb.toString();
+	}
+
+	private static String getVariantKey(String primaryKey, String[] vary, HttpFields requestFields)
+	{
+		StringBuilder sb = new StringBuilder(primaryKey);
+		for (String name : vary)
+		{
+			sb.append('\n').append(name).append(':');
+			List<String> values = requestFields.getValuesList(name);
+			for (int i = 0; i < values.size(); i++)
+				sb.append(i > 0 ? "," : "").append(values.get(i));
+		}
+		return sb.toString();
+	}
+
+	// Returns the amount of time that a response is fresh, or 0 or less if it should not be cached.
+	private long getTimeToLive(HttpFields responseFields)
+	{
+		long maxAge = -1;
+		long sharedMaxAge = -1;
+		for (String value : responseFields.getCSV(HttpHeader.CACHE_CONTROL, false))
+		{
+			String directive = StringUtil.asciiToLowerCase(value.trim());
+			if (directive.startsWith("no-store") || directive.startsWith("no-cache") || directive.startsWith("private"))
+				return 0;
+			else if (directive.startsWith("s-maxage="))
+				sharedMaxAge = parseSeconds(directive.substring(9));
+			else if (directive.startsWith("max-age="))
+				maxAge = parseSeconds(directive.substring(8));
+		}
+		
+		if (sharedMaxAge >= 0)
+			return TimeUnit.SECONDS.toNanos(sharedMaxAge);
+		if (maxAge >= 0)
+			return TimeUnit.SECONDS.toNanos(maxAge);
+		if (responseFields.contains(HttpHeader.EXPIRES))
+		{
+			try {
+				return TimeUnit.MILLISECONDS.toNanos(responseFields.getDateField(HttpHeader.EXPIRES.asString()) - System.currentTimeMillis());
+			} catch (IllegalArgumentException e) {
+				return 0;
+			}
+		}
+		return defaultTimeToLiveNanos;
+	}
+
+	// Checks if a response is explicitly cacheable by shared caches, with public or s-maxage.
+	private static boolean isShared(HttpFields responseFields)
+	{
+		for (String value : responseFields.getCSV(HttpHeader.CACHE_CONTROL, false))
+		{
+			String directive = StringUtil.asciiToLowerCase(value.trim());
+			if (directive.equals("public") || directive.startsWith("s-maxage="))
+				return true;
+		}
+		return false;
+	}
+
+	private static long parseSeconds(String value)
+	{
+		try {
+			return Long.parseLong(value.startsWith("\"") && value.endsWith("\"") && value.length() > 1 ? value.substring(1, value.length() - 1) : value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static boolean isCacheableStatus(int status)
+	{
+		switch (status)
+		{
+			case HttpStatus.OK_200:
+			case HttpStatus.NON_AUTHORITATIVE_INFORMATION_203:
+			case HttpStatus.MULTIPLE_CHOICES_300:
+			case HttpStatus.MOVED_PERMANENTLY_301:
+			case HttpStatus.NOT_FOUND_404:
+			case HttpStatus.GONE_410:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	// Checks if an entity tag matches any of the entity tags from If-None-Match, using weak comparison.
+	private static boolean matchesETag(String etag, List<String> ifNoneMatch)
+	{
+		String opaqueTag = stripWeak(etag);
+		for (String value : ifNoneMatch)
+			if ("*".equals(value) || opaqueTag.equals(stripWeak(value)))
+				return true;
+		return false;
+	}
+
+	private static String stripWeak(String etag)
+	{
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+	// Resumes a suspended request, unless it already timed out or failed.
+	private static void resume(AsyncContext asyncContext)
+	{
+		try {
+			asyncContext.dispatch();
+		} catch (IllegalStateException e) {
+			// Already completed.
+		}
+	}
+
+	private static void serve(ResponseCache.Entry entry, Request baseRequest, long nowNanos) throws IOException
+	{
+		Response response = baseRequest.getResponse();
+		HttpFields responseFields = response.getHttpFields();
+		for (HttpField field : entry.fields)
+		{
+			// Set through the response so that content type checks further out (GZip) see it.
+			if (field.getHeader() == HttpHeader.CONTENT_TYPE)
+				response.setContentType(field.getValue());
+			else
+				responseFields.add(field);
+		}
+		responseFields.put(HttpHeader.AGE, Long.toString(TimeUnit.NANOSECONDS.toSeconds(nowNanos - entry.createdNanos)));
+		baseRequest.setHandled(true);
+		
+		String etag = entry.fields.get(HttpHeader.ETAG);
+		if (etag != null && HttpStatus.isSuccess(entry.status) && matchesETag(etag, baseRequest.getHttpFields().getCSV(HttpHeader.IF_NONE_MATCH, true)))
+		{
+			response.setStatus(HttpStatus.NOT_MODIFIED_304);
+			return;
+		}
+
+		response.setStatus(entry.status);
+		response.setContentLength(entry.body.length);
+		response.getHttpOutput().sendContent(ByteBuffer.wrap(entry.body));
+	}
+
+	/**
+	 * A request in progress for an uncached response, with the requests that are suspended until it finishes.
+	 */
+	private class Flight
+	{
+		private final String key;
+		private List<AsyncContext> waiting;
+
+		private Flight(String key)
+		{
+			this.key = key;
+			this.waiting = new ArrayList<>(4);
+		}
+
+		// Suspends a request until this finishes. Returns false if it already has.
+		private synchronized boolean suspend(Request baseRequest)
+		{
+			if (waiting == null)
+				return false;
+			
+			AsyncContext asyncContext = baseRequest.startAsync();
+			asyncContext.setTimeout(coalesceTimeoutMillis);
+			asyncContext.addListener(new AsyncListener()
+			{
+				@Override
+				public void onTimeout(AsyncEvent event) throws IOException
+				{
+					// If it is not waiting anymore, it is already being resumed.
+					if (remove(asyncContext))
+						resume(asyncContext);
+				}
+				
+				@Override
+				public void onError(AsyncEvent event) throws IOException
+				{
+					remove(asyncContext);
+				}
+				
+				@Override
+				public void onStartAsync(AsyncEvent event) throws IOException
+				{
+					// Do nothing.
+				}
+				
+				@Override
+				public void onComplete(AsyncEvent event) throws IOException
+				{
+					// Do nothing.
+				}
+			});
+			baseRequest.setAttribute(coalescedAttribute, Boolean.TRUE);
+			waiting.add(asyncContext);
+			return true;
+		}
+
+		private synchronized boolean remove(AsyncContext asyncContext)
+		{
+			return waiting != null && waiting.remove(asyncContext);
+		}
+
+		// Resumes the waiting requests. Only the first call does anything.
+		private void land()
+		{
+			if (!inflight.remove(key, this))
+				return;
+			List<AsyncContext> resumed;
+			synchronized (this)
+			{
+				resumed = waiting;
+				waiting = null;
+			}
+			for (AsyncContext asyncContext : resumed)
+				resume(asyncContext);
+		}
+	}
+
+	/**
+	 * Copies the response as it is written, and caches it when it is complete.
+	 * If other requests are waiting on this one, they are resumed after the response is cached, 
+	 * or when the request completes if the response is not cacheable.
+	 */
+	private class CaptureInterceptor implements HttpOutput.Interceptor, HttpChannel.Listener
+	{
+		private final Request baseRequest;
+		private final String primaryKey;
+		private final boolean cookie;
+		private final Flight flight;
+		private final HttpOutput.Interceptor next;
+		private boolean capturing;
+		private int status;
+		private long timeToLiveNanos;
+		private HttpFields fields;
+		private ByteArrayOutputStream2 body;
+
+		private CaptureInterceptor(Request baseRequest, String primaryKey, boolean cookie, Flight flight, HttpOutput.Interceptor next)
+		{
+			this.baseRequest = baseRequest;
+			this.primaryKey = primaryKey;
+			this.cookie = cookie;
+			this.flight = flight;
+			this.next = next;
+			this.capturing = true;
+			this.fields = null;
+			this.body = null;
+		}
+
+		@Override
+		public HttpOutput.Interceptor getNextInterceptor()
+		{
+			return next;
+		}
+
+		@Override
+		public boolean isOptimizedForDirectBuffers()
+		{
+			return next.isOptimizedForDirectBuffers();
+		}
+
+		@Override
+		public void write(ByteBuffer content, boolean complete, Callback callback)
+		{
+			if (capturing)
+				capture(content, complete);
+			next.write(content, complete, callback);
+		}
+
+		@Override
+		public void onComplete(Request request)
+		{
+			release();
+		}
+
+		private void capture(ByteBuffer content, boolean complete)
+		{
+			if (fields == null && !start())
+			{
+				stop();
+				return;
+			}
+			
+			int length = BufferUtil.length(content);
+			if (body.getCount() + length > maxEntrySize)
+			{
+				stop();
+				return;
+			}
+			if (length > 0 && content.hasArray())
+			{
+				body.write(content.array(), content.arrayOffset() + content.position(), length);
+			}
+			else if (length > 0)
+			{
+				byte[] buf = new byte[length];
+				content.duplicate().get(buf);
+				body.write(buf, 0, length);
+			}
+			
+			if (complete)
+			{
+				store();
+				stop();
+			}
+		}
+
+		// Checks the response headers on the first write. Returns false if the response is not cacheable.
+		private boolean start()
+		{
+			Response response = baseRequest.getResponse();
+			HttpFields responseFields = response.getHttpFields();
+			status = response.getStatus();
+			if (!isCacheableStatus(status) || responseFields.contains(HttpHeader.SET_COOKIE))
+				return false;
+			if (cookie && !isShared(responseFields))
+				return false;
+			if ((timeToLiveNanos = getTimeToLive(responseFields)) <= 0)
+				return false;
+			if (response.getContentLength() > maxEntrySize)
+				return false;
+			
+			fields = new HttpFields(responseFields);
+			fields.remove(HttpHeader.CONTENT_LENGTH);
+			fields.remove(HttpHeader.DATE);
+			fields.remove(HttpHeader.AGE);
+			fields.remove(HttpHeader.CONNECTION);
+			fields.remove(HttpHeader.TRANSFER_ENCODING);
+			body = new ByteArrayOutputStream2(response.getContentLength() >= 0 ? (int)response.getContentLength() : 4096);
+			return true;
+		}
+
+		private void store()
+		{
+			List<String> varyList = fields.getCSV(HttpHeader.VARY, false);
+			String[] vary = new String[varyList.size()];
+			for (int i = 0; i < vary.length; i++)
+			{
+				vary[i] = StringUtil.asciiToLowerCase(varyList.get(i).trim());
+				if ("*".equals(vary[i]))
+					return;
+			}
+
+			long now = System.nanoTime();
+			long expires = now + timeToLiveNanos;
+			ResponseCache.Entry entry = new ResponseCache.Entry(status, fields, body.toByteArray(), now, expires);
+			if (vary.length == 0)
+			{
+				cache.put(primaryKey, entry);
+			}
+			else
+			{
+				cache.put(primaryKey, new ResponseCache.Entry(vary, now, expires));
+				cache.put(getVariantKey(primaryKey, vary, baseRequest.getHttpFields()), entry);
+			}
+		}
+
+		private void stop()
+		{
+			capturing = false;
+			fields = null;
+			body = null;
+			release();
+		}
+
+		private void release()
+		{
+			if (flight != null)
+				flight.land();
+		}
+	}
+
+}
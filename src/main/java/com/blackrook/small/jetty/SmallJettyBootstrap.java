@@ -7,25 +7,75 @@
  ******************************************************************************/
 package com.blackrook.small.jetty;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.Security;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
+
+import javax.servlet.DispatcherType;
+
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.ConnectionLimit;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.ForwardedRequestCustomizer;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LowResourceMonitor;
+import org.eclipse.jetty.server.ProxyConnectionFactory;
 import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.ExecutorThreadPool;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.websocket.jsr356.server.deploy.WebSocketServerContainerInitializer;
 
 import com.blackrook.small.SmallConstants;
 import com.blackrook.small.SmallServlet;
 import com.blackrook.small.exception.SmallFrameworkSetupException;
+import com.blackrook.small.jetty.SmallJettyConfiguration.BufferPoolConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.CompressionConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ConnectionLimitConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ConnectorConfiguration;
 import com.blackrook.small.jetty.SmallJettyConfiguration.GZipConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.HTTP2Configuration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ListenerConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.LoadSheddingConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.LowResourceConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.MetricsConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ProxyProtocolConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.RateLimitConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.RequestLogConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ResponseCacheConfiguration;
 import com.blackrook.small.jetty.SmallJettyConfiguration.SSLConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ShutdownConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.StartupConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.StaticResourceConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ThreadPoolConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.UnixSocketConfiguration;
 
 /**
  * Bootstrap for Jetty server.
@@ -33,6 +83,10 @@ import com.blackrook.small.jetty.SmallJettyConfiguration.SSLConfiguration;
  */
 public final class SmallJettyBootstrap
 {
+	private static final Logger LOG = Log.getLogger(SmallJettyBootstrap.class);
+	/** The JDK's JSSE provider, which reads the <code>jdk.tls.server.*</code> properties. */
+	private static final String DEFAULT_SSL_PROVIDER = "SunJSSE";
+	
 	/**
 	 * Starts Jetty using the provided configuration.
 	 * @param config the configuration to use.
@@ -44,23 +98,45 @@ public final class SmallJettyBootstrap
 	 */
 	public static Server create(SmallJettyConfiguration config) throws Exception
 	{
+		SmallJettyStartupTimings timings = new SmallJettyStartupTimings();
+		
 		try {
 			Class.forName("org.eclipse.jetty.server.Server");
 		} catch (ClassNotFoundException e) {
 			throw new SmallFrameworkSetupException("Jetty is not available. Cannot find server class.");
 		}
 		
+		timings.mark("jettyCheck");
+		
 		// ==================== Thread Pool ======================
 
-		if (config.getMaxThreads() < 1)
-			throw new SmallFrameworkSetupException("Max threads is less than 1.");
-		
-		QueuedThreadPool threadPool = new QueuedThreadPool();
-		threadPool.setMaxThreads(config.getMaxThreads());
+		ThreadPool threadPool;
+		ThreadPoolConfiguration threadPoolConfig;
+		if ((threadPoolConfig = config.getThreadPoolConfiguration()) != null)
+		{
+			threadPool = createThreadPool(threadPoolConfig);
+		}
+		else
+		{
+			if (config.getMaxThreads() < 1)
+				throw new SmallFrameworkSetupException("Max threads is less than 1.");
+			
+			threadPool = new SmallJettyThreadPool(config.getMaxThreads(), Math.min(8, config.getMaxThreads()), 60000, -1, null);
+		}
 
 		// =======================================================
 
 		Server server = new Server(threadPool);
+		timings.mark("threadPool");
+
+		// ==================== Buffer Pool ======================
+
+		// Connectors made without a pool use the server's pool bean, so this is shared by all of them.
+		BufferPoolConfiguration bufferPoolConfig;
+		if ((bufferPoolConfig = config.getBufferPoolConfiguration()) != null)
+			server.addBean(createByteBufferPool(bufferPoolConfig));
+		
+		timings.mark("bufferPool");
 
 		// ==================== HTTP Config ======================
 
@@ -83,13 +159,59 @@ public final class SmallJettyBootstrap
 		httpConfig.setSendDateHeader(config.getSendDateHeader());
 		httpConfig.setSendXPoweredBy(config.getSendXPoweredBy());
 		
-		ServerConnector httpConnector = new ServerConnector(server, new HttpConnectionFactory(httpConfig));
-		httpConnector.setPort(config.getServerPort());
-		httpConnector.setIdleTimeout(config.getIdleConnectionTimeout());
-		server.addConnector(httpConnector);
+		ProxyProtocolConfiguration proxyConfig = config.getProxyProtocolConfiguration();
+		if (proxyConfig != null && proxyConfig.getForwardedHeadersEnabled())
+		{
+			ForwardedRequestCustomizer forwardedCustomizer = new ForwardedRequestCustomizer();
+			forwardedCustomizer.setForwardedOnly(proxyConfig.getForwardedOnly());
+			httpConfig.addCustomizer(forwardedCustomizer);
+		}
+		
+		ConnectorConfiguration connectorConfig = config.getConnectorConfiguration();
+		
+		HTTP2Configuration http2Config = config.getHTTP2Configuration();
+		if (http2Config != null)
+		{
+			if (http2Config.getMaxConcurrentStreams() < 1)
+				throw new SmallFrameworkSetupException("HTTP/2 max concurrent streams is less than 1.");
+			if (http2Config.getInitialStreamRecvWindow() < 65535)
+				throw new SmallFrameworkSetupException("HTTP/2 initial stream window is less than 65535.");
+			if (http2Config.getInitialSessionRecvWindow() < 65535)
+				throw new SmallFrameworkSetupException("HTTP/2 initial session window is less than 65535.");
+			if (http2Config.getSecureEnabled() && config.getSSLConfiguration() == null)
+				throw new SmallFrameworkSetupException("HTTP/2 over TLS was enabled without SSL config.");
+			SmallJettyHTTP2.checkAvailable(http2Config.getSecureEnabled());
+		}
+		
+		UnixSocketConfiguration unixSocketConfig = config.getUnixSocketConfiguration();
+		
+		if (unixSocketConfig == null || !unixSocketConfig.getReplaceServerPort())
+		{
+			ServerConnector httpConnector = createConnector(server, null, connectorConfig, createConnectionFactories(httpConfig, null, http2Config, proxyConfig));
+			httpConnector.setPort(config.getServerPort());
+			httpConnector.setIdleTimeout(config.getIdleConnectionTimeout());
+			server.addConnector(httpConnector);
+		}
+		
+		// ================= Unix Socket Config ===================
+
+		if (unixSocketConfig != null)
+		{
+			SmallJettyUnixSocket.checkAvailable();
+			AbstractConnector unixSocketConnector = SmallJettyUnixSocket.createConnector(
+				server, 
+				unixSocketConfig, 
+				connectorConfig != null ? connectorConfig.getSelectors() : -1,
+				connectorConfig != null ? connectorConfig.getAcceptQueueSize() : 0,
+				createConnectionFactories(httpConfig, null, http2Config, proxyConfig)
+			);
+			unixSocketConnector.setIdleTimeout(config.getIdleConnectionTimeout());
+			server.addConnector(unixSocketConnector);
+		}
 		
 		// =================== HTTPS Config =======================
 
+		SslContextFactory sslContextFactory = null;
 		if (config.getSSLConfiguration() != null)
 		{
 			if (config.getSecureServerPort() == null)
@@ -99,45 +221,200 @@ public final class SmallJettyBootstrap
 			httpsConfig.addCustomizer(new SecureRequestCustomizer());
 			
 			SSLConfiguration sslConfig = config.getSSLConfiguration();
+			if (http2Config != null && http2Config.getSecureEnabled() && !sslConfig.getUseCipherSuitesOrder())
+				throw new SmallFrameworkSetupException("HTTP/2 over TLS needs the server's cipher suite order - SSL \"use cipher suites order\" cannot be false.");
 
-			SslContextFactory sslContextFactory = new SslContextFactory.Server();
-			sslContextFactory.setKeyStoreType(sslConfig.getKeyStoreType());
-			sslContextFactory.setKeyStorePath(sslConfig.getKeyStorePath());
-			sslContextFactory.setKeyStorePassword(sslConfig.getKeyStorePassword());
-			sslContextFactory.setTrustStoreType(sslConfig.getTrustStoreType());
-			sslContextFactory.setTrustStorePath(sslConfig.getTrustStorePath());
-			sslContextFactory.setTrustStorePassword(sslConfig.getTrustStorePassword());
+			sslContextFactory = createSslContextFactory(sslConfig);
 			
-			ServerConnector httpsConnector = new ServerConnector(
-				server,
-				new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
-				new HttpConnectionFactory(httpsConfig)
-			);
+			if (sslConfig.getWatchKeyStore())
+			{
+				if (sslConfig.getWatchDelay() < 0)
+					throw new SmallFrameworkSetupException("Key store watch delay is less than 0.");
+				try {
+					server.addBean(new KeyStoreWatcher(sslContextFactory, sslConfig.getWatchDelay(), sslConfig.getKeyStorePath(), sslConfig.getTrustStorePath()));
+				} catch (IllegalArgumentException e) {
+					throw new SmallFrameworkSetupException("Could not watch key store: " + e.getMessage(), e);
+				}
+			}
+			
+			ServerConnector httpsConnector = createConnector(server, null, connectorConfig, createConnectionFactories(httpsConfig, sslContextFactory, http2Config, proxyConfig));
 			httpsConnector.setPort(config.getSecureServerPort());
 			server.addConnector(httpsConnector);
 		}
 		
+		// ===================== Listeners ========================
+
+		if (config.getListenerConfigurations() != null)
+		{
+			Set<String> listenerNames = new HashSet<>();
+			Set<String> listenerAddresses = new HashSet<>();
+			if (unixSocketConfig == null || !unixSocketConfig.getReplaceServerPort())
+				addAddress(listenerAddresses, null, config.getServerPort());
+			if (config.getSecureServerPort() != null)
+				addAddress(listenerAddresses, null, config.getSecureServerPort());
+			
+			for (ListenerConfiguration listenerConfig : config.getListenerConfigurations())
+			{
+				if (listenerConfig.getName() == null)
+					throw new SmallFrameworkSetupException("Listener was provided without a name.");
+				if (!listenerNames.add(listenerConfig.getName()))
+					throw new SmallFrameworkSetupException("Listener name \"" + listenerConfig.getName() + "\" was used more than once.");
+				if (!addAddress(listenerAddresses, listenerConfig.getHost(), listenerConfig.getPort()))
+					throw new SmallFrameworkSetupException("Listener \"" + listenerConfig.getName() + "\" uses a port that is already in use: " + listenerConfig.getPort());
+				if (listenerConfig.getSecure() && sslContextFactory == null)
+					throw new SmallFrameworkSetupException("Listener \"" + listenerConfig.getName() + "\" is secure, but no SSL config was provided.");
+
+				HttpConfiguration listenerHttpConfig = new HttpConfiguration(httpConfig);
+				if (listenerConfig.getHeaderCacheSize() != null)
+					listenerHttpConfig.setHeaderCacheSize(listenerConfig.getHeaderCacheSize());
+				if (listenerConfig.getOutputBufferSize() != null)
+					listenerHttpConfig.setOutputBufferSize(listenerConfig.getOutputBufferSize());
+				if (listenerConfig.getRequestHeaderSize() != null)
+					listenerHttpConfig.setRequestHeaderSize(listenerConfig.getRequestHeaderSize());
+				if (listenerConfig.getResponseHeaderSize() != null)
+					listenerHttpConfig.setResponseHeaderSize(listenerConfig.getResponseHeaderSize());
+				if (listenerConfig.getSecure())
+					listenerHttpConfig.addCustomizer(new SecureRequestCustomizer());
+				
+				Executor listenerExecutor = null;
+				if (listenerConfig.getMaxThreads() != null)
+				{
+					if (listenerConfig.getMaxThreads() < 1)
+						throw new SmallFrameworkSetupException("Listener \"" + listenerConfig.getName() + "\" max threads is less than 1.");
+					QueuedThreadPool listenerThreadPool = new QueuedThreadPool(listenerConfig.getMaxThreads(), Math.min(8, listenerConfig.getMaxThreads()));
+					listenerThreadPool.setName(listenerConfig.getName());
+					server.addBean(listenerThreadPool);
+					listenerExecutor = listenerThreadPool;
+				}
+				
+				ServerConnector listenerConnector = createConnector(
+					server, 
+					listenerExecutor, 
+					connectorConfig, 
+					createConnectionFactories(listenerHttpConfig, listenerConfig.getSecure() ? sslContextFactory : null, http2Config, proxyConfig)
+				);
+				listenerConnector.setName(listenerConfig.getName());
+				listenerConnector.setHost(listenerConfig.getHost());
+				listenerConnector.setPort(listenerConfig.getPort());
+				listenerConnector.setIdleTimeout(listenerConfig.getIdleTimeout() != null ? listenerConfig.getIdleTimeout() : config.getIdleConnectionTimeout());
+				server.addConnector(listenerConnector);
+			}
+		}
+		
+		timings.mark("connectors");
+
 		// ================= Servlet Context =====================
 
+		StartupConfiguration startupConfig = config.getStartupConfiguration();
+		boolean lazyServletInit = startupConfig != null && startupConfig.getLazyServletInit();
+		boolean lazyWebSockets = config.allowWebSockets() && startupConfig != null && startupConfig.getLazyWebSockets();
+		if (lazyWebSockets && !lazyServletInit)
+			throw new SmallFrameworkSetupException("Lazy WebSocket setup requires lazy servlet initialization.");
+		
 		ServletContextHandler context = new ServletContextHandler(config.getServletContextOptions());
 		context.setAttribute(SmallConstants.SMALL_APPLICATION_CONFIGURATION_ATTRIBUTE, config);
 		
-		ServletHolder holder = new ServletHolder(new SmallServlet());
-		holder.setInitOrder(0);
+		LazyWebSocketHandler lazyWebSocketHandler = lazyWebSockets ? new LazyWebSocketHandler(context) : null;
+		
+		ServletHolder holder;
+		if (lazyWebSocketHandler != null)
+			holder = lazyWebSocketHandler.createServletHolder(SmallServlet.class);
+		else if (lazyServletInit)
+			holder = new ServletHolder(SmallServlet.class);
+		else
+			holder = new ServletHolder(new SmallServlet());
+		// Servlet instances are always initialized on start, so lazy initialization needs a servlet class.
+		holder.setInitOrder(lazyServletInit ? -1 : 0);
 		context.setContextPath(config.getContextPath());
 		for (String servletPath : config.getServletPaths())
 			context.addServlet(holder, servletPath);
 		
+		StaticResourceConfiguration[] staticResourceConfigs;
+		if ((staticResourceConfigs = config.getStaticResourceConfigurations()) != null)
+		{
+			Set<String> staticPaths = new HashSet<>();
+			for (int i = 0; i < staticResourceConfigs.length; i++)
+			{
+				StaticResourceConfiguration staticResourceConfig = staticResourceConfigs[i];
+				if (!staticPaths.add(staticResourceConfig.getPath()))
+					throw new SmallFrameworkSetupException("Static resource path \"" + staticResourceConfig.getPath() + "\" is already mounted.");
+				ServletHolder staticResourceHolder = createStaticResourceHolder(staticResourceConfig, i);
+				if (lazyServletInit)
+					staticResourceHolder.setInitOrder(-1);
+				context.addServlet(staticResourceHolder, staticResourceConfig.getPath());
+			}
+		}
+		
+		RateLimitConfiguration[] rateLimitConfigs;
+		if ((rateLimitConfigs = config.getRateLimitConfigurations()) != null)
+		{
+			Set<String> rateLimitPaths = new HashSet<>();
+			for (int i = 0; i < rateLimitConfigs.length; i++)
+			{
+				RateLimitConfiguration rateLimitConfig = rateLimitConfigs[i];
+				if (!rateLimitPaths.add(rateLimitConfig.getPath()))
+					throw new SmallFrameworkSetupException("Rate limit path \"" + rateLimitConfig.getPath() + "\" was used more than once.");
+				context.addFilter(createRateLimitHolder(rateLimitConfig, i), rateLimitConfig.getPath(), EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+			}
+		}
+		
+		timings.mark("servletContext");
+
 		// ===================== Handlers ========================
 
 		server.insertHandler(context);
 
-		GZipConfiguration gzipConfig;
-		if ((gzipConfig = config.getGZipCompression()) != null)
+		ResponseCacheConfiguration responseCacheConfig;
+		if ((responseCacheConfig = config.getResponseCacheConfiguration()) != null)
 		{
-			GzipHandler gzipHandler = new GzipHandler();
-			gzipHandler.setInflateBufferSize(gzipConfig.getBufferSize());
+			if (responseCacheConfig.getMaxSize() <= 0)
+				throw new SmallFrameworkSetupException("Response cache max size must be greater than 0.");
+			if (responseCacheConfig.getMaxEntrySize() <= 0 || responseCacheConfig.getMaxEntrySize() > responseCacheConfig.getMaxSize())
+				throw new SmallFrameworkSetupException("Response cache max entry size must be greater than 0 and not more than the max size.");
+			if (responseCacheConfig.getDefaultTimeToLive() < 0)
+				throw new SmallFrameworkSetupException("Response cache default time-to-live is less than 0.");
+			if (responseCacheConfig.getCoalesceTimeout() < 0)
+				throw new SmallFrameworkSetupException("Response cache coalesce timeout is less than 0.");
+			// Directly in front of the context, so that uncompressed responses are cached.
+			server.insertHandler(new ResponseCacheHandler(responseCacheConfig));
+		}
+
+		GZipConfiguration gzipConfig = config.getGZipCompression();
+		CompressionConfiguration compressionConfig;
+		if ((compressionConfig = config.getCompressionConfiguration()) != null)
+		{
+			if (gzipConfig != null)
+				throw new SmallFrameworkSetupException("GZip compression and compression configurations cannot both be set. Use the compression configuration's GZip settings.");
+			if (compressionConfig.getBrotliConfiguration() != null)
+			{
+				checkCompressionLevel(CompressionConfiguration.ENCODING_BROTLI, compressionConfig.getBrotliConfiguration(), 0, 11);
+				SmallJettyCompression.checkAvailable(CompressionConfiguration.ENCODING_BROTLI);
+			}
+			if (compressionConfig.getZstdConfiguration() != null)
+			{
+				checkCompressionLevel(CompressionConfiguration.ENCODING_ZSTD, compressionConfig.getZstdConfiguration(), -131072, 22);
+				SmallJettyCompression.checkAvailable(CompressionConfiguration.ENCODING_ZSTD);
+			}
+			// Inside the GzipHandler, so that a compressed response is passed through by it. 
+			if (compressionConfig.getBrotliConfiguration() != null || compressionConfig.getZstdConfiguration() != null)
+				server.insertHandler(new CompressionHandler(compressionConfig));
+			gzipConfig = compressionConfig.getGZipConfiguration();
+		}
+		
+		if (gzipConfig != null)
+		{
+			if (gzipConfig.getBufferSize() <= 0)
+				throw new SmallFrameworkSetupException("GZip buffer size must be greater than 0.");
+			if (gzipConfig.getCompressionLevel() < -1 || gzipConfig.getCompressionLevel() > 9)
+				throw new SmallFrameworkSetupException("GZip compression level must be from -1 to 9.");
+			if (gzipConfig.getDeflaterPoolCapacity() < -1)
+				throw new SmallFrameworkSetupException("GZip Deflater pool capacity must be -1 or greater.");
+			
+			GzipHandler gzipHandler = new SmallJettyGzipHandler(gzipConfig.getBufferSize());
+			gzipHandler.setInflateBufferSize(gzipConfig.getInflateBufferSize());
 			gzipHandler.setCompressionLevel(gzipConfig.getCompressionLevel());
+			gzipHandler.setDeflaterPoolCapacity(gzipConfig.getDeflaterPoolCapacity());
+			gzipHandler.setSyncFlush(gzipConfig.getSyncFlush());
 			gzipHandler.setMinGzipSize(gzipConfig.getMinGzipSize());
 			if (gzipConfig.getExcludedAgentPatterns() != null)
 				gzipHandler.setExcludedAgentPatterns(gzipConfig.getExcludedAgentPatterns());
@@ -158,15 +435,612 @@ public final class SmallJettyBootstrap
 			server.insertHandler(gzipHandler);
 		}
 
+		LoadSheddingConfiguration loadSheddingConfig;
+		if ((loadSheddingConfig = config.getLoadSheddingConfiguration()) != null)
+		{
+			if (loadSheddingConfig.getMaxQueueSize() != null && loadSheddingConfig.getMaxQueueSize() < 1)
+				throw new SmallFrameworkSetupException("Load shedding max queue size is less than 1.");
+			if (loadSheddingConfig.getMaxQueueWait() != null && loadSheddingConfig.getMaxQueueWait() < 0)
+				throw new SmallFrameworkSetupException("Load shedding max queue wait is less than 0.");
+			if (loadSheddingConfig.getRetryAfter() < 0)
+				throw new SmallFrameworkSetupException("Load shedding Retry-After is less than 0.");
+			if (loadSheddingConfig.getMaxQueueSize() == null && loadSheddingConfig.getMaxQueueWait() == null)
+				throw new SmallFrameworkSetupException("Load shedding needs a max queue size or a max queue wait.");
+
+			IntSupplier queueSizeSupplier = null;
+			if (threadPool instanceof SmallJettyThreadPool)
+			{
+				SmallJettyThreadPool smallThreadPool = (SmallJettyThreadPool)threadPool;
+				smallThreadPool.setTimeJobs(loadSheddingConfig.getMaxQueueWait() != null);
+				queueSizeSupplier = smallThreadPool::getQueueSize;
+			}
+			else if (threadPool instanceof ExecutorThreadPool)
+			{
+				BlockingQueue<Runnable> executorQueue = threadPoolConfig.getExecutor().getQueue();
+				queueSizeSupplier = executorQueue::size;
+			}
+			
+			// Only the queued thread pool times its jobs, and virtual thread pools have no queue to measure.
+			if (loadSheddingConfig.getMaxQueueWait() != null && !(threadPool instanceof SmallJettyThreadPool))
+				throw new SmallFrameworkSetupException("Load shedding max queue wait needs the queued thread pool engine.");
+			if (loadSheddingConfig.getMaxQueueSize() != null && queueSizeSupplier == null)
+				throw new SmallFrameworkSetupException("Load shedding max queue size cannot be used with the virtual thread pool engine.");
+			
+			// Wraps the context, response cache, and compression handlers, so that requests are shed before any of them do work.
+			// The metrics, statistics, drain, and lazy WebSocket handlers are inserted later, outside of this one, so that shed requests are still counted.
+			server.insertHandler(new LoadSheddingHandler(loadSheddingConfig, queueSizeSupplier));
+		}
+
+		MetricsConfiguration metricsConfig;
+		if ((metricsConfig = config.getMetricsConfiguration()) != null)
+		{
+			if (metricsConfig.getPath() != null && !metricsConfig.getPath().startsWith("/"))
+				throw new SmallFrameworkSetupException("Metrics path must start with \"/\".");
+			if (metricsConfig.getListenerName() != null && !hasConnector(server, metricsConfig.getListenerName()))
+				throw new SmallFrameworkSetupException("Metrics listener \"" + metricsConfig.getListenerName() + "\" does not exist.");
+			if (metricsConfig.getPrefix() == null || !metricsConfig.getPrefix().matches("[a-zA-Z_:][a-zA-Z0-9_:]*"))
+				throw new SmallFrameworkSetupException("Metrics prefix is not a valid metric name: " + metricsConfig.getPrefix());
+			if (metricsConfig.getQuantiles() == null)
+				throw new SmallFrameworkSetupException("Metrics quantiles were not provided.");
+			for (double quantile : metricsConfig.getQuantiles())
+				if (!(quantile >= 0.0 && quantile <= 1.0))
+					throw new SmallFrameworkSetupException("Metrics quantile must be from 0.0 to 1.0: " + quantile);
+			// Outermost, so that latencies include everything, including shed requests.
+			server.insertHandler(new MetricsHandler(metricsConfig, context));
+		}
+
+		ShutdownConfiguration shutdownConfig;
+		if ((shutdownConfig = config.getShutdownConfiguration()) != null)
+		{
+			if (shutdownConfig.getStopTimeout() < 0)
+				throw new SmallFrameworkSetupException("Shutdown stop timeout is less than 0.");
+			if (shutdownConfig.getDrainDelay() < 0)
+				throw new SmallFrameworkSetupException("Shutdown drain delay is less than 0.");
+			server.setStopTimeout(shutdownConfig.getStopTimeout());
+			server.setStopAtShutdown(shutdownConfig.getShutdownHook());
+			// A graceful stop waits on graceful handlers, like StatisticsHandler (and MetricsHandler).
+			if (shutdownConfig.getGraceful() && server.getChildHandlerByClass(StatisticsHandler.class) == null)
+				server.insertHandler(new StatisticsHandler());
+			if (shutdownConfig.getDrainDelay() > 0)
+			{
+				DrainHandler drainHandler = new DrainHandler(shutdownConfig.getDrainDelay());
+				server.insertHandler(drainHandler);
+				server.addLifeCycleListener(drainHandler);
+			}
+		}
+
+		timings.mark("handlers");
+
+		// ===================== Request Log =====================
+
+		RequestLogConfiguration requestLogConfig;
+		if ((requestLogConfig = config.getRequestLogConfiguration()) != null)
+		{
+			if (requestLogConfig.getPath() == null)
+				throw new SmallFrameworkSetupException("Request log was configured without a path.");
+			File requestLogParent = new File(requestLogConfig.getPath()).getAbsoluteFile().getParentFile();
+			if (requestLogParent == null || !requestLogParent.isDirectory())
+				throw new SmallFrameworkSetupException("Request log directory does not exist: " + requestLogParent);
+			try {
+				ZoneId.of(requestLogConfig.getTimeZone());
+			} catch (RuntimeException e) {
+				throw new SmallFrameworkSetupException("Request log time zone is not valid: " + requestLogConfig.getTimeZone());
+			}
+			if (requestLogConfig.getBufferCapacity() < 2 || requestLogConfig.getBufferCapacity() > (1 << 24))
+				throw new SmallFrameworkSetupException("Request log buffer capacity must be from 2 to 16777216.");
+			if (requestLogConfig.getBatchSize() < 1024)
+				throw new SmallFrameworkSetupException("Request log batch size is less than 1024.");
+			if (requestLogConfig.getFlushInterval() < 1)
+				throw new SmallFrameworkSetupException("Request log flush interval is less than 1.");
+			if (requestLogConfig.getOverflowPolicy() == null)
+				throw new SmallFrameworkSetupException("Request log overflow policy was not provided.");
+			if (requestLogConfig.getRotateSize() < 0)
+				throw new SmallFrameworkSetupException("Request log rotate size is less than 0.");
+			if (requestLogConfig.getRotateInterval() < 0)
+				throw new SmallFrameworkSetupException("Request log rotate interval is less than 0.");
+			if (requestLogConfig.getRetainFiles() < 0)
+				throw new SmallFrameworkSetupException("Request log retained files is less than 0.");
+			server.setRequestLog(new AsyncRequestLog(requestLogConfig));
+		}
+
+		timings.mark("requestLog");
+
+		// ================= Overload Protection =================
+
+		ConnectionLimitConfiguration connectionLimitConfig;
+		if ((connectionLimitConfig = config.getConnectionLimitConfiguration()) != null)
+		{
+			if (connectionLimitConfig.getMaxConnections() < 1)
+				throw new SmallFrameworkSetupException("Connection limit max connections is less than 1.");
+			if (connectionLimitConfig.getIdleTimeout() < 0)
+				throw new SmallFrameworkSetupException("Connection limit idle timeout is less than 0.");
+			ConnectionLimit connectionLimit = new SmallJettyConnectionLimit(connectionLimitConfig.getMaxConnections(), server);
+			if (connectionLimitConfig.getIdleTimeout() > 0)
+				connectionLimit.setIdleTimeout(connectionLimitConfig.getIdleTimeout());
+			server.addBean(connectionLimit);
+		}
+		
+		LowResourceConfiguration lowResourceConfig;
+		if ((lowResourceConfig = config.getLowResourceConfiguration()) != null)
+		{
+			if (lowResourceConfig.getPeriod() < 1)
+				throw new SmallFrameworkSetupException("Low resource monitor period is less than 1.");
+			if (lowResourceConfig.getLowThreadsThreshold() < 0)
+				throw new SmallFrameworkSetupException("Low resource monitor low threads threshold is less than 0.");
+			if (lowResourceConfig.getMaxMemory() < 0)
+				throw new SmallFrameworkSetupException("Low resource monitor max memory is less than 0.");
+			if (lowResourceConfig.getLowResourcesIdleTimeout() < 1)
+				throw new SmallFrameworkSetupException("Low resource monitor idle timeout is less than 1.");
+			if (lowResourceConfig.getMaxLowResourcesTime() < 0)
+				throw new SmallFrameworkSetupException("Low resource monitor max low resources time is less than 0.");
+			
+			LowResourceMonitor lowResourceMonitor = new LowResourceMonitor(server);
+			lowResourceMonitor.setPeriod(lowResourceConfig.getPeriod());
+			lowResourceMonitor.setMonitorThreads(lowResourceConfig.getMonitorThreads());
+			lowResourceMonitor.setMaxMemory(lowResourceConfig.getMaxMemory());
+			lowResourceMonitor.setLowResourcesIdleTimeout(lowResourceConfig.getLowResourcesIdleTimeout());
+			lowResourceMonitor.setMaxLowResourcesTime(lowResourceConfig.getMaxLowResourcesTime());
+			lowResourceMonitor.setAcceptingInLowResources(lowResourceConfig.getAcceptingInLowResources());
+			if (lowResourceConfig.getMonitorThreads())
+			{
+				// Listeners can have their own thread pools.
+				Set<Executor> executors = new HashSet<>();
+				executors.add(server.getThreadPool());
+				for (Connector connector : server.getConnectors())
+					executors.add(connector.getExecutor());
+				for (Executor executor : executors)
+					if (executor instanceof QueuedThreadPool)
+						((QueuedThreadPool)executor).setLowThreadsThreshold(lowResourceConfig.getLowThreadsThreshold());
+			}
+			server.addBean(lowResourceMonitor);
+		}
+
+		timings.mark("overloadProtection");
+
+		// ===================== Statistics ======================
+
+		// One per connector, so that each connector's MBean has its own.
+		for (Connector connector : server.getConnectors())
+			if (connector instanceof AbstractConnector)
+				((AbstractConnector)connector).addBean(new ConnectionStatistics());
+		
+		if (config.getRegisterMBeans())
+		{
+			SmallJettyJMX.checkAvailable();
+			SmallJettyJMX.addMBeanContainer(server);
+		}
+
+		timings.mark("statistics");
+
 		// ==================== Websockets =======================
 		
-		if (config.allowWebSockets())
+		if (lazyWebSocketHandler != null)
+			server.insertHandler(lazyWebSocketHandler);
+		else if (config.allowWebSockets())
 			WebSocketServerContainerInitializer.initialize(context);
 
+		timings.mark("webSockets");
+
 		// =======================================================
 
+		server.addBean(timings);
 		server.start();
+		timings.mark("start");
+		
+		if (startupConfig != null && startupConfig.getLogTimings())
+			LOG.info("Small Jetty startup: {}", timings);
 		return server;
 	}
 	
+	/**
+	 * Starts Jetty using the provided configuration, and returns a handle that
+	 * can change some of the server's settings while it is running.
+	 * @param config the configuration to use.
+	 * @return the handle to the server created.
+	 * @throws SmallFrameworkSetupException if Jetty is not available nor on the classpath, or some other error occurs.
+	 * @throws Exception if Jetty could not be started.
+	 * @see #create(SmallJettyConfiguration)
+	 * @since 1.6.0
+	 */
+	public static SmallJettyServer createServer(SmallJettyConfiguration config) throws Exception
+	{
+		return new SmallJettyServer(create(config));
+	}
+	
+	// Creates the SSL context factory from an SSL configuration.
+	private static SslContextFactory createSslContextFactory(SSLConfiguration sslConfig)
+	{
+		SslContextFactory sslContextFactory = new SslContextFactory.Server();
+		sslContextFactory.setKeyStoreType(sslConfig.getKeyStoreType());
+		sslContextFactory.setKeyStorePath(sslConfig.getKeyStorePath());
+		sslContextFactory.setKeyStorePassword(sslConfig.getKeyStorePassword());
+		// No trust store path uses the key store.
+		if (sslConfig.getTrustStorePath() != null && !sslConfig.getTrustStorePath().isEmpty())
+		{
+			sslContextFactory.setTrustStoreType(sslConfig.getTrustStoreType());
+			sslContextFactory.setTrustStorePath(sslConfig.getTrustStorePath());
+			sslContextFactory.setTrustStorePassword(sslConfig.getTrustStorePassword());
+		}
+		
+		if (sslConfig.getProvider() != null)
+		{
+			if (Security.getProvider(sslConfig.getProvider()) == null)
+				throw new SmallFrameworkSetupException("SSL provider \"" + sslConfig.getProvider() + "\" is not registered.");
+			sslContextFactory.setProvider(sslConfig.getProvider());
+		}
+		
+		sslContextFactory.setSslSessionCacheSize(sslConfig.getSessionCacheSize());
+		sslContextFactory.setSslSessionTimeout(sslConfig.getSessionTimeout());
+		sslContextFactory.setUseCipherSuitesOrder(sslConfig.getUseCipherSuitesOrder());
+		if (sslConfig.getIncludedProtocols() != null)
+			sslContextFactory.setIncludeProtocols(sslConfig.getIncludedProtocols());
+		if (sslConfig.getExcludedProtocols() != null)
+			sslContextFactory.setExcludeProtocols(sslConfig.getExcludedProtocols());
+		if (sslConfig.getIncludedCipherSuites() != null)
+			sslContextFactory.setIncludeCipherSuites(sslConfig.getIncludedCipherSuites());
+		if (sslConfig.getExcludedCipherSuites() != null)
+			sslContextFactory.setExcludeCipherSuites(sslConfig.getExcludedCipherSuites());
+		
+		// These are only settable JVM-wide, and are read once when JSSE starts, so they are checked instead of set.
+		// They are SunJSSE properties, which other providers do not read, so they cannot be checked for those.
+		if (sslConfig.getProvider() != null && !DEFAULT_SSL_PROVIDER.equals(sslConfig.getProvider()))
+		{
+			if (sslConfig.getSessionTicketsEnabled() != null || sslConfig.getOCSPStaplingEnabled() != null)
+				throw new SmallFrameworkSetupException("SSL session ticket and OCSP stapling settings only apply to the " + DEFAULT_SSL_PROVIDER + " provider, not \"" + sslConfig.getProvider() + "\". Configure them through the provider instead.");
+		}
+		else
+		{
+			if (sslConfig.getSessionTicketsEnabled() != null)
+			{
+				if (sslConfig.getSessionTicketsEnabled() && getJavaVersion() < 13)
+					throw new SmallFrameworkSetupException("SSL session tickets need Java 13 or higher.");
+				checkTLSProperty("jdk.tls.server.enableSessionTicketExtension", getJavaVersion() >= 13, sslConfig.getSessionTicketsEnabled());
+			}
+			if (sslConfig.getOCSPStaplingEnabled() != null)
+				checkTLSProperty("jdk.tls.server.enableStatusRequestExtension", false, sslConfig.getOCSPStaplingEnabled());
+		}
+		
+		return sslContextFactory;
+	}
+	
+	// Creates the connection factory chain for a connector (secure if an SSL context factory is provided), with PROXY protocol support in front, if configured.
+	private static ConnectionFactory[] createConnectionFactories(HttpConfiguration httpConfig, SslContextFactory sslContextFactory, HTTP2Configuration http2Config, ProxyProtocolConfiguration proxyConfig)
+	{
+		ConnectionFactory[] factories = createConnectionFactories(httpConfig, sslContextFactory, http2Config);
+		if (proxyConfig == null || !proxyConfig.getProxyProtocolEnabled())
+			return factories;
+		
+		ProxyConnectionFactory proxyFactory = new ProxyConnectionFactory(factories[0].getProtocol());
+		proxyFactory.setMaxProxyHeader(proxyConfig.getMaxProxyHeader());
+		ConnectionFactory[] out = new ConnectionFactory[factories.length + 1];
+		out[0] = proxyFactory;
+		System.arraycopy(factories, 0, out, 1, factories.length);
+		return out;
+	}
+	
+	// Creates the connection factory chain for a connector (secure if an SSL context factory is provided).
+	private static ConnectionFactory[] createConnectionFactories(HttpConfiguration httpConfig, SslContextFactory sslContextFactory, HTTP2Configuration http2Config)
+	{
+		if (sslContextFactory != null)
+		{
+			if (http2Config != null && http2Config.getSecureEnabled())
+				return SmallJettyHTTP2.createSecureFactories(http2Config, httpConfig, sslContextFactory);
+			return new ConnectionFactory[]{
+				new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
+				new HttpConnectionFactory(httpConfig)
+			};
+		}
+		else
+		{
+			if (http2Config != null && http2Config.getCleartextEnabled())
+				return SmallJettyHTTP2.createCleartextFactories(http2Config, httpConfig);
+			return new ConnectionFactory[]{
+				new HttpConnectionFactory(httpConfig)
+			};
+		}
+	}
+	
+	// Adds a bound address to a set of them, or returns false if it conflicts with one.
+	// No host binds all interfaces, so it conflicts with every host on the same port. Port 0 picks any free port, so it cannot conflict.
+	private static boolean addAddress(Set<String> addresses, String host, int port)
+	{
+		if (port == 0)
+			return true;
+		
+		String hostName = host != null ? host : "";
+		for (String address : addresses)
+		{
+			int split = address.lastIndexOf(':');
+			String otherHostName = address.substring(0, split);
+			int otherPort = Integer.parseInt(address.substring(split + 1));
+			if (otherPort == port && (otherHostName.isEmpty() || hostName.isEmpty() || otherHostName.equals(hostName)))
+				return false;
+		}
+		return addresses.add(hostName + ":" + port);
+	}
+	
+	// Creates a server connector from a connector configuration. Executor can be null (server thread pool).
+	private static ServerConnector createConnector(Server server, Executor executor, ConnectorConfiguration connectorConfig, ConnectionFactory ... factories)
+	{
+		if (connectorConfig == null)
+			return new SmallJettyServerConnector(server, executor, -1, -1, factories);
+		
+		if (connectorConfig.getAcceptors() == 0 || connectorConfig.getAcceptors() < -1)
+			throw new SmallFrameworkSetupException("Connector acceptor count must be -1 (heuristic) or greater than 0.");
+		if (connectorConfig.getSelectors() == 0 || connectorConfig.getSelectors() < -1)
+			throw new SmallFrameworkSetupException("Connector selector count must be -1 (heuristic) or greater than 0.");
+		if (connectorConfig.getAcceptQueueSize() < 0)
+			throw new SmallFrameworkSetupException("Connector accept queue size is less than 0.");
+		
+		SmallJettyServerConnector connector = new SmallJettyServerConnector(server, executor, connectorConfig.getAcceptors(), connectorConfig.getSelectors(), factories);
+		connector.setAcceptQueueSize(connectorConfig.getAcceptQueueSize());
+		connector.setReuseAddress(connectorConfig.getReuseAddress());
+		connector.setReusePort(connectorConfig.getReusePort());
+		connector.setAcceptedTcpNoDelay(connectorConfig.getTcpNoDelay());
+		connector.setAcceptedReceiveBufferSize(connectorConfig.getReceiveBufferSize());
+		connector.setAcceptedSendBufferSize(connectorConfig.getSendBufferSize());
+		if (connectorConfig.getSoLingerTime() >= 0)
+			setSoLingerTime(connector, connectorConfig.getSoLingerTime());
+		return connector;
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static void setSoLingerTime(ServerConnector connector, int soLingerTime)
+	{
+		connector.setSoLingerTime(soLingerTime);
+	}
+	
+	// Checks if the server has a connector with the provided name.
+	private static boolean hasConnector(Server server, String name)
+	{
+		for (Connector connector : server.getConnectors())
+			if (name.equals(connector.getName()))
+				return true;
+		return false;
+	}
+	
+	// Creates the buffer pool from a buffer pool configuration.
+	private static ByteBufferPool createByteBufferPool(BufferPoolConfiguration bufferPoolConfig)
+	{
+		if (bufferPoolConfig.getType() == null)
+			throw new SmallFrameworkSetupException("Buffer pool type was not provided.");
+		if (bufferPoolConfig.getMaxCapacity() < 1)
+			throw new SmallFrameworkSetupException("Buffer pool max capacity is less than 1.");
+		if (bufferPoolConfig.getMinCapacity() < 0 || bufferPoolConfig.getMinCapacity() > bufferPoolConfig.getMaxCapacity())
+			throw new SmallFrameworkSetupException("Buffer pool min capacity must be between 0 and the max capacity.");
+		if (bufferPoolConfig.getMaxHeapMemory() < -1 || bufferPoolConfig.getMaxDirectMemory() < -1)
+			throw new SmallFrameworkSetupException("Buffer pool max memory must be -1, 0, or greater.");
+		
+		long maxHeapMemory = bufferPoolConfig.getMaxHeapMemory() < 0 ? Runtime.getRuntime().maxMemory() / 4 : bufferPoolConfig.getMaxHeapMemory();
+		long maxDirectMemory = bufferPoolConfig.getMaxDirectMemory() < 0 ? Runtime.getRuntime().maxMemory() / 4 : bufferPoolConfig.getMaxDirectMemory();
+		boolean directBuffers = bufferPoolConfig.getDirectBuffers();
+		
+		switch (bufferPoolConfig.getType())
+		{
+			default:
+			case ARRAY:
+			{
+				if (bufferPoolConfig.getFactor() < 1 || bufferPoolConfig.getMaxCapacity() % bufferPoolConfig.getFactor() != 0)
+					throw new SmallFrameworkSetupException("Buffer pool factor must be greater than 0 and divide the max capacity.");
+				if (directBuffers) return new ArrayByteBufferPool(
+					bufferPoolConfig.getMinCapacity(), 
+					bufferPoolConfig.getFactor(), 
+					bufferPoolConfig.getMaxCapacity(), 
+					bufferPoolConfig.getMaxQueueLength(), 
+					maxHeapMemory, 
+					maxDirectMemory
+				);
+				else return new ArrayByteBufferPool(
+					bufferPoolConfig.getMinCapacity(), 
+					bufferPoolConfig.getFactor(), 
+					bufferPoolConfig.getMaxCapacity(), 
+					bufferPoolConfig.getMaxQueueLength(), 
+					maxHeapMemory, 
+					maxDirectMemory
+				) {
+					@Override
+					public ByteBuffer acquire(int size, boolean direct)
+					{
+						return super.acquire(size, false);
+					}
+				};
+			}
+			case LOGARITHMIC:
+			{
+				return new LogarithmicByteBufferPool(
+					bufferPoolConfig.getMinCapacity(), 
+					bufferPoolConfig.getMaxCapacity(), 
+					bufferPoolConfig.getMaxQueueLength(), 
+					maxHeapMemory, 
+					maxDirectMemory, 
+					directBuffers
+				);
+			}
+		}
+	}
+	
+	// Creates the thread pool from a thread pool configuration.
+	private static ThreadPool createThreadPool(ThreadPoolConfiguration threadPoolConfig)
+	{
+		if (threadPoolConfig.getEngine() == null)
+			throw new SmallFrameworkSetupException("Thread pool engine was not provided.");
+		
+		switch (threadPoolConfig.getEngine())
+		{
+			default:
+			case QUEUED:
+			{
+				checkThreadCounts(threadPoolConfig);
+				BlockingQueue<Runnable> queue = null;
+				if (threadPoolConfig.getMaxQueueSize() != null)
+				{
+					if (threadPoolConfig.getMaxQueueSize() < 1)
+						throw new SmallFrameworkSetupException("Max thread pool queue size is less than 1.");
+					int capacity = threadPoolConfig.getMaxQueueSize();
+					int growBy = Math.min(Math.max(threadPoolConfig.getMinThreads(), 8), capacity);
+					queue = new BlockingArrayQueue<>(growBy, growBy, capacity);
+				}
+				QueuedThreadPool threadPool = new SmallJettyThreadPool(
+					threadPoolConfig.getMaxThreads(),
+					threadPoolConfig.getMinThreads(),
+					threadPoolConfig.getIdleTimeout(),
+					threadPoolConfig.getReservedThreads(),
+					queue
+				);
+				if (threadPoolConfig.getName() != null)
+					threadPool.setName(threadPoolConfig.getName());
+				return threadPool;
+			}
+			
+			case EXECUTOR:
+			{
+				if (threadPoolConfig.getExecutor() == null)
+					throw new SmallFrameworkSetupException("Executor thread pool was configured without an executor.");
+				checkThreadCounts(threadPoolConfig);
+				ExecutorThreadPool threadPool = new ExecutorThreadPool(threadPoolConfig.getExecutor(), threadPoolConfig.getReservedThreads());
+				threadPool.setMinThreads(threadPoolConfig.getMinThreads());
+				threadPool.setMaxThreads(threadPoolConfig.getMaxThreads());
+				threadPool.setIdleTimeout(threadPoolConfig.getIdleTimeout());
+				if (threadPoolConfig.getName() != null)
+					threadPool.setName(threadPoolConfig.getName());
+				return threadPool;
+			}
+			
+			case VIRTUAL:
+			{
+				if (!VirtualThreadPool.isAvailable())
+					throw new SmallFrameworkSetupException("Virtual threads are not available. Java 21 or higher is required.");
+				return new VirtualThreadPool();
+			}
+		}
+	}
+	
+	// Creates a DefaultServlet holder for a static resource mount.
+	private static ServletHolder createStaticResourceHolder(StaticResourceConfiguration staticResourceConfig, int index)
+	{
+		String path = staticResourceConfig.getPath();
+		if (path == null || !path.startsWith("/") || !path.endsWith("/*"))
+			throw new SmallFrameworkSetupException("Static resource path must start with \"/\" and end with \"/*\".");
+		if (staticResourceConfig.getMaxCacheSize() < 0 || staticResourceConfig.getMaxCachedFileSize() < 0 || staticResourceConfig.getMaxCachedFiles() < 0)
+			throw new SmallFrameworkSetupException("Static resource cache sizes for \"" + path + "\" cannot be less than 0.");
+		
+		String resourceBase = staticResourceConfig.getResourceBase();
+		Resource baseResource;
+		if (resourceBase == null)
+		{
+			throw new SmallFrameworkSetupException("Static resource base for \"" + path + "\" was not provided.");
+		}
+		else if (resourceBase.startsWith(StaticResourceConfiguration.CLASSPATH_PREFIX))
+		{
+			String classPath = resourceBase.substring(StaticResourceConfiguration.CLASSPATH_PREFIX.length());
+			if ((baseResource = Resource.newClassPathResource(classPath)) == null)
+				throw new SmallFrameworkSetupException("Static resource base \"" + resourceBase + "\" was not found on the classpath.");
+		}
+		else
+		{
+			File dir = new File(resourceBase);
+			if (!dir.isDirectory())
+				throw new SmallFrameworkSetupException("Static resource base \"" + resourceBase + "\" is not a directory.");
+			baseResource = Resource.newResource(dir);
+		}
+		
+		StringBuilder precompressed = new StringBuilder();
+		if (staticResourceConfig.getPrecompressedEncodings() != null) for (String encoding : staticResourceConfig.getPrecompressedEncodings())
+		{
+			String extension;
+			if (CompressionConfiguration.ENCODING_BROTLI.equals(encoding))
+				extension = ".br";
+			else if (CompressionConfiguration.ENCODING_ZSTD.equals(encoding))
+				extension = ".zst";
+			else if (CompressionConfiguration.ENCODING_GZIP.equals(encoding))
+				extension = ".gz";
+			else
+				throw new SmallFrameworkSetupException("Unsupported precompressed encoding: " + encoding);
+			if (precompressed.length() > 0)
+				precompressed.append(',');
+			precompressed.append(encoding).append('=').append(extension);
+		}
+		
+		ServletHolder holder = new ServletHolder("static-" + index, DefaultServlet.class);
+		holder.setInitOrder(0);
+		holder.setInitParameter("resourceBase", baseResource.toString());
+		holder.setInitParameter("pathInfoOnly", "true");
+		holder.setInitParameter("dirAllowed", "false");
+		holder.setInitParameter("etags", String.valueOf(staticResourceConfig.getETags()));
+		holder.setInitParameter("precompressed", precompressed.length() > 0 ? precompressed.toString() : "false");
+		holder.setInitParameter("useFileMappedBuffer", String.valueOf(staticResourceConfig.getMemoryMapped()));
+		holder.setInitParameter("maxCacheSize", String.valueOf(staticResourceConfig.getMaxCacheSize()));
+		holder.setInitParameter("maxCachedFileSize", String.valueOf(staticResourceConfig.getMaxCachedFileSize()));
+		holder.setInitParameter("maxCachedFiles", String.valueOf(staticResourceConfig.getMaxCachedFiles()));
+		if (staticResourceConfig.getCacheControl() != null)
+			holder.setInitParameter("cacheControl", staticResourceConfig.getCacheControl());
+		return holder;
+	}
+	
+	private static FilterHolder createRateLimitHolder(RateLimitConfiguration rateLimitConfig, int index)
+	{
+		String path = rateLimitConfig.getPath();
+		if (path == null || !(path.startsWith("/") || path.startsWith("*.")))
+			throw new SmallFrameworkSetupException("Rate limit path must start with \"/\" or \"*.\": " + path);
+		if (!(rateLimitConfig.getRate() >= 0.0) || Double.isInfinite(rateLimitConfig.getRate()))
+			throw new SmallFrameworkSetupException("Rate limit rate must be 0 or more.");
+		if (rateLimitConfig.getBurst() < 1)
+			throw new SmallFrameworkSetupException("Rate limit burst is less than 1.");
+		if (rateLimitConfig.getMaxRequests() < 0)
+			throw new SmallFrameworkSetupException("Rate limit max requests is less than 0.");
+		if (rateLimitConfig.getRate() == 0.0 && rateLimitConfig.getMaxRequests() == 0)
+			throw new SmallFrameworkSetupException("Rate limit for \"" + path + "\" has neither a rate nor a max amount of requests.");
+		if (rateLimitConfig.getPriorities() < 1)
+			throw new SmallFrameworkSetupException("Rate limit priorities is less than 1.");
+		if (rateLimitConfig.getDefaultPriority() < 0 || rateLimitConfig.getDefaultPriority() >= rateLimitConfig.getPriorities())
+			throw new SmallFrameworkSetupException("Rate limit default priority must be from 0 to " + (rateLimitConfig.getPriorities() - 1) + ".");
+		if (rateLimitConfig.getMaxWait() < 1)
+			throw new SmallFrameworkSetupException("Rate limit max wait is less than 1.");
+		
+		FilterHolder holder = new FilterHolder(new RateLimitFilter(rateLimitConfig));
+		holder.setName("rateLimit-" + index);
+		holder.setAsyncSupported(true);
+		return holder;
+	}
+
+	// Checks a JVM-wide TLS property against the configured value.
+	private static void checkTLSProperty(String property, boolean defaultValue, boolean expected)
+	{
+		String value = System.getProperty(property);
+		boolean actual = value != null ? Boolean.parseBoolean(value) : defaultValue;
+		if (actual != expected)
+		{
+			throw new SmallFrameworkSetupException("SSL config needs the JVM property \"" + property + "\" to be " + expected 
+				+ ", but it is " + (value != null ? value : "not set (" + defaultValue + ")") + ". Start the JVM with -D" + property + "=" + expected + ".");
+		}
+	}
+	
+	private static int getJavaVersion()
+	{
+		String version = System.getProperty("java.specification.version");
+		try {
+			return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+		} catch (NumberFormatException e) {
+			return 8;
+		}
+	}
+	
+	private static void checkThreadCounts(ThreadPoolConfiguration threadPoolConfig)
+	{
+		if (threadPoolConfig.getMaxThreads() < 1)
+			throw new SmallFrameworkSetupException("Max threads is less than 1.");
+		if (threadPoolConfig.getMinThreads() < 0)
+			throw new SmallFrameworkSetupException("Min threads is less than 0.");
+		if (threadPoolConfig.getMinThreads() > threadPoolConfig.getMaxThreads())
+			throw new SmallFrameworkSetupException("Min threads is greater than max threads.");
+	}
+	
+	private static void checkCompressionLevel(String encoding, GZipConfiguration encodingConfig, int minLevel, int maxLevel)
+	{
+		if (encodingConfig.getBufferSize() <= 0)
+			throw new SmallFrameworkSetupException("Buffer size for \"" + encoding + "\" must be greater than 0.");
+		if (encodingConfig.getCompressionLevel() < minLevel || encodingConfig.getCompressionLevel() > maxLevel)
+			throw new SmallFrameworkSetupException("Compression level for \"" + encoding + "\" must be from " + minLevel + " to " + maxLevel + ".");
+	}
+	
 }
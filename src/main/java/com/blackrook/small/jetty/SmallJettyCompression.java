@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+import com.blackrook.small.jetty.SmallJettyConfiguration.CompressionConfiguration;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.github.luben.zstd.util.Native;
+
+/**
+ * Creates the compressing streams for content encodings that Jetty does not provide.
+ * All Brotli and Zstandard classes are referenced here so that they are only needed on the classpath if they are used.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class SmallJettyCompression
+{
+	private SmallJettyCompression() {}
+
+	/**
+	 * Checks if an encoding's classes and native libraries are available.
+	 * @param encoding the content encoding name.
+	 * @throws SmallFrameworkSetupException if the encoding is not available.
+	 */
+	static void checkAvailable(String encoding)
+	{
+		if (CompressionConfiguration.ENCODING_BROTLI.equals(encoding))
+		{
+			try {
+				Class.forName("com.aayushatharva.brotli4j.Brotli4jLoader");
+			} catch (ClassNotFoundException e) {
+				throw new SmallFrameworkSetupException("Brotli is not available. Cannot find Brotli4j classes.");
+			}
+			if (!Brotli4jLoader.isAvailable())
+				throw new SmallFrameworkSetupException("Brotli is not available. Could not load native library.", Brotli4jLoader.getUnavailabilityCause());
+		}
+		else if (CompressionConfiguration.ENCODING_ZSTD.equals(encoding))
+		{
+			try {
+				Class.forName("com.github.luben.zstd.ZstdOutputStream");
+			} catch (ClassNotFoundException e) {
+				throw new SmallFrameworkSetupException("Zstandard is not available. Cannot find zstd-jni classes.");
+			}
+			try {
+				Native.load();
+			} catch (LinkageError e) {
+				throw new SmallFrameworkSetupException("Zstandard is not available. Could not load native library.", e);
+			}
+		}
+		else
+		{
+			throw new SmallFrameworkSetupException("Unsupported content encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * Creates a new compressing stream.
+	 * @param encoding the content encoding name.
+	 * @param out the stream to write compressed data to.
+	 * @param level the compression level.
+	 * @param bufferSize the stream buffer size, if applicable.
+	 * @return the new stream. Closing it finishes the compressed data.
+	 * @throws IOException if the stream could not be created.
+	 */
+	static OutputStream createOutputStream(String encoding, OutputStream out, int level, int bufferSize) throws IOException
+	{
+		if (CompressionConfiguration.ENCODING_BROTLI.equals(encoding))
+			return new BrotliOutputStream(out, new Encoder.Parameters().setQuality(level), bufferSize);
+		else if (CompressionConfiguration.ENCODING_ZSTD.equals(encoding))
+			return new ZstdOutputStream(out, level);
+		else
+			throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+	}
+
+}
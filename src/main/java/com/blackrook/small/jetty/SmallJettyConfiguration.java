@@ -7,6 +7,8 @@
  ******************************************************************************/
 package com.blackrook.small.jetty;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.eclipse.jetty.servlet.ServletContextHandler;
 
 import com.blackrook.small.SmallConfiguration;
@@ -52,6 +54,125 @@ public interface SmallJettyConfiguration extends SmallConfiguration
 		 */
 		String getTrustStorePassword();
 		
+		/**
+		 * The provider must already be registered with the JVM (see {@link java.security.Security#addProvider(java.security.Provider)}).
+		 * {@link #getSessionTicketsEnabled()} and {@link #getOCSPStaplingEnabled()} must be null for any provider but "SunJSSE".
+		 * @return the name of the JSSE provider to use (for example, "Conscrypt"), or null for the JVM default.
+		 * @since 1.6.0
+		 */
+		default String getProvider()
+		{
+			return null;
+		}
+
+		/**
+		 * @return the maximum amount of cached SSL sessions for resumption, or -1 for the JVM default.
+		 * @since 1.6.0
+		 */
+		default int getSessionCacheSize()
+		{
+			return -1;
+		}
+
+		/**
+		 * @return the amount of time in seconds that a cached SSL session is valid for resumption, or -1 for the JVM default.
+		 * @since 1.6.0
+		 */
+		default int getSessionTimeout()
+		{
+			return -1;
+		}
+
+		/**
+		 * This is controlled by the JVM-wide <code>jdk.tls.server.enableSessionTicketExtension</code> property (Java 13 or higher, default true), 
+		 * which the operator must set on the command line (for example, <code>-Djdk.tls.server.enableSessionTicketExtension=false</code>).
+		 * The bootstrap does not change it - it fails setup if the JVM's setting does not match this value.
+		 * This is a SunJSSE property: setup also fails if this is not null and {@link #getProvider()} names another provider.
+		 * @return true to require stateless session tickets, false to require them disabled, or null to accept the JVM setting.
+		 * @since 1.6.0
+		 */
+		default Boolean getSessionTicketsEnabled()
+		{
+			return null;
+		}
+
+		/**
+		 * This is controlled by the JVM-wide <code>jdk.tls.server.enableStatusRequestExtension</code> property (default false), 
+		 * which the operator must set on the command line (for example, <code>-Djdk.tls.server.enableStatusRequestExtension=true</code>).
+		 * The bootstrap does not change it - it fails setup if the JVM's setting does not match this value.
+		 * This is a SunJSSE property: setup also fails if this is not null and {@link #getProvider()} names another provider.
+		 * @return true to require OCSP stapling, false to require it disabled, or null to accept the JVM setting.
+		 * @since 1.6.0
+		 */
+		default Boolean getOCSPStaplingEnabled()
+		{
+			return null;
+		}
+
+		/**
+		 * @return the list of included protocols (for example, "TLSv1.3"), or null for the defaults.
+		 * @since 1.6.0
+		 */
+		default String[] getIncludedProtocols()
+		{
+			return null;
+		}
+
+		/**
+		 * @return the list of excluded protocols, or null for the defaults.
+		 * @since 1.6.0
+		 */
+		default String[] getExcludedProtocols()
+		{
+			return null;
+		}
+
+		/**
+		 * @return the list of included cipher suites (may be regular expressions), or null for the defaults.
+		 * @since 1.6.0
+		 */
+		default String[] getIncludedCipherSuites()
+		{
+			return null;
+		}
+
+		/**
+		 * @return the list of excluded cipher suites (may be regular expressions), or null for the defaults.
+		 * @since 1.6.0
+		 */
+		default String[] getExcludedCipherSuites()
+		{
+			return null;
+		}
+
+		/**
+		 * @return true if the server's cipher suite order is preferred over the client's, false if not.
+		 * @since 1.6.0
+		 */
+		default boolean getUseCipherSuitesOrder()
+		{
+			return true;
+		}
+		
+		/**
+		 * The key store and trust store paths must be files for this to work.
+		 * @return true if the key store and trust store files are watched for changes and reloaded without a restart, false if not.
+		 * @since 1.6.0
+		 */
+		default boolean getWatchKeyStore()
+		{
+			return false;
+		}
+		
+		/**
+		 * @return the amount of time in milliseconds to wait after the last file change before reloading.
+		 * @since 1.6.0
+		 */
+		default int getWatchDelay()
+		{
+			return 1000;
+		}
+		
 	}
 	
 	/**
@@ -61,15 +182,72 @@ public interface SmallJettyConfiguration extends SmallConfiguration
 	interface GZipConfiguration
 	{
 		/**
-		 * @return the GZip buffer size in bytes.
+		 * Compression level profiles.
+		 * @since 1.6.0
+		 */
+		enum Profile
+		{
+			/** Fastest compression, larger output (level 1). */
+			SPEED(1),
+			/** Balanced compression (level 6, the zlib default). */
+			BALANCED(6),
+			/** Smallest output, most CPU per response (level 9). */
+			SIZE(9);
+			
+			private final int level;
+			
+			private Profile(int level)
+			{
+				this.level = level;
+			}
+			
+			/**
+			 * @return the Deflater compression level for this profile.
+			 */
+			public int getLevel()
+			{
+				return level;
+			}
+		}
+		
+		/**
+		 * @return the GZip output buffer size in bytes, used for compressing responses.
 		 */
 		int getBufferSize();
 
 		/**
-		 * @return the GZip compression level.
+		 * Unless implemented, this is {@link #getBufferSize()}, as it was before 1.6.0.
+		 * @return the buffer size in bytes for inflating GZipped request bodies, or 0 or less to not inflate requests.
+		 * @since 1.6.0
+		 */
+		default int getInflateBufferSize()
+		{
+			return getBufferSize();
+		}
+
+		/**
+		 * @return the GZip compression level, from 0 (none) to 9 (best), or -1 for the Deflater default.
 		 */
 		int getCompressionLevel();
 
+		/**
+		 * @return the maximum amount of pooled Deflaters, 0 for no pooling, or -1 for unbounded.
+		 * @since 1.6.0
+		 */
+		default int getDeflaterPoolCapacity()
+		{
+			return -1;
+		}
+
+		/**
+		 * @return true if each compressed write is flushed to the client (SYNC_FLUSH), false to let the Deflater buffer output (NO_FLUSH).
+		 * @since 1.6.0
+		 */
+		default boolean getSyncFlush()
+		{
+			return false;
+		}
+
 		/**
 		 * @return the minimum size in bytes that a response needs to be before compression is considered.
 		 */
@@ -117,68 +295,1052 @@ public interface SmallJettyConfiguration extends SmallConfiguration
 	}
 	
 	/**
-	 * @return the maximum amount of connector threads.
+	 * Configuration for response compression with more than one content encoding.
+	 * The encoding used for each response is negotiated from the request's <code>Accept-Encoding</code> header
+	 * and its quality values - ties go to the earliest encoding in {@link #getPreferredEncodings()}.
+	 * <p>Each encoding reuses {@link GZipConfiguration} for its settings. For Brotli and Zstandard, 
+	 * the inflate buffer size and Deflater pool capacity are not used, and the compression level
+	 * is the Brotli quality (0 to 11) or the Zstandard level (up to 22).
+	 * <p>Brotli requires <code>com.aayushatharva.brotli4j</code> and its native library on the classpath,
+	 * and Zstandard requires <code>com.github.luben:zstd-jni</code>.
+	 * @since 1.6.0
 	 */
-	int getMaxThreads();
+	interface CompressionConfiguration
+	{
+		/** Brotli content encoding name. */
+		String ENCODING_BROTLI = "br";
+		/** Zstandard content encoding name. */
+		String ENCODING_ZSTD = "zstd";
+		/** GZip content encoding name. */
+		String ENCODING_GZIP = "gzip";
+		
+		/**
+		 * @return the content encodings in order of server preference, used to break quality ties.
+		 */
+		String[] getPreferredEncodings();
 
-	/**
-	 * @return the amount of time in milliseconds before an open HTTP connection times out.
-	 */
-	int getIdleConnectionTimeout();
+		/**
+		 * @return the Brotli ("br") settings, or null to not use Brotli.
+		 */
+		GZipConfiguration getBrotliConfiguration();
+
+		/**
+		 * @return the Zstandard ("zstd") settings, or null to not use Zstandard.
+		 */
+		GZipConfiguration getZstdConfiguration();
+
+		/**
+		 * @return the GZip settings, or null to not use GZip.
+		 */
+		GZipConfiguration getGZipConfiguration();
+	}
 	
 	/**
-	 * @return the header cache size in bytes.
+	 * Configuration for the server's thread pool.
+	 * @since 1.6.0
 	 */
-	int getHeaderCacheSize();
+	interface ThreadPoolConfiguration
+	{
+		/**
+		 * Thread pool engine types.
+		 */
+		enum Engine
+		{
+			/** Jetty's QueuedThreadPool. */
+			QUEUED,
+			/** Jetty's ExecutorThreadPool, wrapping a provided executor. */
+			EXECUTOR,
+			/** A new virtual thread per task (requires Java 21 or higher). */
+			VIRTUAL;
+		}
+		
+		/**
+		 * @return the thread pool engine to use.
+		 */
+		Engine getEngine();
+		
+		/**
+		 * @return the thread pool name (thread name prefix), or null for the default.
+		 */
+		String getName();
 
-	/**
-	 * @return the output buffer cache size in bytes.
-	 */
-	int getOutputBufferSize();
+		/**
+		 * @return the minimum amount of threads to keep alive. Ignored for {@link Engine#VIRTUAL}.
+		 */
+		int getMinThreads();
 
-	/**
-	 * @return the request header cache size in bytes.
-	 */
-	int getRequestHeaderSize();
+		/**
+		 * @return the maximum amount of threads. Ignored for {@link Engine#VIRTUAL}.
+		 */
+		int getMaxThreads();
+
+		/**
+		 * @return the amount of time in milliseconds before an idle thread is stopped. Ignored for {@link Engine#VIRTUAL}.
+		 */
+		int getIdleTimeout();
+
+		/**
+		 * @return the amount of reserved threads, or -1 for a heuristic based on the amount of max threads. Ignored for {@link Engine#VIRTUAL}.
+		 */
+		int getReservedThreads();
+
+		/**
+		 * @return the maximum amount of jobs that can be queued, or null for an unbounded queue. Only used by {@link Engine#QUEUED}.
+		 */
+		Integer getMaxQueueSize();
 
+		/**
+		 * @return the executor to wrap. Only used by {@link Engine#EXECUTOR}.
+		 */
+		ThreadPoolExecutor getExecutor();
+	}
+	
 	/**
-	 * @return the response header cache size in bytes.
+	 * Configuration for the ByteBuffer pool shared by all of the server's connectors.
+	 * @since 1.6.0
 	 */
-	int getResponseHeaderSize();
+	interface BufferPoolConfiguration
+	{
+		/**
+		 * Buffer pool types.
+		 */
+		enum Type
+		{
+			/** Jetty's ArrayByteBufferPool, with a bucket for each multiple of {@link BufferPoolConfiguration#getFactor()}. */
+			ARRAY,
+			/** A {@link LogarithmicByteBufferPool}, with a bucket for each power of two. */
+			LOGARITHMIC;
+		}
+		
+		/**
+		 * @return the pool type.
+		 */
+		Type getType();
+
+		/**
+		 * @return the smallest pooled buffer capacity in bytes. Rounded up to a power of two for {@link Type#LOGARITHMIC}.
+		 */
+		int getMinCapacity();
+
+		/**
+		 * Buffers larger than this are allocated on each use, so this should be at least the largest output buffer size.
+		 * @return the largest pooled buffer capacity in bytes. Rounded up to a power of two for {@link Type#LOGARITHMIC}.
+		 */
+		int getMaxCapacity();
+
+		/**
+		 * @return the capacity step between buckets in bytes. Must divide {@link #getMaxCapacity()}. Only used by {@link Type#ARRAY}.
+		 */
+		int getFactor();
+
+		/**
+		 * @return the maximum amount of buffers kept per bucket, or -1 for no limit.
+		 */
+		int getMaxQueueLength();
+
+		/**
+		 * @return the maximum amount of heap buffer memory kept by the pool in bytes, 0 for no limit, 
+		 * or -1 for a quarter of the JVM's max heap size.
+		 */
+		long getMaxHeapMemory();
+
+		/**
+		 * @return the maximum amount of direct buffer memory kept by the pool in bytes, 0 for no limit, 
+		 * or -1 for a quarter of the JVM's max heap size.
+		 */
+		long getMaxDirectMemory();
+
+		/**
+		 * @return true to use direct buffers where Jetty asks for them (response buffers on socket connections), 
+		 * false to use heap buffers for everything.
+		 */
+		boolean getDirectBuffers();
+	}
 	
 	/**
-	 * @return true if the server version should be sent in headers/default pages, false if not.
+	 * Configuration for shedding load when the server's thread pool is overloaded.
+	 * Shed requests are answered with a 503 (Service Unavailable) and a <code>Retry-After</code> header
+	 * before they reach the servlet.
+	 * @since 1.6.0
 	 */
-	boolean getSendServerVersion();
+	interface LoadSheddingConfiguration
+	{
+		/**
+		 * Only applies to queued and executor thread pools (virtual thread pools do not queue) - setting 
+		 * this with a virtual thread pool is a setup error.
+		 * @return the thread pool job queue capacity at or above which new requests are shed, or null for no limit.
+		 */
+		Integer getMaxQueueSize();
+
+		/**
+		 * Only applies to queued thread pools, which time their jobs - setting this with any other
+		 * thread pool is a setup error.
+		 * @return the maximum amount of time in milliseconds that a request's job can wait in the thread pool's queue before it is shed, or null for no limit.
+		 */
+		Integer getMaxQueueWait();
+
+		/**
+		 * @return the amount of seconds to send in the <code>Retry-After</code> header of shed requests.
+		 */
+		int getRetryAfter();
+	}
 	
 	/**
-	 * @return true if the server date should be sent in headers/default pages, false if not.
+	 * Configuration for server connectors and their sockets.
+	 * @since 1.6.0
 	 */
-	boolean getSendDateHeader();
+	interface ConnectorConfiguration
+	{
+		/**
+		 * @return the amount of acceptor threads per connector, or -1 for a heuristic based on the amount of cores.
+		 */
+		int getAcceptors();
+
+		/**
+		 * @return the amount of selectors per connector, or -1 for a heuristic based on the amount of cores.
+		 */
+		int getSelectors();
+
+		/**
+		 * @return the accept queue size (backlog) of the server socket, or 0 for the platform default.
+		 */
+		int getAcceptQueueSize();
+
+		/**
+		 * @return true if the server socket is bound with <code>SO_REUSEADDR</code>, false if not.
+		 */
+		boolean getReuseAddress();
 
+		/**
+		 * Requires Java 9 or higher and platform support.
+		 * @return true if the server socket is bound with <code>SO_REUSEPORT</code>, false if not.
+		 */
+		boolean getReusePort();
+
+		/**
+		 * Linger time has undefined behavior on non-blocking sockets on some platforms, so use with care.
+		 * @return the <code>SO_LINGER</code> time in seconds of accepted sockets, or -1 for no linger.
+		 */
+		int getSoLingerTime();
+
+		/**
+		 * @return true if accepted sockets set <code>TCP_NODELAY</code>, false if not.
+		 */
+		boolean getTcpNoDelay();
+
+		/**
+		 * @return the <code>SO_RCVBUF</code> size in bytes of accepted sockets, or -1 for the platform default.
+		 */
+		int getReceiveBufferSize();
+
+		/**
+		 * @return the <code>SO_SNDBUF</code> size in bytes of accepted sockets, or -1 for the platform default.
+		 */
+		int getSendBufferSize();
+	}
+	
 	/**
-	 * @return true if the server name should be sent in headers/default pages, false if not.
+	 * Configuration for HTTP/2.
+	 * Requires the Jetty HTTP/2 server libraries, and the Jetty ALPN server libraries for secure connections.
+	 * @since 1.6.0
 	 */
-	boolean getSendXPoweredBy();
+	interface HTTP2Configuration
+	{
+		/**
+		 * Requires a secure port and SSL configuration that prefers the server's cipher suite order
+		 * (see {@link SSLConfiguration#getUseCipherSuitesOrder()}), so that ciphers that h2 allows are picked first.
+		 * @return true if h2 is negotiated via ALPN on the secure port, false if not.
+		 */
+		boolean getSecureEnabled();
+
+		/**
+		 * @return true if h2c (cleartext, via upgrade or prior knowledge) is accepted on the server port, false if not.
+		 */
+		boolean getCleartextEnabled();
+
+		/**
+		 * @return the maximum amount of concurrent streams per connection.
+		 */
+		int getMaxConcurrentStreams();
+
+		/**
+		 * @return the initial flow-control window size in bytes of each stream.
+		 */
+		int getInitialStreamRecvWindow();
+
+		/**
+		 * @return the initial flow-control window size in bytes of each session (connection).
+		 */
+		int getInitialSessionRecvWindow();
+
+		/**
+		 * @return the maximum decoded header list size in bytes, or -1 to use the request header size.
+		 */
+		int getMaxHeaderListSize();
 
+		/**
+		 * @return the maximum HPACK dynamic table size in bytes.
+		 */
+		int getMaxDynamicTableSize();
+	}
+	
 	/**
-	 * @return the Jetty options to pass to the servlet context handler.
-	 * @see ServletContextHandler#SESSIONS
-	 * @see ServletContextHandler#SECURITY
-	 * @see ServletContextHandler#GZIP
-	 * @since 1.5.3
+	 * Configuration for an additional named listener (connector) that the server listens on,
+	 * alongside the server port and secure server port.
+	 * Settings left as null use the server-wide value.
+	 * @since 1.6.0
 	 */
-	int getServletContextOptions();
+	interface ListenerConfiguration
+	{
+		/**
+		 * @return the listener name. Must be unique.
+		 */
+		String getName();
+
+		/**
+		 * @return the host address to bind to, or null for all interfaces.
+		 */
+		String getHost();
+
+		/**
+		 * @return the port to listen on.
+		 */
+		int getPort();
+
+		/**
+		 * @return true if this listener uses the server's SSL configuration, false if not.
+		 */
+		boolean getSecure();
+
+		/**
+		 * @return the amount of time in milliseconds before an open HTTP connection times out, or null for the server-wide value.
+		 */
+		Integer getIdleTimeout();
+
+		/**
+		 * Acceptor and selector threads also come from this budget.
+		 * @return the maximum amount of threads in a thread pool dedicated to this listener, or null to share the server's thread pool.
+		 */
+		Integer getMaxThreads();
 
+		/**
+		 * @return the header cache size in bytes, or null for the server-wide value.
+		 */
+		Integer getHeaderCacheSize();
+
+		/**
+		 * @return the output buffer cache size in bytes, or null for the server-wide value.
+		 */
+		Integer getOutputBufferSize();
+
+		/**
+		 * @return the request header cache size in bytes, or null for the server-wide value.
+		 */
+		Integer getRequestHeaderSize();
+
+		/**
+		 * @return the response header cache size in bytes, or null for the server-wide value.
+		 */
+		Integer getResponseHeaderSize();
+	}
+	
 	/**
-	 * @return the SSL configuration to use for SSL, or null for no secure socket setup. 
+	 * Configuration for a Unix domain socket listener, for traffic from local reverse proxies or sidecars.
+	 * Requires the Jetty Unix socket library and JNR Unix socket libraries.
+	 * @since 1.6.0
 	 */
-	SSLConfiguration getSSLConfiguration();
+	interface UnixSocketConfiguration
+	{
+		/**
+		 * @return the path to the socket file.
+		 */
+		String getPath();
+
+		/**
+		 * The permissions are set right after the socket is bound, so until then, the socket file has the permissions
+		 * given by the process umask. Put the socket in a directory that only permitted users can reach if that matters.
+		 * @return the POSIX permissions to set on the socket file (for example, <code>"rw-rw----"</code>), or null to leave them as created.
+		 */
+		String getPermissions();
+
+		/**
+		 * Secure server port and listeners are unaffected.
+		 * @return true if the Unix socket replaces the server port connector, false if it runs alongside it.
+		 */
+		boolean getReplaceServerPort();
+	}
 	
 	/**
-	 * @return the GZip configuration to use, or null for no compression scheme.
-	 * @since 1.5.3
+	 * Configuration for running behind load balancers and proxies.
+	 * @since 1.6.0
 	 */
-	GZipConfiguration getGZipCompression();
+	interface ProxyProtocolConfiguration
+	{
+		/**
+		 * If enabled, this applies to all connectors, and connections <em>must</em> start with a PROXY header.
+		 * @return true if connectors accept the PROXY protocol (v1 or v2) from an L4 load balancer, false if not.
+		 */
+		boolean getProxyProtocolEnabled();
+
+		/**
+		 * @return the maximum PROXY protocol header size in bytes.
+		 */
+		int getMaxProxyHeader();
+
+		/**
+		 * @return true if client information is taken from <code>Forwarded</code>/<code>X-Forwarded-*</code> headers from an L7 proxy, false if not.
+		 */
+		boolean getForwardedHeadersEnabled();
+
+		/**
+		 * @return true if only the RFC 7239 <code>Forwarded</code> header is used, and not the <code>X-Forwarded-*</code> headers.
+		 */
+		boolean getForwardedOnly();
+	}
+	
+	/**
+	 * Configuration for caching whole responses in memory, in front of the servlet context.
+	 * Only GET responses with a cacheable status and freshness information (<code>Cache-Control: max-age</code>, 
+	 * <code>s-maxage</code>, <code>Expires</code>, or the default time-to-live) are cached, and <code>Vary</code>
+	 * request headers are part of the cache key. Requests with a <code>Cookie</code> header only use the cache for
+	 * responses marked <code>Cache-Control: public</code> or <code>s-maxage</code>.
+	 * @since 1.6.0
+	 */
+	interface ResponseCacheConfiguration
+	{
+		/**
+		 * Cache eviction policies.
+		 */
+		enum Eviction
+		{
+			/** Least recently used entries are evicted first. */
+			LRU,
+			/** LRU eviction, but a new entry is only admitted if it is used more often than the entry it would evict (TinyLFU). */
+			TINY_LFU;
+		}
+		
+		/**
+		 * @return the eviction policy.
+		 */
+		Eviction getEviction();
+
+		/**
+		 * @return the maximum total size of cached responses, in bytes.
+		 */
+		long getMaxSize();
+
+		/**
+		 * @return the maximum size of a single cached response body, in bytes.
+		 */
+		int getMaxEntrySize();
+
+		/**
+		 * @return the time-to-live in milliseconds for responses without freshness information, or 0 to not cache them.
+		 */
+		int getDefaultTimeToLive();
+
+		/**
+		 * @return true if concurrent requests for the same uncached response wait for the first one instead of all running.
+		 */
+		boolean getCoalesceRequests();
+
+		/**
+		 * @return the maximum amount of time in milliseconds that a coalesced request is suspended waiting for the first one before running anyway, or 0 to not coalesce.
+		 */
+		int getCoalesceTimeout();
+
+		/**
+		 * @return the request URI path patterns to cache (including the context path), or null for all.
+		 */
+		String[] getIncludedPaths();
+
+		/**
+		 * @return the request URI path patterns to not cache (including the context path), or null for none.
+		 */
+		String[] getExcludedPaths();
+	}
+	
+	/**
+	 * Configuration for request metrics: Jetty's request statistics, plus latency histograms
+	 * per servlet path and response status class, optionally served in Prometheus text format.
+	 * @since 1.6.0
+	 */
+	interface MetricsConfiguration
+	{
+		/**
+		 * @return the request path (including the context path) to serve metrics on in Prometheus text format, or null for no endpoint.
+		 */
+		String getPath();
+
+		/**
+		 * @return the name of the listener (see {@link ListenerConfiguration}) to serve the metrics endpoint on, or null for all listeners.
+		 */
+		String getListenerName();
+
+		/**
+		 * @return the prefix for all metric names.
+		 */
+		String getPrefix();
+
+		/**
+		 * @return the latency quantiles to report, each from 0.0 to 1.0.
+		 */
+		double[] getQuantiles();
+
+		/**
+		 * @return true to record latencies per servlet path and status class, false to record them per status class only.
+		 */
+		boolean getRecordPaths();
+	}
+	
+	/**
+	 * Configuration for an access log in NCSA format that is written by a background thread.
+	 * Request threads format each entry and hand it to a bounded ring buffer, and the writer thread
+	 * writes entries to the log file in batches.
+	 * @since 1.6.0
+	 */
+	interface RequestLogConfiguration
+	{
+		/**
+		 * What to do with a log entry if the ring buffer is full.
+		 */
+		enum OverflowPolicy
+		{
+			/** The entry is dropped (and counted), so that the request thread never waits. */
+			DROP,
+			/** The request thread waits until the writer thread has made room for the entry. */
+			BLOCK;
+		}
+		
+		/**
+		 * @return the path to the log file. Rotated files are written next to it.
+		 */
+		String getPath();
+
+		/**
+		 * @return true to log in NCSA combined format (with the referrer and user agent), false for common format.
+		 */
+		boolean getExtended();
+
+		/**
+		 * @return true to add the request latency in milliseconds to the end of each entry, false to not.
+		 */
+		boolean getLogLatency();
+
+		/**
+		 * @return the time zone ID for entry timestamps and rotated file names.
+		 */
+		String getTimeZone();
+
+		/**
+		 * @return the amount of entries that the ring buffer holds. Rounded up to a power of two.
+		 */
+		int getBufferCapacity();
+
+		/**
+		 * @return the size in bytes of the writer thread's batch buffer. Each batch is written to the file in one write.
+		 */
+		int getBatchSize();
+
+		/**
+		 * @return the maximum amount of time in milliseconds that an entry waits in the ring buffer before being written,
+		 * unless the ring buffer fills up first.
+		 */
+		int getFlushInterval();
+
+		/**
+		 * @return the policy for when the ring buffer is full.
+		 */
+		OverflowPolicy getOverflowPolicy();
+
+		/**
+		 * @return the file size in bytes after which the log file is rotated, or 0 to not rotate by size.
+		 */
+		long getRotateSize();
+
+		/**
+		 * @return the amount of time in milliseconds after which the log file is rotated, or 0 to not rotate by time.
+		 * Rotations are aligned to multiples of this interval since the epoch (an interval of a day rotates at midnight UTC).
+		 */
+		long getRotateInterval();
+
+		/**
+		 * @return the amount of rotated files to keep (older files are deleted), or 0 to keep all of them.
+		 */
+		int getRetainFiles();
+	}
+	
+	/**
+	 * Configuration for limiting the amount of open connections across all connectors.
+	 * When the limit is reached, connectors stop accepting connections until some are closed.
+	 * @since 1.6.0
+	 */
+	interface ConnectionLimitConfiguration
+	{
+		/**
+		 * @return the maximum amount of open connections across all connectors.
+		 */
+		int getMaxConnections();
+
+		/**
+		 * @return the idle timeout in milliseconds to apply to open connections while the limit is reached, or 0 to not change it.
+		 */
+		int getIdleTimeout();
+	}
+	
+	/**
+	 * Configuration for Jetty's low resource monitor, which periodically checks if the server is low on threads or memory.
+	 * While the server is low on resources, open connections get a shorter idle timeout 
+	 * (so that idle keep-alive connections are closed), and the server recovers on its own once the checks pass again.
+	 * @since 1.6.0
+	 */
+	interface LowResourceConfiguration
+	{
+		/**
+		 * @return the amount of time in milliseconds between checks.
+		 */
+		int getPeriod();
+
+		/**
+		 * @return true to check if the thread pools are low on threads, false to not.
+		 */
+		boolean getMonitorThreads();
+
+		/**
+		 * @return the amount of available threads (idle threads plus threads that can still be started, 
+		 * minus queued jobs) at or below which a queued thread pool is low on threads.
+		 */
+		int getLowThreadsThreshold();
+
+		/**
+		 * @return the amount of used memory in bytes above which the server is low on resources, or 0 to not check memory.
+		 */
+		long getMaxMemory();
+
+		/**
+		 * @return the idle timeout in milliseconds applied to open connections when the server becomes low on resources.
+		 */
+		int getLowResourcesIdleTimeout();
+
+		/**
+		 * @return the amount of time in milliseconds that the server can be low on resources before the low resources 
+		 * idle timeout is also applied to connections opened since it became low (and then again on every check), or 0 for no limit.
+		 */
+		int getMaxLowResourcesTime();
+
+		/**
+		 * @return true to keep accepting new connections while the server is low on resources, false to stop accepting.
+		 */
+		boolean getAcceptingInLowResources();
+	}
+	
+	/**
+	 * Configuration for rate limiting and prioritizing requests on a servlet path, with a filter in front of the servlets.
+	 * If more than one configuration matches a request, all of them apply.
+	 * @since 1.6.0
+	 */
+	interface RateLimitConfiguration
+	{
+		/**
+		 * @return the servlet path pattern to apply the limits to, like <code>"/*"</code> or <code>"/api/*"</code>.
+		 */
+		String getPath();
+
+		/**
+		 * @return the request header that identifies a client for rate limiting (like an API key header), 
+		 * or null to use the client address. Requests without the header use the client address.
+		 */
+		String getKeyHeader();
+
+		/**
+		 * @return the amount of requests per second that each client can make, or 0 for no rate limiting.
+		 */
+		double getRate();
+
+		/**
+		 * @return the amount of requests that each client can make at once before the rate applies (the token bucket size).
+		 */
+		int getBurst();
+
+		/**
+		 * @return the maximum amount of requests that can run at the same time, or 0 for no limit. 
+		 * Requests over this limit are suspended until they can run, or until the maximum wait time passes.
+		 */
+		int getMaxRequests();
+
+		/**
+		 * @return the amount of priority lanes for suspended requests. Higher lanes are resumed first.
+		 */
+		int getPriorities();
+
+		/**
+		 * @return the request header that contains a request's priority lane (from 0 to priorities - 1), or null for all requests to use the default priority.
+		 */
+		String getPriorityHeader();
+
+		/**
+		 * @return the priority lane for requests without a valid priority header.
+		 */
+		int getDefaultPriority();
+
+		/**
+		 * @return the maximum amount of time in milliseconds that a request can be suspended before it is rejected.
+		 */
+		int getMaxWait();
+	}
+	
+	/**
+	 * Configuration for how the server starts, for trading time-to-first-request for work done on first use.
+	 * @since 1.6.0
+	 */
+	interface StartupConfiguration
+	{
+		/**
+		 * @return true to initialize the Small servlet and static resource servlets on their first request, 
+		 * false to initialize them when the server starts.
+		 */
+		boolean getLazyServletInit();
+
+		/**
+		 * Only used if {@link SmallJettyConfiguration#allowWebSockets()} is true.
+		 * Small registers its endpoints with the WebSocket container when its servlet initializes, so this requires 
+		 * {@link #getLazyServletInit()} to also be true.
+		 * @return true to set up the WebSocket container on the first upgrade request or Small servlet initialization, 
+		 * whichever comes first, false to set it up before the server starts.
+		 */
+		boolean getLazyWebSockets();
+
+		/**
+		 * @return true to log the startup timing breakdown (see {@link SmallJettyStartupTimings}) once the server starts, false to not.
+		 */
+		boolean getLogTimings();
+	}
+	
+	/**
+	 * Configuration for how the server stops.
+	 * @since 1.6.0
+	 */
+	interface ShutdownConfiguration
+	{
+		/**
+		 * @return the maximum amount of time in milliseconds to wait for in-flight requests and other components when stopping.
+		 */
+		int getStopTimeout();
+
+		/**
+		 * @return true to stop gracefully (stop accepting connections, then wait for in-flight requests to finish, 
+		 * closing HTTP/1.x connections as their responses complete), false to close connections immediately.
+		 */
+		boolean getGraceful();
+
+		/**
+		 * @return the amount of time in milliseconds, after stopping starts, that the server keeps accepting and serving requests
+		 * while sending <code>Connection: close</code> on HTTP/1.x responses, before closing its listeners. 0 for none.
+		 */
+		int getDrainDelay();
+
+		/**
+		 * @return true to stop the server in a JVM shutdown hook, false to not.
+		 */
+		boolean getShutdownHook();
+	}
+	
+	/**
+	 * Configuration for a static resource mount, served by Jetty's DefaultServlet.
+	 * Small resources are cached in memory, and precompressed siblings (for example, <code>app.js.br</code>
+	 * or <code>app.js.gz</code> for <code>app.js</code>) are served instead of the original file if the client accepts them.
+	 * @since 1.6.0
+	 */
+	interface StaticResourceConfiguration
+	{
+		/** Resource base prefix for resources on the classpath. */
+		String CLASSPATH_PREFIX = "classpath:";
+		
+		/**
+		 * @return the servlet path to mount the resources on. Must end in "/*", like <code>"/static/*"</code>.
+		 */
+		String getPath();
+
+		/**
+		 * @return the directory to serve files from, or a classpath path prefixed with {@link #CLASSPATH_PREFIX}.
+		 */
+		String getResourceBase();
+
+		/**
+		 * @return the content encodings to look for precompressed files for, in order of preference, or null or empty for none.
+		 * 		Supported encodings are "br" (<code>.br</code>), "zstd" (<code>.zst</code>), and "gzip" (<code>.gz</code>).
+		 */
+		String[] getPrecompressedEncodings();
+
+		/**
+		 * @return the maximum total size of the resource cache in bytes, or 0 to not cache resources.
+		 */
+		int getMaxCacheSize();
+
+		/**
+		 * @return the maximum size of a single cached resource in bytes.
+		 */
+		int getMaxCachedFileSize();
+
+		/**
+		 * @return the maximum amount of cached resources.
+		 */
+		int getMaxCachedFiles();
+
+		/**
+		 * @return true if cached files are memory-mapped instead of copied onto the heap.
+		 * 		Only applies to resources on the file system.
+		 */
+		boolean getMemoryMapped();
+
+		/**
+		 * @return true if ETag headers are sent and checked.
+		 */
+		boolean getETags();
+
+		/**
+		 * @return the Cache-Control header value to send with each resource, or null for none.
+		 */
+		String getCacheControl();
+	}
+	
+	/**
+	 * @return the maximum amount of connector threads.
+	 * @see #getThreadPoolConfiguration()
+	 */
+	int getMaxThreads();
+
+	/**
+	 * @return the amount of time in milliseconds before an open HTTP connection times out.
+	 */
+	int getIdleConnectionTimeout();
+	
+	/**
+	 * @return the header cache size in bytes.
+	 */
+	int getHeaderCacheSize();
+
+	/**
+	 * @return the output buffer cache size in bytes.
+	 */
+	int getOutputBufferSize();
+
+	/**
+	 * @return the request header cache size in bytes.
+	 */
+	int getRequestHeaderSize();
+
+	/**
+	 * @return the response header cache size in bytes.
+	 */
+	int getResponseHeaderSize();
+	
+	/**
+	 * @return true if the server version should be sent in headers/default pages, false if not.
+	 */
+	boolean getSendServerVersion();
+	
+	/**
+	 * @return true if the server date should be sent in headers/default pages, false if not.
+	 */
+	boolean getSendDateHeader();
+
+	/**
+	 * @return true if the server name should be sent in headers/default pages, false if not.
+	 */
+	boolean getSendXPoweredBy();
+
+	/**
+	 * @return true if the server's components should be registered as MBeans on the platform MBean server, false if not.
+	 * Requires the Jetty JMX module.
+	 * @since 1.6.0
+	 */
+	default boolean getRegisterMBeans()
+	{
+		return false;
+	}
+
+	/**
+	 * @return the Jetty options to pass to the servlet context handler.
+	 * @see ServletContextHandler#SESSIONS
+	 * @see ServletContextHandler#SECURITY
+	 * @see ServletContextHandler#GZIP
+	 * @since 1.5.3
+	 */
+	int getServletContextOptions();
+
+	/**
+	 * @return the SSL configuration to use for SSL, or null for no secure socket setup. 
+	 */
+	SSLConfiguration getSSLConfiguration();
+	
+	/**
+	 * @return the GZip configuration to use, or null for no compression scheme.
+	 * @since 1.5.3
+	 */
+	GZipConfiguration getGZipCompression();
+	
+	/**
+	 * @return the multi-encoding compression configuration to use, or null for none. 
+	 * 		If set, {@link #getGZipCompression()} must be null.
+	 * @since 1.6.0
+	 */
+	default CompressionConfiguration getCompressionConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the thread pool configuration to use, or null for a QueuedThreadPool using only {@link #getMaxThreads()}.
+	 * @since 1.6.0
+	 */
+	default ThreadPoolConfiguration getThreadPoolConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the load shedding configuration to use, or null for no load shedding.
+	 * @since 1.6.0
+	 */
+	default LoadSheddingConfiguration getLoadSheddingConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the connector configuration to use for all connectors, or null for Jetty's defaults.
+	 * @since 1.6.0
+	 */
+	default ConnectorConfiguration getConnectorConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the HTTP/2 configuration to use, or null for HTTP/1.1 only.
+	 * @since 1.6.0
+	 */
+	default HTTP2Configuration getHTTP2Configuration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the additional listeners to create, or null for none.
+	 * @since 1.6.0
+	 */
+	default ListenerConfiguration[] getListenerConfigurations()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the Unix domain socket configuration to use, or null for no Unix socket.
+	 * @since 1.6.0
+	 */
+	default UnixSocketConfiguration getUnixSocketConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the proxy configuration to use, or null for direct client connections only.
+	 * @since 1.6.0
+	 */
+	default ProxyProtocolConfiguration getProxyProtocolConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the static resource mounts to add to the servlet context, or null for none.
+	 * @since 1.6.0
+	 */
+	default StaticResourceConfiguration[] getStaticResourceConfigurations()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the response cache configuration to use, or null for no response cache.
+	 * @since 1.6.0
+	 */
+	default ResponseCacheConfiguration getResponseCacheConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the metrics configuration to use, or null for no metrics.
+	 * @since 1.6.0
+	 */
+	default MetricsConfiguration getMetricsConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the request log configuration to use, or null for no request log.
+	 * @since 1.6.0
+	 */
+	default RequestLogConfiguration getRequestLogConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the connection limit configuration to use, or null for no connection limit.
+	 * @since 1.6.0
+	 */
+	default ConnectionLimitConfiguration getConnectionLimitConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the low resource monitor configuration to use, or null for no low resource monitor.
+	 * @since 1.6.0
+	 */
+	default LowResourceConfiguration getLowResourceConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the rate limit configurations to use, one per servlet path, or null for no rate limiting.
+	 * @since 1.6.0
+	 */
+	default RateLimitConfiguration[] getRateLimitConfigurations()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the shutdown configuration to use, or null for Jetty's defaults (no graceful stop).
+	 * @since 1.6.0
+	 */
+	default ShutdownConfiguration getShutdownConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the startup configuration to use, or null for eager initialization.
+	 * @since 1.6.0
+	 */
+	default StartupConfiguration getStartupConfiguration()
+	{
+		return null;
+	}
+	
+	/**
+	 * @return the buffer pool configuration to use, or null for Jetty's default pool (no retained memory limit).
+	 * @since 1.6.0
+	 */
+	default BufferPoolConfiguration getBufferPoolConfiguration()
+	{
+		return null;
+	}
 	
 }
@@ -0,0 +1,702 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.GZipConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.ListenerConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.SSLConfigurationBuilder;
+import com.blackrook.small.jetty.SmallJettyConfiguration.BufferPoolConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ConnectorConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.GZipConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.HTTP2Configuration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ListenerConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.SSLConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.ThreadPoolConfiguration;
+import com.blackrook.small.jetty.SmallJettyConfiguration.UnixSocketConfiguration;
+
+/**
+ * Loads a {@link DefaultSmallJettyConfiguration} from a properties file, a simple YAML file,
+ * and/or environment variables, so that the server can be tuned without a rebuild.
+ * <p>Property names match the builder setters, grouped by prefix:
+ * <ul>
+ * 		<li><b>server.*</b>: the top-level settings, such as <code>server.port</code>, <code>server.maxThreads</code>, or
+ * 			<code>server.outputBufferSize</code>. Setting <code>server.securePort</code> enables SSL.</li>
+ * 		<li><b>ssl.*</b>: the {@link SSLConfigurationBuilder} settings, such as <code>ssl.keyStorePath</code>.</li>
+ * 		<li><b>gzip.*</b>: the {@link GZipConfigurationBuilder} settings, such as <code>gzip.compressionLevel</code>.
+ * 			Set <code>gzip.enabled</code> to true to enable GZip.</li>
+ * 		<li><b>listener.&lt;name&gt;.*</b>: the {@link ListenerConfigurationBuilder} settings for each listener
+ * 			named in <code>server.listeners</code>.</li>
+ * </ul>
+ * <p>Lists are comma-separated. Each property can be overridden by an environment variable named with
+ * the {@value #ENVIRONMENT_PREFIX} prefix, then the property name in upper snake case with dots as underscores:
+ * <code>ssl.keyStorePath</code> is overridden by <code>SMALL_JETTY_SSL_KEY_STORE_PATH</code>.
+ * <p>YAML files are read as nested maps of the same names. Only block maps, scalar values,
+ * and lists of scalars are supported.
+ * <p>Loaded configurations are checked with {@link #validate(SmallJettyConfiguration)},
+ * and the effective configuration is logged.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+public final class SmallJettyConfigurationLoader
+{
+	private static final Logger LOG = Log.getLogger(SmallJettyConfigurationLoader.class);
+
+	/** The prefix for environment variable overrides. */
+	public static final String ENVIRONMENT_PREFIX = "SMALL_JETTY_";
+
+	private static final String[] GZIP_KEYS = {
+		"bufferSize", "inflateBufferSize", "compressionLevel", "deflaterPoolCapacity", "syncFlush", "minGzipSize",
+		"excludedAgentPatterns", "excludedHTTPMethods", "excludedMimeTypes", "excludedPaths",
+		"includedAgentPatterns", "includedHTTPMethods", "includedMimeTypes", "includedPaths"
+	};
+
+	private SmallJettyConfigurationLoader() {}
+
+	/**
+	 * Loads a configuration from the environment variables only.
+	 * @return the loaded configuration.
+	 * @throws SmallFrameworkSetupException if a value could not be read or the configuration is not valid.
+	 */
+	public static DefaultSmallJettyConfiguration load()
+	{
+		return load(new Properties(), System.getenv());
+	}
+
+	/**
+	 * Loads a configuration from a file, overridden by environment variables.
+	 * Files ending in ".yml" or ".yaml" are read as YAML, and all others are read as properties.
+	 * @param file the file to read.
+	 * @return the loaded configuration.
+	 * @throws IOException if the file could not be read.
+	 * @throws SmallFrameworkSetupException if a value could not be read or the configuration is not valid.
+	 */
+	public static DefaultSmallJettyConfiguration load(File file) throws IOException
+	{
+		String name = file.getName().toLowerCase();
+		Properties properties;
+		try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8))) {
+			if (name.endsWith(".yml") || name.endsWith(".yaml"))
+			{
+				properties = readYAML(reader);
+			}
+			else
+			{
+				properties = new Properties();
+				properties.load(reader);
+			}
+		}
+		return load(properties, System.getenv());
+	}
+
+	/**
+	 * Loads a configuration from a set of properties, overridden by environment variables.
+	 * @param properties the properties.
+	 * @return the loaded configuration.
+	 * @throws SmallFrameworkSetupException if a value could not be read or the configuration is not valid.
+	 */
+	public static DefaultSmallJettyConfiguration load(Properties properties)
+	{
+		return load(properties, System.getenv());
+	}
+
+	/**
+	 * Loads a configuration from a set of properties, overridden by a set of environment variables.
+	 * @param properties the properties.
+	 * @param environment the environment variables.
+	 * @return the loaded configuration.
+	 * @throws SmallFrameworkSetupException if a value could not be read or the configuration is not valid.
+	 */
+	public static DefaultSmallJettyConfiguration load(Properties properties, Map<String, String> environment)
+	{
+		Source source = new Source(properties, environment);
+		DefaultSmallJettyConfiguration config = DefaultSmallJettyConfiguration.configure();
+
+		source.setInt("server.port", config::setServerPort);
+		source.setString("server.contextPath", config::setContextPath);
+		source.setString("server.tempPath", config::setTempPath);
+		source.setStrings("server.servletPaths", config::setServletPaths);
+		source.setStrings("server.applicationPackageRoots", config::setApplicationPackageRoots);
+		source.setBoolean("server.allowOptions", config::setAllowOptions);
+		source.setBoolean("server.allowTrace", config::setAllowTrace);
+		source.setBoolean("server.allowWebSockets", config::setAllowWebSockets);
+		source.setBoolean("server.autoParseMultipart", config::setAutoParseMultipart);
+		source.setInt("server.maxThreads", config::setMaxThreads);
+		source.setInt("server.idleConnectionTimeout", config::setIdleConnectionTimeout);
+		source.setInt("server.headerCacheSize", config::setHeaderCacheSize);
+		source.setInt("server.outputBufferSize", config::setOutputBufferSize);
+		source.setInt("server.requestHeaderSize", config::setRequestHeaderSize);
+		source.setInt("server.responseHeaderSize", config::setResponseHeaderSize);
+		source.setBoolean("server.sendServerVersion", config::setSendServerVersion);
+		source.setBoolean("server.sendDateHeader", config::setSendDateHeader);
+		source.setBoolean("server.sendXPoweredBy", config::setSendXPoweredBy);
+		source.setBoolean("server.registerMBeans", config::setRegisterMBeans);
+
+		if (source.get("server.securePort") != null)
+		{
+			SSLConfigurationBuilder ssl = SSLConfigurationBuilder.ssl();
+			source.setString("ssl.keyStoreType", ssl::setKeyStoreType);
+			source.setString("ssl.keyStorePath", ssl::setKeyStorePath);
+			source.setString("ssl.keyStorePassword", ssl::setKeyStorePassword);
+			source.setString("ssl.trustStoreType", ssl::setTrustStoreType);
+			source.setString("ssl.trustStorePath", ssl::setTrustStorePath);
+			source.setString("ssl.trustStorePassword", ssl::setTrustStorePassword);
+			source.setString("ssl.provider", ssl::setProvider);
+			source.setInt("ssl.sessionCacheSize", ssl::setSessionCacheSize);
+			source.setInt("ssl.sessionTimeout", ssl::setSessionTimeout);
+			source.setBoolean("ssl.sessionTicketsEnabled", ssl::setSessionTicketsEnabled);
+			source.setBoolean("ssl.ocspStaplingEnabled", ssl::setOCSPStaplingEnabled);
+			source.setStrings("ssl.includedProtocols", ssl::setIncludedProtocols);
+			source.setStrings("ssl.excludedProtocols", ssl::setExcludedProtocols);
+			source.setStrings("ssl.includedCipherSuites", ssl::setIncludedCipherSuites);
+			source.setStrings("ssl.excludedCipherSuites", ssl::setExcludedCipherSuites);
+			source.setBoolean("ssl.useCipherSuitesOrder", ssl::setUseCipherSuitesOrder);
+			source.setBoolean("ssl.watchKeyStore", ssl::setWatchKeyStore);
+			source.setInt("ssl.watchDelay", ssl::setWatchDelay);
+			source.setInt("server.securePort", (port) -> config.useSSL(port, ssl));
+		}
+		else
+		{
+			source.checkUnused("ssl.keyStorePath", "server.securePort");
+		}
+
+		if (source.getBoolean("gzip.enabled", false))
+		{
+			GZipConfigurationBuilder gzip = GZipConfigurationBuilder.gzip();
+			source.setInt("gzip.bufferSize", gzip::setBufferSize);
+			source.setInt("gzip.inflateBufferSize", gzip::setInflateBufferSize);
+			source.setInt("gzip.compressionLevel", gzip::setCompressionLevel);
+			source.setInt("gzip.deflaterPoolCapacity", gzip::setDeflaterPoolCapacity);
+			source.setBoolean("gzip.syncFlush", gzip::setSyncFlush);
+			source.setInt("gzip.minGzipSize", gzip::setMinGzipSize);
+			source.setStrings("gzip.excludedAgentPatterns", gzip::setExcludedAgentPatterns);
+			source.setStrings("gzip.excludedHTTPMethods", gzip::setExcludedHTTPMethods);
+			source.setStrings("gzip.excludedMimeTypes", gzip::setExcludedMimeTypes);
+			source.setStrings("gzip.excludedPaths", gzip::setExcludedPaths);
+			source.setStrings("gzip.includedAgentPatterns", gzip::setIncludedAgentPatterns);
+			source.setStrings("gzip.includedHTTPMethods", gzip::setIncludedHTTPMethods);
+			source.setStrings("gzip.includedMimeTypes", gzip::setIncludedMimeTypes);
+			source.setStrings("gzip.includedPaths", gzip::setIncludedPaths);
+			config.setGZip(gzip);
+		}
+		else
+		{
+			for (String key : GZIP_KEYS)
+				source.checkUnused("gzip." + key, "gzip.enabled");
+		}
+
+		String[] listeners = source.getStrings("server.listeners");
+		if (listeners != null) for (String name : listeners)
+		{
+			String prefix = "listener." + name + ".";
+			Integer port = source.getInteger(prefix + "port");
+			if (port == null)
+				throw new SmallFrameworkSetupException("Listener \"" + name + "\" was listed without a port: " + prefix + "port");
+			ListenerConfigurationBuilder listener = ListenerConfigurationBuilder.listener(name, port);
+			source.setString(prefix + "host", listener::setHost);
+			source.setBoolean(prefix + "secure", listener::setSecure);
+			source.setInt(prefix + "idleTimeout", listener::setIdleTimeout);
+			source.setInt(prefix + "maxThreads", listener::setMaxThreads);
+			source.setInt(prefix + "headerCacheSize", listener::setHeaderCacheSize);
+			source.setInt(prefix + "outputBufferSize", listener::setOutputBufferSize);
+			source.setInt(prefix + "requestHeaderSize", listener::setRequestHeaderSize);
+			source.setInt(prefix + "responseHeaderSize", listener::setResponseHeaderSize);
+			config.addListener(listener);
+		}
+
+		for (String warning : validate(config))
+			LOG.warn(warning);
+		LOG.info("Small Jetty configuration:{}", describe(config));
+		return config;
+	}
+
+	/**
+	 * Checks a configuration for values that will not work or will perform badly.
+	 * <p>This checks ports against each other, the max thread count against the available processors
+	 * and the threads that the connectors take, and buffer sizes against header sizes and the buffer pool.
+	 * @param config the configuration to check.
+	 * @return warnings about values that will work, but probably not well. Can be empty.
+	 * @throws SmallFrameworkSetupException if a value will not work.
+	 */
+	public static List<String> validate(SmallJettyConfiguration config)
+	{
+		List<String> warnings = new ArrayList<>();
+		int processors = Runtime.getRuntime().availableProcessors();
+		UnixSocketConfiguration unixSocketConfig = config.getUnixSocketConfiguration();
+		boolean hasHttpConnector = unixSocketConfig == null || !unixSocketConfig.getReplaceServerPort();
+		ListenerConfiguration[] listenerConfigs = config.getListenerConfigurations() != null ? config.getListenerConfigurations() : new ListenerConfiguration[0];
+
+		// ==================== Ports ============================
+
+		Map<String, String> addresses = new LinkedHashMap<>();
+		if (hasHttpConnector)
+			checkPort(addresses, "server.port", null, config.getServerPort());
+		if (config.getSecureServerPort() != null)
+			checkPort(addresses, "server.securePort", null, config.getSecureServerPort());
+		for (ListenerConfiguration listenerConfig : listenerConfigs)
+			checkPort(addresses, "listener." + listenerConfig.getName() + ".port", listenerConfig.getHost(), listenerConfig.getPort());
+
+		// ==================== Threads ==========================
+
+		ThreadPoolConfiguration threadPoolConfig = config.getThreadPoolConfiguration();
+		if (threadPoolConfig == null || threadPoolConfig.getEngine() == ThreadPoolConfiguration.Engine.QUEUED)
+		{
+			int maxThreads = threadPoolConfig != null ? threadPoolConfig.getMaxThreads() : config.getMaxThreads();
+			if (maxThreads < 1)
+				throw new SmallFrameworkSetupException("Max threads is less than 1.");
+
+			// Listeners with their own thread pool do not take threads from the server's.
+			int connectors = (hasHttpConnector ? 1 : 0) + (config.getSecureServerPort() != null ? 1 : 0) + (unixSocketConfig != null ? 1 : 0);
+			for (ListenerConfiguration listenerConfig : listenerConfigs)
+				if (listenerConfig.getMaxThreads() == null)
+					connectors++;
+
+			// Same heuristics as Jetty's ServerConnector and SelectorManager.
+			ConnectorConfiguration connectorConfig = config.getConnectorConfiguration();
+			int acceptors = connectorConfig != null && connectorConfig.getAcceptors() > 0 ? connectorConfig.getAcceptors() : Math.max(1, Math.min(4, processors / 8));
+			int selectors = connectorConfig != null && connectorConfig.getSelectors() > 0 ? connectorConfig.getSelectors() : Math.max(1, Math.min(processors / 2, maxThreads / 16));
+			int neededThreads = connectors * (acceptors + selectors) + 1;
+			if (maxThreads < neededThreads)
+			{
+				throw new SmallFrameworkSetupException("Max threads (" + maxThreads + ") is too low: " + connectors + " connector(s) with "
+					+ acceptors + " acceptor(s) and " + selectors + " selector(s) each need at least " + neededThreads + ".");
+			}
+			if (maxThreads < processors)
+				warnings.add("Max threads (" + maxThreads + ") is less than the amount of available processors (" + processors + ").");
+		}
+
+		// ==================== Buffers ==========================
+
+		checkBufferSizes(warnings, "server.", config.getBufferPoolConfiguration(),
+			config.getHeaderCacheSize(),
+			config.getOutputBufferSize(),
+			config.getRequestHeaderSize(),
+			config.getResponseHeaderSize()
+		);
+		for (ListenerConfiguration listenerConfig : listenerConfigs)
+		{
+			checkBufferSizes(warnings, "listener." + listenerConfig.getName() + ".", config.getBufferPoolConfiguration(),
+				listenerConfig.getHeaderCacheSize() != null ? listenerConfig.getHeaderCacheSize() : config.getHeaderCacheSize(),
+				listenerConfig.getOutputBufferSize() != null ? listenerConfig.getOutputBufferSize() : config.getOutputBufferSize(),
+				listenerConfig.getRequestHeaderSize() != null ? listenerConfig.getRequestHeaderSize() : config.getRequestHeaderSize(),
+				listenerConfig.getResponseHeaderSize() != null ? listenerConfig.getResponseHeaderSize() : config.getResponseHeaderSize()
+			);
+		}
+
+		GZipConfiguration gzipConfig = config.getGZipCompression();
+		if (gzipConfig != null)
+		{
+			if (gzipConfig.getBufferSize() < 1)
+				throw new SmallFrameworkSetupException("gzip.bufferSize must be greater than 0.");
+			if (gzipConfig.getCompressionLevel() < -1 || gzipConfig.getCompressionLevel() > 9)
+				throw new SmallFrameworkSetupException("gzip.compressionLevel must be from -1 to 9.");
+			if (gzipConfig.getMinGzipSize() < 0)
+				throw new SmallFrameworkSetupException("gzip.minGzipSize is less than 0.");
+		}
+
+		HTTP2Configuration http2Config = config.getHTTP2Configuration();
+		if (http2Config != null && http2Config.getMaxHeaderListSize() > 0 && http2Config.getMaxHeaderListSize() < config.getRequestHeaderSize())
+		{
+			warnings.add("HTTP/2 max header list size (" + http2Config.getMaxHeaderListSize() + ") is smaller than server.requestHeaderSize ("
+				+ config.getRequestHeaderSize() + "), so HTTP/2 clients are limited to smaller headers than HTTP/1.1 clients.");
+		}
+
+		return warnings;
+	}
+
+	/**
+	 * Describes the loadable settings of a configuration, one per line, using the loader's property names.
+	 * Unset values are left out, and passwords are masked.
+	 * @param config the configuration.
+	 * @return the description.
+	 */
+	public static String describe(SmallJettyConfiguration config)
+	{
+		Map<String, Object> values = new LinkedHashMap<>();
+		values.put("server.port", config.getServerPort());
+		values.put("server.securePort", config.getSecureServerPort());
+		values.put("server.contextPath", config.getContextPath());
+		values.put("server.tempPath", config.getTempPath());
+		values.put("server.servletPaths", config.getServletPaths());
+		values.put("server.applicationPackageRoots", config.getApplicationPackageRoots());
+		values.put("server.allowOptions", config.allowOptions());
+		values.put("server.allowTrace", config.allowTrace());
+		values.put("server.allowWebSockets", config.allowWebSockets());
+		values.put("server.autoParseMultipart", config.autoParseMultipart());
+		values.put("server.maxThreads", config.getThreadPoolConfiguration() != null ? config.getThreadPoolConfiguration().getMaxThreads() : config.getMaxThreads());
+		values.put("server.idleConnectionTimeout", config.getIdleConnectionTimeout());
+		values.put("server.headerCacheSize", config.getHeaderCacheSize());
+		values.put("server.outputBufferSize", config.getOutputBufferSize());
+		values.put("server.requestHeaderSize", config.getRequestHeaderSize());
+		values.put("server.responseHeaderSize", config.getResponseHeaderSize());
+		values.put("server.sendServerVersion", config.getSendServerVersion());
+		values.put("server.sendDateHeader", config.getSendDateHeader());
+		values.put("server.sendXPoweredBy", config.getSendXPoweredBy());
+		values.put("server.registerMBeans", config.getRegisterMBeans());
+
+		ListenerConfiguration[] listenerConfigs = config.getListenerConfigurations() != null ? config.getListenerConfigurations() : new ListenerConfiguration[0];
+		String[] listenerNames = new String[listenerConfigs.length];
+		for (int i = 0; i < listenerConfigs.length; i++)
+			listenerNames[i] = listenerConfigs[i].getName();
+		values.put("server.listeners", listenerNames);
+
+		SSLConfiguration sslConfig = config.getSSLConfiguration();
+		if (sslConfig != null)
+		{
+			values.put("ssl.keyStoreType", sslConfig.getKeyStoreType());
+			values.put("ssl.keyStorePath", sslConfig.getKeyStorePath());
+			values.put("ssl.keyStorePassword", mask(sslConfig.getKeyStorePassword()));
+			values.put("ssl.trustStoreType", sslConfig.getTrustStoreType());
+			values.put("ssl.trustStorePath", sslConfig.getTrustStorePath());
+			values.put("ssl.trustStorePassword", mask(sslConfig.getTrustStorePassword()));
+			values.put("ssl.provider", sslConfig.getProvider());
+			values.put("ssl.sessionCacheSize", sslConfig.getSessionCacheSize());
+			values.put("ssl.sessionTimeout", sslConfig.getSessionTimeout());
+			values.put("ssl.sessionTicketsEnabled", sslConfig.getSessionTicketsEnabled());
+			values.put("ssl.ocspStaplingEnabled", sslConfig.getOCSPStaplingEnabled());
+			values.put("ssl.includedProtocols", sslConfig.getIncludedProtocols());
+			values.put("ssl.excludedProtocols", sslConfig.getExcludedProtocols());
+			values.put("ssl.includedCipherSuites", sslConfig.getIncludedCipherSuites());
+			values.put("ssl.excludedCipherSuites", sslConfig.getExcludedCipherSuites());
+			values.put("ssl.useCipherSuitesOrder", sslConfig.getUseCipherSuitesOrder());
+			values.put("ssl.watchKeyStore", sslConfig.getWatchKeyStore());
+			values.put("ssl.watchDelay", sslConfig.getWatchDelay());
+		}
+
+		GZipConfiguration gzipConfig = config.getGZipCompression();
+		values.put("gzip.enabled", gzipConfig != null);
+		if (gzipConfig != null)
+		{
+			values.put("gzip.bufferSize", gzipConfig.getBufferSize());
+			values.put("gzip.inflateBufferSize", gzipConfig.getInflateBufferSize());
+			values.put("gzip.compressionLevel", gzipConfig.getCompressionLevel());
+			values.put("gzip.deflaterPoolCapacity", gzipConfig.getDeflaterPoolCapacity());
+			values.put("gzip.syncFlush", gzipConfig.getSyncFlush());
+			values.put("gzip.minGzipSize", gzipConfig.getMinGzipSize());
+			values.put("gzip.excludedAgentPatterns", gzipConfig.getExcludedAgentPatterns());
+			values.put("gzip.excludedHTTPMethods", gzipConfig.getExcludedHTTPMethods());
+			values.put("gzip.excludedMimeTypes", gzipConfig.getExcludedMimeTypes());
+			values.put("gzip.excludedPaths", gzipConfig.getExcludedPaths());
+			values.put("gzip.includedAgentPatterns", gzipConfig.getIncludedAgentPatterns());
+			values.put("gzip.includedHTTPMethods", gzipConfig.getIncludedHTTPMethods());
+			values.put("gzip.includedMimeTypes", gzipConfig.getIncludedMimeTypes());
+			values.put("gzip.includedPaths", gzipConfig.getIncludedPaths());
+		}
+
+		for (ListenerConfiguration listenerConfig : listenerConfigs)
+		{
+			String prefix = "listener." + listenerConfig.getName() + ".";
+			values.put(prefix + "port", listenerConfig.getPort());
+			values.put(prefix + "host", listenerConfig.getHost());
+			values.put(prefix + "secure", listenerConfig.getSecure());
+			values.put(prefix + "idleTimeout", listenerConfig.getIdleTimeout());
+			values.put(prefix + "maxThreads", listenerConfig.getMaxThreads());
+			values.put(prefix + "headerCacheSize", listenerConfig.getHeaderCacheSize());
+			values.put(prefix + "outputBufferSize", listenerConfig.getOutputBufferSize());
+			values.put(prefix + "requestHeaderSize", listenerConfig.getRequestHeaderSize());
+			values.put(prefix + "responseHeaderSize", listenerConfig.getResponseHeaderSize());
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Object> entry : values.entrySet())
+		{
+			Object value = entry.getValue();
+			if (value == null)
+				continue;
+			sb.append('\n').append(entry.getKey()).append(" = ");
+			sb.append(value instanceof String[] ? String.join(",", (String[])value) : String.valueOf(value));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Converts a property name to the name of the environment variable that overrides it.
+	 * @param key the property name.
+	 * @return the environment variable name.
+	 */
+	public static String toEnvironmentName(String key)
+	{
+		StringBuilder sb = new StringBuilder(ENVIRONMENT_PREFIX);
+		for (int i = 0; i < key.length(); i++)
+		{
+			char c = key.charAt(i);
+			if (c == '.' || c == '-')
+			{
+				sb.append('_');
+			}
+			else if (Character.isUpperCase(c) && i > 0)
+			{
+				// "keyStorePath" becomes "KEY_STORE_PATH", and "excludedHTTPMethods" becomes "EXCLUDED_HTTP_METHODS".
+				char prev = key.charAt(i - 1);
+				boolean nextLower = i + 1 < key.length() && Character.isLowerCase(key.charAt(i + 1));
+				if (Character.isLowerCase(prev) || Character.isDigit(prev) || (Character.isUpperCase(prev) && nextLower))
+					sb.append('_');
+				sb.append(c);
+			}
+			else
+			{
+				sb.append(Character.toUpperCase(c));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads a simple YAML document into a set of dotted property names.
+	 * Only block maps, scalar values, and lists of scalars are supported.
+	 * @param reader the reader to read from.
+	 * @return the properties read.
+	 * @throws IOException if the document could not be read.
+	 * @throws SmallFrameworkSetupException if the document uses YAML features that are not supported.
+	 */
+	static Properties readYAML(Reader reader) throws IOException
+	{
+		Properties out = new Properties();
+		List<Integer> indents = new ArrayList<>();
+		List<String> keys = new ArrayList<>();
+
+		BufferedReader br = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+		String line;
+		int lineNumber = 0;
+		while ((line = br.readLine()) != null)
+		{
+			lineNumber++;
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.equals("---"))
+				continue;
+
+			int indent = line.indexOf(trimmed);
+			if (line.substring(0, indent).indexOf('\t') >= 0)
+				throw new SmallFrameworkSetupException("YAML line " + lineNumber + " is indented with tabs.");
+
+			while (!indents.isEmpty() && indent <= indents.get(indents.size() - 1))
+			{
+				indents.remove(indents.size() - 1);
+				keys.remove(keys.size() - 1);
+			}
+			String path = String.join(".", keys);
+
+			if (trimmed.equals("-") || trimmed.startsWith("- "))
+			{
+				if (path.isEmpty())
+					throw new SmallFrameworkSetupException("YAML line " + lineNumber + " is a list item outside of a key.");
+				String item = yamlScalar(trimmed.substring(1));
+				String current = out.getProperty(path);
+				out.setProperty(path, current == null ? item : current + "," + item);
+				continue;
+			}
+
+			int colon = trimmed.indexOf(':');
+			if (colon < 1 || (colon + 1 < trimmed.length() && trimmed.charAt(colon + 1) != ' '))
+				throw new SmallFrameworkSetupException("YAML line " + lineNumber + " is not a \"key: value\" pair.");
+
+			String key = yamlScalar(trimmed.substring(0, colon));
+			String value = trimmed.substring(colon + 1).trim();
+			String fullKey = path.isEmpty() ? key : path + "." + key;
+			if (value.isEmpty() || value.startsWith("#"))
+			{
+				indents.add(indent);
+				keys.add(key);
+			}
+			else if (value.startsWith("[") && value.endsWith("]"))
+			{
+				String[] items = value.substring(1, value.length() - 1).split(",");
+				for (int i = 0; i < items.length; i++)
+					items[i] = yamlScalar(items[i]);
+				out.setProperty(fullKey, String.join(",", items));
+			}
+			else if ("{&*|>".indexOf(value.charAt(0)) >= 0)
+			{
+				throw new SmallFrameworkSetupException("YAML line " + lineNumber + " uses an unsupported YAML feature.");
+			}
+			else
+			{
+				out.setProperty(fullKey, yamlScalar(value));
+			}
+		}
+		return out;
+	}
+
+	// Strips quotes or a trailing comment from a YAML scalar.
+	private static String yamlScalar(String value)
+	{
+		value = value.trim();
+		if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\''))
+		{
+			int end = value.indexOf(value.charAt(0), 1);
+			if (end > 0)
+				return value.substring(1, end);
+		}
+		int comment = value.indexOf(" #");
+		return comment >= 0 ? value.substring(0, comment).trim() : value;
+	}
+
+	private static String mask(String password)
+	{
+		return password == null || password.isEmpty() ? password : "********";
+	}
+
+	private static void checkPort(Map<String, String> addresses, String key, String host, int port)
+	{
+		if (port < 0 || port > 65535)
+			throw new SmallFrameworkSetupException(key + " must be from 0 to 65535: " + port);
+		// Port 0 picks any free port, so it cannot conflict.
+		if (port == 0)
+			return;
+
+		for (Map.Entry<String, String> entry : addresses.entrySet())
+		{
+			int split = entry.getKey().lastIndexOf(':');
+			String otherHost = entry.getKey().substring(0, split);
+			int otherPort = Integer.parseInt(entry.getKey().substring(split + 1));
+			// No host binds to all interfaces, so it conflicts with every host.
+			if (otherPort == port && (otherHost.isEmpty() || host == null || otherHost.equals(host)))
+				throw new SmallFrameworkSetupException(key + " uses the same port as " + entry.getValue() + ": " + port);
+		}
+		addresses.put((host != null ? host : "") + ":" + port, key);
+	}
+
+	private static void checkBufferSizes(List<String> warnings, String prefix, BufferPoolConfiguration bufferPoolConfig, int headerCacheSize, int outputBufferSize, int requestHeaderSize, int responseHeaderSize)
+	{
+		if (headerCacheSize < 0)
+			throw new SmallFrameworkSetupException(prefix + "headerCacheSize is less than 0.");
+		if (outputBufferSize < 1)
+			throw new SmallFrameworkSetupException(prefix + "outputBufferSize must be greater than 0.");
+		if (requestHeaderSize < 1)
+			throw new SmallFrameworkSetupException(prefix + "requestHeaderSize must be greater than 0.");
+		if (responseHeaderSize < 1)
+			throw new SmallFrameworkSetupException(prefix + "responseHeaderSize must be greater than 0.");
+
+		// Header and output buffers are taken from the pool at their full size, so the pool has to hold buffers that large to reuse them.
+		if (bufferPoolConfig != null)
+		{
+			int largest = Math.max(outputBufferSize, Math.max(requestHeaderSize, responseHeaderSize));
+			if (largest > bufferPoolConfig.getMaxCapacity())
+			{
+				warnings.add("Buffer pool max capacity (" + bufferPoolConfig.getMaxCapacity() + ") is smaller than the largest " + prefix
+					+ "* header or output buffer size (" + largest + "), so those buffers are not pooled.");
+			}
+		}
+	}
+
+	/**
+	 * Property and environment variable lookup.
+	 */
+	private static class Source
+	{
+		private final Properties properties;
+		private final Map<String, String> environment;
+
+		private Source(Properties properties, Map<String, String> environment)
+		{
+			this.properties = properties;
+			this.environment = environment;
+		}
+
+		private String get(String key)
+		{
+			String value = environment.get(toEnvironmentName(key));
+			if (value == null)
+				value = properties.getProperty(key);
+			return value != null ? value.trim() : null;
+		}
+
+		private Integer getInteger(String key)
+		{
+			String value = get(key);
+			if (value == null)
+				return null;
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new SmallFrameworkSetupException(key + " must be an integer: " + value);
+			}
+		}
+
+		private Boolean getBoolean(String key)
+		{
+			String value = get(key);
+			if (value == null)
+				return null;
+			if ("true".equalsIgnoreCase(value))
+				return true;
+			if ("false".equalsIgnoreCase(value))
+				return false;
+			throw new SmallFrameworkSetupException(key + " must be true or false: " + value);
+		}
+
+		private boolean getBoolean(String key, boolean defaultValue)
+		{
+			Boolean value = getBoolean(key);
+			return value != null ? value : defaultValue;
+		}
+
+		private String[] getStrings(String key)
+		{
+			String value = get(key);
+			if (value == null)
+				return null;
+			return Arrays.stream(value.split(",")).map(String::trim).filter((s) -> !s.isEmpty()).toArray(String[]::new);
+		}
+
+		private void setString(String key, Consumer<String> setter)
+		{
+			String value = get(key);
+			if (value != null)
+				setter.accept(value);
+		}
+
+		private void setInt(String key, IntConsumer setter)
+		{
+			Integer value = getInteger(key);
+			if (value != null)
+				setter.accept(value);
+		}
+
+		private void setBoolean(String key, Consumer<Boolean> setter)
+		{
+			Boolean value = getBoolean(key);
+			if (value != null)
+				setter.accept(value);
+		}
+
+		private void setStrings(String key, Consumer<String[]> setter)
+		{
+			String[] value = getStrings(key);
+			if (value != null)
+				setter.accept(value);
+		}
+
+		// Catches settings that would otherwise be silently ignored.
+		private void checkUnused(String key, String requiredKey)
+		{
+			if (get(key) != null)
+				throw new SmallFrameworkSetupException(key + " was set, but has no effect without " + requiredKey + ".");
+		}
+	}
+
+}
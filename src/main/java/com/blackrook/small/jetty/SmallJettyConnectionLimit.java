@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import org.eclipse.jetty.server.ConnectionLimit;
+import org.eclipse.jetty.server.Server;
+
+/**
+ * A connection limit that can be changed while the server is running.
+ * <p>Jetty's limit only checks itself when a connection is accepted or closed, so this one
+ * checks right away when the maximum changes, and starts or stops accepting connections as needed.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class SmallJettyConnectionLimit extends ConnectionLimit
+{
+	/**
+	 * Creates a new connection limit for all of a server's connectors.
+	 * @param maxConnections the maximum amount of connections.
+	 * @param server the server.
+	 */
+	SmallJettyConnectionLimit(int maxConnections, Server server)
+	{
+		super(maxConnections, server);
+	}
+
+	@Override
+	public void setMaxConnections(int max)
+	{
+		synchronized (this)
+		{
+			super.setMaxConnections(max);
+			if (isStarted())
+				check();
+		}
+	}
+
+}
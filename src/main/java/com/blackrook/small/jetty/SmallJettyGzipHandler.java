@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHttpOutputInterceptor;
+
+/**
+ * A GzipHandler that compresses responses using its own output buffer size.
+ * <p>Jetty's GzipHandler sizes its compression buffer from the connector's output buffer size,
+ * so this handler swaps in an interceptor with the configured size after the GzipHandler
+ * has decided to compress a response, but before any content is written.
+ * <p>The compression level can also be changed while the handler is running, and is applied
+ * to each {@link Deflater} as it is taken from the pool.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class SmallJettyGzipHandler extends GzipHandler
+{
+	private final int bufferSize;
+	private volatile int compressionLevel;
+
+	/**
+	 * Creates a new GZip handler.
+	 * @param bufferSize the compression output buffer size in bytes.
+	 */
+	SmallJettyGzipHandler(int bufferSize)
+	{
+		this.bufferSize = bufferSize;
+		this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	}
+
+	/**
+	 * @return the compression output buffer size in bytes.
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	@Override
+	public int getCompressionLevel()
+	{
+		return compressionLevel;
+	}
+
+	@Override
+	public void setCompressionLevel(int compressionLevel)
+	{
+		// The pool is created with the starting level, so only pass it along before start.
+		if (!isStarted())
+			super.setCompressionLevel(compressionLevel);
+		this.compressionLevel = compressionLevel;
+	}
+
+	@Override
+	public Deflater getDeflater(Request request, long contentLength)
+	{
+		Deflater deflater = super.getDeflater(request, contentLength);
+		if (deflater != null)
+			deflater.setLevel(compressionLevel);
+		return deflater;
+	}
+
+	@Override
+	public void setHandler(Handler handler)
+	{
+		super.setHandler(handler != null ? new BufferSizeHandler(handler) : null);
+	}
+
+	/**
+	 * An interceptor with the configured buffer size.
+	 */
+	private static class SizedGzipHttpOutputInterceptor extends GzipHttpOutputInterceptor
+	{
+		private SizedGzipHttpOutputInterceptor(SmallJettyGzipHandler handler, Request baseRequest, HttpOutput.Interceptor next)
+		{
+			super(handler, handler.getVaryField(), handler.bufferSize, baseRequest.getHttpChannel(), next, handler.isSyncFlush());
+		}
+	}
+
+	/**
+	 * Sits between this handler and the wrapped handler, and replaces the interceptor installed by the GzipHandler.
+	 */
+	private class BufferSizeHandler extends HandlerWrapper
+	{
+		private BufferSizeHandler(Handler handler)
+		{
+			setHandler(handler);
+		}
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+		{
+			HttpOutput out = baseRequest.getResponse().getHttpOutput();
+			HttpOutput.Interceptor interceptor = out.getInterceptor();
+			if (interceptor.getClass() == GzipHttpOutputInterceptor.class)
+				out.setInterceptor(new SizedGzipHttpOutputInterceptor(SmallJettyGzipHandler.this, baseRequest, interceptor.getNextInterceptor()));
+			super.handle(target, baseRequest, request, response);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+import com.blackrook.small.jetty.SmallJettyConfiguration.HTTP2Configuration;
+
+/**
+ * Creates the connection factory chains for HTTP/2 connectors.
+ * All HTTP/2 and ALPN classes are referenced here so that they are only needed on the classpath if HTTP/2 is used.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class SmallJettyHTTP2
+{
+	private SmallJettyHTTP2() {}
+
+	/**
+	 * Checks if the HTTP/2 classes are available.
+	 * @param secure if true, also checks for ALPN classes.
+	 * @throws SmallFrameworkSetupException if a class is not available.
+	 */
+	static void checkAvailable(boolean secure)
+	{
+		try {
+			Class.forName("org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory");
+		} catch (ClassNotFoundException e) {
+			throw new SmallFrameworkSetupException("Jetty HTTP/2 is not available. Cannot find HTTP/2 server classes.");
+		}
+		if (secure) try {
+			Class.forName("org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory");
+		} catch (ClassNotFoundException e) {
+			throw new SmallFrameworkSetupException("Jetty ALPN is not available. Cannot find ALPN server classes.");
+		}
+	}
+
+	/**
+	 * Creates the connection factories for h2 with ALPN negotiation, falling back to HTTP/1.1.
+	 * @param http2Config the HTTP/2 configuration.
+	 * @param httpsConfig the secure HTTP configuration.
+	 * @param sslContextFactory the SSL context factory.
+	 * @return the connection factories, in connector order.
+	 */
+	static ConnectionFactory[] createSecureFactories(HTTP2Configuration http2Config, HttpConfiguration httpsConfig, SslContextFactory sslContextFactory)
+	{
+		HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(createHTTP2Config(http2Config, httpsConfig));
+		configure(h2, http2Config);
+		
+		ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory(h2.getProtocol(), HttpVersion.HTTP_1_1.asString());
+		alpn.setDefaultProtocol(HttpVersion.HTTP_1_1.asString());
+		
+		// h2 blacklists a number of ciphers - prefer the allowed ones (the bootstrap checks that the server's order is used).
+		sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+
+		return new ConnectionFactory[]{
+			new SslConnectionFactory(sslContextFactory, alpn.getProtocol()),
+			alpn,
+			h2,
+			new HttpConnectionFactory(httpsConfig)
+		};
+	}
+
+	/**
+	 * Creates the connection factories for HTTP/1.1 with h2c (upgrade or prior knowledge).
+	 * @param http2Config the HTTP/2 configuration.
+	 * @param httpConfig the HTTP configuration.
+	 * @return the connection factories, in connector order.
+	 */
+	static ConnectionFactory[] createCleartextFactories(HTTP2Configuration http2Config, HttpConfiguration httpConfig)
+	{
+		HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(createHTTP2Config(http2Config, httpConfig));
+		configure(h2c, http2Config);
+		return new ConnectionFactory[]{
+			new HttpConnectionFactory(httpConfig),
+			h2c
+		};
+	}
+
+	// HPACK uses the request header size as the max header list size.
+	private static HttpConfiguration createHTTP2Config(HTTP2Configuration http2Config, HttpConfiguration httpConfig)
+	{
+		if (http2Config.getMaxHeaderListSize() < 0)
+			return httpConfig;
+		HttpConfiguration out = new HttpConfiguration(httpConfig);
+		out.setRequestHeaderSize(http2Config.getMaxHeaderListSize());
+		return out;
+	}
+
+	private static void configure(AbstractHTTP2ServerConnectionFactory factory, HTTP2Configuration http2Config)
+	{
+		factory.setMaxConcurrentStreams(http2Config.getMaxConcurrentStreams());
+		factory.setInitialStreamRecvWindow(http2Config.getInitialStreamRecvWindow());
+		factory.setInitialSessionRecvWindow(http2Config.getInitialSessionRecvWindow());
+		factory.setMaxDynamicTableSize(http2Config.getMaxDynamicTableSize());
+	}
+
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.lang.management.ManagementFactory;
+
+import org.eclipse.jetty.jmx.MBeanContainer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.log.Log;
+
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+
+/**
+ * Registers server components as MBeans.
+ * All Jetty JMX classes are referenced here so that they are only needed on the classpath if MBeans are registered.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class SmallJettyJMX
+{
+	private SmallJettyJMX() {}
+
+	/**
+	 * Checks if the JMX classes are available.
+	 * @throws SmallFrameworkSetupException if a class is not available.
+	 */
+	static void checkAvailable()
+	{
+		try {
+			Class.forName("javax.management.MBeanServer");
+			Class.forName("org.eclipse.jetty.jmx.MBeanContainer");
+		} catch (ClassNotFoundException e) {
+			throw new SmallFrameworkSetupException("JMX is not available. Cannot find Jetty JMX or java.management classes.");
+		}
+	}
+
+	/**
+	 * Adds an MBean container for the platform MBean server to a server.
+	 * The server's current and future components (thread pool, connectors, handlers, and so on) 
+	 * are registered when it starts, and unregistered when it is destroyed.
+	 * @param server the server.
+	 */
+	static void addMBeanContainer(Server server)
+	{
+		MBeanContainer mbeanContainer = new MBeanContainer(ManagementFactory.getPlatformMBeanServer());
+		server.addEventListener(mbeanContainer);
+		server.addBean(mbeanContainer);
+		server.addBean(Log.getLog());
+	}
+
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.ConnectionLimit;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * A handle to a running server created by {@link SmallJettyBootstrap}, which can change some of
+ * its settings while it is running.
+ * <p>Changes are applied to the live thread pool, connectors, and GZip handler, and are not written back to 
+ * the configuration that the server was created with.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+public final class SmallJettyServer
+{
+	private final Server server;
+
+	SmallJettyServer(Server server)
+	{
+		this.server = server;
+	}
+
+	/**
+	 * @return the underlying Jetty server.
+	 */
+	public Server getServer()
+	{
+		return server;
+	}
+
+	/**
+	 * @return a new snapshot of this server's statistics.
+	 * @see SmallJettyStats#snapshot(Server)
+	 */
+	public SmallJettyStats getStats()
+	{
+		return SmallJettyStats.snapshot(server);
+	}
+
+	/**
+	 * @return the startup timings for this server.
+	 */
+	public SmallJettyStartupTimings getStartupTimings()
+	{
+		return server.getBean(SmallJettyStartupTimings.class);
+	}
+
+	/**
+	 * Stops the server.
+	 * @throws Exception if the server could not be stopped.
+	 */
+	public void stop() throws Exception
+	{
+		server.stop();
+	}
+
+	/**
+	 * Waits for the server to stop.
+	 * @throws InterruptedException if the wait was interrupted.
+	 */
+	public void join() throws InterruptedException
+	{
+		server.join();
+	}
+
+	/**
+	 * @return the maximum amount of threads in the thread pool.
+	 * @throws IllegalStateException if the thread pool has no maximum size.
+	 */
+	public int getMaxThreads()
+	{
+		return getSizedThreadPool().getMaxThreads();
+	}
+
+	/**
+	 * Sets the maximum amount of threads in the thread pool.
+	 * Lowering it does not interrupt busy threads - the pool shrinks as threads become idle.
+	 * @param maxThreads the new maximum.
+	 * @throws IllegalArgumentException if the maximum is less than 1 or less than the minimum threads.
+	 * @throws IllegalStateException if the thread pool has no maximum size.
+	 */
+	public void setMaxThreads(int maxThreads)
+	{
+		ThreadPool.SizedThreadPool threadPool = getSizedThreadPool();
+		synchronized (threadPool)
+		{
+			if (maxThreads < 1)
+				throw new IllegalArgumentException("Max threads is less than 1.");
+			if (maxThreads < threadPool.getMinThreads())
+				throw new IllegalArgumentException("Max threads is less than min threads.");
+			threadPool.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * @return the minimum amount of threads in the thread pool.
+	 * @throws IllegalStateException if the thread pool has no minimum size.
+	 */
+	public int getMinThreads()
+	{
+		return getSizedThreadPool().getMinThreads();
+	}
+
+	/**
+	 * Sets the minimum amount of threads in the thread pool.
+	 * Raising it starts new threads right away.
+	 * @param minThreads the new minimum.
+	 * @throws IllegalArgumentException if the minimum is less than 0 or greater than the maximum threads.
+	 * @throws IllegalStateException if the thread pool has no minimum size.
+	 */
+	public void setMinThreads(int minThreads)
+	{
+		ThreadPool.SizedThreadPool threadPool = getSizedThreadPool();
+		synchronized (threadPool)
+		{
+			if (minThreads < 0)
+				throw new IllegalArgumentException("Min threads is less than 0.");
+			if (minThreads > threadPool.getMaxThreads())
+				throw new IllegalArgumentException("Min threads is greater than max threads.");
+			threadPool.setMinThreads(minThreads);
+		}
+	}
+
+	/**
+	 * Sets the idle timeout on all connectors.
+	 * The timeout is also applied to connections that are already open.
+	 * @param idleTimeout the new idle timeout in milliseconds.
+	 * @throws IllegalArgumentException if the timeout is less than 0.
+	 */
+	public void setIdleTimeout(long idleTimeout)
+	{
+		if (idleTimeout < 0)
+			throw new IllegalArgumentException("Idle timeout is less than 0.");
+		for (Connector connector : server.getConnectors())
+		{
+			if (!(connector instanceof AbstractConnector))
+				continue;
+			((AbstractConnector)connector).setIdleTimeout(idleTimeout);
+			for (EndPoint endPoint : connector.getConnectedEndPoints())
+				endPoint.setIdleTimeout(idleTimeout);
+		}
+	}
+
+	/**
+	 * Sets the idle timeout on one connector.
+	 * The timeout is also applied to connections that are already open.
+	 * @param name the connector name.
+	 * @param idleTimeout the new idle timeout in milliseconds.
+	 * @throws IllegalArgumentException if there is no connector with that name, or the timeout is less than 0.
+	 */
+	public void setIdleTimeout(String name, long idleTimeout)
+	{
+		if (idleTimeout < 0)
+			throw new IllegalArgumentException("Idle timeout is less than 0.");
+		for (Connector connector : server.getConnectors())
+		{
+			if (!(connector instanceof AbstractConnector) || !name.equals(connector.getName()))
+				continue;
+			((AbstractConnector)connector).setIdleTimeout(idleTimeout);
+			for (EndPoint endPoint : connector.getConnectedEndPoints())
+				endPoint.setIdleTimeout(idleTimeout);
+			return;
+		}
+		throw new IllegalArgumentException("No connector named \"" + name + "\".");
+	}
+
+	/**
+	 * @param name the connector name.
+	 * @return the idle timeout of the connector in milliseconds.
+	 * @throws IllegalArgumentException if there is no connector with that name.
+	 */
+	public long getIdleTimeout(String name)
+	{
+		for (Connector connector : server.getConnectors())
+		{
+			if (name.equals(connector.getName()))
+				return connector.getIdleTimeout();
+		}
+		throw new IllegalArgumentException("No connector named \"" + name + "\".");
+	}
+
+	/**
+	 * @return the smallest response size in bytes that is compressed with GZip.
+	 * @throws IllegalStateException if GZip compression is not enabled on this server.
+	 */
+	public int getGzipMinSize()
+	{
+		return getGzipHandler().getMinGzipSize();
+	}
+
+	/**
+	 * Sets the smallest response size in bytes that is compressed with GZip.
+	 * @param minGzipSize the new minimum size.
+	 * @throws IllegalArgumentException if the size is less than 0.
+	 * @throws IllegalStateException if GZip compression is not enabled on this server.
+	 */
+	public void setGzipMinSize(int minGzipSize)
+	{
+		if (minGzipSize < 0)
+			throw new IllegalArgumentException("GZip minimum size is less than 0.");
+		getGzipHandler().setMinGzipSize(minGzipSize);
+	}
+
+	/**
+	 * @return the GZip compression level.
+	 * @throws IllegalStateException if GZip compression is not enabled on this server.
+	 */
+	public int getGzipCompressionLevel()
+	{
+		return getGzipHandler().getCompressionLevel();
+	}
+
+	/**
+	 * Sets the GZip compression level. Responses that are already being compressed keep their level.
+	 * @param compressionLevel the new compression level, from -1 (default) to 9.
+	 * @throws IllegalArgumentException if the level is not from -1 to 9.
+	 * @throws IllegalStateException if GZip compression is not enabled on this server.
+	 */
+	public void setGzipCompressionLevel(int compressionLevel)
+	{
+		if (compressionLevel < -1 || compressionLevel > 9)
+			throw new IllegalArgumentException("GZip compression level must be from -1 to 9.");
+		getGzipHandler().setCompressionLevel(compressionLevel);
+	}
+
+	/**
+	 * @return the maximum amount of connections across all connectors, or -1 if there is no limit.
+	 */
+	public int getMaxConnections()
+	{
+		ConnectionLimit connectionLimit = server.getBean(ConnectionLimit.class);
+		if (connectionLimit == null || connectionLimit.getMaxConnections() == Integer.MAX_VALUE)
+			return -1;
+		return connectionLimit.getMaxConnections();
+	}
+
+	/**
+	 * Sets the maximum amount of connections across all connectors.
+	 * <p>If the server was not created with a connection limit, one is added, but it only
+	 * counts connections that are opened after it was added.
+	 * @param maxConnections the new maximum, or 0 or less for no limit.
+	 * @throws Exception if a new connection limit could not be started.
+	 */
+	public void setMaxConnections(int maxConnections) throws Exception
+	{
+		synchronized (server)
+		{
+			ConnectionLimit connectionLimit = server.getBean(ConnectionLimit.class);
+			if (connectionLimit != null)
+			{
+				connectionLimit.setMaxConnections(maxConnections > 0 ? maxConnections : Integer.MAX_VALUE);
+			}
+			else if (maxConnections > 0)
+			{
+				connectionLimit = new SmallJettyConnectionLimit(maxConnections, server);
+				server.addBean(connectionLimit, true);
+				if (server.isStarted())
+					connectionLimit.start();
+			}
+		}
+	}
+
+	private ThreadPool.SizedThreadPool getSizedThreadPool()
+	{
+		ThreadPool threadPool = server.getThreadPool();
+		if (!(threadPool instanceof ThreadPool.SizedThreadPool))
+			throw new IllegalStateException("The server's thread pool cannot be resized.");
+		return (ThreadPool.SizedThreadPool)threadPool;
+	}
+
+	private GzipHandler getGzipHandler()
+	{
+		GzipHandler gzipHandler = server.getChildHandlerByClass(GzipHandler.class);
+		if (gzipHandler == null)
+			throw new IllegalStateException("GZip compression is not enabled on this server.");
+		return gzipHandler;
+	}
+
+	@Override
+	public String toString()
+	{
+		return server.toString();
+	}
+
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.Executor;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.IO;
+
+/**
+ * The ServerConnector used by the bootstrap.
+ * Adds support for binding with <code>SO_REUSEPORT</code>, which Jetty 9.4 does not expose.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class SmallJettyServerConnector extends ServerConnector
+{
+	private boolean reusePort;
+
+	SmallJettyServerConnector(Server server, Executor executor, int acceptors, int selectors, ConnectionFactory ... factories)
+	{
+		super(server, executor, null, null, acceptors, selectors, factories);
+		this.reusePort = false;
+	}
+
+	/**
+	 * @return true if the accept channel is bound with <code>SO_REUSEPORT</code>, false if not.
+	 */
+	boolean getReusePort()
+	{
+		return reusePort;
+	}
+
+	/**
+	 * Sets if the accept channel is bound with <code>SO_REUSEPORT</code>.
+	 * Only has an effect if set before this connector is started.
+	 * @param reusePort true to set the socket option, false to not.
+	 */
+	void setReusePort(boolean reusePort)
+	{
+		this.reusePort = reusePort;
+	}
+
+	@Override
+	protected ServerSocketChannel openAcceptChannel() throws IOException
+	{
+		if (!reusePort || isInheritChannel())
+			return super.openAcceptChannel();
+
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
+		try {
+			SocketOption<Boolean> reusePortOption = getReusePortOption();
+			if (reusePortOption == null || !serverChannel.supportedOptions().contains(reusePortOption))
+				throw new IOException("SO_REUSEPORT is not supported on this platform.");
+			serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, getReuseAddress());
+			serverChannel.setOption(reusePortOption, true);
+			serverChannel.bind(bindAddress, getAcceptQueueSize());
+		} catch (BindException e) {
+			IO.close(serverChannel);
+			throw new IOException("Failed to bind to " + bindAddress, e);
+		} catch (IOException e) {
+			IO.close(serverChannel);
+			throw e;
+		}
+		return serverChannel;
+	}
+
+	// SO_REUSEPORT is Java 9 or higher.
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> getReusePortOption()
+	{
+		try {
+			return (SocketOption<Boolean>)StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+		} catch (NoSuchFieldException | IllegalAccessException e) {
+			return null;
+		}
+	}
+
+}
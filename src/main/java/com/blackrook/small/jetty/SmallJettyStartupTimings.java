@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A breakdown of how long each phase of {@link SmallJettyBootstrap#create(SmallJettyConfiguration)} took.
+ * <p>The bootstrap adds one of these to the Server it creates as a bean, 
+ * so it can be fetched with <code>server.getBean(SmallJettyStartupTimings.class)</code>.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+public final class SmallJettyStartupTimings
+{
+	private final long startNanos;
+	private long lastNanos;
+	private final Map<String, Long> phases;
+
+	SmallJettyStartupTimings()
+	{
+		this.startNanos = System.nanoTime();
+		this.lastNanos = startNanos;
+		this.phases = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Ends a phase, starting the next one.
+	 * @param phase the name of the phase that ended.
+	 */
+	void mark(String phase)
+	{
+		long now = System.nanoTime();
+		phases.put(phase, now - lastNanos);
+		lastNanos = now;
+	}
+
+	/**
+	 * @return each phase name mapped to its duration in nanoseconds, in the order that the phases ran.
+	 */
+	public Map<String, Long> getPhases()
+	{
+		return Collections.unmodifiableMap(phases);
+	}
+
+	/**
+	 * @param phase the phase name.
+	 * @return the duration of the phase in nanoseconds, or -1 if there is no such phase.
+	 */
+	public long getPhase(String phase)
+	{
+		Long out = phases.get(phase);
+		return out != null ? out : -1L;
+	}
+
+	/**
+	 * @return the total duration of all phases in nanoseconds.
+	 */
+	public long getTotal()
+	{
+		return lastNanos - startNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("total ").append(toMillis(getTotal())).append(" ms (");
+		boolean first = true;
+		for (Map.Entry<String, Long> entry : phases.entrySet())
+		{
+			if (!first)
+				sb.append(", ");
+			sb.append(entry.getKey()).append(' ').append(toMillis(entry.getValue())).append(" ms");
+			first = false;
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	private static String toMillis(long nanos)
+	{
+		return String.format("%.3f", nanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+}
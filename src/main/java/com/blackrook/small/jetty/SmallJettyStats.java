@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * A point-in-time snapshot of a server's thread pool and connection statistics.
+ * <p>Connection statistics are gathered by the {@link ConnectionStatistics} that the bootstrap 
+ * adds to every connector, and count from when the server was started.
+ * Values that the server's thread pool does not provide are -1.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+public final class SmallJettyStats
+{
+	private final long timeMillis;
+	
+	private final int threads;
+	private final int idleThreads;
+	private final int busyThreads;
+	private final int maxThreads;
+	private final int queueSize;
+	private final boolean lowOnThreads;
+	
+	private final int selectors;
+	private final long connections;
+	private final long connectionsMax;
+	private final long connectionsOpened;
+	private final long bytesIn;
+	private final long bytesOut;
+	private final long connectionDurationMax;
+	private final double connectionDurationMean;
+	private final double connectionDurationStdDev;
+
+	private SmallJettyStats(Server server)
+	{
+		this.timeMillis = System.currentTimeMillis();
+		
+		ThreadPool threadPool = server.getThreadPool();
+		this.threads = threadPool.getThreads();
+		this.idleThreads = threadPool.getIdleThreads();
+		this.lowOnThreads = threadPool.isLowOnThreads();
+		this.maxThreads = threadPool instanceof ThreadPool.SizedThreadPool ? ((ThreadPool.SizedThreadPool)threadPool).getMaxThreads() : -1;
+		if (threadPool instanceof QueuedThreadPool)
+		{
+			QueuedThreadPool queuedThreadPool = (QueuedThreadPool)threadPool;
+			this.busyThreads = queuedThreadPool.getBusyThreads();
+			this.queueSize = queuedThreadPool.getQueueSize();
+		}
+		else
+		{
+			this.busyThreads = Math.max(threads - idleThreads, 0);
+			this.queueSize = -1;
+		}
+
+		int selectorCount = 0;
+		long connectionCount = 0L;
+		long connectionMaxCount = 0L;
+		long connectionTotal = 0L;
+		long received = 0L;
+		long sent = 0L;
+		long durationMax = 0L;
+		double durationTotal = 0.0;
+		double durationSquaredTotal = 0.0;
+		
+		// The same statistics object can be shared by several connectors.
+		Set<ConnectionStatistics> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Connector connector : server.getConnectors())
+		{
+			if (!(connector instanceof ContainerLifeCycle))
+				continue;
+			ContainerLifeCycle container = (ContainerLifeCycle)connector;
+			
+			for (SelectorManager selectorManager : container.getBeans(SelectorManager.class))
+				selectorCount += selectorManager.getSelectorCount();
+			
+			for (ConnectionStatistics statistics : container.getBeans(ConnectionStatistics.class))
+			{
+				if (!seen.add(statistics))
+					continue;
+				
+				// Connection durations are only sampled on close.
+				long closed = statistics.getConnectionsTotal() - statistics.getConnections();
+				connectionCount += statistics.getConnections();
+				connectionMaxCount += statistics.getConnectionsMax();
+				connectionTotal += statistics.getConnectionsTotal();
+				received += statistics.getReceivedBytes();
+				sent += statistics.getSentBytes();
+				durationMax = Math.max(durationMax, statistics.getConnectionDurationMax());
+				double mean = statistics.getConnectionDurationMean();
+				double stdDev = statistics.getConnectionDurationStdDev();
+				durationTotal += mean * closed;
+				durationSquaredTotal += (stdDev * stdDev + mean * mean) * closed;
+			}
+		}
+		
+		long closedTotal = connectionTotal - connectionCount;
+		this.selectors = selectorCount;
+		this.connections = connectionCount;
+		this.connectionsMax = connectionMaxCount;
+		this.connectionsOpened = connectionTotal;
+		this.bytesIn = received;
+		this.bytesOut = sent;
+		this.connectionDurationMax = durationMax;
+		this.connectionDurationMean = closedTotal > 0 ? durationTotal / closedTotal : 0.0;
+		this.connectionDurationStdDev = closedTotal > 0 ? Math.sqrt(Math.max(durationSquaredTotal / closedTotal - connectionDurationMean * connectionDurationMean, 0.0)) : 0.0;
+	}
+	
+	/**
+	 * Takes a snapshot of a server's statistics.
+	 * @param server the server (created by {@link SmallJettyBootstrap}).
+	 * @return a new snapshot.
+	 */
+	public static SmallJettyStats snapshot(Server server)
+	{
+		return new SmallJettyStats(server);
+	}
+
+	/**
+	 * @return the time that this snapshot was taken, in milliseconds since the epoch.
+	 */
+	public long getTimeMillis()
+	{
+		return timeMillis;
+	}
+
+	/**
+	 * @return the amount of threads in the thread pool.
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	/**
+	 * @return the amount of idle threads in the thread pool.
+	 */
+	public int getIdleThreads()
+	{
+		return idleThreads;
+	}
+
+	/**
+	 * @return the amount of threads in the thread pool that are running jobs.
+	 */
+	public int getBusyThreads()
+	{
+		return busyThreads;
+	}
+
+	/**
+	 * @return the maximum amount of threads in the thread pool, or -1 if it is not bounded.
+	 */
+	public int getMaxThreads()
+	{
+		return maxThreads;
+	}
+
+	/**
+	 * @return the fraction of the maximum amount of threads that are running jobs, from 0.0 to 1.0, or 0.0 if the thread pool is not bounded.
+	 */
+	public double getThreadUtilization()
+	{
+		return maxThreads > 0 ? Math.min((double)busyThreads / maxThreads, 1.0) : 0.0;
+	}
+
+	/**
+	 * @return the amount of jobs waiting in the thread pool's queue, or -1 if not known.
+	 */
+	public int getQueueSize()
+	{
+		return queueSize;
+	}
+
+	/**
+	 * @return true if the thread pool is low on threads, false if not.
+	 */
+	public boolean isLowOnThreads()
+	{
+		return lowOnThreads;
+	}
+
+	/**
+	 * @return the amount of selectors across all connectors.
+	 */
+	public int getSelectors()
+	{
+		return selectors;
+	}
+
+	/**
+	 * @return the amount of currently open connections.
+	 */
+	public long getConnections()
+	{
+		return connections;
+	}
+
+	/**
+	 * @return the maximum amount of simultaneously open connections (summed across connectors).
+	 */
+	public long getConnectionsMax()
+	{
+		return connectionsMax;
+	}
+
+	/**
+	 * @return the amount of connections opened.
+	 */
+	public long getConnectionsOpened()
+	{
+		return connectionsOpened;
+	}
+
+	/**
+	 * @return the amount of connections closed.
+	 */
+	public long getConnectionsClosed()
+	{
+		return connectionsOpened - connections;
+	}
+
+	/**
+	 * @return the amount of bytes received on closed connections.
+	 */
+	public long getBytesIn()
+	{
+		return bytesIn;
+	}
+
+	/**
+	 * @return the amount of bytes sent on closed connections.
+	 */
+	public long getBytesOut()
+	{
+		return bytesOut;
+	}
+
+	/**
+	 * @return the longest duration of a closed connection, in milliseconds.
+	 */
+	public long getConnectionDurationMax()
+	{
+		return connectionDurationMax;
+	}
+
+	/**
+	 * @return the mean duration of closed connections, in milliseconds.
+	 */
+	public double getConnectionDurationMean()
+	{
+		return connectionDurationMean;
+	}
+
+	/**
+	 * @return the standard deviation of the duration of closed connections, in milliseconds.
+	 */
+	public double getConnectionDurationStdDev()
+	{
+		return connectionDurationStdDev;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SmallJettyStats[threads=" + threads + ", idleThreads=" + idleThreads + ", busyThreads=" + busyThreads
+			+ ", maxThreads=" + maxThreads + ", queueSize=" + queueSize + ", lowOnThreads=" + lowOnThreads
+			+ ", selectors=" + selectors + ", connections=" + connections + ", connectionsMax=" + connectionsMax
+			+ ", connectionsOpened=" + connectionsOpened + ", bytesIn=" + bytesIn + ", bytesOut=" + bytesOut
+			+ ", connectionDurationMax=" + connectionDurationMax + ", connectionDurationMean=" + connectionDurationMean + "]";
+	}
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * The QueuedThreadPool used by the bootstrap.
+ * If job timing is enabled, this records how long each job waited in the queue,
+ * which can be read by the thread running the job via {@link #getCurrentJobQueueTime()}.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+class SmallJettyThreadPool extends QueuedThreadPool
+{
+	/** The queue wait time in nanoseconds of the job running on the current thread. */
+	private static final ThreadLocal<long[]> CURRENT_JOB_QUEUE_TIME = ThreadLocal.withInitial(() -> new long[1]);
+	
+	private boolean timeJobs;
+	
+	SmallJettyThreadPool(int maxThreads, int minThreads, int idleTimeout, int reservedThreads, BlockingQueue<Runnable> queue)
+	{
+		super(maxThreads, minThreads, idleTimeout, reservedThreads, queue, null);
+		this.timeJobs = false;
+	}
+	
+	/**
+	 * @return the amount of time in nanoseconds that the job running on the current thread waited in the queue, or 0 if not timed.
+	 */
+	static long getCurrentJobQueueTime()
+	{
+		return CURRENT_JOB_QUEUE_TIME.get()[0];
+	}
+	
+	/**
+	 * Sets if jobs are timed while waiting in the queue.
+	 * @param timeJobs true to time jobs, false to not.
+	 */
+	void setTimeJobs(boolean timeJobs)
+	{
+		this.timeJobs = timeJobs;
+	}
+	
+	@Override
+	public void execute(Runnable job)
+	{
+		super.execute(timeJobs ? new TimedJob(job) : job);
+	}
+	
+	@Override
+	protected void runJob(Runnable job)
+	{
+		if (job instanceof TimedJob)
+		{
+			TimedJob timedJob = (TimedJob)job;
+			long[] queueTime = CURRENT_JOB_QUEUE_TIME.get();
+			queueTime[0] = System.nanoTime() - timedJob.queuedNanos;
+			try {
+				super.runJob(timedJob.job);
+			} finally {
+				queueTime[0] = 0L;
+			}
+		}
+		else
+		{
+			super.runJob(job);
+		}
+	}
+	
+	/**
+	 * A job wrapper that remembers when it was queued.
+	 */
+	private static class TimedJob implements Runnable, Invocable, Closeable
+	{
+		private final Runnable job;
+		private final long queuedNanos;
+		
+		private TimedJob(Runnable job)
+		{
+			this.job = job;
+			this.queuedNanos = System.nanoTime();
+		}
+		
+		@Override
+		public void run()
+		{
+			job.run();
+		}
+		
+		@Override
+		public InvocationType getInvocationType()
+		{
+			return Invocable.getInvocationType(job);
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			if (job instanceof Closeable)
+				((Closeable)job).close();
+		}
+	}
+	
+}
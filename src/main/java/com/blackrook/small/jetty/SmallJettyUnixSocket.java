@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.unixsocket.UnixSocketConnector;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+import com.blackrook.small.jetty.SmallJettyConfiguration.UnixSocketConfiguration;
+
+/**
+ * Creates Unix domain socket connectors.
+ * All Jetty Unix socket classes are referenced here so that they are only needed on the classpath if a Unix socket is used.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class SmallJettyUnixSocket
+{
+	private SmallJettyUnixSocket() {}
+
+	/**
+	 * Checks if the Unix socket classes are available.
+	 * @throws SmallFrameworkSetupException if a class is not available.
+	 */
+	static void checkAvailable()
+	{
+		try {
+			Class.forName("org.eclipse.jetty.unixsocket.UnixSocketConnector");
+			Class.forName("jnr.unixsocket.UnixServerSocketChannel");
+		} catch (ClassNotFoundException e) {
+			throw new SmallFrameworkSetupException("Jetty Unix sockets are not available. Cannot find Jetty Unix socket or JNR Unix socket classes.");
+		}
+	}
+
+	/**
+	 * Creates a Unix domain socket connector.
+	 * @param server the server.
+	 * @param unixSocketConfig the Unix socket configuration.
+	 * @param selectors the amount of selectors, or -1 for a heuristic.
+	 * @param acceptQueueSize the accept queue size, or 0 for the connector default.
+	 * @param factories the connection factories.
+	 * @return the new connector.
+	 */
+	static AbstractConnector createConnector(Server server, UnixSocketConfiguration unixSocketConfig, int selectors, int acceptQueueSize, ConnectionFactory ... factories)
+	{
+		if (unixSocketConfig.getPath() == null)
+			throw new SmallFrameworkSetupException("Unix socket was configured without a path.");
+		if (unixSocketConfig.getPath().length() > UnixSocketConnector.MAX_UNIX_SOCKET_PATH_LENGTH)
+			throw new SmallFrameworkSetupException("Unix socket path is longer than " + UnixSocketConnector.MAX_UNIX_SOCKET_PATH_LENGTH + " characters.");
+		if (unixSocketConfig.getPermissions() != null) try {
+			PosixFilePermissions.fromString(unixSocketConfig.getPermissions());
+		} catch (IllegalArgumentException e) {
+			throw new SmallFrameworkSetupException("Unix socket permissions are not valid: " + unixSocketConfig.getPermissions());
+		}
+		
+		PermissionedUnixSocketConnector connector = new PermissionedUnixSocketConnector(server, selectors, factories);
+		connector.setUnixSocket(unixSocketConfig.getPath());
+		connector.permissions = unixSocketConfig.getPermissions();
+		if (acceptQueueSize > 0)
+			connector.setAcceptQueueSize(acceptQueueSize);
+		return connector;
+	}
+
+	/**
+	 * A Unix socket connector that removes stale socket files before binding 
+	 * and sets the socket file's permissions after binding.
+	 * A socket file is only stale if nothing accepts connections on it.
+	 */
+	private static class PermissionedUnixSocketConnector extends UnixSocketConnector
+	{
+		private String permissions;
+
+		private PermissionedUnixSocketConnector(Server server, int selectors, ConnectionFactory ... factories)
+		{
+			super(server, selectors, factories);
+		}
+
+		@Override
+		public void open() throws IOException
+		{
+			if (isOpen())
+				return;
+			
+			Path socketPath = Paths.get(getUnixSocket());
+			// A socket file left behind by an unclean shutdown. Not a regular file nor directory.
+			if (Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS) && !Files.isRegularFile(socketPath, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(socketPath, LinkOption.NOFOLLOW_LINKS))
+			{
+				if (isListening(socketPath))
+					throw new BindException("Unix socket is in use by another process: " + socketPath);
+				Files.delete(socketPath);
+			}
+			
+			super.open();
+			
+			if (permissions != null)
+				Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString(permissions));
+		}
+		
+		// Checks if a process accepts connections on a socket file.
+		private static boolean isListening(Path socketPath)
+		{
+			UnixSocketChannel channel;
+			try {
+				channel = UnixSocketChannel.open(new UnixSocketAddress(socketPath.toFile()));
+			} catch (IOException e) {
+				return false;
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Ignore.
+			}
+			return true;
+		}
+	}
+
+}
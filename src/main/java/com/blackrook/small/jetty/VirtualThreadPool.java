@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+
+/**
+ * A Jetty thread pool that runs each task on a new virtual thread.
+ * Virtual threads are only available on Java 21 or higher, so the executor is fetched reflectively.
+ * @author Matthew Tropiano
+ * @since 1.6.0
+ */
+final class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool
+{
+	private final AtomicInteger activeThreads;
+	private ExecutorService executor;
+
+	VirtualThreadPool()
+	{
+		this.activeThreads = new AtomicInteger(0);
+		this.executor = null;
+	}
+
+	/**
+	 * @return true if virtual threads are available in this JVM, false if not.
+	 */
+	static boolean isAvailable()
+	{
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static ExecutorService createExecutor()
+	{
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new SmallFrameworkSetupException("Virtual threads are not available. Java 21 or higher is required.");
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new SmallFrameworkSetupException("Could not create virtual thread executor.", e);
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception
+	{
+		executor = createExecutor();
+		super.doStart();
+	}
+
+	@Override
+	protected void doStop() throws Exception
+	{
+		super.doStop();
+		executor.shutdown();
+		if (!executor.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS))
+			executor.shutdownNow();
+	}
+
+	@Override
+	public void execute(Runnable command)
+	{
+		if (executor == null)
+			throw new RejectedExecutionException("Thread pool is not started.");
+
+		executor.execute(() -> {
+			activeThreads.incrementAndGet();
+			try {
+				command.run();
+			} finally {
+				activeThreads.decrementAndGet();
+			}
+		});
+	}
+
+	@Override
+	public void join() throws InterruptedException
+	{
+		while (executor != null && !executor.awaitTermination(1, TimeUnit.DAYS));
+	}
+
+	@Override
+	public int getThreads()
+	{
+		return activeThreads.get();
+	}
+
+	@Override
+	public int getIdleThreads()
+	{
+		return 0;
+	}
+
+	@Override
+	public boolean isLowOnThreads()
+	{
+		return false;
+	}
+
+}
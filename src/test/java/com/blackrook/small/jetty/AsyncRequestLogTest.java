@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the
+ * terms of the GNU Lesser Public License v2.1 which accompanies this
+ * distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.RequestLogConfigurationBuilder;
+
+/**
+ * Checks {@link AsyncRequestLog}'s entry format, and its size-based rotation.
+ */
+public final class AsyncRequestLogTest
+{
+	private AsyncRequestLogTest() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		Path dir = Files.createTempDirectory("asyncrequestlog");
+		try {
+			format(dir.resolve("format.log"));
+			rotation(dir.resolve("rotation.log"));
+		} finally {
+			delete(dir);
+		}
+		System.out.println("AsyncRequestLogTest: OK");
+	}
+
+	private static void format(Path path) throws Exception
+	{
+		AsyncRequestLog log = new AsyncRequestLog(RequestLogConfigurationBuilder.requestLog(path.toString()).setExtended(true));
+		serve(log,
+			"GET /one HTTP/1.1\r\nHost: localhost\r\nReferer: http://example.com/\r\nUser-Agent: check\r\nConnection: close\r\n\r\n",
+			"GET /two?x=1 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n",
+			"GET /missing HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+		);
+
+		checkEquals(3L, log.getWrittenEntries(), "written entries");
+		checkEquals(0L, log.getDroppedEntries(), "dropped entries");
+		checkEquals(0, log.getPendingEntries(), "pending entries");
+
+		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		checkEquals(3, lines.size(), "log lines");
+		String one = find(lines, "/one ");
+		check(one.matches("\\S+ - - \\[\\d{2}/\\w{3}/\\d{4}:\\d{2}:\\d{2}:\\d{2} \\+0000\\] \"GET /one HTTP/1\\.1\" 200 5 \"http://example\\.com/\" \"check\""), "combined format: " + one);
+		String two = find(lines, "/two");
+		check(two.endsWith("\"GET /two?x=1 HTTP/1.1\" 200 5 \"-\" \"-\""), "query and missing headers: " + two);
+		String missing = find(lines, "/missing");
+		check(missing.contains("\"GET /missing HTTP/1.1\" 404 "), "status: " + missing);
+	}
+
+	private static void rotation(Path path) throws Exception
+	{
+		// A batch only fits one entry, so each entry is a separate write, and each write after the first rotates.
+		AsyncRequestLog log = new AsyncRequestLog(RequestLogConfigurationBuilder.requestLog(path.toString())
+			.setExtended(false)
+			.setBatchSize(128)
+			.setRotateSize(1)
+			.setRetainFiles(1)
+		);
+		// Files that only share the log's name must not be taken for rotated files.
+		Path backup = path.resolveSibling(path.getFileName() + ".bak");
+		Path old = path.resolveSibling(path.getFileName() + ".20200101T000000.000.old");
+		Files.createFile(backup);
+		Files.createFile(old);
+		String request = "GET /one HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+		serve(log, request, request, request);
+
+		checkEquals(3L, log.getWrittenEntries(), "written entries");
+		checkEquals(2L, log.getRotations(), "rotations");
+		checkEquals(1, Files.readAllLines(path, StandardCharsets.UTF_8).size(), "current file lines");
+		check(Files.exists(backup) && Files.exists(old), "files that are not rotated logs are kept");
+
+		List<Path> rotated = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(path.getParent(), path.getFileName() + ".[0-9]*[0-9]")) {
+			for (Path file : stream)
+				rotated.add(file);
+		}
+		checkEquals(1, rotated.size(), "retained rotated files");
+		checkEquals(1, Files.readAllLines(rotated.get(0), StandardCharsets.UTF_8).size(), "rotated file lines");
+	}
+
+	// Finds the line for a request. Entries are logged after their responses complete, so their order may vary.
+	private static String find(List<String> lines, String uri)
+	{
+		for (String line : lines)
+			if (line.contains(" " + uri))
+				return line;
+		throw new AssertionError("no entry for " + uri + ": " + lines);
+	}
+
+	// Serves each request, in order, from a server that logs to the provided log, and stops the server once all are logged.
+	private static void serve(AsyncRequestLog log, String ... requests) throws Exception
+	{
+		Server server = new Server();
+		LocalConnector connector = new LocalConnector(server);
+		server.addConnector(connector);
+		server.setRequestLog(log);
+		server.setHandler(new AbstractHandler()
+		{
+			@Override
+			public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+			{
+				if (target.equals("/missing"))
+					return;
+				baseRequest.setHandled(true);
+				response.setStatus(HttpServletResponse.SC_OK);
+				response.getOutputStream().write("hello".getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		server.start();
+		try {
+			for (String request : requests)
+				connector.getResponse(request);
+			// Responses are returned before their entries are logged.
+			long deadline = System.currentTimeMillis() + 5000L;
+			while (log.getWrittenEntries() + log.getPendingEntries() < requests.length && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static void delete(Path dir) throws IOException
+	{
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path file : stream)
+				Files.delete(file);
+		}
+		Files.delete(dir);
+	}
+
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the
+ * terms of the GNU Lesser Public License v2.1 which accompanies this
+ * distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+import static com.blackrook.small.jetty.SmallJettyTestMain.header;
+import static com.blackrook.small.jetty.SmallJettyTestMain.request;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.CompressionConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.GZipConfigurationBuilder;
+import com.blackrook.small.jetty.SmallJettyConfiguration.CompressionConfiguration;
+
+/**
+ * Checks {@link CompressionHandler}'s <code>Accept-Encoding</code> negotiation, and its entity tag suffixes.
+ * The handlers are set up the way {@link SmallJettyBootstrap} sets them up, with GZip left to the GzipHandler.
+ */
+public final class CompressionHandlerTest
+{
+	private static final byte[] CONTENT;
+	static
+	{
+		char[] text = new char[8192];
+		Arrays.fill(text, 'a');
+		CONTENT = new String(text).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private CompressionHandlerTest() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		LocalConnector connector = start();
+		try {
+			negotiation(connector);
+			etags(connector);
+		} finally {
+			connector.getServer().stop();
+		}
+		System.out.println("CompressionHandlerTest: OK");
+	}
+
+	private static void negotiation(LocalConnector connector) throws Exception
+	{
+		checkEncoding(connector, null, null, "no Accept-Encoding");
+		checkEncoding(connector, "br", "br", "only Brotli");
+		checkEncoding(connector, "zstd", "zstd", "only Zstandard");
+		checkEncoding(connector, "gzip", "gzip", "only GZip is left to the GzipHandler");
+		checkEncoding(connector, "gzip, zstd, br", "br", "ties go to the preferred encoding");
+		checkEncoding(connector, "br;q=0.5, zstd", "zstd", "highest quality wins");
+		checkEncoding(connector, "gzip, br;q=0.8", "gzip", "GZip with a higher quality is left to the GzipHandler");
+		checkEncoding(connector, "br;q=0, zstd;q=0.1", "zstd", "q=0 is not acceptable");
+		checkEncoding(connector, "br;q=0", null, "nothing acceptable");
+		checkEncoding(connector, "BR", "br", "encodings are case insensitive");
+		checkEncoding(connector, "identity", null, "identity");
+		checkEncoding(connector, "identity, br;q=0.5", null, "identity with a higher quality");
+		checkEncoding(connector, "*", "br", "any encoding picks the preferred encoding");
+		checkEncoding(connector, "br;q=0, *", "zstd", "any encoding skips encodings that are mentioned");
+		checkEncoding(connector, "br;q=0.1, zstd;q=0.1, *", null, "any encoding defers to GZip, which Jetty only applies if asked for by name");
+		checkEncoding(connector, "deflate, br;q=0.5", "br", "unsupported encodings are skipped");
+	}
+
+	private static void etags(LocalConnector connector) throws Exception
+	{
+		checkEquals("\"v1--br\"", header(connector.getResponse(request("/", "Accept-Encoding: br")), "ETag"), "Brotli entity tag");
+		checkEquals("\"v1--zstd\"", header(connector.getResponse(request("/", "Accept-Encoding: zstd")), "ETag"), "Zstandard entity tag");
+		checkEquals("\"v1\"", header(connector.getResponse(request("/")), "ETag"), "uncompressed entity tag");
+
+		checkEquals("\"v1\"", received(connector, "If-None-Match: \"v1--br\""), "If-None-Match Brotli suffix");
+		checkEquals("W/\"v1\"", received(connector, "If-None-Match: W/\"v1--zstd\""), "If-None-Match weak Zstandard suffix");
+		checkEquals("\"a\", \"v1\"", received(connector, "If-None-Match: \"a\", \"v1--br\""), "If-None-Match list");
+		checkEquals("\"v1\"", received(connector, "If-Match: \"v1--zstd\""), "If-Match suffix");
+		checkEquals("\"v1\"", received(connector, "If-None-Match: \"v1--gzip\""), "GZip suffix is stripped by the GzipHandler");
+		checkEquals("\"v1--brx\"", received(connector, "If-None-Match: \"v1--brx\""), "other suffixes are kept");
+	}
+
+	private static void checkEncoding(LocalConnector connector, String acceptEncoding, String expected, String message) throws Exception
+	{
+		String response = acceptEncoding != null
+			? connector.getResponse(request("/", "Accept-Encoding: " + acceptEncoding))
+			: connector.getResponse(request("/"));
+		checkEquals(expected, header(response, "Content-Encoding"), message + " (" + acceptEncoding + ")");
+	}
+
+	// Gets the conditional header that the handler received for a request with a conditional header.
+	private static String received(LocalConnector connector, String conditionalHeader) throws Exception
+	{
+		return header(connector.getResponse(request("/", "Accept-Encoding: br", conditionalHeader)), "X-Received");
+	}
+
+	private static LocalConnector start() throws Exception
+	{
+		SmallJettyCompression.checkAvailable(CompressionConfiguration.ENCODING_BROTLI);
+		SmallJettyCompression.checkAvailable(CompressionConfiguration.ENCODING_ZSTD);
+		GZipConfigurationBuilder gzip = GZipConfigurationBuilder.gzip();
+		CompressionHandler compressionHandler = new CompressionHandler(CompressionConfigurationBuilder.compression()
+			.setBrotli(GZipConfigurationBuilder.gzip().setCompressionLevel(4))
+			.setZstd(GZipConfigurationBuilder.gzip().setCompressionLevel(3))
+			.setGZip(gzip)
+		);
+		compressionHandler.setHandler(new AbstractHandler()
+		{
+			@Override
+			public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+			{
+				baseRequest.setHandled(true);
+				String conditional = request.getHeader("If-None-Match") != null ? request.getHeader("If-None-Match") : request.getHeader("If-Match");
+				if (conditional != null)
+					response.setHeader("X-Received", conditional);
+				response.setHeader("ETag", "\"v1\"");
+				response.setContentType("text/plain");
+				response.setContentLength(CONTENT.length);
+				response.getOutputStream().write(CONTENT);
+			}
+		});
+		GzipHandler gzipHandler = new SmallJettyGzipHandler(gzip.getBufferSize());
+		gzipHandler.setMinGzipSize(gzip.getMinGzipSize());
+		gzipHandler.setHandler(compressionHandler);
+
+		Server server = new Server();
+		LocalConnector connector = new LocalConnector(server);
+		server.addConnector(connector);
+		server.setHandler(gzipHandler);
+		server.start();
+		return connector;
+	}
+
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks {@link LatencyHistogram}'s quantiles against known distributions.
+ */
+public final class LatencyHistogramTest
+{
+	private LatencyHistogramTest() {}
+
+	public static void main(String[] args)
+	{
+		empty();
+		smallValues();
+		uniform();
+		outOfRange();
+		reset();
+		System.out.println("LatencyHistogramTest: OK");
+	}
+
+	private static void empty()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		long[] values = histogram.getValuesAtQuantiles(0.0, 0.5, 1.0);
+		checkEquals(0L, values[0] + values[1] + values[2], "empty quantiles");
+		checkEquals(0L, histogram.getCount(), "empty count");
+	}
+
+	// Values under 64 microseconds each have their own bucket.
+	private static void smallValues()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(20));
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(30));
+		long[] values = histogram.getValuesAtQuantiles(0.0, 0.34, 0.5, 1.0);
+		checkEquals(10999L, values[0], "p0 is the highest value of the lowest bucket");
+		checkEquals(20999L, values[1], "p34 is in the second bucket");
+		checkEquals(20999L, values[2], "p50");
+		checkEquals(30000L, values[3], "p100 is capped at the max");
+		checkEquals(3L, histogram.getCount(), "count");
+		checkEquals(60000L, histogram.getTotal(), "total");
+		checkEquals(30000L, histogram.getMax(), "max");
+	}
+
+	// Above 64 microseconds, a value is off by at most 1/64th.
+	private static void uniform()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++)
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+		
+		double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+		long[] values = histogram.getValuesAtQuantiles(quantiles);
+		for (int i = 0; i < quantiles.length; i++)
+		{
+			long expected = TimeUnit.MICROSECONDS.toNanos(Math.round(quantiles[i] * 10000));
+			check(values[i] >= expected && values[i] <= expected + expected / 64 + 1000, "p" + (quantiles[i] * 100) + ": expected about " + expected + " but was " + values[i]);
+		}
+		checkEquals(TimeUnit.MICROSECONDS.toNanos(10000), histogram.getValuesAtQuantiles(1.0)[0], "p100 is the max");
+	}
+
+	private static void outOfRange()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5L);
+		histogram.record(TimeUnit.DAYS.toNanos(365));
+		long[] values = histogram.getValuesAtQuantiles(-1.0, 0.5, 2.0);
+		checkEquals(999L, values[0], "negative values are recorded as 0, and quantiles are clamped");
+		checkEquals(999L, values[1], "p50");
+		// The last bucket ends at 2^37 microseconds.
+		checkEquals((1L << 37) * 1000L - 1L, values[2], "values past the last bucket are reported as its highest value");
+		checkEquals(TimeUnit.DAYS.toNanos(365), histogram.getMax(), "max is exact");
+	}
+
+	private static void reset()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000L);
+		histogram.reset();
+		checkEquals(0L, histogram.getCount(), "count after reset");
+		checkEquals(0L, histogram.getMax(), "max after reset");
+		checkEquals(0L, histogram.getValuesAtQuantiles(0.5)[0], "p50 after reset");
+	}
+
+}
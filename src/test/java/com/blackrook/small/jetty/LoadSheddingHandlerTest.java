@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.LoadSheddingConfigurationBuilder;
+
+/**
+ * Checks {@link LoadSheddingHandler}'s queue size limit, and {@link SmallJettyThreadPool}'s job queue timing.
+ */
+public final class LoadSheddingHandlerTest
+{
+	private static final String REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+	
+	private LoadSheddingHandlerTest() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		queueSize();
+		queueTime();
+		System.out.println("LoadSheddingHandlerTest: OK");
+	}
+
+	private static void queueSize() throws Exception
+	{
+		AtomicInteger queueSize = new AtomicInteger(0);
+		LoadSheddingHandler handler = new LoadSheddingHandler(LoadSheddingConfigurationBuilder.loadShedding().setMaxQueueSize(5).setRetryAfter(7), queueSize::get);
+		handler.setHandler(new AbstractHandler()
+		{
+			@Override
+			public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+			{
+				baseRequest.setHandled(true);
+				response.setStatus(HttpServletResponse.SC_OK);
+			}
+		});
+		
+		Server server = new Server();
+		LocalConnector connector = new LocalConnector(server);
+		server.addConnector(connector);
+		server.setHandler(handler);
+		server.start();
+		try {
+			queueSize.set(4);
+			check(connector.getResponse(REQUEST).startsWith("HTTP/1.1 200"), "request under the queue limit is handled");
+			queueSize.set(5);
+			String response = connector.getResponse(REQUEST);
+			check(response.startsWith("HTTP/1.1 503"), "request at the queue limit is shed: " + response);
+			check(response.contains("Retry-After: 7"), "shed response has Retry-After: " + response);
+			checkEquals(1L, handler.getQueueFullRejections(), "queue full rejections");
+			checkEquals(0L, handler.getQueueWaitRejections(), "queue wait rejections");
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static void queueTime() throws Exception
+	{
+		SmallJettyThreadPool threadPool = new SmallJettyThreadPool(2, 2, 60000, 0, null);
+		threadPool.start();
+		try {
+			AtomicLong untimed = new AtomicLong(-1L);
+			CountDownLatch untimedDone = new CountDownLatch(1);
+			threadPool.execute(() -> 
+			{
+				untimed.set(SmallJettyThreadPool.getCurrentJobQueueTime());
+				untimedDone.countDown();
+			});
+			check(untimedDone.await(5, TimeUnit.SECONDS), "untimed job ran");
+			checkEquals(0L, untimed.get(), "untimed job queue time");
+			
+			threadPool.setTimeJobs(true);
+			CountDownLatch blocked = new CountDownLatch(1);
+			for (int i = 0; i < 2; i++)
+			{
+				threadPool.execute(() -> 
+				{
+					try {
+						blocked.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			AtomicLong timed = new AtomicLong(-1L);
+			CountDownLatch timedDone = new CountDownLatch(1);
+			threadPool.execute(() -> 
+			{
+				timed.set(SmallJettyThreadPool.getCurrentJobQueueTime());
+				timedDone.countDown();
+			});
+			Thread.sleep(100);
+			blocked.countDown();
+			check(timedDone.await(5, TimeUnit.SECONDS), "queued job ran");
+			check(timed.get() >= TimeUnit.MILLISECONDS.toNanos(100), "queued job queue time: " + timed.get());
+			checkEquals(0L, SmallJettyThreadPool.getCurrentJobQueueTime(), "queue time outside of a job");
+		} finally {
+			threadPool.stop();
+		}
+	}
+
+}
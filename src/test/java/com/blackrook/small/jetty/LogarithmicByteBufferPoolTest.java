@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+
+/**
+ * Checks {@link LogarithmicByteBufferPool}'s bucket sizes and retained buffer and memory caps.
+ */
+public final class LogarithmicByteBufferPoolTest
+{
+	private LogarithmicByteBufferPoolTest() {}
+
+	public static void main(String[] args)
+	{
+		bucketCapacities();
+		reuse();
+		queueLengthCap();
+		memoryCap();
+		directBuffers();
+		System.out.println("LogarithmicByteBufferPoolTest: OK");
+	}
+
+	private static void bucketCapacities()
+	{
+		LogarithmicByteBufferPool pool = new LogarithmicByteBufferPool(1000, 60000, 0, 0, 0, true);
+		checkEquals(1024, pool.acquire(1, false).capacity(), "below the min capacity");
+		checkEquals(1024, pool.acquire(1024, false).capacity(), "exact power of two");
+		checkEquals(2048, pool.acquire(1025, false).capacity(), "rounded up");
+		checkEquals(65536, pool.acquire(65536, false).capacity(), "max capacity is rounded up too");
+		checkEquals(65537, pool.acquire(65537, false).capacity(), "over the max capacity is not rounded");
+		
+		pool.release(ByteBuffer.allocate(65537));
+		pool.release(ByteBuffer.allocate(1000));
+		checkEquals(0L, pool.getHeapByteBufferCount(), "buffers without a bucket's capacity are not pooled");
+	}
+
+	private static void reuse()
+	{
+		LogarithmicByteBufferPool pool = new LogarithmicByteBufferPool(1024, 65536, 0, 0, 0, true);
+		ByteBuffer buffer = pool.acquire(1500, false);
+		BufferUtil.append(buffer, (byte)1);
+		pool.release(buffer);
+		checkEquals(1L, pool.getHeapByteBufferCount(), "pooled count");
+		checkEquals(2048L, pool.getHeapMemory(), "pooled memory");
+		
+		ByteBuffer again = pool.acquire(2000, false);
+		check(again == buffer, "same bucket reuses the buffer");
+		checkEquals(0, again.remaining(), "reused buffer is cleared");
+		checkEquals(0L, pool.getHeapMemory(), "memory after reuse");
+		
+		pool.release(again);
+		pool.clear();
+		checkEquals(0L, pool.getHeapByteBufferCount(), "count after clear");
+		checkEquals(0L, pool.getHeapMemory(), "memory after clear");
+	}
+
+	private static void queueLengthCap()
+	{
+		LogarithmicByteBufferPool pool = new LogarithmicByteBufferPool(1024, 65536, 2, 0, 0, true);
+		for (int i = 0; i < 3; i++)
+			pool.release(ByteBuffer.allocate(1024));
+		pool.release(ByteBuffer.allocate(2048));
+		checkEquals(3L, pool.getHeapByteBufferCount(), "at most 2 buffers per bucket");
+		checkEquals(4096L, pool.getHeapMemory(), "memory of kept buffers");
+	}
+
+	private static void memoryCap()
+	{
+		LogarithmicByteBufferPool pool = new LogarithmicByteBufferPool(1024, 65536, 0, 8192, 0, true);
+		pool.release(ByteBuffer.allocate(4096));
+		pool.release(ByteBuffer.allocate(2048));
+		pool.release(ByteBuffer.allocate(4096));
+		checkEquals(6144L, pool.getHeapMemory(), "buffer over the memory cap is dropped");
+		pool.release(ByteBuffer.allocate(2048));
+		checkEquals(8192L, pool.getHeapMemory(), "buffer up to the memory cap is kept");
+		checkEquals(3L, pool.getHeapByteBufferCount(), "kept buffers");
+	}
+
+	private static void directBuffers()
+	{
+		LogarithmicByteBufferPool pool = new LogarithmicByteBufferPool(1024, 65536, 0, 0, 1024, true);
+		ByteBuffer direct = pool.acquire(1024, true);
+		check(direct.isDirect(), "direct buffer");
+		pool.release(direct);
+		pool.release(ByteBuffer.allocateDirect(1024));
+		checkEquals(1L, pool.getDirectByteBufferCount(), "direct memory cap");
+		checkEquals(0L, pool.getHeapByteBufferCount(), "direct buffers are kept apart from heap buffers");
+		
+		LogarithmicByteBufferPool heapOnly = new LogarithmicByteBufferPool(1024, 65536, 0, 0, 0, false);
+		check(!heapOnly.acquire(1024, true).isDirect(), "heap buffer when direct buffers are off");
+	}
+
+}
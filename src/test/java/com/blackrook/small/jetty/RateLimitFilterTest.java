@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.RateLimitConfigurationBuilder;
+
+/**
+ * Checks {@link RateLimitFilter}'s token bucket (GCRA) math, and that requests are only admitted once.
+ */
+public final class RateLimitFilterTest
+{
+	private static final long START = 1000000000L;
+	private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+	
+	private RateLimitFilterTest() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		burst();
+		refill();
+		idle();
+		separateKeys();
+		asyncDispatch();
+		System.out.println("RateLimitFilterTest: OK");
+	}
+
+	// 10 requests per second, in bursts of up to 10.
+	private static RateLimitFilter filter()
+	{
+		return new RateLimitFilter(RateLimitConfigurationBuilder.rateLimit("/*").setRate(10.0).setBurst(10));
+	}
+
+	private static void burst()
+	{
+		RateLimitFilter filter = filter();
+		for (int i = 0; i < 10; i++)
+			checkEquals(0L, filter.acquireToken("a", START), "token " + i + " of the burst");
+		checkEquals(INTERVAL, filter.acquireToken("a", START), "time until the next token after the burst");
+		checkEquals(INTERVAL, filter.acquireToken("a", START), "rejected requests do not take tokens");
+		checkEquals(INTERVAL / 2, filter.acquireToken("a", START + INTERVAL / 2), "time until the next token, partway");
+	}
+
+	private static void refill()
+	{
+		RateLimitFilter filter = filter();
+		for (int i = 0; i < 10; i++)
+			filter.acquireToken("a", START);
+		checkEquals(0L, filter.acquireToken("a", START + INTERVAL), "one token per interval");
+		checkEquals(INTERVAL, filter.acquireToken("a", START + INTERVAL), "only one");
+		checkEquals(0L, filter.acquireToken("a", START + 3 * INTERVAL), "two more tokens after two intervals");
+		checkEquals(0L, filter.acquireToken("a", START + 3 * INTERVAL), "second token");
+		checkEquals(INTERVAL, filter.acquireToken("a", START + 3 * INTERVAL), "no third token");
+	}
+
+	private static void idle()
+	{
+		RateLimitFilter filter = filter();
+		for (int i = 0; i < 10; i++)
+			filter.acquireToken("a", START);
+		// A bucket that has been idle for longer than a refill is full, and never holds more than the burst.
+		long later = START + TimeUnit.SECONDS.toNanos(60);
+		for (int i = 0; i < 10; i++)
+			checkEquals(0L, filter.acquireToken("a", later), "token " + i + " of the burst after idling");
+		checkEquals(INTERVAL, filter.acquireToken("a", later), "burst is not more than 10 after idling");
+	}
+
+	private static void separateKeys()
+	{
+		RateLimitFilter filter = filter();
+		for (int i = 0; i < 10; i++)
+			filter.acquireToken("a", START);
+		checkEquals(INTERVAL, filter.acquireToken("a", START), "a is limited");
+		checkEquals(0L, filter.acquireToken("b", START), "b has its own bucket");
+		checkEquals(2, filter.getTrackedClients(), "tracked clients");
+	}
+
+	// A request that the application dispatches again must not take a second token or permit.
+	private static void asyncDispatch() throws Exception
+	{
+		RateLimitFilter filter = new RateLimitFilter(RateLimitConfigurationBuilder.rateLimit("/*").setRate(0.1).setBurst(1).setMaxRequests(1));
+		ServletContextHandler context = new ServletContextHandler();
+		context.addFilter(new FilterHolder(filter), "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+		context.addServlet(new ServletHolder(new HttpServlet()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			{
+				if (request.getDispatcherType() == DispatcherType.REQUEST)
+					request.startAsync().dispatch();
+				else
+					response.setStatus(HttpServletResponse.SC_OK);
+			}
+		}), "/*");
+		
+		Server server = new Server();
+		LocalConnector connector = new LocalConnector(server);
+		server.addConnector(connector);
+		server.setHandler(context);
+		server.start();
+		try {
+			String request = "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+			String response = connector.getResponse(request);
+			check(response.startsWith("HTTP/1.1 200"), "dispatched request is not limited again: " + response);
+			checkEquals(0L, filter.getRateLimitedRequests(), "rate limited requests");
+			checkEquals(0L, filter.getSuspendedRequests(), "suspended requests");
+			checkEquals(0, filter.getActiveRequests(), "active requests after the dispatch");
+			response = connector.getResponse(request);
+			check(response.startsWith("HTTP/1.1 429"), "next request has no token: " + response);
+		} finally {
+			server.stop();
+		}
+	}
+
+}
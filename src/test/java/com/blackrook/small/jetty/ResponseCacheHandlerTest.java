@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the
+ * terms of the GNU Lesser Public License v2.1 which accompanies this
+ * distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.body;
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+import static com.blackrook.small.jetty.SmallJettyTestMain.header;
+import static com.blackrook.small.jetty.SmallJettyTestMain.request;
+import static com.blackrook.small.jetty.SmallJettyTestMain.status;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.ResponseCacheConfigurationBuilder;
+
+/**
+ * Checks {@link ResponseCacheHandler}'s freshness rules, <code>Vary</code> variants, cookie and
+ * <code>If-None-Match</code> handling, and request coalescing.
+ */
+public final class ResponseCacheHandlerTest
+{
+	private ResponseCacheHandlerTest() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		timeToLive();
+		noTimeToLive();
+		exclusions();
+		vary();
+		cookies();
+		ifNoneMatch();
+		coalescing();
+		coalesceTimeout();
+		System.out.println("ResponseCacheHandlerTest: OK");
+	}
+
+	private static void timeToLive() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache().setDefaultTimeToLive(60000));
+		try {
+			fixture.checkCached("/a", "max-age=60", "max-age");
+			fixture.checkCached("/b", "max-age=0, s-maxage=60", "s-maxage over max-age");
+			fixture.checkCached("/c", null, "default time-to-live");
+			fixture.checkNotCached("/d", "s-maxage=0, max-age=60", "s-maxage=0");
+			fixture.checkNotCached("/e", "max-age=0", "max-age=0");
+
+			String response = fixture.get("/a");
+			check(header(response, "Age") != null, "hits have an Age header");
+			checkEquals("calls=2", body(fixture.get("/a", "Cache-Control: no-cache")), "request no-cache skips the lookup");
+			checkEquals("calls=2", body(fixture.get("/a")), "request no-cache stores the new response");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void noTimeToLive() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache());
+		try {
+			fixture.checkNotCached("/a", null, "no freshness and no default time-to-live");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void exclusions() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache().setDefaultTimeToLive(60000));
+		try {
+			fixture.checkNotCached("/a", "private, max-age=60", "private");
+			fixture.checkNotCached("/b", "no-cache", "no-cache");
+			fixture.checkNotCached("/c", "no-store", "no-store");
+			fixture.checkNotCached("/cookie", "max-age=60", "Set-Cookie");
+			fixture.checkNotCached("/status?code=500", "max-age=60", "500 status");
+
+			fixture.get("/d", "Authorization: Basic eDp5");
+			fixture.get("/d", "Authorization: Basic eDp5");
+			checkEquals(2, fixture.calls("/d"), "requests with Authorization are not cached");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void vary() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache());
+		try {
+			checkEquals("en calls=1", body(fixture.get("/vary", "Accept-Language: en")), "first variant");
+			checkEquals("fr calls=2", body(fixture.get("/vary", "Accept-Language: fr")), "second variant is not the first");
+			checkEquals("en calls=1", body(fixture.get("/vary", "Accept-Language: en")), "first variant is cached");
+			checkEquals("fr calls=2", body(fixture.get("/vary", "Accept-Language: fr")), "second variant is cached");
+			checkEquals(" calls=3", body(fixture.get("/vary")), "missing header is its own variant");
+			checkEquals(2L, fixture.handler.getHits(), "hits");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void cookies() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache().setDefaultTimeToLive(60000));
+		try {
+			// A response to a request with cookies may be personalized.
+			checkEquals("calls=1", body(fixture.get("/a", "Cookie: user=alice")), "first cookie request");
+			checkEquals("calls=2", body(fixture.get("/a", "Cookie: user=bob")), "response to a cookie request is not stored");
+			checkEquals("calls=3", body(fixture.get("/a")), "first request without cookies");
+			checkEquals("calls=3", body(fixture.get("/a")), "request without cookies is cached");
+			checkEquals("calls=4", body(fixture.get("/a", "Cookie: user=alice")), "private response is not served to a cookie request");
+
+			fixture.get("/b?cc=public,max-age=60", "Cookie: user=alice");
+			checkEquals("calls=1", body(fixture.get("/b?cc=public,max-age=60", "Cookie: user=bob")), "public response is shared");
+			fixture.get("/c?cc=s-maxage=60", "Cookie: user=alice");
+			checkEquals("calls=1", body(fixture.get("/c?cc=s-maxage=60", "Cookie: user=bob")), "s-maxage response is shared");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void ifNoneMatch() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache());
+		try {
+			fixture.get("/etag");
+			checkEquals(304, status(fixture.get("/etag", "If-None-Match: \"abc\"")), "matching entity tag");
+			checkEquals(304, status(fixture.get("/etag", "If-None-Match: W/\"abc\"")), "weak comparison");
+			checkEquals(304, status(fixture.get("/etag", "If-None-Match: \"x\", \"abc\"")), "entity tag list");
+			checkEquals(304, status(fixture.get("/etag", "If-None-Match: *")), "any entity tag");
+			checkEquals(200, status(fixture.get("/etag", "If-None-Match: \"ab\"")), "different entity tag");
+
+			fixture.get("/status?code=404&etag=1");
+			String response = fixture.get("/status?code=404&etag=1", "If-None-Match: \"abc\"");
+			checkEquals(404, status(response), "cached 404 is not turned into a 304");
+			checkEquals(1, fixture.calls("/status"), "404 is cached");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void coalescing() throws Exception
+	{
+		final int requests = 8;
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache());
+		try {
+			Thread[] threads = new Thread[requests];
+			String[] responses = new String[requests];
+			for (int i = 0; i < requests; i++)
+			{
+				final int index = i;
+				threads[i] = new Thread(() ->
+				{
+					try {
+						responses[index] = fixture.get("/slow");
+					} catch (Exception e) {
+						responses[index] = e.toString();
+					}
+				});
+				threads[i].start();
+			}
+
+			// The first request is held until the others are waiting on it.
+			long deadline = System.currentTimeMillis() + 5000L;
+			while (fixture.handler.getCoalescedRequests() < requests - 1 && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			fixture.slow.countDown();
+			for (Thread thread : threads)
+				thread.join(10000L);
+
+			checkEquals((long)(requests - 1), fixture.handler.getCoalescedRequests(), "coalesced requests");
+			checkEquals(1, fixture.calls("/slow"), "calls for coalesced requests");
+			for (String response : responses)
+				checkEquals("calls=1", body(response), "coalesced response");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	private static void coalesceTimeout() throws Exception
+	{
+		Fixture fixture = new Fixture(ResponseCacheConfigurationBuilder.responseCache().setCoalesceTimeout(100));
+		try {
+			Thread first = new Thread(() ->
+			{
+				try {
+					fixture.get("/slow");
+				} catch (Exception e) {
+					// Checked through the call count.
+				}
+			});
+			first.start();
+			long deadline = System.currentTimeMillis() + 5000L;
+			while (fixture.calls("/slow") == 0 && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			checkEquals(200, status(fixture.get("/slow?other=1")), "different key");
+			checkEquals(0L, fixture.handler.getCoalescedRequests(), "different key is not coalesced");
+			// Stops waiting after the coalesce timeout, and goes to the handler itself.
+			String response = fixture.get("/slow");
+			fixture.slow.countDown();
+			first.join(10000L);
+			checkEquals(200, status(response), "timed out coalesced request");
+			checkEquals(1L, fixture.handler.getCoalescedRequests(), "coalesced requests");
+			checkEquals(3, fixture.calls("/slow"), "calls after a coalesce timeout");
+		} finally {
+			fixture.shutdown();
+		}
+	}
+
+	/**
+	 * A server with a response cache in front of a handler that counts its calls.
+	 * The handler responds with "calls=N" (the amount of calls for that path), and picks its response from the path:
+	 * <ul>
+	 * <li><code>/cookie</code> sets a cookie.</li>
+	 * <li><code>/etag</code> has an entity tag.</li>
+	 * <li><code>/slow</code> waits until {@link #slow} is counted down, on its first call only.</li>
+	 * <li><code>/status?code=N&amp;etag=1</code> responds with status N, and an entity tag if set.</li>
+	 * <li><code>/vary</code> varies on Accept-Language, and puts its value before the calls.</li>
+	 * </ul>
+	 * The Cache-Control header is the value given to {@link #checkCached(String, String, String)}, or the
+	 * <code>cc</code> query parameter, or <code>max-age=60</code>.
+	 */
+	private static final class Fixture extends AbstractHandler
+	{
+		private final Server server;
+		private final LocalConnector connector;
+		private final ResponseCacheHandler handler;
+		private final Map<String, AtomicInteger> calls;
+		private final CountDownLatch slow;
+		private volatile String cacheControl;
+
+		private Fixture(ResponseCacheConfigurationBuilder config) throws Exception
+		{
+			this.server = new Server();
+			this.connector = new LocalConnector(server);
+			this.handler = new ResponseCacheHandler(config);
+			this.calls = new ConcurrentHashMap<>();
+			this.slow = new CountDownLatch(1);
+			this.cacheControl = "max-age=60";
+			server.addConnector(connector);
+			handler.setHandler(this);
+			server.setHandler(handler);
+			server.start();
+		}
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+		{
+			int count = calls.computeIfAbsent(target, (k) -> new AtomicInteger()).incrementAndGet();
+			baseRequest.setHandled(true);
+			String body = "calls=" + count;
+
+			String cc = request.getParameter("cc") != null ? request.getParameter("cc") : cacheControl;
+			if (cc != null)
+				response.setHeader("Cache-Control", cc);
+			switch (target)
+			{
+				case "/cookie":
+					response.addHeader("Set-Cookie", "session=" + count);
+					break;
+				case "/etag":
+					response.setHeader("ETag", "\"abc\"");
+					break;
+				case "/slow":
+					if (count > 1)
+						break;
+					try {
+						slow.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					break;
+				case "/status":
+					response.setStatus(Integer.parseInt(request.getParameter("code")));
+					if (request.getParameter("etag") != null)
+						response.setHeader("ETag", "\"abc\"");
+					break;
+				case "/vary":
+					response.setHeader("Vary", "Accept-Language");
+					body = (request.getHeader("Accept-Language") != null ? request.getHeader("Accept-Language") : "") + " " + body;
+					break;
+				default:
+					break;
+			}
+
+			byte[] content = body.getBytes(StandardCharsets.UTF_8);
+			response.setContentLength(content.length);
+			response.getOutputStream().write(content);
+		}
+
+		private String get(String path, String ... headers) throws Exception
+		{
+			return connector.getResponse(request(path, headers));
+		}
+
+		private int calls(String target)
+		{
+			AtomicInteger out = calls.get(target);
+			return out != null ? out.get() : 0;
+		}
+
+		// Requests a path twice with a Cache-Control response header, and checks that the second response came from the cache.
+		private void checkCached(String path, String cacheControl, String message) throws Exception
+		{
+			this.cacheControl = cacheControl;
+			checkEquals("calls=1", body(get(path)), message + ": first response");
+			checkEquals("calls=1", body(get(path)), message + ": cached response");
+			this.cacheControl = "max-age=60";
+		}
+
+		// Requests a path twice with a Cache-Control response header, and checks that both responses came from the handler.
+		private void checkNotCached(String path, String cacheControl, String message) throws Exception
+		{
+			this.cacheControl = cacheControl;
+			get(path);
+			get(path);
+			checkEquals(2, calls(path.indexOf('?') >= 0 ? path.substring(0, path.indexOf('?')) : path), message + " is not cached");
+			this.cacheControl = "max-age=60";
+		}
+
+		private void shutdown() throws Exception
+		{
+			slow.countDown();
+			server.stop();
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+
+import org.eclipse.jetty.http.HttpFields;
+
+/**
+ * Checks {@link ResponseCache}'s size limits, LRU eviction, expiry, and TinyLFU admission.
+ */
+public final class ResponseCacheTest
+{
+	/** Size of an entry with no headers and a 300 byte body. */
+	private static final long ENTRY_SIZE = 428L;
+	
+	private ResponseCacheTest() {}
+
+	public static void main(String[] args)
+	{
+		leastRecentlyUsed();
+		tooBig();
+		expiry();
+		admission();
+		segments();
+		System.out.println("ResponseCacheTest: OK");
+	}
+
+	private static ResponseCache.Entry entry(int bodySize, long expiresNanos)
+	{
+		return new ResponseCache.Entry(200, new HttpFields(), new byte[bodySize], 0L, expiresNanos);
+	}
+
+	// Room for two entries, in one segment.
+	private static ResponseCache smallCache(boolean admission)
+	{
+		return new ResponseCache(1000L, 300L, admission);
+	}
+
+	private static void leastRecentlyUsed()
+	{
+		ResponseCache cache = smallCache(false);
+		check(cache.put("a", entry(300, 100L)), "put a");
+		check(cache.put("b", entry(300, 100L)), "put b");
+		checkEquals(2 * ENTRY_SIZE, cache.getSize(), "size");
+		
+		check(cache.get("a", 0L) != null, "get a");
+		check(cache.put("c", entry(300, 100L)), "put c");
+		check(cache.get("b", 0L) == null, "least recently used entry is evicted");
+		check(cache.get("a", 0L) != null, "recently used entry is kept");
+		check(cache.get("c", 0L) != null, "new entry is kept");
+		checkEquals(2, cache.getEntryCount(), "entry count");
+		checkEquals(1L, cache.getEvictions(), "evictions");
+		
+		check(cache.put("a", entry(300, 100L)), "replace a");
+		checkEquals(2 * ENTRY_SIZE, cache.getSize(), "replacing does not count the old entry");
+		checkEquals(1L, cache.getEvictions(), "replacing does not evict");
+		
+		cache.clear();
+		checkEquals(0, cache.getEntryCount(), "entry count after clear");
+		checkEquals(0L, cache.getSize(), "size after clear");
+	}
+
+	private static void tooBig()
+	{
+		ResponseCache cache = smallCache(false);
+		cache.put("a", entry(300, 100L));
+		check(!cache.put("big", entry(900, 100L)), "entry bigger than the cache is not added");
+		check(cache.get("a", 0L) != null, "nothing is evicted for it");
+	}
+
+	private static void expiry()
+	{
+		ResponseCache cache = smallCache(false);
+		cache.put("a", entry(300, 100L));
+		check(cache.get("a", 99L) != null, "fresh before expiry");
+		check(cache.get("a", 100L) == null, "expired at expiry");
+		checkEquals(0L, cache.getSize(), "expired entry is removed");
+	}
+
+	private static void admission()
+	{
+		ResponseCache cache = smallCache(true);
+		cache.put("a", entry(300, 100L));
+		cache.put("b", entry(300, 100L));
+		cache.get("a", 0L);
+		check(!cache.put("c", entry(300, 100L)), "entry used no more often than the eldest is not admitted");
+		check(cache.get("b", 0L) != null, "eldest is kept");
+		
+		// Misses count as uses, too.
+		for (int i = 0; i < 3; i++)
+			cache.get("d", 0L);
+		check(cache.put("d", entry(300, 100L)), "entry used more often than the eldest is admitted");
+		check(cache.get("d", 0L) != null, "admitted entry is kept");
+		checkEquals(1L, cache.getEvictions(), "evictions");
+	}
+
+	private static void segments()
+	{
+		ResponseCache cache = new ResponseCache(64L << 20, 1L << 20, false);
+		for (int i = 0; i < 1000; i++)
+			check(cache.put("/resource/" + i, entry(300, 100L)), "put " + i);
+		checkEquals(1000, cache.getEntryCount(), "entry count across segments");
+		checkEquals(1000 * ENTRY_SIZE, cache.getSize(), "size across segments");
+		for (int i = 0; i < 1000; i++)
+			check(cache.get("/resource/" + i, 0L) != null, "get " + i);
+		check(cache.put("max", entry(1 << 20, 100L)), "largest entry fits in a segment");
+	}
+
+}
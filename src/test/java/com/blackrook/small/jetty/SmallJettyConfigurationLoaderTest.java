@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+import static com.blackrook.small.jetty.SmallJettyTestMain.check;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkEquals;
+import static com.blackrook.small.jetty.SmallJettyTestMain.checkThrows;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import com.blackrook.small.exception.SmallFrameworkSetupException;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.HTTP2ConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.ListenerConfigurationBuilder;
+import com.blackrook.small.jetty.DefaultSmallJettyConfiguration.UnixSocketConfigurationBuilder;
+
+/**
+ * Checks {@link SmallJettyConfigurationLoader}'s YAML reading, environment variable names, and validation.
+ */
+public final class SmallJettyConfigurationLoaderTest
+{
+	private SmallJettyConfigurationLoaderTest() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		readYAML();
+		readYAMLErrors();
+		toEnvironmentName();
+		environmentOverrides();
+		validatePorts();
+		validateThreads();
+		validateWarnings();
+		System.out.println("SmallJettyConfigurationLoaderTest: OK");
+	}
+
+	private static Properties yaml(String... lines) throws Exception
+	{
+		return SmallJettyConfigurationLoader.readYAML(new StringReader(String.join("\n", lines)));
+	}
+
+	private static void readYAML() throws Exception
+	{
+		Properties properties = yaml(
+			"# Comment",
+			"---",
+			"server:",
+			"  port: 8080",
+			"  servletPaths: [/api, \"/web\"]",
+			"  listeners:",
+			"    - admin",
+			"    - 'public'",
+			"listener:",
+			"  admin:",
+			"    port: 9090 # comment",
+			"    host: \"127.0.0.1\"",
+			"ssl:",
+			"  keyStorePath: /keys/a#b.jks"
+		);
+		checkEquals("8080", properties.getProperty("server.port"), "scalar");
+		checkEquals("/api,/web", properties.getProperty("server.servletPaths"), "flow list");
+		checkEquals("admin,public", properties.getProperty("server.listeners"), "block list");
+		checkEquals("9090", properties.getProperty("listener.admin.port"), "nested map with comment");
+		checkEquals("127.0.0.1", properties.getProperty("listener.admin.host"), "quoted scalar");
+		checkEquals("/keys/a#b.jks", properties.getProperty("ssl.keyStorePath"), "# without a space is not a comment");
+		checkEquals(6, properties.size(), "property count");
+	}
+
+	private static void readYAMLErrors()
+	{
+		checkThrows(SmallFrameworkSetupException.class, "tab indent", () -> yaml("server:", "\tport: 8080"));
+		checkThrows(SmallFrameworkSetupException.class, "flow map", () -> yaml("server: {port: 8080}"));
+		checkThrows(SmallFrameworkSetupException.class, "anchor", () -> yaml("server: &base"));
+		checkThrows(SmallFrameworkSetupException.class, "block scalar", () -> yaml("server: |"));
+		checkThrows(SmallFrameworkSetupException.class, "list item outside of a key", () -> yaml("- 8080"));
+		checkThrows(SmallFrameworkSetupException.class, "no colon", () -> yaml("server"));
+	}
+
+	private static void toEnvironmentName()
+	{
+		checkEquals("SMALL_JETTY_SERVER_PORT", SmallJettyConfigurationLoader.toEnvironmentName("server.port"), "simple");
+		checkEquals("SMALL_JETTY_SSL_KEY_STORE_PATH", SmallJettyConfigurationLoader.toEnvironmentName("ssl.keyStorePath"), "camel case");
+		checkEquals("SMALL_JETTY_GZIP_EXCLUDED_HTTP_METHODS", SmallJettyConfigurationLoader.toEnvironmentName("gzip.excludedHTTPMethods"), "acronym");
+		checkEquals("SMALL_JETTY_SSL_OCSP_STAPLING_ENABLED", SmallJettyConfigurationLoader.toEnvironmentName("ssl.ocspStaplingEnabled"), "leading acronym");
+		checkEquals("SMALL_JETTY_LISTENER_MY_API_PORT", SmallJettyConfigurationLoader.toEnvironmentName("listener.my-api.port"), "dash");
+	}
+
+	private static void environmentOverrides()
+	{
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "8080");
+		properties.setProperty("server.maxThreads", "100");
+		DefaultSmallJettyConfiguration config = SmallJettyConfigurationLoader.load(properties, Collections.singletonMap("SMALL_JETTY_SERVER_PORT", "9000"));
+		checkEquals(9000, config.getServerPort(), "environment overrides property");
+		checkEquals(100, config.getMaxThreads(), "property without override");
+		
+		properties.setProperty("server.port", "http");
+		checkThrows(SmallFrameworkSetupException.class, "bad number", () -> SmallJettyConfigurationLoader.load(properties, Collections.emptyMap()));
+	}
+
+	private static void validatePorts()
+	{
+		checkThrows(SmallFrameworkSetupException.class, "server port out of range", () -> 
+			SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure().setServerPort(70000))
+		);
+		checkThrows(SmallFrameworkSetupException.class, "listener on the server port", () -> 
+			SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure()
+				.setServerPort(8080)
+				.addListener(ListenerConfigurationBuilder.listener("a", 8080))
+			)
+		);
+		checkThrows(SmallFrameworkSetupException.class, "host listener, then all interfaces", () -> 
+			SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure()
+				.addListener(ListenerConfigurationBuilder.listener("a", 9000).setHost("127.0.0.1"))
+				.addListener(ListenerConfigurationBuilder.listener("b", 9000))
+			)
+		);
+		checkThrows(SmallFrameworkSetupException.class, "all interfaces, then host listener", () -> 
+			SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure()
+				.addListener(ListenerConfigurationBuilder.listener("a", 9000))
+				.addListener(ListenerConfigurationBuilder.listener("b", 9000).setHost("127.0.0.1"))
+			)
+		);
+		
+		// Different hosts, and port 0, do not conflict.
+		SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure()
+			.addListener(ListenerConfigurationBuilder.listener("a", 9000).setHost("127.0.0.1"))
+			.addListener(ListenerConfigurationBuilder.listener("b", 9000).setHost("127.0.0.2"))
+			.addListener(ListenerConfigurationBuilder.listener("c", 0))
+			.addListener(ListenerConfigurationBuilder.listener("d", 0))
+		);
+		// A Unix socket that replaces the server port frees it.
+		SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure()
+			.setServerPort(8080)
+			.setUnixSocket(UnixSocketConfigurationBuilder.unixSocket("/tmp/small-jetty.sock").setReplaceServerPort(true))
+			.addListener(ListenerConfigurationBuilder.listener("a", 8080))
+		);
+	}
+
+	private static void validateThreads()
+	{
+		checkThrows(SmallFrameworkSetupException.class, "no threads", () -> 
+			SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure().setMaxThreads(0))
+		);
+		checkThrows(SmallFrameworkSetupException.class, "fewer threads than acceptors and selectors", () -> 
+			SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure().setMaxThreads(2))
+		);
+	}
+
+	private static void validateWarnings()
+	{
+		List<String> warnings = SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure()
+			.setMaxThreads(200)
+			.setRequestHeaderSize(16384)
+			.setHTTP2(HTTP2ConfigurationBuilder.http2().setMaxHeaderListSize(8192))
+		);
+		check(warnings.stream().anyMatch((warning) -> warning.startsWith("HTTP/2 max header list size")), "HTTP/2 header list warning: " + warnings);
+		
+		warnings = SmallJettyConfigurationLoader.validate(DefaultSmallJettyConfiguration.configure().setMaxThreads(200));
+		check(warnings.isEmpty(), "default configuration warnings: " + warnings);
+	}
+
+}
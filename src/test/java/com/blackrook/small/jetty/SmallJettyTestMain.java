@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2020 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.small.jetty;
+
+/**
+ * Runs the checks for the parts of this project that can be tested without a running server.
+ * There is no test framework on the classpath, so each check class is a main class that throws an
+ * {@link AssertionError} on the first failed check.
+ */
+public final class SmallJettyTestMain
+{
+	private SmallJettyTestMain() {}
+
+	/**
+	 * A check that can throw anything.
+	 */
+	@FunctionalInterface
+	interface Check
+	{
+		void run() throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		SmallJettyConfigurationLoaderTest.main(args);
+		LatencyHistogramTest.main(args);
+		LogarithmicByteBufferPoolTest.main(args);
+		ResponseCacheTest.main(args);
+		ResponseCacheHandlerTest.main(args);
+		CompressionHandlerTest.main(args);
+		RateLimitFilterTest.main(args);
+		LoadSheddingHandlerTest.main(args);
+		AsyncRequestLogTest.main(args);
+		System.out.println("All checks passed.");
+	}
+
+	static void check(boolean condition, String message)
+	{
+		if (!condition)
+			throw new AssertionError(message);
+	}
+
+	static void checkEquals(Object expected, Object actual, String message)
+	{
+		if (expected == null ? actual != null : !expected.equals(actual))
+			throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+	}
+
+	static void checkThrows(Class<? extends Throwable> type, String message, Check check)
+	{
+		try {
+			check.run();
+		} catch (Throwable t) {
+			if (type.isInstance(t))
+				return;
+			throw new AssertionError(message + ": expected " + type.getSimpleName() + " but got " + t, t);
+		}
+		throw new AssertionError(message + ": expected " + type.getSimpleName() + " but nothing was thrown");
+	}
+
+	// Builds a raw GET request that closes its connection, with extra header lines ("Name: value").
+	static String request(String path, String ... headers)
+	{
+		StringBuilder sb = new StringBuilder("GET ").append(path).append(" HTTP/1.1\r\nHost: localhost\r\n");
+		for (String header : headers)
+			sb.append(header).append("\r\n");
+		return sb.append("Connection: close\r\n\r\n").toString();
+	}
+
+	// Gets the status code from a raw response.
+	static int status(String response)
+	{
+		return Integer.parseInt(response.substring(response.indexOf(' ') + 1, response.indexOf(' ') + 4));
+	}
+
+	// Gets the first value of a header from a raw response, or null if it is missing.
+	static String header(String response, String name)
+	{
+		int end = response.indexOf("\r\n\r\n");
+		for (String line : response.substring(0, end < 0 ? response.length() : end).split("\r\n"))
+		{
+			int colon = line.indexOf(':');
+			if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name))
+				return line.substring(colon + 1).trim();
+		}
+		return null;
+	}
+
+	// Gets the body from a raw response that is not chunked.
+	static String body(String response)
+	{
+		int end = response.indexOf("\r\n\r\n");
+		return end < 0 ? "" : response.substring(end + 4);
+	}
+
+}